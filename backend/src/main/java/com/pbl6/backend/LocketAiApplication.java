@@ -4,6 +4,7 @@ import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
 import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
 import com.pbl6.backend.config.DotenvApplicationListener;
 
@@ -11,6 +12,7 @@ import com.pbl6.backend.config.DotenvApplicationListener;
 @EnableJpaRepositories
 @EnableTransactionManagement
 @EnableAsync
+@EnableScheduling
 public class LocketAiApplication {
 
     public static void main(String[] args) {
@@ -21,4 +21,17 @@ public class AsyncConfig {
         executor.initialize();
         return executor;
     }
+
+    // Dựng chỉ mục / backfill lúc khởi động (FriendGraph, BlockList, UserSearchIndex...): tách khỏi pool gửi email
+    // để các job chạy lâu không chiếm luồng và hàng đợi của email
+    @Bean(name = "startupExecutor")
+    public Executor startupExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(3);
+        executor.setMaxPoolSize(3);
+        executor.setQueueCapacity(20);
+        executor.setThreadNamePrefix("startup-");
+        executor.initialize();
+        return executor;
+    }
 }
@@ -0,0 +1,21 @@
+package com.pbl6.backend.config;
+
+import org.hibernate.boot.model.FunctionContributions;
+import org.hibernate.boot.model.FunctionContributor;
+import org.hibernate.type.StandardBasicTypes;
+
+/**
+ * Hàm {@code match_against(cột1, cột2, truy vấn)} cho HQL / Criteria, sinh ra
+ * {@code MATCH(cột1, cột2) AGAINST (truy vấn IN BOOLEAN MODE)} của MySQL (cần FULLTEXT index trên đúng các cột đó).
+ * Đăng ký qua META-INF/services/org.hibernate.boot.model.FunctionContributor.
+ */
+public class MySqlFullTextFunctionContributor implements FunctionContributor {
+
+    @Override
+    public void contributeFunctions(FunctionContributions functionContributions) {
+        functionContributions.getFunctionRegistry().registerPattern(
+                "match_against",
+                "match(?1, ?2) against (?3 in boolean mode)",
+                functionContributions.getTypeConfiguration().getBasicTypeRegistry().resolve(StandardBasicTypes.DOUBLE));
+    }
+}
@@ -65,6 +65,8 @@ public class SecurityConfig {
                 .requestMatchers("/actuator/health").permitAll()
                 // Cho phép AI server gọi callback không cần JWT (đã có header bí mật)
                 .requestMatchers("/api/ai/callback/**").permitAll()
+                // WebSocket tự xác thực JWT lúc handshake (JwtHandshakeInterceptor)
+                .requestMatchers("/ws/**").permitAll()
                 
                 // API endpoints cần authentication
                 .requestMatchers("/api/users/**").authenticated()
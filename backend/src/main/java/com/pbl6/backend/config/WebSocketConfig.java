@@ -0,0 +1,30 @@
+package com.pbl6.backend.config;
+
+import com.pbl6.backend.websocket.JwtHandshakeInterceptor;
+import com.pbl6.backend.websocket.MessageWebSocketHandler;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+
+@Configuration
+@EnableWebSocket
+public class WebSocketConfig implements WebSocketConfigurer {
+
+    private final MessageWebSocketHandler messageWebSocketHandler;
+    private final JwtHandshakeInterceptor jwtHandshakeInterceptor;
+
+    public WebSocketConfig(MessageWebSocketHandler messageWebSocketHandler,
+                           JwtHandshakeInterceptor jwtHandshakeInterceptor) {
+        this.messageWebSocketHandler = messageWebSocketHandler;
+        this.jwtHandshakeInterceptor = jwtHandshakeInterceptor;
+    }
+
+    @Override
+    public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+        // Xác thực bằng JWT trong interceptor (handshake không đi qua JwtAuthenticationFilter)
+        registry.addHandler(messageWebSocketHandler, "/ws/messages")
+                .addInterceptors(jwtHandshakeInterceptor)
+                .setAllowedOriginPatterns("*");
+    }
+}
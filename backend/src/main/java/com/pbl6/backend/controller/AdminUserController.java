@@ -2,18 +2,20 @@ package com.pbl6.backend.controller;
 
 import com.pbl6.backend.model.User;
 import com.pbl6.backend.request.UpdateUserStatusRequest;
+import com.pbl6.backend.service.AdminUserQueryService;
 import com.pbl6.backend.service.ModerationService;
+import com.pbl6.backend.service.UserSearchIndex;
+import com.pbl6.backend.service.UserService;
 import com.pbl6.backend.repository.UserRepository;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
-
 @RestController
 @RequestMapping("/api/admin/users")
 @CrossOrigin(origins = "*")
@@ -25,65 +27,60 @@ public class AdminUserController {
     @Autowired
     private ModerationService moderationService;
 
+    @Autowired
+    private UserSearchIndex userSearchIndex;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private AdminUserQueryService adminUserQueryService;
+
+    private static final int MAX_PAGE_SIZE = 100;
+
+    /**
+     * Không có cursor: phân trang theo page/size (Page như trước). Có cursor (rỗng = trang đầu): keyset,
+     * trả về CursorPageResponse với nextCursor; withTotal=true để kèm tổng số.
+     * Tìm theo họ tên / username (không kèm bộ lọc) dùng chỉ mục trong bộ nhớ, xếp theo độ liên quan.
+     */
     @GetMapping
     public ResponseEntity<?> getAllUsers(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(required = false) String status,
             @RequestParam(required = false) String subscription,
-            @RequestParam(required = false) String search) {
-        
-        Pageable pageable = PageRequest.of(page, size);
-        Page<User> users;
-
-        // Search by keyword (highest priority)
-        if (search != null && !search.isEmpty()) {
-            List<User> searchResults = userRepository.searchByKeyword(search);
-            int start = (int) pageable.getOffset();
-            int end = Math.min((start + pageable.getPageSize()), searchResults.size());
-            List<User> pageContent = searchResults.subList(start, end);
-            users = new org.springframework.data.domain.PageImpl<>(pageContent, pageable, searchResults.size());
-        }
-        // Filter by status and/or subscription
-        else if ((status != null && !status.isEmpty() && !"ALL".equalsIgnoreCase(status)) ||
-                 (subscription != null && !subscription.isEmpty() && !"ALL".equalsIgnoreCase(subscription))) {
-            List<User> filteredUsers = userRepository.findAll();
-            
-            // Filter by status
-            if (status != null && !status.isEmpty() && !"ALL".equalsIgnoreCase(status)) {
-                try {
-                    User.AccountStatus accountStatus = User.AccountStatus.valueOf(status.toUpperCase());
-                    filteredUsers = filteredUsers.stream()
-                        .filter(u -> u.getAccountStatus() == accountStatus)
-                        .collect(java.util.stream.Collectors.toList());
-                } catch (IllegalArgumentException e) {
-                    // Invalid status, ignore filter
-                }
+            @RequestParam(required = false) String search,
+            @RequestParam(required = false) String sort,
+            @RequestParam(defaultValue = "desc") String direction,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "false") boolean withTotal) {
+
+        User.AccountStatus accountStatus = parseFilter(User.AccountStatus.class, status);
+        User.SubscriptionStatus subStatus = parseFilter(User.SubscriptionStatus.class, subscription);
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        boolean descending = !"asc".equalsIgnoreCase(direction);
+
+        try {
+            AdminUserQueryService.SortField sortField = AdminUserQueryService.SortField.fromParam(sort);
+            if (cursor != null) {
+                return ResponseEntity.ok(adminUserQueryService.listAfter(accountStatus, subStatus, search,
+                        sortField, descending, cursor, pageSize, withTotal));
             }
-            
-            // Filter by subscription
-            if (subscription != null && !subscription.isEmpty() && !"ALL".equalsIgnoreCase(subscription)) {
-                try {
-                    User.SubscriptionStatus subStatus = User.SubscriptionStatus.valueOf(subscription.toUpperCase());
-                    filteredUsers = filteredUsers.stream()
-                        .filter(u -> u.getSubscriptionStatus() == subStatus)
-                        .collect(java.util.stream.Collectors.toList());
-                } catch (IllegalArgumentException e) {
-                    // Invalid subscription, ignore filter
-                }
+
+            Pageable pageable = PageRequest.of(Math.max(page, 0), pageSize);
+            if (search != null && !search.isEmpty() && accountStatus == null && subStatus == null
+                    && userSearchIndex.isReady() && isNameQuery(search)) {
+                UserSearchIndex.Result result = userSearchIndex.search(search, (int) pageable.getOffset(), pageable.getPageSize());
+                return ResponseEntity.ok(new PageImpl<>(userService.findAllInOrder(result.getUserIds()),
+                        pageable, result.getTotal()));
             }
-            
-            int start = (int) pageable.getOffset();
-            int end = Math.min((start + pageable.getPageSize()), filteredUsers.size());
-            List<User> pageContent = filteredUsers.subList(start, end);
-            users = new org.springframework.data.domain.PageImpl<>(pageContent, pageable, filteredUsers.size());
-        } 
-        // Get all users
-        else {
-            users = userRepository.findAll(pageable);
-        }
 
-        return ResponseEntity.ok(users);
+            Page<User> users = adminUserQueryService.listPage(accountStatus, subStatus, search, sortField, descending,
+                    pageable.getPageNumber(), pageable.getPageSize());
+            return ResponseEntity.ok(users);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
     }
 
     @GetMapping("/{userId}")
@@ -106,4 +103,21 @@ public class AdminUserController {
             return ResponseEntity.badRequest().body(e.getMessage());
         }
     }
+
+    // "ALL", rỗng hoặc giá trị lạ: không lọc
+    private static <E extends Enum<E>> E parseFilter(Class<E> type, String value) {
+        if (value == null || value.isEmpty() || "ALL".equalsIgnoreCase(value)) {
+            return null;
+        }
+        try {
+            return Enum.valueOf(type, value.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    // Có chữ cái và không phải email: tìm theo họ tên / username
+    private static boolean isNameQuery(String search) {
+        return search.indexOf('@') < 0 && search.chars().anyMatch(Character::isLetter);
+    }
 }
@@ -1,16 +1,19 @@
 package com.pbl6.backend.controller;
 
 import com.pbl6.backend.response.ConversationResponse;
+import com.pbl6.backend.response.InboxConversationResponse;
 import com.pbl6.backend.security.CustomUserDetailsService;
 import com.pbl6.backend.service.ConversationService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @RestController
@@ -45,6 +48,22 @@ public class ConversationController {
         return ResponseEntity.ok(res);
     }
 
+    /**
+     * GET /api/conversations/inbox: inbox phân trang (người còn lại + preview tin cuối + số chưa đọc)
+     * Query params:
+     * - beforeLastMessageAt (optional, ISO-8601), beforeConversationId (optional): cursor là dòng cuối của trang trước
+     * - limit (optional): số hội thoại (default 20, max 50)
+     */
+    @GetMapping("/inbox")
+    @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
+    public ResponseEntity<List<InboxConversationResponse>> getInbox(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime beforeLastMessageAt,
+            @RequestParam(required = false) String beforeConversationId,
+            @RequestParam(required = false) Integer limit) {
+        var principal = getCurrentPrincipal();
+        return ResponseEntity.ok(conversationService.getInbox(principal.getUser(), beforeLastMessageAt, beforeConversationId, limit));
+    }
+
     // GET /api/conversations/{conversationId}: xem thông tin hội thoại (không bao gồm messages)
     @GetMapping("/{conversationId}")
     @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
@@ -58,24 +77,31 @@ public class ConversationController {
      * GET /api/conversations/{conversationId}/messages: lấy tin nhắn với pagination
      * Query params:
      * - beforeMessageId (optional): load tin nhắn cũ hơn tin này (dùng khi scroll lên)
+     * - beforeSentAt (optional, ISO-8601): sentAt của beforeMessageId, gửi kèm để server khỏi tra lại
+     * - afterMessageId (optional): load tin nhắn mới hơn tin này (bắt kịp tin mới, ưu tiên hơn beforeMessageId)
+     * - afterSentAt (optional, ISO-8601): sentAt của afterMessageId
      * - limit (optional): số lượng tin (default 25, max 100)
      * 
      * Response: List<MessageResponse> sắp xếp tăng dần theo thời gian (cũ → mới)
      * 
      * Cách sử dụng:
      * 1. Lần đầu load: GET /messages (không có params) → 25 tin mới nhất
-     * 2. Scroll lên load cũ hơn: GET /messages?beforeMessageId=<id_tin_cu_nhat>&limit=25
+     * 2. Scroll lên load cũ hơn: GET /messages?beforeMessageId=<id_tin_cu_nhat>&beforeSentAt=<sentAt>&limit=25
+     * 3. Bắt kịp tin mới: GET /messages?afterMessageId=<id_tin_moi_nhat>&afterSentAt=<sentAt>
      */
     @GetMapping("/{conversationId}/messages")
     @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
     public ResponseEntity<?> getConversationMessages(
             @PathVariable String conversationId,
             @RequestParam(required = false) String beforeMessageId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime beforeSentAt,
+            @RequestParam(required = false) String afterMessageId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime afterSentAt,
             @RequestParam(required = false) Integer limit) {
         try {
             var principal = getCurrentPrincipal();
             var messages = conversationService.getConversationMessages(
-                    principal.getUser(), conversationId, beforeMessageId, limit);
+                    principal.getUser(), conversationId, beforeMessageId, beforeSentAt, afterMessageId, afterSentAt, limit);
             return ResponseEntity.ok(messages);
         } catch (IllegalArgumentException e) {
             return ResponseEntity.badRequest().body(new java.util.HashMap<String, String>() {{
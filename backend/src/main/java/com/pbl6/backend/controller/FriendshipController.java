@@ -1,11 +1,15 @@
 package com.pbl6.backend.controller;
 
+import com.pbl6.backend.request.ContactSyncRequest;
+import com.pbl6.backend.response.ContactMatchResponse;
+import com.pbl6.backend.response.FriendSuggestionResponse;
 import com.pbl6.backend.response.FriendshipResponse;
 import com.pbl6.backend.response.PublicUserResponse;
 import com.pbl6.backend.model.Friendship;
 import com.pbl6.backend.security.CustomUserDetailsService;
 import com.pbl6.backend.service.FriendshipService;
 import com.pbl6.backend.service.UserService;
+import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -135,6 +139,43 @@ public class FriendshipController {
         }
     }
 
+    // Số bạn bè của tôi
+    @GetMapping("/count")
+    @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
+    public ResponseEntity<?> countFriends() {
+        CustomUserDetailsService.CustomUserPrincipal principal = getCurrentPrincipal();
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("count", friendshipService.getFriendCount(principal.getUser().getUserId()));
+        return ResponseEntity.ok(payload);
+    }
+
+    // Bạn chung giữa tôi và targetUsername
+    @GetMapping("/mutual/{targetUsername}")
+    @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
+    public ResponseEntity<?> mutualFriends(@PathVariable String targetUsername) {
+        CustomUserDetailsService.CustomUserPrincipal principal = getCurrentPrincipal();
+        List<PublicUserResponse> mutual = friendshipService.getMutualFriends(principal.getUser().getUserId(), targetUsername);
+        return ResponseEntity.ok(mutual);
+    }
+
+    // Gợi ý kết bạn theo số bạn chung
+    @GetMapping("/suggestions")
+    @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
+    public ResponseEntity<?> friendSuggestions(@RequestParam(required = false) Integer limit) {
+        CustomUserDetailsService.CustomUserPrincipal principal = getCurrentPrincipal();
+        List<FriendSuggestionResponse> suggestions = friendshipService.getFriendSuggestions(principal.getUser().getUserId(), limit);
+        return ResponseEntity.ok(suggestions);
+    }
+
+    // Tìm bạn từ danh bạ (hash SHA-256 của số điện thoại / email đã chuẩn hóa)
+    @PostMapping("/contacts/match")
+    @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
+    public ResponseEntity<?> matchContacts(@Valid @RequestBody ContactSyncRequest req) {
+        CustomUserDetailsService.CustomUserPrincipal principal = getCurrentPrincipal();
+        List<ContactMatchResponse> matches = friendshipService.matchContacts(principal.getUser().getUserId(), req);
+        return ResponseEntity.ok(matches);
+    }
+
     @GetMapping("/debug")
     @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
     public ResponseEntity<?> debugFriends() {
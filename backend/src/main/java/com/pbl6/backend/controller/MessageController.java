@@ -75,4 +75,28 @@ public class MessageController {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error);
         }
     }
+
+    // Đánh dấu đã đọc mọi tin trong hội thoại tới tin upToMessageId (một câu UPDATE)
+    @PatchMapping("/conversation/{conversationId}/read")
+    @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
+    public ResponseEntity<?> markConversationRead(@PathVariable String conversationId,
+                                                  @RequestParam String upToMessageId) {
+        try {
+            var principal = getCurrentPrincipal();
+            int marked = messageService.markReadUpTo(principal.getUser(), conversationId, upToMessageId);
+            Map<String, Object> payload = new HashMap<>();
+            payload.put("conversationId", conversationId);
+            payload.put("upToMessageId", upToMessageId);
+            payload.put("markedRead", marked);
+            return ResponseEntity.ok(payload);
+        } catch (IllegalArgumentException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+        } catch (Exception e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Đã xảy ra lỗi khi đánh dấu đã đọc");
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error);
+        }
+    }
 }
\ No newline at end of file
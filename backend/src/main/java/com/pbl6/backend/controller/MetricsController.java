@@ -1,11 +1,25 @@
 package com.pbl6.backend.controller;
 
 import com.pbl6.backend.response.MetricsOverviewResponse;
+import com.pbl6.backend.service.BlockList;
+import com.pbl6.backend.service.ContactHashIndex;
+import com.pbl6.backend.service.DashboardMetricsSnapshot;
+import com.pbl6.backend.service.ConversationMembershipCache;
+import com.pbl6.backend.service.FeedPageCache;
+import com.pbl6.backend.service.FriendGraph;
+import com.pbl6.backend.service.FriendSuggestionEngine;
+import com.pbl6.backend.service.MessageGroupCommitter;
 import com.pbl6.backend.service.MetricsService;
+import com.pbl6.backend.service.PostSnippetCache;
+import com.pbl6.backend.service.ReactionWriteBuffer;
+import com.pbl6.backend.service.UserSearchIndex;
+import com.pbl6.backend.websocket.WebSocketSessionRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
 
@@ -17,25 +31,146 @@ public class MetricsController {
     @Autowired
     private MetricsService metricsService;
 
+    @Autowired
+    private FeedPageCache feedPageCache;
+
+    @Autowired
+    private ReactionWriteBuffer reactionWriteBuffer;
+
+    @Autowired
+    private WebSocketSessionRegistry webSocketSessionRegistry;
+
+    @Autowired
+    private MessageGroupCommitter messageGroupCommitter;
+
+    @Autowired
+    private PostSnippetCache postSnippetCache;
+
+    @Autowired
+    private ConversationMembershipCache conversationMembershipCache;
+
+    @Autowired
+    private FriendGraph friendGraph;
+
+    @Autowired
+    private FriendSuggestionEngine friendSuggestionEngine;
+
+    @Autowired
+    private BlockList blockList;
+
+    @Autowired
+    private ContactHashIndex contactHashIndex;
+
+    @Autowired
+    private UserSearchIndex userSearchIndex;
+
+    @Autowired
+    private DashboardMetricsSnapshot dashboardMetricsSnapshot;
+
     @GetMapping("/overview")
     public ResponseEntity<?> getOverview() {
         MetricsOverviewResponse response = metricsService.getOverview();
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * Chuỗi theo ngày từ Daily_Metrics: period "Nd" (7d, 30d, 90d, 365d...) hoặc from / to (yyyy-MM-dd, gồm cả hai đầu).
+     */
     @GetMapping("/users")
     public ResponseEntity<?> getUserMetrics(
-            @RequestParam(defaultValue = "7d") String period) {
-        
-        List<Map<String, Object>> metrics = metricsService.getUserMetrics(period);
-        return ResponseEntity.ok(metrics);
+            @RequestParam(defaultValue = "7d") String period,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        try {
+            List<Map<String, Object>> metrics = metricsService.getUserMetrics(period, from, to);
+            return ResponseEntity.ok(metrics);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
     }
 
     @GetMapping("/posts")
     public ResponseEntity<?> getPostMetrics(
-            @RequestParam(defaultValue = "7d") String period) {
-        
-        List<Map<String, Object>> metrics = metricsService.getPostMetrics(period);
-        return ResponseEntity.ok(metrics);
+            @RequestParam(defaultValue = "7d") String period,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        try {
+            List<Map<String, Object>> metrics = metricsService.getPostMetrics(period, from, to);
+            return ResponseEntity.ok(metrics);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @GetMapping("/daily")
+    public ResponseEntity<?> getDailyMetrics(
+            @RequestParam(defaultValue = "7d") String period,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        try {
+            return ResponseEntity.ok(metricsService.getDailyMetrics(period, from, to));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @GetMapping("/feed-cache")
+    public ResponseEntity<?> getFeedCacheStats() {
+        return ResponseEntity.ok(feedPageCache.stats());
+    }
+
+    @GetMapping("/reaction-buffer")
+    public ResponseEntity<?> getReactionBufferStats() {
+        return ResponseEntity.ok(reactionWriteBuffer.stats());
+    }
+
+    @GetMapping("/websocket")
+    public ResponseEntity<?> getWebSocketStats() {
+        return ResponseEntity.ok(webSocketSessionRegistry.stats());
+    }
+
+    @GetMapping("/message-group-commit")
+    public ResponseEntity<?> getMessageGroupCommitStats() {
+        return ResponseEntity.ok(messageGroupCommitter.stats());
+    }
+
+    @GetMapping("/post-snippet-cache")
+    public ResponseEntity<?> getPostSnippetCacheStats() {
+        return ResponseEntity.ok(postSnippetCache.stats());
+    }
+
+    @GetMapping("/conversation-membership-cache")
+    public ResponseEntity<?> getConversationMembershipCacheStats() {
+        return ResponseEntity.ok(conversationMembershipCache.stats());
+    }
+
+    @GetMapping("/friend-graph")
+    public ResponseEntity<?> getFriendGraphStats() {
+        return ResponseEntity.ok(friendGraph.stats());
+    }
+
+    @GetMapping("/friend-suggestions")
+    public ResponseEntity<?> getFriendSuggestionStats() {
+        return ResponseEntity.ok(friendSuggestionEngine.stats());
+    }
+
+    @GetMapping("/block-list")
+    public ResponseEntity<?> getBlockListStats() {
+        return ResponseEntity.ok(blockList.stats());
+    }
+
+    @GetMapping("/contact-index")
+    public ResponseEntity<?> getContactIndexStats() {
+        return ResponseEntity.ok(contactHashIndex.stats());
+    }
+
+    @GetMapping("/user-search-index")
+    public ResponseEntity<?> getUserSearchIndexStats() {
+        return ResponseEntity.ok(userSearchIndex.stats());
+    }
+
+    @GetMapping("/dashboard-snapshot")
+    public ResponseEntity<?> getDashboardSnapshotStats() {
+        return ResponseEntity.ok(dashboardMetricsSnapshot.stats());
     }
 }
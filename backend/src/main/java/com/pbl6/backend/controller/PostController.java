@@ -12,12 +12,14 @@ import com.pbl6.backend.service.PostService;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 
@@ -143,23 +145,26 @@ public class PostController {
      * Feed bao gồm: bài đăng của bản thân + bài người khác chia sẻ cho mình.
      * Query params:
      * - beforePostId (optional): load posts cũ hơn post này (dùng khi scroll xuống)
+     * - beforeCreatedAt (optional): createdAt của post đó (ISO-8601), giúp server không phải tra lại cursor
      * - limit (optional): số lượng posts (default 20, max 50)
      * 
      * Response: List<PostResponse> sắp xếp giảm dần theo thời gian (mới → cũ)
      * 
      * Cách sử dụng:
      * 1. Lần đầu load: GET /feed (không có params) → 20 posts mới nhất (cả của mình + được share)
-     * 2. Scroll xuống load cũ hơn: GET /feed?beforePostId=<id_post_cu_nhat>&limit=20
+     * 2. Scroll xuống load cũ hơn: GET /feed?beforePostId=<id_post_cu_nhat>&beforeCreatedAt=<createdAt_post_cu_nhat>&limit=20
      */
     @GetMapping("/feed")
     @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
     public ResponseEntity<?> myFeed(
             @RequestParam(required = false) String beforePostId,
+            @RequestParam(required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime beforeCreatedAt,
             @RequestParam(required = false) Integer limit) {
         try {
             var principal = getCurrentPrincipal();
             List<PostResponse> feed = postService.getFeedWithPagination(
-                    principal.getUser(), beforePostId, limit);
+                    principal.getUser(), beforePostId, beforeCreatedAt, limit);
             return ResponseEntity.ok(feed);
         } catch (IllegalArgumentException e) {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
@@ -151,9 +151,11 @@ public class UserController {
 
     @GetMapping("/search")
     @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
-    public ResponseEntity<?> searchUsers(@RequestParam(name = "q", required = false) String q) {
+    public ResponseEntity<?> searchUsers(@RequestParam(name = "q", required = false) String q,
+                                         @RequestParam(required = false) Integer page,
+                                         @RequestParam(required = false) Integer size) {
         try {
-            List<PublicUserResponse> results = userService.search(q);
+            List<PublicUserResponse> results = userService.search(q, page, size);
             return ResponseEntity.ok(results);
         } catch (Exception e) {
             Map<String, String> error = new HashMap<>();
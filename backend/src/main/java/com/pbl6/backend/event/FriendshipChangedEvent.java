@@ -0,0 +1,34 @@
+package com.pbl6.backend.event;
+
+/**
+ * Phát ra khi quan hệ giữa hai user đổi: chấp nhận lời mời, xóa bạn, chặn, bỏ chặn.
+ * BLOCKED cũng làm mất cạnh bạn bè nếu đang là bạn. Listener nhận sau khi transaction commit.
+ */
+public class FriendshipChangedEvent {
+
+    public enum Type {
+        ACCEPTED, REMOVED, BLOCKED, UNBLOCKED
+    }
+
+    private final String userOneId;
+    private final String userTwoId;
+    private final Type type;
+
+    public FriendshipChangedEvent(String userOneId, String userTwoId, Type type) {
+        this.userOneId = userOneId;
+        this.userTwoId = userTwoId;
+        this.type = type;
+    }
+
+    public String getUserOneId() {
+        return userOneId;
+    }
+
+    public String getUserTwoId() {
+        return userTwoId;
+    }
+
+    public Type getType() {
+        return type;
+    }
+}
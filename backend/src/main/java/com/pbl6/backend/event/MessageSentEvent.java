@@ -0,0 +1,27 @@
+package com.pbl6.backend.event;
+
+import com.pbl6.backend.response.MessageResponse;
+
+import java.util.Set;
+
+/**
+ * Phát ra khi có tin nhắn mới trong một hội thoại; listener đẩy tin tới các thành viên sau khi transaction commit.
+ */
+public class MessageSentEvent {
+
+    private final Set<String> memberIds;
+    private final MessageResponse message;
+
+    public MessageSentEvent(Set<String> memberIds, MessageResponse message) {
+        this.memberIds = memberIds;
+        this.message = message;
+    }
+
+    public Set<String> getMemberIds() {
+        return memberIds;
+    }
+
+    public MessageResponse getMessage() {
+        return message;
+    }
+}
@@ -0,0 +1,57 @@
+package com.pbl6.backend.event;
+
+import com.pbl6.backend.model.ModerationReport;
+import com.pbl6.backend.model.Post;
+import com.pbl6.backend.model.User;
+
+/**
+ * Một dòng chuyển trạng thái ảnh hưởng tới số liệu dashboard: from = null là tạo mới, to = null là xóa.
+ * DashboardMetricsSnapshot cộng / trừ bộ đếm trong bộ nhớ thay vì đếm lại từ DB.
+ * Listener nhận sau khi transaction commit (rollback thì không tính).
+ */
+public class MetricsDeltaEvent {
+
+    public enum Kind {
+        USER, POST, REPORT
+    }
+
+    private final Kind kind;
+    private final Post.MediaType mediaType;
+    private final Enum<?> from;
+    private final Enum<?> to;
+
+    private MetricsDeltaEvent(Kind kind, Post.MediaType mediaType, Enum<?> from, Enum<?> to) {
+        this.kind = kind;
+        this.mediaType = mediaType;
+        this.from = from;
+        this.to = to;
+    }
+
+    public static MetricsDeltaEvent user(User.AccountStatus from, User.AccountStatus to) {
+        return new MetricsDeltaEvent(Kind.USER, null, from, to);
+    }
+
+    public static MetricsDeltaEvent post(Post.MediaType mediaType, Post.CaptionStatus from, Post.CaptionStatus to) {
+        return new MetricsDeltaEvent(Kind.POST, mediaType, from, to);
+    }
+
+    public static MetricsDeltaEvent report(ModerationReport.ReportStatus from, ModerationReport.ReportStatus to) {
+        return new MetricsDeltaEvent(Kind.REPORT, null, from, to);
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public Post.MediaType getMediaType() {
+        return mediaType;
+    }
+
+    public Enum<?> getFrom() {
+        return from;
+    }
+
+    public Enum<?> getTo() {
+        return to;
+    }
+}
@@ -0,0 +1,54 @@
+package com.pbl6.backend.event;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Phát ra khi một post thay đổi theo cách ảnh hưởng tới feed của người khác
+ * (đăng, finalize, có caption, xóa, bị kiểm duyệt).
+ * Listener nhận sau khi transaction commit, nên dữ liệu đọc lại từ DB đã là bản mới.
+ */
+public class PostChangedEvent {
+
+    public enum Type {
+        CREATED, FINALIZED, CAPTIONED, DELETED, MODERATED
+    }
+
+    private final String postId;
+    private final String authorId;
+    private final Set<String> recipientIds;
+    private final Type type;
+
+    public PostChangedEvent(String postId, String authorId, Set<String> recipientIds, Type type) {
+        this.postId = postId;
+        this.authorId = authorId;
+        this.recipientIds = recipientIds;
+        this.type = type;
+    }
+
+    public String getPostId() {
+        return postId;
+    }
+
+    public String getAuthorId() {
+        return authorId;
+    }
+
+    public Set<String> getRecipientIds() {
+        return recipientIds;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Tác giả + toàn bộ recipients: những user có post này trong feed.
+     */
+    public Set<String> getAffectedUserIds() {
+        Set<String> ids = new LinkedHashSet<>();
+        ids.add(authorId);
+        ids.addAll(recipientIds);
+        return ids;
+    }
+}
@@ -0,0 +1,53 @@
+package com.pbl6.backend.event;
+
+/**
+ * Phát ra khi user được tạo, đổi hồ sơ (họ tên, số điện thoại, email), hoặc bị xóa.
+ * Mang theo giá trị mới để các chỉ mục trong bộ nhớ cập nhật mà không phải đọc lại DB.
+ * Listener nhận sau khi transaction commit.
+ */
+public class UserChangedEvent {
+
+    public enum Type {
+        SAVED, DELETED
+    }
+
+    private final String userId;
+    private final String username;
+    private final String fullName;
+    private final String phoneNumber;
+    private final String email;
+    private final Type type;
+
+    public UserChangedEvent(String userId, String username, String fullName, String phoneNumber, String email, Type type) {
+        this.userId = userId;
+        this.username = username;
+        this.fullName = fullName;
+        this.phoneNumber = phoneNumber;
+        this.email = email;
+        this.type = type;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public String getFullName() {
+        return fullName;
+    }
+
+    public String getPhoneNumber() {
+        return phoneNumber;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public Type getType() {
+        return type;
+    }
+}
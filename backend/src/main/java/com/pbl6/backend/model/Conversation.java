@@ -11,7 +11,10 @@ import java.util.List;
     @Index(name = "idx_conversation_user_two_id", columnList = "user_two_id"),
     @Index(name = "idx_conversation_last_message_at", columnList = "last_message_at"),
     @Index(name = "idx_conversation_users", columnList = "user_one_id, user_two_id"),
-    @Index(name = "idx_conversation_created_at", columnList = "created_at")
+    @Index(name = "idx_conversation_created_at", columnList = "created_at"),
+    // Keyset cho inbox: mỗi phía một range scan theo (user, lastMessageAt, conversationId)
+    @Index(name = "idx_conversation_user_one_inbox", columnList = "user_one_id, last_message_at, conversation_id"),
+    @Index(name = "idx_conversation_user_two_inbox", columnList = "user_two_id, last_message_at, conversation_id")
 })
 public class Conversation {
     
@@ -34,6 +37,23 @@ public class Conversation {
     
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
+
+    // Tin cuối (denormalized) để inbox không phải đọc bảng Messages
+    @Column(name = "last_message_id", length = 36)
+    private String lastMessageId;
+
+    @Column(name = "last_message_sender_id", length = 36)
+    private String lastMessageSenderId;
+
+    @Column(name = "last_message_preview", length = 100)
+    private String lastMessagePreview;
+
+    // Số tin chưa đọc của từng thành viên (tin do người kia gửi); cập nhật bằng UPDATE nguyên tử trong MessageService
+    @Column(name = "user_one_unread_count", nullable = false)
+    private int userOneUnreadCount = 0;
+
+    @Column(name = "user_two_unread_count", nullable = false)
+    private int userTwoUnreadCount = 0;
     
     // Relationships
     @OneToMany(mappedBy = "conversation", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
@@ -93,6 +113,59 @@ public class Conversation {
         this.createdAt = createdAt;
     }
     
+    public String getLastMessageId() {
+        return lastMessageId;
+    }
+    
+    public void setLastMessageId(String lastMessageId) {
+        this.lastMessageId = lastMessageId;
+    }
+    
+    public String getLastMessageSenderId() {
+        return lastMessageSenderId;
+    }
+    
+    public void setLastMessageSenderId(String lastMessageSenderId) {
+        this.lastMessageSenderId = lastMessageSenderId;
+    }
+    
+    public String getLastMessagePreview() {
+        return lastMessagePreview;
+    }
+    
+    public void setLastMessagePreview(String lastMessagePreview) {
+        this.lastMessagePreview = lastMessagePreview;
+    }
+    
+    public int getUserOneUnreadCount() {
+        return userOneUnreadCount;
+    }
+    
+    public void setUserOneUnreadCount(int userOneUnreadCount) {
+        this.userOneUnreadCount = userOneUnreadCount;
+    }
+    
+    public int getUserTwoUnreadCount() {
+        return userTwoUnreadCount;
+    }
+    
+    public void setUserTwoUnreadCount(int userTwoUnreadCount) {
+        this.userTwoUnreadCount = userTwoUnreadCount;
+    }
+    
+    /**
+     * Số tin chưa đọc của một thành viên
+     */
+    public int getUnreadCountFor(String userId) {
+        if (userOne != null && userOne.getUserId().equals(userId)) {
+            return userOneUnreadCount;
+        }
+        if (userTwo != null && userTwo.getUserId().equals(userId)) {
+            return userTwoUnreadCount;
+        }
+        return 0;
+    }
+    
     public List<Message> getMessages() {
         return messages;
     }
@@ -0,0 +1,141 @@
+package com.pbl6.backend.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Số liệu tổng hợp theo ngày cho biểu đồ admin (theo createdAt / sentAt của từng bảng gốc),
+ * do DailyMetricsRollupService ghi. Ngày còn mở (closed = false) được tính lại mỗi lần chạy;
+ * ngày đã đóng không bị đọc lại từ bảng gốc nữa.
+ */
+@Entity
+@Table(name = "Daily_Metrics")
+public class DailyMetrics {
+
+    @Id
+    @Column(name = "metric_date")
+    private LocalDate metricDate;
+
+    @Column(name = "new_users", nullable = false)
+    private long newUsers;
+
+    @Column(name = "photo_posts", nullable = false)
+    private long photoPosts;
+
+    @Column(name = "video_posts", nullable = false)
+    private long videoPosts;
+
+    // Kết quả caption AI của các post tạo trong ngày (tại thời điểm tính)
+    @Column(name = "captions_completed", nullable = false)
+    private long captionsCompleted;
+
+    @Column(name = "captions_failed", nullable = false)
+    private long captionsFailed;
+
+    @Column(name = "messages", nullable = false)
+    private long messages;
+
+    @Column(name = "reports", nullable = false)
+    private long reports;
+
+    @Column(name = "closed", nullable = false)
+    private boolean closed;
+
+    @Column(name = "computed_at", nullable = false)
+    private LocalDateTime computedAt;
+
+    // Constructors
+    public DailyMetrics() {}
+
+    public DailyMetrics(LocalDate metricDate) {
+        this.metricDate = metricDate;
+    }
+
+    // Tổng post trong ngày
+    public long getPosts() {
+        return photoPosts + videoPosts;
+    }
+
+    // Getters and Setters
+    public LocalDate getMetricDate() {
+        return metricDate;
+    }
+
+    public void setMetricDate(LocalDate metricDate) {
+        this.metricDate = metricDate;
+    }
+
+    public long getNewUsers() {
+        return newUsers;
+    }
+
+    public void setNewUsers(long newUsers) {
+        this.newUsers = newUsers;
+    }
+
+    public long getPhotoPosts() {
+        return photoPosts;
+    }
+
+    public void setPhotoPosts(long photoPosts) {
+        this.photoPosts = photoPosts;
+    }
+
+    public long getVideoPosts() {
+        return videoPosts;
+    }
+
+    public void setVideoPosts(long videoPosts) {
+        this.videoPosts = videoPosts;
+    }
+
+    public long getCaptionsCompleted() {
+        return captionsCompleted;
+    }
+
+    public void setCaptionsCompleted(long captionsCompleted) {
+        this.captionsCompleted = captionsCompleted;
+    }
+
+    public long getCaptionsFailed() {
+        return captionsFailed;
+    }
+
+    public void setCaptionsFailed(long captionsFailed) {
+        this.captionsFailed = captionsFailed;
+    }
+
+    public long getMessages() {
+        return messages;
+    }
+
+    public void setMessages(long messages) {
+        this.messages = messages;
+    }
+
+    public long getReports() {
+        return reports;
+    }
+
+    public void setReports(long reports) {
+        this.reports = reports;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    public void setClosed(boolean closed) {
+        this.closed = closed;
+    }
+
+    public LocalDateTime getComputedAt() {
+        return computedAt;
+    }
+
+    public void setComputedAt(LocalDateTime computedAt) {
+        this.computedAt = computedAt;
+    }
+}
@@ -0,0 +1,77 @@
+package com.pbl6.backend.model;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.GenericGenerator;
+import java.time.LocalDateTime;
+
+/**
+ * Hộp feed đã materialize (fan-out-on-write): mỗi dòng là một post xuất hiện trong feed của một user.
+ * Chỉ lưu id dạng cột thường (không FK) vì đây là dữ liệu dẫn xuất, có thể xóa và dựng lại từ Posts/Post_Recipients.
+ */
+@Entity
+@Table(name = "Feed_Entries", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_feed_entry_user_post", columnNames = {"user_id", "post_id"})
+}, indexes = {
+    @Index(name = "idx_feed_entry_user_created_post", columnList = "user_id, created_at, post_id"),
+    @Index(name = "idx_feed_entry_post_id", columnList = "post_id")
+})
+public class FeedEntry {
+    
+    @Id
+    @GeneratedValue(generator = "UUID")
+    @GenericGenerator(name = "UUID", strategy = "org.hibernate.id.UUIDGenerator")
+    @Column(name = "feed_entry_id", length = 36)
+    private String feedEntryId;
+    
+    @Column(name = "user_id", length = 36, nullable = false)
+    private String userId;
+    
+    @Column(name = "post_id", length = 36, nullable = false)
+    private String postId;
+    
+    // Bản sao createdAt của post để sắp xếp feed ngay trên index
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+    
+    // Constructors
+    public FeedEntry() {}
+    
+    public FeedEntry(String userId, String postId, LocalDateTime createdAt) {
+        this.userId = userId;
+        this.postId = postId;
+        this.createdAt = createdAt;
+    }
+    
+    // Getters and Setters
+    public String getFeedEntryId() {
+        return feedEntryId;
+    }
+    
+    public void setFeedEntryId(String feedEntryId) {
+        this.feedEntryId = feedEntryId;
+    }
+    
+    public String getUserId() {
+        return userId;
+    }
+    
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+    
+    public String getPostId() {
+        return postId;
+    }
+    
+    public void setPostId(String postId) {
+        this.postId = postId;
+    }
+    
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+    
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
@@ -4,8 +4,19 @@ import jakarta.persistence.*;
 import org.hibernate.annotations.GenericGenerator;
 import java.time.LocalDateTime;
 
+/**
+ * Quan hệ giữa hai user, lưu theo cặp chuẩn hóa: userOne luôn là user có userId nhỏ hơn, nên mỗi cặp
+ * chỉ có một dòng và mọi tra cứu theo cặp là một lần probe vào uk_friendship_pair.
+ * Chiều của lời mời nằm ở {@link #getRequester()}.
+ */
 @Entity
-@Table(name = "Friendships")
+@Table(name = "Friendships", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_friendship_pair", columnNames = {"user_one_id", "user_two_id"})
+}, indexes = {
+    // Phía user_one đã có prefix của uk_friendship_pair
+    @Index(name = "idx_friendship_user_two_status", columnList = "user_two_id, status"),
+    @Index(name = "idx_friendship_requester_status", columnList = "requester_id, status")
+})
 public class Friendship {
     
     @Id
@@ -32,6 +43,11 @@ public class Friendship {
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "action_user_id")
     private User actionUser;
+
+    // Người gửi lời mời; để nullable cho dữ liệu cũ cho tới khi FriendshipCanonicalMigrationJob chạy
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "requester_id")
+    private User requester;
     
     public enum FriendshipStatus {
         PENDING, ACCEPTED, BLOCKED
@@ -40,21 +56,42 @@ public class Friendship {
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
+        if (requester == null) {
+            requester = userOne;
+        }
+        canonicalize();
     }
     
     // Constructors
     public Friendship() {}
     
-    public Friendship(User userOne, User userTwo) {
-        this.userOne = userOne;
-        this.userTwo = userTwo;
+    public Friendship(User requester, User other) {
+        this.requester = requester;
+        this.userOne = requester;
+        this.userTwo = other;
+        canonicalize();
     }
     
-    public Friendship(User userOne, User userTwo, FriendshipStatus status) {
-        this.userOne = userOne;
-        this.userTwo = userTwo;
+    public Friendship(User requester, User other, FriendshipStatus status) {
+        this(requester, other);
         this.status = status;
     }
+
+    // Đưa user có userId nhỏ hơn về userOne
+    private void canonicalize() {
+        if (userOne != null && userTwo != null && userOne.getUserId().compareTo(userTwo.getUserId()) > 0) {
+            User tmp = userOne;
+            userOne = userTwo;
+            userTwo = tmp;
+        }
+    }
+
+    /**
+     * userId theo thứ tự lưu trữ của cặp (a, b): [userOneId, userTwoId]
+     */
+    public static String[] canonicalPair(String a, String b) {
+        return a.compareTo(b) <= 0 ? new String[]{a, b} : new String[]{b, a};
+    }
     
     // Getters and Setters
     public String getFriendshipId() {
@@ -104,4 +141,25 @@ public class Friendship {
     public void setActionUser(User actionUser) {
         this.actionUser = actionUser;
     }
-}
\ No newline at end of file
+
+    public User getRequester() {
+        return requester;
+    }
+
+    public void setRequester(User requester) {
+        this.requester = requester;
+    }
+
+    /**
+     * Người nhận lời mời (phía còn lại của cặp so với requester)
+     */
+    public User getAddressee() {
+        User sender = requester != null ? requester : userOne;
+        return sender.getUserId().equals(userOne.getUserId()) ? userTwo : userOne;
+    }
+
+    public boolean isRequestedBy(User user) {
+        User sender = requester != null ? requester : userOne;
+        return sender.getUserId().equals(user.getUserId());
+    }
+}
@@ -12,7 +12,13 @@ import java.util.List;
     @Index(name = "idx_post_created_at", columnList = "created_at"),
     @Index(name = "idx_post_post_status", columnList = "post_status"),
     @Index(name = "idx_post_media_type", columnList = "media_type"),
-    @Index(name = "idx_post_user_created", columnList = "user_id, created_at")
+    @Index(name = "idx_post_user_created", columnList = "user_id, created_at"),
+    @Index(name = "idx_post_created_id", columnList = "created_at, post_id"),
+    @Index(name = "idx_post_fanout_created", columnList = "fanout_on_read, created_at"),
+    // Danh sách admin: lọc theo trạng thái caption / loại media rồi keyset theo (created_at, post_id)
+    @Index(name = "idx_post_status_created", columnList = "post_status, created_at, post_id"),
+    @Index(name = "idx_post_media_created", columnList = "media_type, created_at, post_id")
+    // FULLTEXT (final_caption, generated_caption) không khai báo được bằng @Index, do PostFullTextIndexJob tạo
 })
 public class Post {
     
@@ -50,6 +56,10 @@ public class Post {
     @Column(name = "deleted_at")
     private LocalDateTime deletedAt;
     
+    // true khi post có quá nhiều recipients: không fan-out vào Feed_Entries mà được đọc trực tiếp lúc xem feed
+    @Column(name = "fanout_on_read", nullable = false)
+    private Boolean fanoutOnRead = false;
+    
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
     
@@ -204,4 +214,12 @@ public class Post {
     public void setDeletedAt(LocalDateTime deletedAt) {
         this.deletedAt = deletedAt;
     }
+    
+    public Boolean getFanoutOnRead() {
+        return fanoutOnRead;
+    }
+    
+    public void setFanoutOnRead(Boolean fanoutOnRead) {
+        this.fanoutOnRead = fanoutOnRead;
+    }
 }
\ No newline at end of file
@@ -5,7 +5,9 @@ import org.hibernate.annotations.GenericGenerator;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "Post_Reactions", indexes = {
+@Table(name = "Post_Reactions", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_post_reaction_post_user_emoji", columnNames = {"post_id", "user_id", "emoji_type"})
+}, indexes = {
     @Index(name = "idx_post_reaction_post_id", columnList = "post_id"),
     @Index(name = "idx_post_reaction_user_id", columnList = "user_id"),
     @Index(name = "idx_post_reaction_emoji_type", columnList = "emoji_type"),
@@ -28,7 +30,7 @@ public class PostReaction {
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
     
-    @Column(name = "emoji_type", length = 10, nullable = false)
+    @Column(name = "emoji_type", length = 32, nullable = false)
     private String emojiType;
     
     @Column(name = "created_at", nullable = false, updatable = false)
@@ -0,0 +1,87 @@
+package com.pbl6.backend.model;
+
+import jakarta.persistence.*;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * Bộ đếm reaction theo (post, emoji), được cập nhật tăng/giảm trong reactToPost
+ * để feed đọc số reaction mà không phải quét Post_Reactions.
+ * Không có FK tới Posts; dòng được xóa khi post bị xóa và dựng lại bởi ReactionCountReconcileJob.
+ */
+@Entity
+@Table(name = "Post_Reaction_Counts")
+@IdClass(PostReactionCount.Key.class)
+public class PostReactionCount {
+
+    @Id
+    @Column(name = "post_id", length = 36)
+    private String postId;
+
+    @Id
+    @Column(name = "emoji_type", length = 32)
+    private String emojiType;
+
+    @Column(name = "reaction_count", nullable = false)
+    private long reactionCount;
+
+    // Constructors
+    public PostReactionCount() {}
+
+    public PostReactionCount(String postId, String emojiType, long reactionCount) {
+        this.postId = postId;
+        this.emojiType = emojiType;
+        this.reactionCount = reactionCount;
+    }
+
+    // Getters and Setters
+    public String getPostId() {
+        return postId;
+    }
+
+    public void setPostId(String postId) {
+        this.postId = postId;
+    }
+
+    public String getEmojiType() {
+        return emojiType;
+    }
+
+    public void setEmojiType(String emojiType) {
+        this.emojiType = emojiType;
+    }
+
+    public long getReactionCount() {
+        return reactionCount;
+    }
+
+    public void setReactionCount(long reactionCount) {
+        this.reactionCount = reactionCount;
+    }
+
+    public static class Key implements Serializable {
+        private String postId;
+        private String emojiType;
+
+        public Key() {}
+
+        public Key(String postId, String emojiType) {
+            this.postId = postId;
+            this.emojiType = emojiType;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return Objects.equals(postId, key.postId) && Objects.equals(emojiType, key.emojiType);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(postId, emojiType);
+        }
+    }
+}
@@ -13,7 +13,10 @@ import java.util.List;
     @Index(name = "idx_user_email", columnList = "email"),
     @Index(name = "idx_user_account_status", columnList = "account_status"),
     @Index(name = "idx_user_subscription_status", columnList = "subscription_status"),
-    @Index(name = "idx_user_created_at", columnList = "created_at")
+    @Index(name = "idx_user_created_at", columnList = "created_at"),
+    // Danh sách admin: lọc theo trạng thái rồi sắp xếp / keyset theo created_at
+    @Index(name = "idx_user_status_created_at", columnList = "account_status, created_at, user_id"),
+    @Index(name = "idx_user_subscription_created_at", columnList = "subscription_status, created_at, user_id")
 })
 public class User {
     
@@ -3,10 +3,12 @@ package com.pbl6.backend.repository;
 import com.pbl6.backend.model.Conversation;
 import com.pbl6.backend.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -22,8 +24,105 @@ public interface ConversationRepository extends JpaRepository<Conversation, Stri
     @Query("SELECT DISTINCT c FROM Conversation c LEFT JOIN FETCH c.userOne LEFT JOIN FETCH c.userTwo WHERE (c.userOne = :user OR c.userTwo = :user) AND c.lastMessageAt IS NOT NULL ORDER BY c.lastMessageAt DESC")
     List<Conversation> findActiveConversationsByUser(@Param("user") User user);
     
+    // Chỉ lấy id hai thành viên: [userOneId, userTwoId]
+    @Query("SELECT c.userOne.userId, c.userTwo.userId FROM Conversation c WHERE c.conversationId = :conversationId")
+    List<Object[]> findMemberIds(@Param("conversationId") String conversationId);
+    
     @Query("SELECT COUNT(c) FROM Conversation c WHERE c.userOne = :user OR c.userTwo = :user")
     long countByUser(@Param("user") User user);
     
     boolean existsByUserOneAndUserTwo(User userOne, User userTwo);
+    
+    // Tin mới: cập nhật tin cuối (preview) và +1 chưa đọc cho người nhận trong cùng một câu UPDATE.
+    // Tin cuối chỉ đổi khi tin này không cũ hơn (gửi đồng thời / replyPost có thể commit lệch thứ tự);
+    // MySQL gán SET từ trái sang phải nên lastMessageAt phải gán cuối để các CASE phía trước còn thấy giá trị cũ.
+    @Modifying
+    @Query("UPDATE Conversation c SET " +
+           "c.lastMessageId = CASE WHEN c.lastMessageAt IS NULL OR c.lastMessageAt <= :at THEN :messageId ELSE c.lastMessageId END, " +
+           "c.lastMessageSenderId = CASE WHEN c.lastMessageAt IS NULL OR c.lastMessageAt <= :at THEN :senderId ELSE c.lastMessageSenderId END, " +
+           "c.lastMessagePreview = CASE WHEN c.lastMessageAt IS NULL OR c.lastMessageAt <= :at THEN :preview ELSE c.lastMessagePreview END, " +
+           "c.userOneUnreadCount = c.userOneUnreadCount + CASE WHEN c.userOne.userId = :senderId THEN 0 ELSE 1 END, " +
+           "c.userTwoUnreadCount = c.userTwoUnreadCount + CASE WHEN c.userTwo.userId = :senderId THEN 0 ELSE 1 END, " +
+           "c.lastMessageAt = CASE WHEN c.lastMessageAt IS NULL OR c.lastMessageAt <= :at THEN :at ELSE c.lastMessageAt END " +
+           "WHERE c.conversationId = :conversationId")
+    int recordNewMessage(@Param("conversationId") String conversationId,
+                         @Param("messageId") String messageId,
+                         @Param("senderId") String senderId,
+                         @Param("preview") String preview,
+                         @Param("at") LocalDateTime at);
+    
+    // Trừ số chưa đọc của người đọc (không xuống dưới 0)
+    @Modifying
+    @Query("UPDATE Conversation c SET " +
+           "c.userOneUnreadCount = CASE WHEN c.userOne.userId = :readerId " +
+           "THEN (CASE WHEN c.userOneUnreadCount > :count THEN c.userOneUnreadCount - :count ELSE 0 END) ELSE c.userOneUnreadCount END, " +
+           "c.userTwoUnreadCount = CASE WHEN c.userTwo.userId = :readerId " +
+           "THEN (CASE WHEN c.userTwoUnreadCount > :count THEN c.userTwoUnreadCount - :count ELSE 0 END) ELSE c.userTwoUnreadCount END " +
+           "WHERE c.conversationId = :conversationId")
+    int decrementUnread(@Param("conversationId") String conversationId,
+                        @Param("readerId") String readerId,
+                        @Param("count") int count);
+    
+    // Đếm lại toàn bộ bộ đếm từ Messages (dùng một lần khi mới bật tính năng / khi lệch)
+    @Modifying
+    @Query(value = "UPDATE Conversations c SET " +
+           "c.user_one_unread_count = (SELECT COUNT(*) FROM Messages m WHERE m.conversation_id = c.conversation_id " +
+           "AND m.is_read = false AND m.sender_id <> c.user_one_id), " +
+           "c.user_two_unread_count = (SELECT COUNT(*) FROM Messages m WHERE m.conversation_id = c.conversation_id " +
+           "AND m.is_read = false AND m.sender_id <> c.user_two_id)", nativeQuery = true)
+    int recountAllUnread();
+    
+    // Backfill tin cuối cho hội thoại có từ trước khi thêm các cột last_message_*
+    @Modifying
+    @Query(value = "UPDATE Conversations c SET c.last_message_id = (SELECT m.message_id FROM Messages m " +
+           "WHERE m.conversation_id = c.conversation_id ORDER BY m.sent_at DESC, m.message_id DESC LIMIT 1) " +
+           "WHERE c.last_message_id IS NULL AND c.last_message_at IS NOT NULL", nativeQuery = true)
+    int backfillLastMessageIds();
+    
+    @Modifying
+    @Query(value = "UPDATE Conversations c JOIN Messages m ON m.message_id = c.last_message_id " +
+           "SET c.last_message_sender_id = m.sender_id, c.last_message_preview = LEFT(m.content, 100) " +
+           "WHERE c.last_message_sender_id IS NULL", nativeQuery = true)
+    int backfillLastMessagePreviews();
+    
+    /*
+     * Inbox theo keyset (lastMessageAt, conversationId) giảm dần, một round-trip:
+     * mỗi nhánh UNION là một range scan có LIMIT trên idx_conversation_user_one_inbox / _user_two_inbox,
+     * sau đó chỉ join Users cho tối đa 2*limit dòng. Cột trả về:
+     * [conversationId, lastMessageAt, lastMessageId, lastMessageSenderId, lastMessagePreview, unreadCount,
+     *  peerId, peerUsername, peerFullName, peerProfilePictureUrl, peerCreatedAt]
+     * Hội thoại chưa có tin nhắn (lastMessageAt null) không nằm trong inbox.
+     */
+    String INBOX_SELECT = "SELECT x.conversation_id, x.last_message_at, x.last_message_id, x.last_message_sender_id, " +
+            "x.last_message_preview, x.unread_count, u.user_id, u.username, u.full_name, u.profile_picture_url, u.created_at " +
+            "FROM (";
+    String INBOX_ONE_COLUMNS = "SELECT c.conversation_id, c.last_message_at, c.last_message_id, c.last_message_sender_id, " +
+            "c.last_message_preview, c.user_one_unread_count AS unread_count, c.user_two_id AS peer_id FROM Conversations c ";
+    String INBOX_TWO_COLUMNS = "SELECT c.conversation_id, c.last_message_at, c.last_message_id, c.last_message_sender_id, " +
+            "c.last_message_preview, c.user_two_unread_count AS unread_count, c.user_one_id AS peer_id FROM Conversations c ";
+    String INBOX_ORDER = " ORDER BY c.last_message_at DESC, c.conversation_id DESC LIMIT :limit";
+    String INBOX_BEFORE = " AND (c.last_message_at < :beforeTime " +
+            "OR (c.last_message_at = :beforeTime AND c.conversation_id < :beforeConversationId))";
+    String INBOX_MERGE = ") x JOIN Users u ON u.user_id = x.peer_id " +
+            "ORDER BY x.last_message_at DESC, x.conversation_id DESC LIMIT :limit";
+
+    @Query(value = INBOX_SELECT +
+           "(" + INBOX_ONE_COLUMNS + "WHERE c.user_one_id = :userId AND c.last_message_at IS NOT NULL" + INBOX_ORDER + ") " +
+           "UNION ALL " +
+           "(" + INBOX_TWO_COLUMNS + "WHERE c.user_two_id = :userId AND c.user_one_id <> :userId " +
+           "AND c.last_message_at IS NOT NULL" + INBOX_ORDER + ")" +
+           INBOX_MERGE, nativeQuery = true)
+    List<Object[]> findInboxPage(@Param("userId") String userId, @Param("limit") int limit);
+
+    @Query(value = INBOX_SELECT +
+           "(" + INBOX_ONE_COLUMNS + "WHERE c.user_one_id = :userId AND c.last_message_at IS NOT NULL" +
+           INBOX_BEFORE + INBOX_ORDER + ") " +
+           "UNION ALL " +
+           "(" + INBOX_TWO_COLUMNS + "WHERE c.user_two_id = :userId AND c.user_one_id <> :userId " +
+           "AND c.last_message_at IS NOT NULL" + INBOX_BEFORE + INBOX_ORDER + ")" +
+           INBOX_MERGE, nativeQuery = true)
+    List<Object[]> findInboxPageBefore(@Param("userId") String userId,
+                                       @Param("beforeTime") LocalDateTime beforeTime,
+                                       @Param("beforeConversationId") String beforeConversationId,
+                                       @Param("limit") int limit);
 }
\ No newline at end of file
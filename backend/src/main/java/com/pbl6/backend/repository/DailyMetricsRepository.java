@@ -0,0 +1,20 @@
+package com.pbl6.backend.repository;
+
+import com.pbl6.backend.model.DailyMetrics;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface DailyMetricsRepository extends JpaRepository<DailyMetrics, LocalDate> {
+
+    List<DailyMetrics> findByMetricDateBetweenOrderByMetricDate(LocalDate from, LocalDate to);
+
+    // Ngày mở sớm nhất: điểm bắt đầu của lần tổng hợp kế tiếp
+    Optional<DailyMetrics> findFirstByClosedFalseOrderByMetricDateAsc();
+
+    Optional<DailyMetrics> findFirstByOrderByMetricDateDesc();
+}
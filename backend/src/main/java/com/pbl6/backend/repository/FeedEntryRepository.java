@@ -0,0 +1,40 @@
+package com.pbl6.backend.repository;
+
+import com.pbl6.backend.model.FeedEntry;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface FeedEntryRepository extends JpaRepository<FeedEntry, String> {
+    
+    // Range scan trên idx_feed_entry_user_created_post, chỉ đọc postId (covering index)
+    @Query("SELECT fe.postId FROM FeedEntry fe WHERE fe.userId = :userId ORDER BY fe.createdAt DESC, fe.postId DESC")
+    List<String> findPostIdsForUser(@Param("userId") String userId, Pageable pageable);
+    
+    @Query("SELECT fe.postId FROM FeedEntry fe WHERE fe.userId = :userId " +
+           "AND (fe.createdAt < :beforeTime OR (fe.createdAt = :beforeTime AND fe.postId < :beforePostId)) " +
+           "ORDER BY fe.createdAt DESC, fe.postId DESC")
+    List<String> findPostIdsForUserBefore(@Param("userId") String userId,
+                                          @Param("beforeTime") LocalDateTime beforeTime,
+                                          @Param("beforePostId") String beforePostId,
+                                          Pageable pageable);
+    
+    List<FeedEntry> findByPostIdIn(Collection<String> postIds);
+    
+    @Modifying
+    @Query("DELETE FROM FeedEntry fe WHERE fe.postId = :postId")
+    int deleteByPostId(@Param("postId") String postId);
+    
+    @Modifying
+    @Query("DELETE FROM FeedEntry fe WHERE fe.userId = :userId " +
+           "OR fe.postId IN (SELECT p.postId FROM Post p WHERE p.user.userId = :userId)")
+    int deleteByUserOrAuthor(@Param("userId") String userId);
+}
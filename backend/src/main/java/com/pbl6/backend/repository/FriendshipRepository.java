@@ -2,27 +2,39 @@ package com.pbl6.backend.repository;
 
 import com.pbl6.backend.model.Friendship;
 import com.pbl6.backend.model.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface FriendshipRepository extends JpaRepository<Friendship, String> {
     
-    @Query("SELECT f FROM Friendship f WHERE (f.userOne = :user1 AND f.userTwo = :user2) OR (f.userOne = :user2 AND f.userTwo = :user1)")
-    Optional<Friendship> findByUsers(@Param("user1") User user1, @Param("user2") User user2);
+    // Cặp đã chuẩn hóa (userOneId < userTwoId): một lần probe vào uk_friendship_pair
+    @Query("SELECT f FROM Friendship f WHERE f.userOne.userId = :userOneId AND f.userTwo.userId = :userTwoId")
+    Optional<Friendship> findByPair(@Param("userOneId") String userOneId, @Param("userTwoId") String userTwoId);
+
+    /**
+     * Quan hệ giữa hai user, không phụ thuộc thứ tự truyền vào
+     */
+    default Optional<Friendship> findByUsers(User user1, User user2) {
+        String[] pair = Friendship.canonicalPair(user1.getUserId(), user2.getUserId());
+        return findByPair(pair[0], pair[1]);
+    }
     
     @Query("SELECT f FROM Friendship f WHERE (f.userOne = :user OR f.userTwo = :user) AND f.status = :status")
     List<Friendship> findByUserAndStatus(@Param("user") User user, @Param("status") Friendship.FriendshipStatus status);
     
-    @Query("SELECT f FROM Friendship f WHERE f.userTwo = :user AND f.status = 'PENDING'")
+    @Query("SELECT f FROM Friendship f WHERE (f.userOne = :user OR f.userTwo = :user) AND f.status = 'PENDING' AND f.requester <> :user")
     List<Friendship> findPendingRequestsForUser(@Param("user") User user);
     
-    @Query("SELECT f FROM Friendship f WHERE f.userOne = :user AND f.status = 'PENDING'")
+    @Query("SELECT f FROM Friendship f WHERE f.requester = :user AND f.status = 'PENDING'")
     List<Friendship> findSentRequestsByUser(@Param("user") User user);
     
     @Query("SELECT f.userTwo FROM Friendship f WHERE f.userOne = :user AND f.status = 'ACCEPTED' " +
@@ -33,8 +45,66 @@ public interface FriendshipRepository extends JpaRepository<Friendship, String>
     @Query("SELECT COUNT(f) FROM Friendship f WHERE (f.userOne = :user OR f.userTwo = :user) AND f.status = 'ACCEPTED'")
     long countFriendsByUser(@Param("user") User user);
     
-    @Query("SELECT COUNT(f) FROM Friendship f WHERE f.userTwo = :user AND f.status = 'PENDING'")
+    @Query("SELECT COUNT(f) FROM Friendship f WHERE (f.userOne = :user OR f.userTwo = :user) AND f.status = 'PENDING' AND f.requester <> :user")
     long countPendingRequestsForUser(@Param("user") User user);
     
-    boolean existsByUserOneAndUserTwo(User userOne, User userTwo);
-}
\ No newline at end of file
+    // Dựng FriendGraph: các cạnh ACCEPTED theo keyset friendshipId, [friendshipId, userOneId, userTwoId]
+    @Query("SELECT f.friendshipId, f.userOne.userId, f.userTwo.userId FROM Friendship f " +
+           "WHERE f.status = 'ACCEPTED' AND f.friendshipId > :afterId ORDER BY f.friendshipId")
+    List<Object[]> findAcceptedPairsAfter(@Param("afterId") String afterId, Pageable pageable);
+
+    // Nạp BlockList: các cặp BLOCKED theo keyset friendshipId, [friendshipId, userOneId, userTwoId]
+    @Query("SELECT f.friendshipId, f.userOne.userId, f.userTwo.userId FROM Friendship f " +
+           "WHERE f.status = 'BLOCKED' AND f.friendshipId > :afterId ORDER BY f.friendshipId")
+    List<Object[]> findBlockedPairsAfter(@Param("afterId") String afterId, Pageable pageable);
+
+    // Gợi ý kết bạn: các cặp PENDING/BLOCKED cần loại trừ, theo keyset friendshipId, [friendshipId, userOneId, userTwoId]
+    @Query("SELECT f.friendshipId, f.userOne.userId, f.userTwo.userId FROM Friendship f " +
+           "WHERE f.status <> 'ACCEPTED' AND f.friendshipId > :afterId ORDER BY f.friendshipId")
+    List<Object[]> findNonAcceptedPairsAfter(@Param("afterId") String afterId, Pageable pageable);
+
+    // Id bạn bè (ACCEPTED) của userId, dùng để gỡ cạnh khỏi FriendGraph khi xóa tài khoản
+    @Query("SELECT CASE WHEN f.userOne.userId = :userId THEN f.userTwo.userId ELSE f.userOne.userId END FROM Friendship f " +
+           "WHERE (f.userOne.userId = :userId OR f.userTwo.userId = :userId) AND f.status = 'ACCEPTED'")
+    List<String> findAcceptedFriendIds(@Param("userId") String userId);
+
+    // Những user trong otherIds đã có quan hệ bất kỳ (bạn, lời mời, chặn) với userId
+    @Query("SELECT CASE WHEN f.userOne.userId = :userId THEN f.userTwo.userId ELSE f.userOne.userId END FROM Friendship f " +
+           "WHERE (f.userOne.userId = :userId AND f.userTwo.userId IN :otherIds) " +
+           "OR (f.userTwo.userId = :userId AND f.userOne.userId IN :otherIds)")
+    List<String> findRelatedUserIds(@Param("userId") String userId, @Param("otherIds") Collection<String> otherIds);
+
+    // Quan hệ giữa userId và từng user trong otherIds: [otherId, status, requesterId]
+    @Query("SELECT CASE WHEN f.userOne.userId = :userId THEN f.userTwo.userId ELSE f.userOne.userId END, f.status, r.userId " +
+           "FROM Friendship f LEFT JOIN f.requester r " +
+           "WHERE (f.userOne.userId = :userId AND f.userTwo.userId IN :otherIds) " +
+           "OR (f.userTwo.userId = :userId AND f.userOne.userId IN :otherIds)")
+    List<Object[]> findRelationsWith(@Param("userId") String userId, @Param("otherIds") Collection<String> otherIds);
+
+    // --- Chuyển dữ liệu cũ sang cặp chuẩn hóa (FriendshipCanonicalMigrationJob) ---
+
+    // Dòng cũ: userOne là người gửi lời mời
+    @Modifying
+    @Query(value = "UPDATE Friendships SET requester_id = user_one_id WHERE requester_id IS NULL", nativeQuery = true)
+    int backfillRequesters();
+
+    // Mỗi cặp (không kể chiều) chỉ giữ một dòng: ưu tiên BLOCKED > ACCEPTED > PENDING, hòa thì giữ friendship_id nhỏ hơn
+    @Modifying
+    @Query(value = "DELETE f FROM Friendships f JOIN Friendships g " +
+            "ON g.friendship_id <> f.friendship_id " +
+            "AND ((g.user_one_id = f.user_one_id AND g.user_two_id = f.user_two_id) " +
+            "OR (g.user_one_id = f.user_two_id AND g.user_two_id = f.user_one_id)) " +
+            "WHERE (CASE f.status WHEN 'BLOCKED' THEN 3 WHEN 'ACCEPTED' THEN 2 ELSE 1 END) " +
+            "< (CASE g.status WHEN 'BLOCKED' THEN 3 WHEN 'ACCEPTED' THEN 2 ELSE 1 END) " +
+            "OR ((CASE f.status WHEN 'BLOCKED' THEN 3 WHEN 'ACCEPTED' THEN 2 ELSE 1 END) " +
+            "= (CASE g.status WHEN 'BLOCKED' THEN 3 WHEN 'ACCEPTED' THEN 2 ELSE 1 END) " +
+            "AND f.friendship_id > g.friendship_id)", nativeQuery = true)
+    int deleteDuplicatePairs();
+
+    // MySQL gán SET theo thứ tự trái → phải nên không đổi chỗ hai cột trực tiếp được;
+    // dùng requester_id (= user_one_id cũ sau backfillRequesters) làm giá trị tạm
+    @Modifying
+    @Query(value = "UPDATE Friendships SET user_one_id = user_two_id, user_two_id = requester_id " +
+            "WHERE user_one_id > user_two_id AND requester_id = user_one_id", nativeQuery = true)
+    int canonicalizePairs();
+}
@@ -7,6 +7,7 @@ import com.pbl6.backend.model.User;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -48,10 +49,55 @@ public interface MessageRepository extends JpaRepository<Message, String> {
     long countByRepliedToPost(@Param("post") Post post);
     
     // Cursor-based pagination methods for efficient message loading
-    @Query("SELECT m FROM Message m LEFT JOIN FETCH m.sender LEFT JOIN FETCH m.repliedToPost WHERE m.conversation = :conversation ORDER BY m.sentAt DESC")
-    List<Message> findTopNByConversationOrderBySentAtDesc(@Param("conversation") Conversation conversation);
-    
-    @Query("SELECT m FROM Message m LEFT JOIN FETCH m.sender LEFT JOIN FETCH m.repliedToPost WHERE m.conversation = :conversation AND m.sentAt < :beforeTime ORDER BY m.sentAt DESC")
-    List<Message> findByConversationAndSentAtBeforeOrderBySentAtDesc(@Param("conversation") Conversation conversation,
-                                                                      @Param("beforeTime") LocalDateTime beforeTime);
-}
\ No newline at end of file
+    // Keyset theo (sentAt, messageId) + LIMIT (Pageable) đẩy xuống SQL, đi theo idx_message_conversation_sent
+    // (InnoDB gắn khóa chính message_id vào cuối index phụ nên index này cũng phục vụ phần phân xử theo messageId).
+    @Query("SELECT m FROM Message m LEFT JOIN FETCH m.sender LEFT JOIN FETCH m.repliedToPost " +
+           "WHERE m.conversation = :conversation " +
+           "ORDER BY m.sentAt DESC, m.messageId DESC")
+    List<Message> findLatestByConversation(@Param("conversation") Conversation conversation, Pageable pageable);
+
+    // Tin cũ hơn cursor (scroll lên), mới → cũ
+    @Query("SELECT m FROM Message m LEFT JOIN FETCH m.sender LEFT JOIN FETCH m.repliedToPost " +
+           "WHERE m.conversation = :conversation " +
+           "AND (m.sentAt < :beforeTime OR (m.sentAt = :beforeTime AND m.messageId < :beforeMessageId)) " +
+           "ORDER BY m.sentAt DESC, m.messageId DESC")
+    List<Message> findByConversationBefore(@Param("conversation") Conversation conversation,
+                                           @Param("beforeTime") LocalDateTime beforeTime,
+                                           @Param("beforeMessageId") String beforeMessageId,
+                                           Pageable pageable);
+
+    // Tin mới hơn cursor (bắt kịp tin mới), cũ → mới
+    @Query("SELECT m FROM Message m LEFT JOIN FETCH m.sender LEFT JOIN FETCH m.repliedToPost " +
+           "WHERE m.conversation = :conversation " +
+           "AND (m.sentAt > :afterTime OR (m.sentAt = :afterTime AND m.messageId > :afterMessageId)) " +
+           "ORDER BY m.sentAt ASC, m.messageId ASC")
+    List<Message> findByConversationAfter(@Param("conversation") Conversation conversation,
+                                          @Param("afterTime") LocalDateTime afterTime,
+                                          @Param("afterMessageId") String afterMessageId,
+                                          Pageable pageable);
+
+    // Đánh dấu đã đọc mọi tin của người kia tới (và gồm) cursor trong một câu UPDATE; trả về số dòng đổi
+    // Đánh dấu một tin của người kia là đã đọc; trả 1 chỉ cho lần gọi thực sự đổi trạng thái (không trừ bộ đếm hai lần)
+    @Modifying
+    @Query("UPDATE Message m SET m.read = true " +
+           "WHERE m.messageId = :messageId AND m.read = false AND m.sender <> :reader")
+    int markReadById(@Param("messageId") String messageId, @Param("reader") User reader);
+
+    @Modifying
+    @Query("UPDATE Message m SET m.read = true " +
+           "WHERE m.conversation = :conversation AND m.sender <> :reader AND m.read = false " +
+           "AND (m.sentAt < :upToTime OR (m.sentAt = :upToTime AND m.messageId <= :upToMessageId))")
+    int markReadUpTo(@Param("conversation") Conversation conversation,
+                     @Param("reader") User reader,
+                     @Param("upToTime") LocalDateTime upToTime,
+                     @Param("upToMessageId") String upToMessageId);
+
+    // Chỉ lấy sentAt của cursor (trong đúng hội thoại), không hydrate entity
+    @Query("SELECT m.sentAt FROM Message m WHERE m.messageId = :messageId AND m.conversation = :conversation")
+    Optional<LocalDateTime> findSentAtByMessageIdAndConversation(@Param("messageId") String messageId,
+                                                                 @Param("conversation") Conversation conversation);
+
+    // DailyMetricsRollupService: [ngày, số tin nhắn] trong [from, to), đi theo idx_message_sent_at
+    @Query("SELECT DATE(m.sentAt), COUNT(m) FROM Message m WHERE m.sentAt >= :from AND m.sentAt < :to GROUP BY DATE(m.sentAt)")
+    List<Object[]> countSentPerDay(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+}
@@ -54,4 +54,12 @@ public interface ModerationReportRepository extends JpaRepository<ModerationRepo
     long countByResolvedByAdmin(@Param("admin") Admin admin);
     
     Page<ModerationReport> findByReporter(User reporter, Pageable pageable);
-}
\ No newline at end of file
+
+    // DashboardMetricsSnapshot: [status, số report]
+    @Query("SELECT mr.status, COUNT(mr) FROM ModerationReport mr GROUP BY mr.status")
+    List<Object[]> countGroupByStatus();
+
+    // DailyMetricsRollupService: [ngày, số report] trong [from, to)
+    @Query("SELECT DATE(mr.createdAt), COUNT(mr) FROM ModerationReport mr WHERE mr.createdAt >= :from AND mr.createdAt < :to GROUP BY DATE(mr.createdAt)")
+    List<Object[]> countCreatedPerDay(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+}
@@ -0,0 +1,48 @@
+package com.pbl6.backend.repository;
+
+import com.pbl6.backend.model.PostReactionCount;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface PostReactionCountRepository extends JpaRepository<PostReactionCount, PostReactionCount.Key> {
+
+    // Upsert nguyên tử (MySQL): tạo dòng với count=1 hoặc cộng thêm 1
+    @Modifying
+    @Query(value = "INSERT INTO Post_Reaction_Counts (post_id, emoji_type, reaction_count) VALUES (:postId, :emojiType, 1) "
+            + "ON DUPLICATE KEY UPDATE reaction_count = reaction_count + 1", nativeQuery = true)
+    int increment(@Param("postId") String postId, @Param("emojiType") String emojiType);
+
+    @Modifying
+    @Query("UPDATE PostReactionCount c SET c.reactionCount = c.reactionCount - 1 "
+            + "WHERE c.postId = :postId AND c.emojiType = :emojiType AND c.reactionCount > 0")
+    int decrement(@Param("postId") String postId, @Param("emojiType") String emojiType);
+
+    List<PostReactionCount> findByPostIdIn(Collection<String> postIds);
+
+    @Modifying
+    @Query("DELETE FROM PostReactionCount c WHERE c.postId IN :postIds")
+    int deleteByPostIds(@Param("postIds") Collection<String> postIds);
+
+    // Đếm lại từ Post_Reactions và ghi đè trong một câu lệnh: INSERT ... SELECT khóa các dòng nguồn đã đọc,
+    // nên tăng/giảm đồng thời hoặc chờ câu này xong hoặc được nó đếm vào
+    @Modifying
+    @Query(value = "INSERT INTO Post_Reaction_Counts (post_id, emoji_type, reaction_count) "
+            + "SELECT post_id, emoji_type, COUNT(*) FROM Post_Reactions WHERE post_id IN (:postIds) "
+            + "GROUP BY post_id, emoji_type "
+            + "ON DUPLICATE KEY UPDATE reaction_count = VALUES(reaction_count)", nativeQuery = true)
+    int recountByPostIds(@Param("postIds") Collection<String> postIds);
+
+    // Bỏ bộ đếm của (post, emoji) không còn reaction nào
+    @Modifying
+    @Query(value = "DELETE FROM Post_Reaction_Counts WHERE post_id IN (:postIds) AND NOT EXISTS ("
+            + "SELECT 1 FROM Post_Reactions r WHERE r.post_id = Post_Reaction_Counts.post_id "
+            + "AND r.emoji_type = Post_Reaction_Counts.emoji_type)", nativeQuery = true)
+    int deleteOrphanedByPostIds(@Param("postIds") Collection<String> postIds);
+}
@@ -3,7 +3,11 @@ package com.pbl6.backend.repository;
 import com.pbl6.backend.model.Post;
 import com.pbl6.backend.model.PostReaction;
 import com.pbl6.backend.model.User;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -21,6 +25,11 @@ public interface PostReactionRepository extends JpaRepository<PostReaction, Stri
     // Hỗ trợ nhiều reaction của một user cho một post
     List<PostReaction> findAllByPostAndUser(Post post, User user);
 
+    // Đọc reaction mới nhất của (post, user) sau khi đã khóa dòng Users (UserRepository.lockById)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM PostReaction r WHERE r.post.postId = :postId AND r.user.userId = :userId ORDER BY r.createdAt ASC")
+    List<PostReaction> findByPostIdAndUserIdForUpdate(@Param("postId") String postId, @Param("userId") String userId);
+
     boolean existsByPostAndUserAndEmojiType(Post post, User user, String emojiType);
     
     List<PostReaction> findByPostAndEmojiType(Post post, String emojiType);
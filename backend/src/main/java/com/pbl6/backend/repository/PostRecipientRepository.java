@@ -4,10 +4,12 @@ import com.pbl6.backend.model.Post;
 import com.pbl6.backend.model.PostRecipient;
 import com.pbl6.backend.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -23,9 +25,29 @@ public interface PostRecipientRepository extends JpaRepository<PostRecipient, St
     @Query("SELECT pr.post FROM PostRecipient pr WHERE pr.recipient = :recipient")
     List<Post> findPostsByRecipient(@Param("recipient") User recipient);
     
+    @Query("SELECT pr.recipient.userId FROM PostRecipient pr WHERE pr.post.postId = :postId")
+    List<String> findRecipientIdsByPostId(@Param("postId") String postId);
+    
+    // [postId, recipientId] cho mọi post của một tác giả (audience cần làm mới feed khi tác giả xóa tài khoản)
+    @Query("SELECT pr.post.postId, pr.recipient.userId FROM PostRecipient pr WHERE pr.post.user.userId = :authorId")
+    List<Object[]> findRecipientIdsByAuthorId(@Param("authorId") String authorId);
+
+    // Trả về cặp [postId, recipientId] cho nhiều post trong một query
+    @Query("SELECT pr.post.postId, pr.recipient.userId FROM PostRecipient pr WHERE pr.post.postId IN :postIds")
+    List<Object[]> findRecipientIdsByPostIds(@Param("postIds") Collection<String> postIds);
+    
+    // Trả về cặp [postId, User recipient] cho nhiều post trong một query
+    @Query("SELECT pr.post.postId, r FROM PostRecipient pr JOIN pr.recipient r WHERE pr.post.postId IN :postIds")
+    List<Object[]> findRecipientsByPostIds(@Param("postIds") Collection<String> postIds);
+    
     boolean existsByPostAndRecipient(Post post, User recipient);
     
     void deleteByPostAndRecipient(Post post, User recipient);
     
     void deleteByPost(Post post);
+    
+    // Xóa toàn bộ recipients của post bằng một câu DELETE (deleteByPost nạp từng entity rồi xóa từng dòng)
+    @Modifying
+    @Query("DELETE FROM PostRecipient pr WHERE pr.post.postId = :postId")
+    int deleteAllByPostId(@Param("postId") String postId);
 }
\ No newline at end of file
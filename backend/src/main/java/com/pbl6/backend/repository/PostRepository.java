@@ -4,16 +4,20 @@ import com.pbl6.backend.model.Post;
 import com.pbl6.backend.model.User;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
-public interface PostRepository extends JpaRepository<Post, String> {
+public interface PostRepository extends JpaRepository<Post, String>, JpaSpecificationExecutor<Post> {
     
     List<Post> findByUserAndIsDeletedFalse(User user);
     
@@ -51,21 +55,80 @@ public interface PostRepository extends JpaRepository<Post, String> {
     @Query("SELECT COUNT(p) FROM Post p WHERE p.captionStatus = :status")
     long countByCaptionStatus(@Param("status") Post.CaptionStatus status);
     
-    @Query("SELECT DATE(p.createdAt) as date, COUNT(p) as count FROM Post p WHERE p.createdAt BETWEEN :startDate AND :endDate GROUP BY DATE(p.createdAt) ORDER BY date")
-    List<java.util.Map<String, Object>> findPostCountByDateRange(@Param("startDate") java.time.LocalDateTime startDate, @Param("endDate") java.time.LocalDateTime endDate);
+    // DailyMetricsRollupService: [ngày, mediaType, captionStatus, số post] trong [from, to)
+    @Query("SELECT DATE(p.createdAt), p.mediaType, p.captionStatus, COUNT(p) FROM Post p "
+            + "WHERE p.createdAt >= :from AND p.createdAt < :to GROUP BY DATE(p.createdAt), p.mediaType, p.captionStatus")
+    List<Object[]> countCreatedPerDayByMediaTypeAndCaptionStatus(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
     
     // Cursor-based pagination methods for Feed (efficient infinite scrolling)
-    // Lấy feed = bài của mình + bài được share (UNION)
-    @Query("SELECT DISTINCT p FROM Post p LEFT JOIN FETCH p.user LEFT JOIN FETCH p.recipients pr " +
-           "WHERE (p.user = :user OR pr.recipient = :user) " +
+    // Lấy feed = bài của mình + bài được share. Keyset theo (createdAt, postId) và LIMIT đẩy xuống SQL,
+    // không JOIN FETCH recipients để Hibernate không phải phân trang trong bộ nhớ.
+    @Query("SELECT p FROM Post p JOIN FETCH p.user " +
+           "WHERE (p.user = :user OR EXISTS (SELECT 1 FROM PostRecipient pr WHERE pr.post = p AND pr.recipient = :user)) " +
            "AND p.isDeleted = false AND p.captionStatus = 'COMPLETED' " +
-           "ORDER BY p.createdAt DESC")
-    List<Post> findTopNPostsForUser(@Param("user") User user);
-    
-    @Query("SELECT DISTINCT p FROM Post p LEFT JOIN FETCH p.user LEFT JOIN FETCH p.recipients pr " +
-           "WHERE (p.user = :user OR pr.recipient = :user) " +
+           "ORDER BY p.createdAt DESC, p.postId DESC")
+    List<Post> findTopNPostsForUser(@Param("user") User user, Pageable pageable);
+
+    @Query("SELECT p FROM Post p JOIN FETCH p.user " +
+           "WHERE (p.user = :user OR EXISTS (SELECT 1 FROM PostRecipient pr WHERE pr.post = p AND pr.recipient = :user)) " +
            "AND p.isDeleted = false AND p.captionStatus = 'COMPLETED' " +
-           "AND p.createdAt < :beforeTime " +
-           "ORDER BY p.createdAt DESC")
-    List<Post> findPostsForUserBeforeTime(@Param("user") User user, @Param("beforeTime") LocalDateTime beforeTime);
-}
\ No newline at end of file
+           "AND (p.createdAt < :beforeTime OR (p.createdAt = :beforeTime AND p.postId < :beforePostId)) " +
+           "ORDER BY p.createdAt DESC, p.postId DESC")
+    List<Post> findPostsForUserBefore(@Param("user") User user,
+                                      @Param("beforeTime") LocalDateTime beforeTime,
+                                      @Param("beforePostId") String beforePostId,
+                                      Pageable pageable);
+
+    // Chỉ lấy createdAt của cursor (cho client cũ chỉ gửi beforePostId), không hydrate entity
+    @Query("SELECT p.createdAt FROM Post p WHERE p.postId = :postId")
+    Optional<LocalDateTime> findCreatedAtByPostId(@Param("postId") String postId);
+
+    // Fan-out-on-read: post có quá nhiều recipients không nằm trong Feed_Entries
+    @Query("SELECT p FROM Post p JOIN FETCH p.user " +
+           "WHERE p.fanoutOnRead = true AND p.isDeleted = false AND p.captionStatus = 'COMPLETED' " +
+           "AND EXISTS (SELECT 1 FROM PostRecipient pr WHERE pr.post = p AND pr.recipient = :user) " +
+           "ORDER BY p.createdAt DESC, p.postId DESC")
+    List<Post> findFanoutOnReadPostsForUser(@Param("user") User user, Pageable pageable);
+
+    @Query("SELECT p FROM Post p JOIN FETCH p.user " +
+           "WHERE p.fanoutOnRead = true AND p.isDeleted = false AND p.captionStatus = 'COMPLETED' " +
+           "AND EXISTS (SELECT 1 FROM PostRecipient pr WHERE pr.post = p AND pr.recipient = :user) " +
+           "AND (p.createdAt < :beforeTime OR (p.createdAt = :beforeTime AND p.postId < :beforePostId)) " +
+           "ORDER BY p.createdAt DESC, p.postId DESC")
+    List<Post> findFanoutOnReadPostsForUserBefore(@Param("user") User user,
+                                                  @Param("beforeTime") LocalDateTime beforeTime,
+                                                  @Param("beforePostId") String beforePostId,
+                                                  Pageable pageable);
+
+    @Query("SELECT p FROM Post p JOIN FETCH p.user WHERE p.postId IN :postIds")
+    List<Post> findAllWithUserByPostIdIn(@Param("postIds") Collection<String> postIds);
+
+    // Duyệt toàn bộ post đã đăng theo keyset tăng dần (dùng cho backfill Feed_Entries)
+    @Query("SELECT p FROM Post p WHERE p.isDeleted = false AND p.captionStatus = 'COMPLETED' " +
+           "AND (p.createdAt > :afterTime OR (p.createdAt = :afterTime AND p.postId > :afterPostId)) " +
+           "ORDER BY p.createdAt ASC, p.postId ASC")
+    List<Post> findPublishedPostsAfter(@Param("afterTime") LocalDateTime afterTime,
+                                       @Param("afterPostId") String afterPostId,
+                                       Pageable pageable);
+
+    // Duyệt toàn bộ post theo postId tăng dần (đối soát theo batch)
+    @Query("SELECT p.postId FROM Post p WHERE p.postId > :afterPostId ORDER BY p.postId ASC")
+    List<String> findPostIdsAfter(@Param("afterPostId") String afterPostId, Pageable pageable);
+
+    // [authorId, số dòng recipient của userId] trong một query; rỗng nếu post không tồn tại
+    @Query("SELECT p.user.userId, (SELECT COUNT(r) FROM PostRecipient r WHERE r.post = p AND r.recipient.userId = :userId) "
+            + "FROM Post p WHERE p.postId = :postId")
+    List<Object[]> findAuthorAndRecipientFlag(@Param("postId") String postId, @Param("userId") String userId);
+
+    // Trang không kèm COUNT(*) (danh sách admin không lọc, tổng số lấy từ estimateRowCount)
+    Slice<Post> findAllBy(Pageable pageable);
+
+    // Số dòng ước lượng từ thống kê InnoDB (không quét bảng); null nếu không đọc được
+    @Query(value = "SELECT TABLE_ROWS FROM information_schema.TABLES WHERE TABLE_SCHEMA = DATABASE() AND LOWER(TABLE_NAME) = 'posts'",
+            nativeQuery = true)
+    Long estimateRowCount();
+
+    // DashboardMetricsSnapshot: [mediaType, captionStatus, số post]
+    @Query("SELECT p.mediaType, p.captionStatus, COUNT(p) FROM Post p GROUP BY p.mediaType, p.captionStatus")
+    List<Object[]> countGroupByMediaTypeAndCaptionStatus();
+}
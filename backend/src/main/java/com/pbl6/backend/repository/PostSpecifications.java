@@ -0,0 +1,75 @@
+package com.pbl6.backend.repository;
+
+import com.pbl6.backend.model.Post;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDateTime;
+
+/**
+ * Điều kiện lọc cho danh sách post của admin, ghép bằng {@link Specification#and}.
+ * Mỗi hàm trả về null khi không có điều kiện (Specification bỏ qua null).
+ */
+public final class PostSpecifications {
+
+    private PostSpecifications() {}
+
+    public static Specification<Post> hasMediaType(Post.MediaType mediaType) {
+        return mediaType == null ? null : (root, query, cb) -> cb.equal(root.get("mediaType"), mediaType);
+    }
+
+    public static Specification<Post> hasCaptionStatus(Post.CaptionStatus status) {
+        return status == null ? null : (root, query, cb) -> cb.equal(root.get("captionStatus"), status);
+    }
+
+    public static Specification<Post> isDeleted(Boolean deleted) {
+        return deleted == null ? null : (root, query, cb) -> cb.equal(root.get("isDeleted"), deleted);
+    }
+
+    // So sánh thẳng cột user_id, không join Users
+    public static Specification<Post> hasAuthor(String userId) {
+        return userId == null ? null : (root, query, cb) -> cb.equal(root.get("user").get("userId"), userId);
+    }
+
+    public static Specification<Post> createdFrom(LocalDateTime from) {
+        return from == null ? null : (root, query, cb) -> cb.greaterThanOrEqualTo(root.get("createdAt"), from);
+    }
+
+    public static Specification<Post> createdBefore(LocalDateTime to) {
+        return to == null ? null : (root, query, cb) -> cb.lessThan(root.get("createdAt"), to);
+    }
+
+    /**
+     * Khớp caption qua FULLTEXT index (final_caption, generated_caption); booleanQuery theo cú pháp IN BOOLEAN MODE.
+     */
+    public static Specification<Post> captionMatches(String booleanQuery) {
+        return booleanQuery == null ? null : (root, query, cb) -> cb.greaterThan(
+                cb.function("match_against", Double.class,
+                        root.get("finalCaption"), root.get("generatedCaption"), cb.literal(booleanQuery)),
+                0.0);
+    }
+
+    // Dự phòng khi FULLTEXT index chưa sẵn sàng: LIKE '%...%' trên cả hai cột caption (quét bảng)
+    public static Specification<Post> captionContains(String text) {
+        if (text == null) {
+            return null;
+        }
+        String pattern = "%" + text.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+        return (root, query, cb) -> cb.or(
+                cb.like(root.get("finalCaption"), pattern, '\\'),
+                cb.like(root.get("generatedCaption"), pattern, '\\'));
+    }
+
+    /**
+     * Keyset: các post đứng sau (createdAt, postId) theo thứ tự sắp xếp.
+     */
+    public static Specification<Post> after(boolean descending, LocalDateTime createdAt, String postId) {
+        return (root, query, cb) -> {
+            if (descending) {
+                return cb.or(cb.lessThan(root.get("createdAt"), createdAt),
+                        cb.and(cb.equal(root.get("createdAt"), createdAt), cb.lessThan(root.get("postId"), postId)));
+            }
+            return cb.or(cb.greaterThan(root.get("createdAt"), createdAt),
+                    cb.and(cb.equal(root.get("createdAt"), createdAt), cb.greaterThan(root.get("postId"), postId)));
+        };
+    }
+}
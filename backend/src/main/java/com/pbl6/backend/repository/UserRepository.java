@@ -1,16 +1,21 @@
 package com.pbl6.backend.repository;
 
 import com.pbl6.backend.model.User;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface UserRepository extends JpaRepository<User, String> {
+public interface UserRepository extends JpaRepository<User, String>, JpaSpecificationExecutor<User> {
     
     Optional<User> findByUsername(String username);
     
@@ -47,6 +52,38 @@ public interface UserRepository extends JpaRepository<User, String> {
     @Query("SELECT COUNT(u) FROM User u WHERE u.accountStatus = :status")
     long countByAccountStatus(@Param("status") User.AccountStatus status);
     
-    @Query("SELECT DATE(u.createdAt) as date, COUNT(u) as count FROM User u WHERE u.createdAt BETWEEN :startDate AND :endDate GROUP BY DATE(u.createdAt) ORDER BY date")
-    List<java.util.Map<String, Object>> findUserCountByDateRange(@Param("startDate") java.time.LocalDateTime startDate, @Param("endDate") java.time.LocalDateTime endDate);
-}
\ No newline at end of file
+    // DailyMetricsRollupService: [ngày, số user mới] trong [from, to)
+    @Query("SELECT DATE(u.createdAt), COUNT(u) FROM User u WHERE u.createdAt >= :from AND u.createdAt < :to GROUP BY DATE(u.createdAt)")
+    List<Object[]> countCreatedPerDay(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    @Query("SELECT MIN(u.createdAt) FROM User u")
+    LocalDateTime findEarliestCreatedAt();
+
+    // Lọc các id đang ACTIVE (kết quả của UserSearchIndex, chỉ mục không biết trạng thái tài khoản)
+    @Query("SELECT u.userId FROM User u WHERE u.userId IN :userIds AND u.accountStatus = 'ACTIVE'")
+    List<String> findActiveUserIdsIn(@Param("userIds") Collection<String> userIds);
+
+    // Dựng ContactHashIndex: theo keyset userId, [userId, phoneNumber, email]
+    @Query("SELECT u.userId, u.phoneNumber, u.email FROM User u WHERE u.userId > :afterId ORDER BY u.userId")
+    List<Object[]> findContactRowsAfter(@Param("afterId") String afterId, Pageable pageable);
+
+    // Dựng UserSearchIndex: theo keyset userId, [userId, username, fullName]
+    @Query("SELECT u.userId, u.username, u.fullName FROM User u WHERE u.userId > :afterId ORDER BY u.userId")
+    List<Object[]> findSearchRowsAfter(@Param("afterId") String afterId, Pageable pageable);
+
+    // Trang không kèm COUNT(*) (danh sách admin không lọc, tổng số lấy từ estimateRowCount)
+    Slice<User> findAllBy(Pageable pageable);
+
+    // Số dòng ước lượng từ thống kê InnoDB (không quét bảng); null nếu không đọc được
+    @Query(value = "SELECT TABLE_ROWS FROM information_schema.TABLES WHERE TABLE_SCHEMA = DATABASE() AND LOWER(TABLE_NAME) = 'users'",
+            nativeQuery = true)
+    Long estimateRowCount();
+
+    // Khóa dòng Users (luôn tồn tại) để tuần tự hóa các thao tác của một user, kể cả khi phạm vi cần khóa đang rỗng
+    @Query(value = "SELECT user_id FROM Users WHERE user_id = :userId FOR UPDATE", nativeQuery = true)
+    String lockById(@Param("userId") String userId);
+
+    // DashboardMetricsSnapshot: [accountStatus, số user]
+    @Query("SELECT u.accountStatus, COUNT(u) FROM User u GROUP BY u.accountStatus")
+    List<Object[]> countGroupByAccountStatus();
+}
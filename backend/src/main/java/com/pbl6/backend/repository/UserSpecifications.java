@@ -0,0 +1,63 @@
+package com.pbl6.backend.repository;
+
+import com.pbl6.backend.model.User;
+import jakarta.persistence.criteria.Path;
+import org.springframework.data.jpa.domain.Specification;
+
+/**
+ * Điều kiện lọc cho danh sách user của admin, ghép bằng {@link Specification#and}.
+ * Mỗi hàm trả về null khi không có điều kiện (Specification bỏ qua null).
+ */
+public final class UserSpecifications {
+
+    private UserSpecifications() {}
+
+    public static Specification<User> hasAccountStatus(User.AccountStatus status) {
+        return status == null ? null : (root, query, cb) -> cb.equal(root.get("accountStatus"), status);
+    }
+
+    public static Specification<User> hasSubscriptionStatus(User.SubscriptionStatus status) {
+        return status == null ? null : (root, query, cb) -> cb.equal(root.get("subscriptionStatus"), status);
+    }
+
+    /**
+     * Có '@' thì khớp đầu email, chỉ gồm số (có thể có '+') thì khớp đầu số điện thoại; cả hai dùng được index.
+     * Còn lại khớp chuỗi con của họ tên / username.
+     */
+    public static Specification<User> matchesKeyword(String keyword) {
+        if (keyword == null || keyword.isBlank()) {
+            return null;
+        }
+        String q = escapeLike(keyword.trim());
+        if (q.indexOf('@') >= 0) {
+            return (root, query, cb) -> cb.like(root.get("email"), q + "%", '\\');
+        }
+        if (q.matches("\\+?[0-9]+")) {
+            return (root, query, cb) -> cb.like(root.get("phoneNumber"), q + "%", '\\');
+        }
+        return (root, query, cb) -> cb.or(
+                cb.like(root.get("fullName"), "%" + q + "%", '\\'),
+                cb.like(root.get("username"), "%" + q + "%", '\\'));
+    }
+
+    /**
+     * Keyset: các dòng đứng sau (sortValue, userId) theo thứ tự sắp xếp, userId là khóa phụ để thứ tự ổn định.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public static Specification<User> after(String sortProperty, boolean descending, Comparable sortValue, String userId) {
+        return (root, query, cb) -> {
+            Path<Comparable> sortPath = root.get(sortProperty);
+            Path<String> idPath = root.get("userId");
+            if (descending) {
+                return cb.or(cb.lessThan(sortPath, sortValue),
+                        cb.and(cb.equal(sortPath, sortValue), cb.lessThan(idPath, userId)));
+            }
+            return cb.or(cb.greaterThan(sortPath, sortValue),
+                    cb.and(cb.equal(sortPath, sortValue), cb.greaterThan(idPath, userId)));
+        };
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
@@ -0,0 +1,47 @@
+package com.pbl6.backend.request;
+
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDateTime;
+
+/**
+ * Bộ lọc danh sách post của admin (query params). mediaType / status là "ALL", rỗng hoặc giá trị lạ thì không lọc.
+ * author: username hoặc userId. search: tìm trong caption (full-text); bắt đầu bằng '@' thì là username tác giả.
+ * Khoảng thời gian theo createdAt: [from, to).
+ */
+public class AdminPostFilterRequest {
+    private String mediaType;
+    private String status;
+    private Boolean deleted;
+    private String author;
+    private String search;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime from;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime to;
+
+    public AdminPostFilterRequest() {}
+
+    public String getMediaType() { return mediaType; }
+    public void setMediaType(String mediaType) { this.mediaType = mediaType; }
+
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+
+    public Boolean getDeleted() { return deleted; }
+    public void setDeleted(Boolean deleted) { this.deleted = deleted; }
+
+    public String getAuthor() { return author; }
+    public void setAuthor(String author) { this.author = author; }
+
+    public String getSearch() { return search; }
+    public void setSearch(String search) { this.search = search; }
+
+    public LocalDateTime getFrom() { return from; }
+    public void setFrom(LocalDateTime from) { this.from = from; }
+
+    public LocalDateTime getTo() { return to; }
+    public void setTo(LocalDateTime to) { this.to = to; }
+}
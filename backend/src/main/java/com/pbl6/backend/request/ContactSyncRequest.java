@@ -0,0 +1,32 @@
+package com.pbl6.backend.request;
+
+import jakarta.validation.constraints.Size;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Danh bạ đã băm phía client: mỗi phần tử là SHA-256 (hex) của giá trị đã chuẩn hóa.
+ * Số điện thoại: chỉ giữ chữ số, số bắt đầu bằng 0 được đổi sang mã quốc gia mặc định (0912... → 84912...).
+ * Email: bỏ khoảng trắng hai đầu, chữ thường.
+ */
+public class ContactSyncRequest {
+    @Size(max = 2000, message = "Tối đa 2000 số điện thoại mỗi lần")
+    private List<String> phoneHashes = new ArrayList<>();
+
+    @Size(max = 2000, message = "Tối đa 2000 email mỗi lần")
+    private List<String> emailHashes = new ArrayList<>();
+
+    public ContactSyncRequest() {}
+
+    public ContactSyncRequest(List<String> phoneHashes, List<String> emailHashes) {
+        this.phoneHashes = phoneHashes;
+        this.emailHashes = emailHashes;
+    }
+
+    public List<String> getPhoneHashes() { return phoneHashes; }
+    public void setPhoneHashes(List<String> phoneHashes) { this.phoneHashes = phoneHashes; }
+
+    public List<String> getEmailHashes() { return emailHashes; }
+    public void setEmailHashes(List<String> emailHashes) { this.emailHashes = emailHashes; }
+}
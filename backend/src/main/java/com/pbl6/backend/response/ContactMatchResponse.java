@@ -0,0 +1,28 @@
+package com.pbl6.backend.response;
+
+/**
+ * Một liên hệ trong danh bạ khớp với user: hash client gửi lên, profile công khai và quan hệ hiện tại với tôi
+ * (NONE, FRIENDS, REQUEST_SENT, REQUEST_RECEIVED).
+ */
+public class ContactMatchResponse {
+    private String hash;
+    private PublicUserResponse user;
+    private String friendshipStatus;
+
+    public ContactMatchResponse() {}
+
+    public ContactMatchResponse(String hash, PublicUserResponse user, String friendshipStatus) {
+        this.hash = hash;
+        this.user = user;
+        this.friendshipStatus = friendshipStatus;
+    }
+
+    public String getHash() { return hash; }
+    public void setHash(String hash) { this.hash = hash; }
+
+    public PublicUserResponse getUser() { return user; }
+    public void setUser(PublicUserResponse user) { this.user = user; }
+
+    public String getFriendshipStatus() { return friendshipStatus; }
+    public void setFriendshipStatus(String friendshipStatus) { this.friendshipStatus = friendshipStatus; }
+}
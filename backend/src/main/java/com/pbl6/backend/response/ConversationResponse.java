@@ -10,6 +10,7 @@ public class ConversationResponse {
     private LocalDateTime lastMessageAt;
     private LocalDateTime createdAt;
     private List<MessageResponse> messages;
+    private int unreadCount;
 
     public ConversationResponse() {}
 
@@ -44,4 +45,7 @@ public class ConversationResponse {
 
     public List<MessageResponse> getMessages() { return messages; }
     public void setMessages(List<MessageResponse> messages) { this.messages = messages; }
+
+    public int getUnreadCount() { return unreadCount; }
+    public void setUnreadCount(int unreadCount) { this.unreadCount = unreadCount; }
 }
\ No newline at end of file
@@ -0,0 +1,43 @@
+package com.pbl6.backend.response;
+
+import java.util.List;
+
+/**
+ * Một trang theo keyset: client gửi lại {@code nextCursor} để lấy trang sau.
+ * totalElements chỉ có khi được yêu cầu; totalEstimated = true nghĩa là số ước lượng từ thống kê bảng.
+ */
+public class CursorPageResponse<T> {
+    private List<T> content;
+    private int size;
+    private boolean hasNext;
+    private String nextCursor;
+    private Long totalElements;
+    private boolean totalEstimated;
+
+    public CursorPageResponse() {}
+
+    public CursorPageResponse(List<T> content, int size, boolean hasNext, String nextCursor) {
+        this.content = content;
+        this.size = size;
+        this.hasNext = hasNext;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<T> getContent() { return content; }
+    public void setContent(List<T> content) { this.content = content; }
+
+    public int getSize() { return size; }
+    public void setSize(int size) { this.size = size; }
+
+    public boolean isHasNext() { return hasNext; }
+    public void setHasNext(boolean hasNext) { this.hasNext = hasNext; }
+
+    public String getNextCursor() { return nextCursor; }
+    public void setNextCursor(String nextCursor) { this.nextCursor = nextCursor; }
+
+    public Long getTotalElements() { return totalElements; }
+    public void setTotalElements(Long totalElements) { this.totalElements = totalElements; }
+
+    public boolean isTotalEstimated() { return totalEstimated; }
+    public void setTotalEstimated(boolean totalEstimated) { this.totalEstimated = totalEstimated; }
+}
@@ -0,0 +1,22 @@
+package com.pbl6.backend.response;
+
+/**
+ * Một gợi ý kết bạn: người được gợi ý và số bạn chung tại lần tính gần nhất.
+ */
+public class FriendSuggestionResponse {
+    private PublicUserResponse user;
+    private int mutualFriendCount;
+
+    public FriendSuggestionResponse() {}
+
+    public FriendSuggestionResponse(PublicUserResponse user, int mutualFriendCount) {
+        this.user = user;
+        this.mutualFriendCount = mutualFriendCount;
+    }
+
+    public PublicUserResponse getUser() { return user; }
+    public void setUser(PublicUserResponse user) { this.user = user; }
+
+    public int getMutualFriendCount() { return mutualFriendCount; }
+    public void setMutualFriendCount(int mutualFriendCount) { this.mutualFriendCount = mutualFriendCount; }
+}
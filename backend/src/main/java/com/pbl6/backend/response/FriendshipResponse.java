@@ -1,6 +1,7 @@
 package com.pbl6.backend.response;
 
 import com.pbl6.backend.model.Friendship;
+import com.pbl6.backend.model.User;
 import java.time.LocalDateTime;
 
 public class FriendshipResponse {
@@ -18,14 +19,17 @@ public class FriendshipResponse {
     // Constructors
     public FriendshipResponse() {}
 
+    // userOne* là người gửi lời mời, userTwo* là người nhận (độc lập với thứ tự lưu trong Friendships)
     public FriendshipResponse(Friendship friendship) {
+        User sender = friendship.getRequester() != null ? friendship.getRequester() : friendship.getUserOne();
+        User receiver = friendship.getAddressee();
         this.friendshipId = friendship.getFriendshipId();
-        this.userOneId = friendship.getUserOne().getUserId();
-        this.userTwoId = friendship.getUserTwo().getUserId();
-        this.userOneName = friendship.getUserOne().getFullName();
-        this.userTwoName = friendship.getUserTwo().getFullName();
-        this.userOneUsername = friendship.getUserOne().getUsername();
-        this.userTwoUsername = friendship.getUserTwo().getUsername();
+        this.userOneId = sender.getUserId();
+        this.userTwoId = receiver.getUserId();
+        this.userOneName = sender.getFullName();
+        this.userTwoName = receiver.getFullName();
+        this.userOneUsername = sender.getUsername();
+        this.userTwoUsername = receiver.getUsername();
         this.status = friendship.getStatus().toString();
         this.createdAt = friendship.getCreatedAt();
     }
@@ -0,0 +1,39 @@
+package com.pbl6.backend.response;
+
+import java.time.LocalDateTime;
+
+/**
+ * Một dòng trong inbox: người còn lại của hội thoại, preview tin cuối và số tin chưa đọc của tôi.
+ */
+public class InboxConversationResponse {
+    private String conversationId;
+    private PublicUserResponse peer;
+    private String lastMessageId;
+    private String lastMessageSenderId;
+    private String lastMessagePreview;
+    private LocalDateTime lastMessageAt;
+    private int unreadCount;
+
+    public InboxConversationResponse() {}
+
+    public String getConversationId() { return conversationId; }
+    public void setConversationId(String conversationId) { this.conversationId = conversationId; }
+
+    public PublicUserResponse getPeer() { return peer; }
+    public void setPeer(PublicUserResponse peer) { this.peer = peer; }
+
+    public String getLastMessageId() { return lastMessageId; }
+    public void setLastMessageId(String lastMessageId) { this.lastMessageId = lastMessageId; }
+
+    public String getLastMessageSenderId() { return lastMessageSenderId; }
+    public void setLastMessageSenderId(String lastMessageSenderId) { this.lastMessageSenderId = lastMessageSenderId; }
+
+    public String getLastMessagePreview() { return lastMessagePreview; }
+    public void setLastMessagePreview(String lastMessagePreview) { this.lastMessagePreview = lastMessagePreview; }
+
+    public LocalDateTime getLastMessageAt() { return lastMessageAt; }
+    public void setLastMessageAt(LocalDateTime lastMessageAt) { this.lastMessageAt = lastMessageAt; }
+
+    public int getUnreadCount() { return unreadCount; }
+    public void setUnreadCount(int unreadCount) { this.unreadCount = unreadCount; }
+}
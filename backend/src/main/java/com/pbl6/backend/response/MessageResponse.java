@@ -8,7 +8,7 @@ public class MessageResponse {
     private String conversationId;
     private UserResponse sender;
     private String content;
-    private PostResponse repliedToPost;
+    private PostSnippet repliedToPost;
     private LocalDateTime sentAt;
     private boolean read;
     
@@ -16,7 +16,7 @@ public class MessageResponse {
     public MessageResponse() {}
     
     public MessageResponse(String messageId, String conversationId, UserResponse sender, 
-                          String content, PostResponse repliedToPost, LocalDateTime sentAt, boolean read) {
+                          String content, PostSnippet repliedToPost, LocalDateTime sentAt, boolean read) {
         this.messageId = messageId;
         this.conversationId = conversationId;
         this.sender = sender;
@@ -68,11 +68,11 @@ public class MessageResponse {
         this.content = content;
     }
     
-    public PostResponse getRepliedToPost() {
+    public PostSnippet getRepliedToPost() {
         return repliedToPost;
     }
     
-    public void setRepliedToPost(PostResponse repliedToPost) {
+    public void setRepliedToPost(PostSnippet repliedToPost) {
         this.repliedToPost = repliedToPost;
     }
     
@@ -1,5 +1,6 @@
 package com.pbl6.backend.response;
 
+import java.time.LocalDateTime;
 import java.util.Map;
 
 public class MetricsOverviewResponse {
@@ -11,6 +12,8 @@ public class MetricsOverviewResponse {
     private long totalPosts;
     private long pendingReports;
     private AIPerformanceMetrics aiPerformance;
+    // Lúc đếm lại từ DB gần nhất; các số sau đó được cộng dồn theo thay đổi
+    private LocalDateTime computedAt;
     
     // Nested class for AI performance
     public static class AIPerformanceMetrics {
@@ -98,4 +101,12 @@ public class MetricsOverviewResponse {
     public void setAiPerformance(AIPerformanceMetrics aiPerformance) {
         this.aiPerformance = aiPerformance;
     }
+
+    public LocalDateTime getComputedAt() {
+        return computedAt;
+    }
+    
+    public void setComputedAt(LocalDateTime computedAt) {
+        this.computedAt = computedAt;
+    }
 }
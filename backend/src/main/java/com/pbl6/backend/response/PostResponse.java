@@ -3,6 +3,7 @@ package com.pbl6.backend.response;
 import com.pbl6.backend.model.Post;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 public class PostResponse {
     
@@ -16,6 +17,8 @@ public class PostResponse {
     private List<UserResponse> recipients;
     private List<PostReactionResponse> reactions;
     private long totalReactions;
+    // Số reaction theo từng emoji (đọc từ Post_Reaction_Counts)
+    private Map<String, Long> reactionCounts;
     
     // Constructors
     public PostResponse() {}
@@ -135,4 +138,12 @@ public class PostResponse {
     public void setTotalReactions(long totalReactions) {
         this.totalReactions = totalReactions;
     }
-}
\ No newline at end of file
+    
+    public Map<String, Long> getReactionCounts() {
+        return reactionCounts;
+    }
+    
+    public void setReactionCounts(Map<String, Long> reactionCounts) {
+        this.reactionCounts = reactionCounts;
+    }
+}
@@ -0,0 +1,48 @@
+package com.pbl6.backend.response;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Bản rút gọn của post được reply trong chat: đủ để hiển thị thumbnail, không kèm recipients/reactions.
+ * Post đã bị xóa hoặc kiểm duyệt chỉ còn postId, author và {@code deleted=true}.
+ */
+public class PostSnippet {
+    private String postId;
+    private String mediaType;
+    private String mediaUrl;
+    private String caption;
+    // Giữ tên "user" như PostResponse trước đây: client đọc repliedToPost bằng Post.fromJson (json['user'])
+    @JsonProperty("user")
+    private PublicUserResponse author;
+    private boolean deleted;
+
+    public PostSnippet() {}
+
+    public PostSnippet(String postId, String mediaType, String mediaUrl, String caption,
+                       PublicUserResponse author, boolean deleted) {
+        this.postId = postId;
+        this.mediaType = mediaType;
+        this.mediaUrl = mediaUrl;
+        this.caption = caption;
+        this.author = author;
+        this.deleted = deleted;
+    }
+
+    public String getPostId() { return postId; }
+    public void setPostId(String postId) { this.postId = postId; }
+
+    public String getMediaType() { return mediaType; }
+    public void setMediaType(String mediaType) { this.mediaType = mediaType; }
+
+    public String getMediaUrl() { return mediaUrl; }
+    public void setMediaUrl(String mediaUrl) { this.mediaUrl = mediaUrl; }
+
+    public String getCaption() { return caption; }
+    public void setCaption(String caption) { this.caption = caption; }
+
+    public PublicUserResponse getAuthor() { return author; }
+    public void setAuthor(PublicUserResponse author) { this.author = author; }
+
+    public boolean isDeleted() { return deleted; }
+    public void setDeleted(boolean deleted) { this.deleted = deleted; }
+}
@@ -0,0 +1,234 @@
+package com.pbl6.backend.service;
+
+import com.pbl6.backend.model.Post;
+import com.pbl6.backend.model.User;
+import com.pbl6.backend.repository.PostRepository;
+import com.pbl6.backend.repository.PostSpecifications;
+import com.pbl6.backend.repository.UserRepository;
+import com.pbl6.backend.request.AdminPostFilterRequest;
+import com.pbl6.backend.response.CursorPageResponse;
+import com.pbl6.backend.util.KeysetCursor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Danh sách post cho admin: lọc, tìm caption, sắp xếp theo (createdAt, postId) và phân trang đều chạy trong SQL.
+ * Tìm caption dùng FULLTEXT index (ngram) khi {@link PostFullTextIndexJob} báo sẵn sàng, trước đó dùng LIKE.
+ * Phân trang theo số trang ({@link #listPage}) hoặc keyset ({@link #listAfter}) giống {@link AdminUserQueryService}.
+ */
+@Service
+@Transactional(readOnly = true)
+public class AdminPostQueryService {
+
+    // Mặc định innodb_ft_min_token_size / ngram_token_size: từ ngắn hơn không có trong FULLTEXT index
+    private static final int MIN_WORD_LENGTH = 2;
+
+    // Đánh dấu bộ lọc chắc chắn rỗng (từ khóa toàn từ quá ngắn), khỏi chạy query
+    private static final Specification<Post> NO_MATCH = (root, query, cb) -> cb.disjunction();
+
+    private final PostRepository postRepository;
+    private final UserRepository userRepository;
+    private final PostFullTextIndexJob fullTextIndex;
+
+    @Value("${admin.posts.count-estimate-threshold:100000}")
+    private long countEstimateThreshold;
+
+    public AdminPostQueryService(PostRepository postRepository, UserRepository userRepository,
+                                 PostFullTextIndexJob fullTextIndex) {
+        this.postRepository = postRepository;
+        this.userRepository = userRepository;
+        this.fullTextIndex = fullTextIndex;
+    }
+
+    public Page<Post> listPage(AdminPostFilterRequest filter, boolean descending, int page, int size) {
+        Pageable pageable = PageRequest.of(page, size, order(descending));
+        Specification<Post> filters = filters(filter);
+        if (filters == null) {
+            Long estimate = estimatedTotal();
+            if (estimate != null) {
+                Slice<Post> slice = postRepository.findAllBy(pageable);
+                // Ước lượng có thể lệch; không để tổng nhỏ hơn số dòng đã thấy
+                long seen = pageable.getOffset() + slice.getNumberOfElements() + (slice.hasNext() ? 1 : 0);
+                return new PageImpl<>(slice.getContent(), pageable, Math.max(estimate, seen));
+            }
+        } else if (filters == NO_MATCH) {
+            return Page.empty(pageable);
+        }
+        return postRepository.findAll(filters, pageable);
+    }
+
+    /**
+     * @param cursor nextCursor của trang trước; null hoặc rỗng là trang đầu
+     */
+    public CursorPageResponse<Post> listAfter(AdminPostFilterRequest filter, boolean descending, String cursor,
+                                              int size, boolean withTotal) {
+        Specification<Post> filters = filters(filter);
+        if (filters == NO_MATCH) {
+            CursorPageResponse<Post> empty = new CursorPageResponse<>(List.of(), size, false, null);
+            if (withTotal) {
+                empty.setTotalElements(0L);
+            }
+            return empty;
+        }
+        Specification<Post> spec = filters;
+        if (cursor != null && !cursor.isEmpty()) {
+            String[] parts = KeysetCursor.decode(cursor);
+            spec = Specification.where(filters).and(PostSpecifications.after(descending, parseCreatedAt(parts[0]), parts[1]));
+        }
+        Sort order = order(descending);
+        List<Post> rows = postRepository.findBy(spec, q -> q.sortBy(order).limit(size + 1).all());
+
+        boolean hasNext = rows.size() > size;
+        List<Post> content = hasNext ? new ArrayList<>(rows.subList(0, size)) : rows;
+        String nextCursor = null;
+        if (hasNext) {
+            Post last = content.get(content.size() - 1);
+            nextCursor = KeysetCursor.encode(last.getCreatedAt().toString(), last.getPostId());
+        }
+        CursorPageResponse<Post> res = new CursorPageResponse<>(content, size, hasNext, nextCursor);
+        if (withTotal) {
+            Long estimate = filters == null ? estimatedTotal() : null;
+            if (estimate != null) {
+                res.setTotalElements(estimate);
+                res.setTotalEstimated(true);
+            } else {
+                res.setTotalElements(postRepository.count(filters));
+            }
+        }
+        return res;
+    }
+
+    /**
+     * @return null khi không lọc gì, {@link #NO_MATCH} khi từ khóa không tạo được điều kiện tìm kiếm
+     */
+    private Specification<Post> filters(AdminPostFilterRequest filter) {
+        if (filter == null) {
+            return null;
+        }
+        String author = trimToNull(filter.getAuthor());
+        String search = trimToNull(filter.getSearch());
+        if (search != null && search.startsWith("@")) {
+            author = trimToNull(search.substring(1));
+            search = null;
+        }
+
+        Specification<Post> caption = null;
+        if (search != null) {
+            if (fullTextIndex.isReady()) {
+                String booleanQuery = toBooleanQuery(search);
+                if (booleanQuery == null) {
+                    return NO_MATCH;
+                }
+                caption = PostSpecifications.captionMatches(booleanQuery);
+            } else {
+                caption = PostSpecifications.captionContains(search);
+            }
+        }
+
+        List<Specification<Post>> parts = new ArrayList<>();
+        addIfPresent(parts, PostSpecifications.hasMediaType(parseEnum(Post.MediaType.class, filter.getMediaType())));
+        addIfPresent(parts, PostSpecifications.hasCaptionStatus(parseEnum(Post.CaptionStatus.class, filter.getStatus())));
+        addIfPresent(parts, PostSpecifications.isDeleted(filter.getDeleted()));
+        addIfPresent(parts, PostSpecifications.hasAuthor(resolveAuthor(author)));
+        addIfPresent(parts, PostSpecifications.createdFrom(filter.getFrom()));
+        addIfPresent(parts, PostSpecifications.createdBefore(filter.getTo()));
+        addIfPresent(parts, caption);
+        if (parts.isEmpty()) {
+            return null;
+        }
+        Specification<Post> spec = Specification.where(parts.get(0));
+        for (int i = 1; i < parts.size(); i++) {
+            spec = spec.and(parts.get(i));
+        }
+        return spec;
+    }
+
+    /**
+     * Từ khóa -> cú pháp MATCH ... IN BOOLEAN MODE: mỗi từ (chữ/số) thành {@code +"từ"} để mọi từ đều phải có,
+     * bỏ ký tự toán tử của boolean mode và các từ ngắn hơn ngram. Không còn từ nào thì trả null.
+     */
+    static String toBooleanQuery(String search) {
+        StringBuilder sb = new StringBuilder();
+        for (String word : search.split("[^\\p{L}\\p{N}]+")) {
+            if (word.codePointCount(0, word.length()) < MIN_WORD_LENGTH) {
+                continue;
+            }
+            if (sb.length() > 0) {
+                sb.append(' ');
+            }
+            sb.append("+\"").append(word.toLowerCase(Locale.ROOT)).append('"');
+        }
+        return sb.length() == 0 ? null : sb.toString();
+    }
+
+    // Nhận username hoặc userId; không có username khớp thì coi là userId
+    private String resolveAuthor(String author) {
+        if (author == null) {
+            return null;
+        }
+        return userRepository.findByUsername(author).map(User::getUserId).orElse(author);
+    }
+
+    private static <E extends Enum<E>> E parseEnum(Class<E> type, String value) {
+        if (value == null || value.isBlank() || "ALL".equalsIgnoreCase(value)) {
+            return null;
+        }
+        try {
+            return Enum.valueOf(type, value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            // Giá trị lạ thì bỏ qua bộ lọc như trước
+            return null;
+        }
+    }
+
+    private static void addIfPresent(List<Specification<Post>> parts, Specification<Post> spec) {
+        if (spec != null) {
+            parts.add(spec);
+        }
+    }
+
+    private static String trimToNull(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        return value.trim();
+    }
+
+    private static Sort order(boolean descending) {
+        Sort.Direction direction = descending ? Sort.Direction.DESC : Sort.Direction.ASC;
+        return Sort.by(direction, "createdAt").and(Sort.by(direction, "postId"));
+    }
+
+    // Số dòng ước lượng khi bảng đủ lớn để COUNT(*) đáng kể; null thì người gọi đếm chính xác
+    private Long estimatedTotal() {
+        try {
+            Long estimate = postRepository.estimateRowCount();
+            return estimate != null && estimate >= countEstimateThreshold ? estimate : null;
+        } catch (DataAccessException e) {
+            return null;
+        }
+    }
+
+    private static LocalDateTime parseCreatedAt(String value) {
+        try {
+            return LocalDateTime.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Cursor không hợp lệ");
+        }
+    }
+}
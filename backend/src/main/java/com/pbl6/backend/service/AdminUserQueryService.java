@@ -0,0 +1,157 @@
+package com.pbl6.backend.service;
+
+import com.pbl6.backend.model.User;
+import com.pbl6.backend.repository.UserRepository;
+import com.pbl6.backend.repository.UserSpecifications;
+import com.pbl6.backend.response.CursorPageResponse;
+import com.pbl6.backend.util.KeysetCursor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Danh sách user cho admin: lọc, sắp xếp và phân trang đều chạy trong SQL (Specification), không nạp cả bảng.
+ * Hai kiểu phân trang:
+ * <ul>
+ *     <li>{@link #listPage}: theo số trang như trước (client admin-web). Không lọc gì và bảng lớn thì tổng số dòng
+ *     lấy từ thống kê bảng thay vì COUNT(*).</li>
+ *     <li>{@link #listAfter}: keyset theo (cột sắp xếp, userId), không có OFFSET; tổng số chỉ đếm khi được yêu cầu.</li>
+ * </ul>
+ */
+@Service
+@Transactional(readOnly = true)
+public class AdminUserQueryService {
+
+    public enum SortField {
+        CREATED_AT("createdAt"),
+        USERNAME("username");
+
+        private final String property;
+
+        SortField(String property) {
+            this.property = property;
+        }
+
+        public String getProperty() {
+            return property;
+        }
+
+        public static SortField fromParam(String value) {
+            if (value == null || value.isBlank()) {
+                return CREATED_AT;
+            }
+            for (SortField f : values()) {
+                if (f.property.equalsIgnoreCase(value) || f.name().equalsIgnoreCase(value)) {
+                    return f;
+                }
+            }
+            throw new IllegalArgumentException("Không hỗ trợ sắp xếp theo: " + value);
+        }
+    }
+
+    private final UserRepository userRepository;
+
+    @Value("${admin.users.count-estimate-threshold:100000}")
+    private long countEstimateThreshold;
+
+    public AdminUserQueryService(UserRepository userRepository) {
+        this.userRepository = userRepository;
+    }
+
+    public Page<User> listPage(User.AccountStatus status, User.SubscriptionStatus subscription, String search,
+                               SortField sort, boolean descending, int page, int size) {
+        Pageable pageable = PageRequest.of(page, size, order(sort, descending));
+        if (status == null && subscription == null && (search == null || search.isBlank())) {
+            Long estimate = estimatedTotal();
+            if (estimate != null) {
+                Slice<User> slice = userRepository.findAllBy(pageable);
+                // Ước lượng có thể lệch; không để tổng nhỏ hơn số dòng đã thấy
+                long seen = pageable.getOffset() + slice.getNumberOfElements() + (slice.hasNext() ? 1 : 0);
+                return new PageImpl<>(slice.getContent(), pageable, Math.max(estimate, seen));
+            }
+        }
+        return userRepository.findAll(filters(status, subscription, search), pageable);
+    }
+
+    /**
+     * @param cursor nextCursor của trang trước; null hoặc rỗng là trang đầu
+     */
+    public CursorPageResponse<User> listAfter(User.AccountStatus status, User.SubscriptionStatus subscription, String search,
+                                              SortField sort, boolean descending, String cursor, int size, boolean withTotal) {
+        Specification<User> filters = filters(status, subscription, search);
+        Specification<User> spec = filters;
+        if (cursor != null && !cursor.isEmpty()) {
+            String[] parts = KeysetCursor.decode(cursor);
+            spec = Specification.where(filters)
+                    .and(UserSpecifications.after(sort.getProperty(), descending, sortValue(sort, parts[0]), parts[1]));
+        }
+        Sort order = order(sort, descending);
+        List<User> rows = userRepository.findBy(spec, q -> q.sortBy(order).limit(size + 1).all());
+
+        boolean hasNext = rows.size() > size;
+        List<User> content = hasNext ? new ArrayList<>(rows.subList(0, size)) : rows;
+        String nextCursor = hasNext ? encodeCursor(sort, content.get(content.size() - 1)) : null;
+        CursorPageResponse<User> res = new CursorPageResponse<>(content, size, hasNext, nextCursor);
+        if (withTotal) {
+            Long estimate = status == null && subscription == null && (search == null || search.isBlank())
+                    ? estimatedTotal() : null;
+            if (estimate != null) {
+                res.setTotalElements(estimate);
+                res.setTotalEstimated(true);
+            } else {
+                res.setTotalElements(userRepository.count(filters));
+            }
+        }
+        return res;
+    }
+
+    private static Specification<User> filters(User.AccountStatus status, User.SubscriptionStatus subscription, String search) {
+        return Specification.where(UserSpecifications.hasAccountStatus(status))
+                .and(UserSpecifications.hasSubscriptionStatus(subscription))
+                .and(UserSpecifications.matchesKeyword(search));
+    }
+
+    private static Sort order(SortField sort, boolean descending) {
+        Sort.Direction direction = descending ? Sort.Direction.DESC : Sort.Direction.ASC;
+        return Sort.by(direction, sort.getProperty()).and(Sort.by(direction, "userId"));
+    }
+
+    // Số dòng ước lượng khi bảng đủ lớn để COUNT(*) đáng kể; null thì người gọi đếm chính xác
+    private Long estimatedTotal() {
+        try {
+            Long estimate = userRepository.estimateRowCount();
+            return estimate != null && estimate >= countEstimateThreshold ? estimate : null;
+        } catch (DataAccessException e) {
+            return null;
+        }
+    }
+
+    private static String encodeCursor(SortField sort, User last) {
+        String value = sort == SortField.CREATED_AT ? last.getCreatedAt().toString() : last.getUsername();
+        return KeysetCursor.encode(value, last.getUserId());
+    }
+
+    private static Comparable<?> sortValue(SortField sort, String value) {
+        if (sort == SortField.USERNAME) {
+            return value;
+        }
+        try {
+            return LocalDateTime.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Cursor không khớp kiểu sắp xếp");
+        }
+    }
+}
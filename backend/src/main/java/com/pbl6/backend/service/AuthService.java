@@ -1,5 +1,7 @@
 package com.pbl6.backend.service;
 
+import com.pbl6.backend.event.MetricsDeltaEvent;
+import com.pbl6.backend.event.UserChangedEvent;
 import com.pbl6.backend.model.User;
 import com.pbl6.backend.repository.UserRepository;
 import com.pbl6.backend.request.LoginRequest;
@@ -8,6 +10,7 @@ import com.pbl6.backend.response.AuthResponse;
 import com.pbl6.backend.response.UserResponse;
 import com.pbl6.backend.security.JwtUtil;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -26,6 +29,9 @@ public class AuthService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     @Autowired
     private PasswordEncoder passwordEncoder;
 
@@ -72,6 +78,9 @@ public class AuthService {
 
         // Lưu user vào database
         User savedUser = userRepository.save(user);
+        eventPublisher.publishEvent(new UserChangedEvent(savedUser.getUserId(), savedUser.getUsername(),
+                savedUser.getFullName(), savedUser.getPhoneNumber(), savedUser.getEmail(), UserChangedEvent.Type.SAVED));
+        eventPublisher.publishEvent(MetricsDeltaEvent.user(null, savedUser.getAccountStatus()));
 
         // Tạo JWT token với subject là email (ưu tiên) hoặc phone number để đồng bộ với cơ chế đăng nhập
         String subject = (savedUser.getEmail() != null && !savedUser.getEmail().isBlank())
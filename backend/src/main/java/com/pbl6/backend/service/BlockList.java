@@ -0,0 +1,271 @@
+package com.pbl6.backend.service;
+
+import com.pbl6.backend.event.FriendshipChangedEvent;
+import com.pbl6.backend.model.Friendship;
+import com.pbl6.backend.repository.FriendshipRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Các cặp user đang chặn nhau (Friendships.status = BLOCKED, không phân biệt ai chặn ai) cho các đường nóng:
+ * gửi tin, reply post, chọn recipients. Bloom filter trả lời "chắc chắn không chặn" cho phần lớn lần hỏi;
+ * khi filter báo có thì mới tra tập chính xác. Cả hai đều trong bộ nhớ nên không có round-trip DB.
+ * Nạp từ DB khi khởi động, sau đó cập nhật theo {@link FriendshipChangedEvent} BLOCKED / UNBLOCKED.
+ * Trước khi nạp xong thì hỏi thẳng DB.
+ */
+@Component
+public class BlockList {
+    private static final Logger log = LoggerFactory.getLogger(BlockList.class);
+
+    private final FriendshipRepository friendshipRepository;
+
+    private final Set<String> exact = ConcurrentHashMap.newKeySet();
+    private volatile BloomFilter filter;
+    private volatile boolean ready;
+    // Số lần bỏ chặn từ lần dựng filter gần nhất (bit của cặp đã bỏ vẫn còn trong filter)
+    private int removalsSinceRebuild;
+    private List<FriendshipChangedEvent> pendingDuringLoad;
+
+    private final AtomicLong negatives = new AtomicLong();
+    private final AtomicLong positives = new AtomicLong();
+    private final AtomicLong falsePositives = new AtomicLong();
+    private final AtomicLong dbFallbacks = new AtomicLong();
+    private final AtomicLong rebuilds = new AtomicLong();
+
+    @Value("${friends.block-list.expected-entries:100000}")
+    private int expectedEntries;
+
+    @Value("${friends.block-list.false-positive-rate:0.01}")
+    private double falsePositiveRate;
+
+    @Value("${friends.graph.rebuild-batch-size:5000}")
+    private int batchSize;
+
+    public BlockList(FriendshipRepository friendshipRepository) {
+        this.friendshipRepository = friendshipRepository;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    @Async("startupExecutor")
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        load();
+    }
+
+    /**
+     * Nạp toàn bộ cặp BLOCKED theo keyset friendshipId; sự kiện nhận được trong lúc nạp được phát lại sau cùng.
+     */
+    public void load() {
+        long start = System.currentTimeMillis();
+        synchronized (this) {
+            pendingDuringLoad = new ArrayList<>();
+        }
+        List<String> keys = new ArrayList<>();
+        try {
+            String after = "";
+            while (true) {
+                List<Object[]> rows = friendshipRepository.findBlockedPairsAfter(after, PageRequest.of(0, batchSize));
+                for (Object[] row : rows) {
+                    keys.add(key((String) row[1], (String) row[2]));
+                }
+                if (rows.size() < batchSize) {
+                    break;
+                }
+                after = (String) rows.get(rows.size() - 1)[0];
+            }
+        } catch (RuntimeException ex) {
+            synchronized (this) {
+                pendingDuringLoad = null;
+            }
+            throw ex;
+        }
+
+        synchronized (this) {
+            exact.addAll(keys);
+            for (FriendshipChangedEvent e : pendingDuringLoad) {
+                apply(e);
+            }
+            pendingDuringLoad = null;
+            rebuildFilter();
+            ready = true;
+        }
+        log.info("Nạp danh sách chặn: {} cặp trong {} ms", exact.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Hai user có đang chặn nhau (theo bất kỳ chiều nào) không.
+     */
+    public boolean isBlocked(String userId, String otherUserId) {
+        if (userId.equals(otherUserId)) {
+            return false;
+        }
+        if (!ready) {
+            dbFallbacks.incrementAndGet();
+            String[] pair = Friendship.canonicalPair(userId, otherUserId);
+            return friendshipRepository.findByPair(pair[0], pair[1])
+                    .map(f -> f.getStatus() == Friendship.FriendshipStatus.BLOCKED)
+                    .orElse(false);
+        }
+        String key = key(userId, otherUserId);
+        if (!filter.mightContain(key)) {
+            negatives.incrementAndGet();
+            return false;
+        }
+        positives.incrementAndGet();
+        boolean blocked = exact.contains(key);
+        if (!blocked) {
+            falsePositives.incrementAndGet();
+        }
+        return blocked;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onFriendshipChanged(FriendshipChangedEvent event) {
+        if (event.getType() != FriendshipChangedEvent.Type.BLOCKED
+                && event.getType() != FriendshipChangedEvent.Type.UNBLOCKED) {
+            return;
+        }
+        if (pendingDuringLoad != null) {
+            pendingDuringLoad.add(event);
+        }
+        if (ready) {
+            apply(event);
+        }
+    }
+
+    // Gọi khi giữ monitor của BlockList
+    private void apply(FriendshipChangedEvent event) {
+        String key = key(event.getUserOneId(), event.getUserTwoId());
+        if (event.getType() == FriendshipChangedEvent.Type.BLOCKED) {
+            if (exact.add(key) && filter != null) {
+                // Thêm vào filter trước khi lớn quá sức chứa thì dựng lại to hơn
+                if (exact.size() > filter.capacity) {
+                    rebuildFilter();
+                } else {
+                    filter.put(key);
+                }
+            }
+        } else if (exact.remove(key) && filter != null) {
+            removalsSinceRebuild++;
+            // Bit của các cặp đã bỏ chặn làm tăng tỉ lệ dương tính giả; dựng lại khi đã bỏ đủ nhiều
+            if (removalsSinceRebuild > filter.capacity / 4) {
+                rebuildFilter();
+            }
+        }
+    }
+
+    // Gọi khi giữ monitor của BlockList; reader vẫn dùng filter cũ cho tới khi đổi tham chiếu
+    private void rebuildFilter() {
+        BloomFilter fresh = new BloomFilter(Math.max(expectedEntries, exact.size() * 2), falsePositiveRate);
+        for (String key : exact) {
+            fresh.put(key);
+        }
+        filter = fresh;
+        removalsSinceRebuild = 0;
+        rebuilds.incrementAndGet();
+    }
+
+    public Map<String, Object> stats() {
+        BloomFilter f = filter;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("ready", ready);
+        stats.put("blockedPairs", exact.size());
+        stats.put("filterCapacity", f == null ? 0 : f.capacity);
+        stats.put("filterBits", f == null ? 0 : f.bits);
+        stats.put("filterHashes", f == null ? 0 : f.hashes);
+        stats.put("negatives", negatives.get());
+        stats.put("positives", positives.get());
+        stats.put("falsePositives", falsePositives.get());
+        stats.put("dbFallbacks", dbFallbacks.get());
+        stats.put("rebuilds", rebuilds.get());
+        return stats;
+    }
+
+    private static String key(String a, String b) {
+        String[] pair = Friendship.canonicalPair(a, b);
+        return pair[0] + ':' + pair[1];
+    }
+
+    /**
+     * Bloom filter trên AtomicLongArray: đọc không khóa, ghi bằng CAS.
+     * Vị trí bit theo double hashing h1 + i*h2 từ một hash 64-bit FNV-1a của key.
+     */
+    static final class BloomFilter {
+        final int capacity;
+        final long bits;
+        final int hashes;
+        private final AtomicLongArray words;
+
+        BloomFilter(int capacity, double falsePositiveRate) {
+            this.capacity = capacity;
+            // m = -n ln p / (ln 2)^2, k = m/n ln 2
+            long m = (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+            this.bits = Math.max(64, (m + 63) / 64 * 64);
+            this.hashes = Math.max(1, (int) Math.round((double) bits / capacity * Math.log(2)));
+            this.words = new AtomicLongArray((int) (bits / 64));
+        }
+
+        void put(String key) {
+            long h = hash(key);
+            long h1 = mix(h);
+            long h2 = mix(h ^ 0x9E3779B97F4A7C15L) | 1;
+            for (int i = 0; i < hashes; i++) {
+                long bit = Math.floorMod(h1 + i * h2, bits);
+                int w = (int) (bit >>> 6);
+                long mask = 1L << bit;
+                long cur = words.get(w);
+                while ((cur & mask) == 0 && !words.compareAndSet(w, cur, cur | mask)) {
+                    cur = words.get(w);
+                }
+            }
+        }
+
+        boolean mightContain(String key) {
+            long h = hash(key);
+            long h1 = mix(h);
+            long h2 = mix(h ^ 0x9E3779B97F4A7C15L) | 1;
+            for (int i = 0; i < hashes; i++) {
+                long bit = Math.floorMod(h1 + i * h2, bits);
+                if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static long hash(String key) {
+            long h = 0xcbf29ce484222325L;
+            for (int i = 0; i < key.length(); i++) {
+                h ^= key.charAt(i);
+                h *= 0x100000001b3L;
+            }
+            return h;
+        }
+
+        // Bộ trộn của SplitMix64
+        private static long mix(long z) {
+            z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+            z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+            return z ^ (z >>> 31);
+        }
+    }
+}
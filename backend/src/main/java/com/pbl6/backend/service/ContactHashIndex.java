@@ -0,0 +1,236 @@
+package com.pbl6.backend.service;
+
+import com.pbl6.backend.event.UserChangedEvent;
+import com.pbl6.backend.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Chỉ mục trong bộ nhớ từ hash SHA-256 của số điện thoại / email đã chuẩn hóa sang userId, cho đồng bộ danh bạ.
+ * Khóa là 64 bit đầu của hash (đủ để phân biệt, tiết kiệm bộ nhớ); người gọi xác nhận lại bằng hash đầy đủ
+ * từ dữ liệu user vừa nạp ({@link #phoneHash}, {@link #emailHash}).
+ * Dựng từ Users khi khởi động, sau đó cập nhật theo {@link UserChangedEvent}.
+ */
+@Component
+public class ContactHashIndex {
+    private static final Logger log = LoggerFactory.getLogger(ContactHashIndex.class);
+
+    private final UserRepository userRepository;
+
+    private final ConcurrentHashMap<Long, String> userIdByKey = new ConcurrentHashMap<>();
+    // Khóa hiện tại của từng user [phoneKey, emailKey] để gỡ khi đổi số/email
+    private final ConcurrentHashMap<String, long[]> keysByUser = new ConcurrentHashMap<>();
+    private volatile boolean ready;
+    private List<UserChangedEvent> pendingDuringBuild;
+
+    private final AtomicLong lookups = new AtomicLong();
+    private final AtomicLong matches = new AtomicLong();
+
+    @Value("${contacts.default-country-code:84}")
+    private String defaultCountryCode;
+
+    @Value("${contacts.index.build-batch-size:5000}")
+    private int batchSize;
+
+    public ContactHashIndex(UserRepository userRepository) {
+        this.userRepository = userRepository;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    @Async("startupExecutor")
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        build();
+    }
+
+    /**
+     * Đọc (userId, phone, email) của toàn bộ Users theo keyset userId; sự kiện nhận được trong lúc dựng được phát lại sau cùng.
+     */
+    public void build() {
+        long start = System.currentTimeMillis();
+        synchronized (this) {
+            pendingDuringBuild = new ArrayList<>();
+        }
+        try {
+            String after = "";
+            while (true) {
+                List<Object[]> rows = userRepository.findContactRowsAfter(after, PageRequest.of(0, batchSize));
+                synchronized (this) {
+                    for (Object[] row : rows) {
+                        put((String) row[0], (String) row[1], (String) row[2]);
+                    }
+                }
+                if (rows.size() < batchSize) {
+                    break;
+                }
+                after = (String) rows.get(rows.size() - 1)[0];
+            }
+        } finally {
+            synchronized (this) {
+                if (pendingDuringBuild != null) {
+                    for (UserChangedEvent e : pendingDuringBuild) {
+                        apply(e);
+                    }
+                }
+                pendingDuringBuild = null;
+            }
+        }
+        ready = true;
+        log.info("Dựng chỉ mục danh bạ: {} user trong {} ms", keysByUser.size(), System.currentTimeMillis() - start);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onUserChanged(UserChangedEvent event) {
+        apply(event);
+        if (pendingDuringBuild != null) {
+            pendingDuringBuild.add(event);
+        }
+    }
+
+    // Gọi khi giữ monitor của ContactHashIndex
+    private void apply(UserChangedEvent event) {
+        if (event.getType() == UserChangedEvent.Type.DELETED) {
+            remove(event.getUserId());
+        } else {
+            put(event.getUserId(), event.getPhoneNumber(), event.getEmail());
+        }
+    }
+
+    private void put(String userId, String phoneNumber, String email) {
+        remove(userId);
+        long[] keys = new long[]{key(phoneHash(phoneNumber)), key(emailHash(email))};
+        for (long k : keys) {
+            if (k != 0) {
+                userIdByKey.put(k, userId);
+            }
+        }
+        keysByUser.put(userId, keys);
+    }
+
+    private void remove(String userId) {
+        long[] old = keysByUser.remove(userId);
+        if (old != null) {
+            for (long k : old) {
+                if (k != 0) {
+                    userIdByKey.remove(k, userId);
+                }
+            }
+        }
+    }
+
+    /**
+     * Ứng viên userId cho các hash (hex SHA-256, không phân biệt hoa thường); hash sai định dạng bị bỏ qua.
+     * @return map hash (chữ thường) → userId
+     */
+    public Map<String, String> lookup(Collection<String> hashes) {
+        Map<String, String> res = new HashMap<>();
+        for (String h : hashes) {
+            if (h == null || h.length() != 64) {
+                continue;
+            }
+            String hash = h.toLowerCase();
+            long k = key(hash);
+            if (k == 0) {
+                continue;
+            }
+            String userId = userIdByKey.get(k);
+            if (userId != null) {
+                res.put(hash, userId);
+            }
+        }
+        lookups.addAndGet(hashes.size());
+        matches.addAndGet(res.size());
+        return res;
+    }
+
+    public String phoneHash(String phoneNumber) {
+        String normalized = normalizePhone(phoneNumber, defaultCountryCode);
+        return normalized == null ? null : sha256Hex(normalized);
+    }
+
+    public String emailHash(String email) {
+        String normalized = normalizeEmail(email);
+        return normalized == null ? null : sha256Hex(normalized);
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("ready", ready);
+        stats.put("users", keysByUser.size());
+        stats.put("keys", userIdByKey.size());
+        stats.put("lookups", lookups.get());
+        stats.put("matches", matches.get());
+        return stats;
+    }
+
+    static String normalizePhone(String phoneNumber, String defaultCountryCode) {
+        if (phoneNumber == null) {
+            return null;
+        }
+        StringBuilder digits = new StringBuilder(phoneNumber.length());
+        for (int i = 0; i < phoneNumber.length(); i++) {
+            char c = phoneNumber.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits.append(c);
+            }
+        }
+        if (digits.length() == 0) {
+            return null;
+        }
+        if (digits.charAt(0) == '0') {
+            digits.replace(0, 1, defaultCountryCode);
+        }
+        return digits.toString();
+    }
+
+    static String normalizeEmail(String email) {
+        if (email == null || email.isBlank()) {
+            return null;
+        }
+        return email.trim().toLowerCase();
+    }
+
+    static String sha256Hex(String value) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(md.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // 64 bit đầu của hash hex; 0 dành cho "không có" (hash null hoặc sai định dạng)
+    private static long key(String hexHash) {
+        if (hexHash == null) {
+            return 0;
+        }
+        try {
+            return Long.parseUnsignedLong(hexHash.substring(0, 16), 16);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.pbl6.backend.service;
+
+import com.pbl6.backend.repository.ConversationRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Khởi tạo các cột denormalized trên Conversations (bộ đếm chưa đọc, tin cuối) cho dữ liệu có từ trước.
+ * Bật bằng {@code messages.conversations.backfill-on-startup=true}; chạy vài câu UPDATE sau khi ứng dụng khởi động.
+ */
+@Component
+public class ConversationBackfillJob {
+    private static final Logger log = LoggerFactory.getLogger(ConversationBackfillJob.class);
+
+    private final ConversationRepository conversationRepository;
+
+    @Value("${messages.conversations.backfill-on-startup:false}")
+    private boolean enabled;
+
+    public ConversationBackfillJob(ConversationRepository conversationRepository) {
+        this.conversationRepository = conversationRepository;
+    }
+
+    @Transactional
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!enabled) {
+            return;
+        }
+        int recounted = conversationRepository.recountAllUnread();
+        int lastIds = conversationRepository.backfillLastMessageIds();
+        int previews = conversationRepository.backfillLastMessagePreviews();
+        log.info("Backfill Conversations: đếm lại chưa đọc {} dòng, tin cuối {} dòng, preview {} dòng",
+                recounted, lastIds, previews);
+    }
+}
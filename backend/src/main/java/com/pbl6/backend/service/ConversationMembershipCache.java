@@ -0,0 +1,148 @@
+package com.pbl6.backend.service;
+
+import com.pbl6.backend.event.UserChangedEvent;
+import com.pbl6.backend.repository.ConversationRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache {@code conversationId -> (userOneId, userTwoId)} cho các kiểm tra quyền trong chat.
+ * Thành viên của hội thoại không bao giờ đổi nên entry chỉ nạp lười khi cần; chỉ bị bỏ khi một thành viên xóa tài khoản
+ * (hội thoại bị xóa theo cascade, lần kiểm tra sau phải báo "không tìm thấy" thay vì lỗi FK lúc ghi tin).
+ * Đọc không khóa (ConcurrentHashMap); khi vượt {@code messages.membership-cache.max-entries} thì bỏ bớt
+ * theo kiểu CLOCK: entry được đọc từ lần quét trước được giữ lại thêm một vòng.
+ */
+@Component
+public class ConversationMembershipCache {
+
+    private final ConversationRepository conversationRepository;
+    private final ConcurrentHashMap<String, Members> entries = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    @Value("${messages.membership-cache.max-entries:50000}")
+    private int maxEntries;
+
+    public ConversationMembershipCache(ConversationRepository conversationRepository) {
+        this.conversationRepository = conversationRepository;
+    }
+
+    /**
+     * Thành viên của hội thoại; nạp từ DB (chỉ hai cột id) nếu chưa có trong cache.
+     * @throws IllegalArgumentException nếu hội thoại không tồn tại
+     */
+    public Members get(String conversationId) {
+        Members m = entries.get(conversationId);
+        if (m != null) {
+            m.referenced = true;
+            hits.incrementAndGet();
+            return m;
+        }
+        misses.incrementAndGet();
+        List<Object[]> rows = conversationRepository.findMemberIds(conversationId);
+        if (rows.isEmpty()) {
+            throw new IllegalArgumentException("Không tìm thấy hội thoại với id=" + conversationId);
+        }
+        Members loaded = new Members((String) rows.get(0)[0], (String) rows.get(0)[1]);
+        Members existing = entries.putIfAbsent(conversationId, loaded);
+        if (existing == null && entries.size() > maxEntries) {
+            evict();
+        }
+        return existing != null ? existing : loaded;
+    }
+
+    /**
+     * Kiểm tra user thuộc hội thoại, không đọc entity Conversation.
+     * @throws RuntimeException nếu user không phải thành viên
+     */
+    public Members requireMember(String conversationId, String userId, String errorMessage) {
+        Members m = get(conversationId);
+        if (!m.contains(userId)) {
+            throw new RuntimeException(errorMessage);
+        }
+        return m;
+    }
+
+    /**
+     * Ghi sẵn thành viên khi vừa tạo hội thoại, tránh một lần nạp lại.
+     */
+    public void put(String conversationId, String userOneId, String userTwoId) {
+        if (entries.putIfAbsent(conversationId, new Members(userOneId, userTwoId)) == null && entries.size() > maxEntries) {
+            evict();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        if (event.getType() == UserChangedEvent.Type.DELETED) {
+            entries.values().removeIf(m -> m.contains(event.getUserId()));
+        }
+    }
+
+    private synchronized void evict() {
+        // Bỏ tới 90% giới hạn để không phải quét lại sau mỗi lần thêm
+        int target = maxEntries - Math.max(1, maxEntries / 10);
+        Iterator<Members> it = entries.values().iterator();
+        int rounds = 0;
+        while (entries.size() > target && rounds < 2) {
+            if (!it.hasNext()) {
+                it = entries.values().iterator();
+                rounds++;
+                continue;
+            }
+            Members m = it.next();
+            if (m.referenced) {
+                m.referenced = false;
+            } else {
+                it.remove();
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    public Map<String, Object> stats() {
+        long h = hits.get();
+        long total = h + misses.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("entries", entries.size());
+        stats.put("maxEntries", maxEntries);
+        stats.put("hits", h);
+        stats.put("misses", misses.get());
+        stats.put("hitRatio", total == 0 ? 0 : (double) h / total);
+        stats.put("evictions", evictions.get());
+        return stats;
+    }
+
+    public static final class Members {
+        private final String userOneId;
+        private final String userTwoId;
+        volatile boolean referenced;
+
+        Members(String userOneId, String userTwoId) {
+            this.userOneId = userOneId;
+            this.userTwoId = userTwoId;
+        }
+
+        public String getUserOneId() {
+            return userOneId;
+        }
+
+        public String getUserTwoId() {
+            return userTwoId;
+        }
+
+        public boolean contains(String userId) {
+            return userOneId.equals(userId) || userTwoId.equals(userId);
+        }
+    }
+}
@@ -6,20 +6,28 @@ import com.pbl6.backend.model.User;
 import com.pbl6.backend.repository.ConversationRepository;
 import com.pbl6.backend.repository.MessageRepository;
 import com.pbl6.backend.response.ConversationResponse;
+import com.pbl6.backend.response.InboxConversationResponse;
 import com.pbl6.backend.response.MessageResponse;
-import com.pbl6.backend.response.PostResponse;
+import com.pbl6.backend.response.PostSnippet;
 import com.pbl6.backend.response.PublicUserResponse;
 import com.pbl6.backend.response.UserResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.stream.Collectors;
 
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Service
 public class ConversationService {
@@ -29,18 +37,21 @@ public class ConversationService {
     private final MessageRepository messageRepository;
     private final UserService userService;
     private final AuthService authService;
-    private final PostService postService;
+    private final PostSnippetCache postSnippetCache;
+    private final ConversationMembershipCache membershipCache;
 
     public ConversationService(ConversationRepository conversationRepository,
                                MessageRepository messageRepository,
                                UserService userService,
                                AuthService authService,
-                               PostService postService) {
+                               PostSnippetCache postSnippetCache,
+                               ConversationMembershipCache membershipCache) {
         this.conversationRepository = conversationRepository;
         this.messageRepository = messageRepository;
         this.userService = userService;
         this.authService = authService;
-        this.postService = postService;
+        this.postSnippetCache = postSnippetCache;
+        this.membershipCache = membershipCache;
     }
 
     @Transactional(readOnly = true)
@@ -48,11 +59,58 @@ public class ConversationService {
         List<Conversation> convs = conversationRepository.findByUserOrderByLastMessageAtDesc(currentUser);
         List<ConversationResponse> res = new ArrayList<>();
         for (Conversation c : convs) {
-            res.add(toConversationResponse(c, false));
+            res.add(toConversationResponse(c, currentUser, false));
         }
         return res;
     }
 
+    /**
+     * Inbox phân trang theo keyset (lastMessageAt, conversationId), mới → cũ.
+     * Một câu SQL trả về người còn lại, preview tin cuối và số chưa đọc; chi phí chỉ phụ thuộc limit,
+     * không phụ thuộc tổng số hội thoại của user.
+     * @param beforeLastMessageAt (optional) lastMessageAt của dòng cuối trang trước
+     * @param beforeConversationId (optional) conversationId của dòng cuối trang trước
+     * @param limit số hội thoại (default 20, max 50)
+     */
+    @Transactional(readOnly = true)
+    public List<InboxConversationResponse> getInbox(User currentUser, LocalDateTime beforeLastMessageAt,
+                                                    String beforeConversationId, Integer limit) {
+        int pageSize = (limit == null || limit <= 0) ? 20 : Math.min(limit, 50);
+        boolean hasCursor = beforeLastMessageAt != null && beforeConversationId != null && !beforeConversationId.isBlank();
+        List<Object[]> rows = hasCursor
+                ? conversationRepository.findInboxPageBefore(currentUser.getUserId(), beforeLastMessageAt, beforeConversationId, pageSize)
+                : conversationRepository.findInboxPage(currentUser.getUserId(), pageSize);
+
+        List<InboxConversationResponse> res = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            PublicUserResponse peer = new PublicUserResponse();
+            peer.setUserId((String) row[6]);
+            peer.setUsername((String) row[7]);
+            peer.setFullName((String) row[8]);
+            peer.setProfilePictureUrl((String) row[9]);
+            peer.setCreatedAt(toLocalDateTime(row[10]));
+
+            InboxConversationResponse item = new InboxConversationResponse();
+            item.setConversationId((String) row[0]);
+            item.setLastMessageAt(toLocalDateTime(row[1]));
+            item.setLastMessageId((String) row[2]);
+            item.setLastMessageSenderId((String) row[3]);
+            item.setLastMessagePreview((String) row[4]);
+            item.setUnreadCount(row[5] != null ? ((Number) row[5]).intValue() : 0);
+            item.setPeer(peer);
+            res.add(item);
+        }
+        return res;
+    }
+
+    // Native query có thể trả về Timestamp hoặc LocalDateTime tùy driver/dialect
+    private static LocalDateTime toLocalDateTime(Object value) {
+        if (value instanceof Timestamp ts) {
+            return ts.toLocalDateTime();
+        }
+        return (LocalDateTime) value;
+    }
+
     @Transactional(readOnly = true)
     public ConversationResponse getMyConversation(User currentUser, String conversationId) {
         Conversation c = conversationRepository.findById(conversationId)
@@ -62,7 +120,7 @@ public class ConversationService {
             throw new RuntimeException("Bạn không có quyền xem hội thoại này");
         }
         // Không load messages ở đây nữa, client sẽ gọi API riêng để load messages
-        return toConversationResponse(c, false);
+        return toConversationResponse(c, currentUser, false);
     }
 
     /**
@@ -75,48 +133,66 @@ public class ConversationService {
      * @return danh sách tin nhắn, sắp xếp tăng dần theo thời gian
      */
     @Transactional(readOnly = true)
-    public List<MessageResponse> getConversationMessages(User currentUser, String conversationId, 
-                                                         String beforeMessageId, Integer limit) {
-        Conversation c = conversationRepository.findById(conversationId)
-                .orElseThrow(() -> new IllegalArgumentException("Không tìm thấy hội thoại với id=" + conversationId));
-        
-        // Kiểm tra quyền truy cập
-        if (!c.getUserOne().getUserId().equals(currentUser.getUserId()) &&
-            !c.getUserTwo().getUserId().equals(currentUser.getUserId())) {
-            throw new RuntimeException("Bạn không có quyền xem hội thoại này");
-        }
-
-        // Validate và set default limit (50 messages per load for chat)
+    public List<MessageResponse> getConversationMessages(User currentUser, String conversationId,
+                                                         String beforeMessageId, LocalDateTime beforeSentAt,
+                                                         String afterMessageId, LocalDateTime afterSentAt,
+                                                         Integer limit) {
+        // Kiểm tra quyền truy cập qua cache thành viên, không SELECT Conversations
+        membershipCache.requireMember(conversationId, currentUser.getUserId(), "Bạn không có quyền xem hội thoại này");
+        Conversation c = conversationRepository.getReferenceById(conversationId);
+
+        // Validate và set default limit (25 messages per load for chat)
         int pageSize = (limit == null || limit <= 0) ? 25 : Math.min(limit, 100);
+        Pageable page = PageRequest.of(0, pageSize);
 
         List<Message> messages;
-        if (beforeMessageId != null && !beforeMessageId.isBlank()) {
-            // Load tin nhắn cũ hơn (scroll lên) - Cursor-based
-            Message beforeMessage = messageRepository.findById(beforeMessageId)
-                    .orElseThrow(() -> new IllegalArgumentException("Không tìm thấy tin nhắn với id=" + beforeMessageId));
-            messages = messageRepository.findByConversationAndSentAtBeforeOrderBySentAtDesc(
-                    c, beforeMessage.getSentAt())
-                    .stream()
-                    .limit(pageSize)
-                    .collect(Collectors.toList());
+        if (afterMessageId != null && !afterMessageId.isBlank()) {
+            // Load tin nhắn mới hơn (bắt kịp sau khi reconnect) - đã sắp xếp cũ → mới
+            LocalDateTime cursorTime = afterSentAt != null ? afterSentAt : cursorSentAt(c, afterMessageId);
+            messages = messageRepository.findByConversationAfter(c, cursorTime, afterMessageId, page);
         } else {
-            // Load tin nhắn mới nhất - Initial load
-            messages = messageRepository.findTopNByConversationOrderBySentAtDesc(c)
-                    .stream()
-                    .limit(pageSize)
-                    .collect(Collectors.toList());
+            if (beforeMessageId != null && !beforeMessageId.isBlank()) {
+                // Load tin nhắn cũ hơn (scroll lên) - Keyset (sentAt, messageId)
+                LocalDateTime cursorTime = beforeSentAt != null ? beforeSentAt : cursorSentAt(c, beforeMessageId);
+                messages = messageRepository.findByConversationBefore(c, cursorTime, beforeMessageId, page);
+            } else {
+                // Load tin nhắn mới nhất - Initial load
+                messages = messageRepository.findLatestByConversation(c, page);
+            }
+            // Reverse để sắp xếp tăng dần (cũ → mới) cho UI chat
+            messages = new ArrayList<>(messages);
+            Collections.reverse(messages);
         }
 
-        // Reverse để sắp xếp tăng dần (cũ → mới) cho UI chat
-        Collections.reverse(messages);
-
         // Convert to response
+        return toMessageResponses(c, messages);
+    }
+
+    private LocalDateTime cursorSentAt(Conversation c, String messageId) {
+        return messageRepository.findSentAtByMessageIdAndConversation(messageId, c)
+                .orElseThrow(() -> new IllegalArgumentException("Không tìm thấy tin nhắn với id=" + messageId));
+    }
+
+    /**
+     * Build MessageResponse cho cả trang tin nhắn; snippet của các post được reply lấy từ cache theo lô.
+     */
+    private List<MessageResponse> toMessageResponses(Conversation c, List<Message> messages) {
+        Set<String> repliedPostIds = new LinkedHashSet<>();
+        for (Message m : messages) {
+            if (m.getRepliedToPost() != null) {
+                repliedPostIds.add(m.getRepliedToPost().getPostId());
+            }
+        }
+        Map<String, PostSnippet> repliedById = repliedPostIds.isEmpty()
+                ? Collections.emptyMap()
+                : postSnippetCache.getAll(repliedPostIds);
+
         List<MessageResponse> responses = new ArrayList<>();
         for (Message m : messages) {
             UserResponse sender = authService.toUserResponse(m.getSender());
-            PostResponse replied = null;
+            PostSnippet replied = null;
             if (m.getRepliedToPost() != null) {
-                replied = postService.toResponse(m.getRepliedToPost());
+                replied = repliedById.get(m.getRepliedToPost().getPostId());
             }
             responses.add(new MessageResponse(
                     m.getMessageId(),
@@ -128,11 +204,10 @@ public class ConversationService {
                     m.isRead()
             ));
         }
-
         return responses;
     }
 
-    private ConversationResponse toConversationResponse(Conversation c, boolean includeMessages) {
+    private ConversationResponse toConversationResponse(Conversation c, User currentUser, boolean includeMessages) {
         PublicUserResponse u1 = userService.toPublicUserResponse(c.getUserOne());
         PublicUserResponse u2 = userService.toPublicUserResponse(c.getUserTwo());
 
@@ -141,26 +216,10 @@ public class ConversationService {
             List<Message> ms = messageRepository.findByConversationOrderBySentAtDesc(c);
             // chuyển sang tăng dần thời gian để hiển thị thuận tiện
             Collections.reverse(ms);
-            messages = new ArrayList<>();
-            for (Message m : ms) {
-                UserResponse sender = authService.toUserResponse(m.getSender());
-                PostResponse replied = null;
-                if (m.getRepliedToPost() != null) {
-                    replied = postService.toResponse(m.getRepliedToPost());
-                }
-                messages.add(new MessageResponse(
-                        m.getMessageId(),
-                        c.getConversationId(),
-                        sender,
-                        m.getContent(),
-                        replied,
-                        m.getSentAt(),
-                        m.isRead()
-                ));
-            }
+            messages = toMessageResponses(c, ms);
         }
 
-        return new ConversationResponse(
+        ConversationResponse res = new ConversationResponse(
                 c.getConversationId(),
                 u1,
                 u2,
@@ -168,5 +227,8 @@ public class ConversationService {
                 c.getCreatedAt(),
                 messages
         );
+        // Badge lấy từ bộ đếm trên Conversation, không COUNT bảng Messages
+        res.setUnreadCount(c.getUnreadCountFor(currentUser.getUserId()));
+        return res;
     }
 }
\ No newline at end of file
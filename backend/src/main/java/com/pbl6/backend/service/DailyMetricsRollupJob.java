@@ -0,0 +1,55 @@
+package com.pbl6.backend.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Chạy DailyMetricsRollupService theo lịch: chỉ tính từ ngày mở sớm nhất (thường là hôm nay, đầu ngày thêm hôm qua)
+ * tới hôm nay. Lần đầu bảng rỗng thì backfill toàn bộ lịch sử, mỗi đoạn chunk-days ngày một transaction.
+ */
+@Component
+public class DailyMetricsRollupJob {
+    private static final Logger log = LoggerFactory.getLogger(DailyMetricsRollupJob.class);
+
+    private final DailyMetricsRollupService rollupService;
+
+    @Value("${metrics.rollup.enabled:true}")
+    private boolean enabled;
+
+    @Value("${metrics.rollup.chunk-days:31}")
+    private int chunkDays;
+
+    public DailyMetricsRollupJob(DailyMetricsRollupService rollupService) {
+        this.rollupService = rollupService;
+    }
+
+    @Scheduled(initialDelayString = "${metrics.rollup.initial-delay-ms:0}",
+            fixedDelayString = "${metrics.rollup.interval-ms:600000}")
+    public void onSchedule() {
+        if (enabled) {
+            run();
+        }
+    }
+
+    public void run() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDate today = now.toLocalDate();
+        LocalDate from = rollupService.firstOpenDay(today);
+        LocalDate end = today.plusDays(1);
+        int days = 0;
+        while (from.isBefore(end)) {
+            LocalDate to = from.plusDays(chunkDays).isBefore(end) ? from.plusDays(chunkDays) : end;
+            days += rollupService.rollup(from, to, now);
+            from = to;
+        }
+        if (days > 1) {
+            log.info("Đã tổng hợp Daily_Metrics cho {} ngày", days);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.pbl6.backend.service;
+
+import com.pbl6.backend.model.DailyMetrics;
+import com.pbl6.backend.model.Post;
+import com.pbl6.backend.repository.DailyMetricsRepository;
+import com.pbl6.backend.repository.MessageRepository;
+import com.pbl6.backend.repository.ModerationReportRepository;
+import com.pbl6.backend.repository.PostRepository;
+import com.pbl6.backend.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Ghi Daily_Metrics từ các bảng gốc (Users, Posts, Messages, Moderation_Reports) bằng một query GROUP BY ngày
+ * cho mỗi bảng trên khoảng [from, to), đi theo index created_at / sent_at.
+ * Một ngày được đóng khi đã qua hết ngày thêm metrics.rollup.close-after-ms (chờ callback caption đến muộn);
+ * ngày đã đóng không được tính lại.
+ */
+@Service
+public class DailyMetricsRollupService {
+    private static final Logger log = LoggerFactory.getLogger(DailyMetricsRollupService.class);
+
+    private final DailyMetricsRepository dailyMetricsRepository;
+    private final UserRepository userRepository;
+    private final PostRepository postRepository;
+    private final MessageRepository messageRepository;
+    private final ModerationReportRepository reportRepository;
+
+    @Value("${metrics.rollup.close-after-ms:3600000}")
+    private long closeAfterMs;
+
+    public DailyMetricsRollupService(DailyMetricsRepository dailyMetricsRepository, UserRepository userRepository,
+                                     PostRepository postRepository, MessageRepository messageRepository,
+                                     ModerationReportRepository reportRepository) {
+        this.dailyMetricsRepository = dailyMetricsRepository;
+        this.userRepository = userRepository;
+        this.postRepository = postRepository;
+        this.messageRepository = messageRepository;
+        this.reportRepository = reportRepository;
+    }
+
+    /**
+     * Ngày đầu cần tính: ngày mở sớm nhất; không còn ngày mở thì ngày sau ngày cuối đã đóng;
+     * bảng rỗng (lần chạy đầu) thì ngày tạo user đầu tiên.
+     */
+    @Transactional(readOnly = true)
+    public LocalDate firstOpenDay(LocalDate today) {
+        Optional<DailyMetrics> open = dailyMetricsRepository.findFirstByClosedFalseOrderByMetricDateAsc();
+        if (open.isPresent()) {
+            return open.get().getMetricDate();
+        }
+        Optional<DailyMetrics> last = dailyMetricsRepository.findFirstByOrderByMetricDateDesc();
+        if (last.isPresent()) {
+            return last.get().getMetricDate().plusDays(1);
+        }
+        LocalDateTime earliest = userRepository.findEarliestCreatedAt();
+        return earliest != null ? earliest.toLocalDate() : today;
+    }
+
+    /**
+     * Tính lại các ngày trong [from, to) và ghi đè dòng cũ.
+     * @return số ngày đã ghi
+     */
+    @Transactional
+    public int rollup(LocalDate from, LocalDate to, LocalDateTime now) {
+        Map<LocalDate, DailyMetrics> days = new LinkedHashMap<>();
+        for (LocalDate d = from; d.isBefore(to); d = d.plusDays(1)) {
+            days.put(d, new DailyMetrics(d));
+        }
+        if (days.isEmpty()) {
+            return 0;
+        }
+        LocalDateTime start = from.atStartOfDay();
+        LocalDateTime end = to.atStartOfDay();
+
+        for (Object[] row : userRepository.countCreatedPerDay(start, end)) {
+            day(days, row[0]).setNewUsers(((Number) row[1]).longValue());
+        }
+        for (Object[] row : postRepository.countCreatedPerDayByMediaTypeAndCaptionStatus(start, end)) {
+            DailyMetrics m = day(days, row[0]);
+            long n = ((Number) row[3]).longValue();
+            if (row[1] == Post.MediaType.PHOTO) {
+                m.setPhotoPosts(m.getPhotoPosts() + n);
+            } else if (row[1] == Post.MediaType.VIDEO) {
+                m.setVideoPosts(m.getVideoPosts() + n);
+            }
+            if (row[2] == Post.CaptionStatus.COMPLETED) {
+                m.setCaptionsCompleted(m.getCaptionsCompleted() + n);
+            } else if (row[2] == Post.CaptionStatus.FAILED) {
+                m.setCaptionsFailed(m.getCaptionsFailed() + n);
+            }
+        }
+        for (Object[] row : messageRepository.countSentPerDay(start, end)) {
+            day(days, row[0]).setMessages(((Number) row[1]).longValue());
+        }
+        for (Object[] row : reportRepository.countCreatedPerDay(start, end)) {
+            day(days, row[0]).setReports(((Number) row[1]).longValue());
+        }
+
+        for (DailyMetrics m : days.values()) {
+            LocalDateTime closesAt = m.getMetricDate().plusDays(1).atStartOfDay().plus(Duration.ofMillis(closeAfterMs));
+            m.setClosed(!now.isBefore(closesAt));
+            m.setComputedAt(now);
+        }
+        dailyMetricsRepository.saveAll(days.values());
+        log.debug("Tổng hợp Daily_Metrics [{}, {}): {} ngày", from, to, days.size());
+        return days.size();
+    }
+
+    // DATE(...) trong JPQL trả java.sql.Date hoặc LocalDate tùy dialect
+    private static DailyMetrics day(Map<LocalDate, DailyMetrics> days, Object value) {
+        LocalDate date;
+        if (value instanceof LocalDate) {
+            date = (LocalDate) value;
+        } else if (value instanceof java.sql.Date) {
+            date = ((java.sql.Date) value).toLocalDate();
+        } else {
+            date = LocalDate.parse(value.toString().substring(0, 10));
+        }
+        DailyMetrics m = days.get(date);
+        if (m == null) {
+            throw new IllegalStateException("Ngày ngoài khoảng tổng hợp: " + date);
+        }
+        return m;
+    }
+}
@@ -0,0 +1,261 @@
+package com.pbl6.backend.service;
+
+import com.pbl6.backend.event.MetricsDeltaEvent;
+import com.pbl6.backend.model.ModerationReport;
+import com.pbl6.backend.model.Post;
+import com.pbl6.backend.model.User;
+import com.pbl6.backend.repository.ModerationReportRepository;
+import com.pbl6.backend.repository.PostRepository;
+import com.pbl6.backend.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Số liệu dashboard admin (user theo trạng thái, post theo media / caption, report theo trạng thái) giữ trong bộ nhớ.
+ * Đếm lại từ DB bằng 3 query GROUP BY theo lịch; giữa hai lần đếm cộng / trừ theo {@link MetricsDeltaEvent}.
+ * Đọc không chạm DB, trừ khi lần đếm gần nhất cũ hơn metrics.snapshot.max-staleness-ms (lịch bị trễ / lỗi),
+ * lúc đó người đọc đầu tiên đếm lại đồng bộ.
+ * Delta đến trong lúc đang đếm được cộng lại lên kết quả đếm; một thay đổi commit giữa chừng có thể bị tính hai lần,
+ * lần đếm sau sửa lại.
+ */
+@Component
+public class DashboardMetricsSnapshot {
+    private static final Logger log = LoggerFactory.getLogger(DashboardMetricsSnapshot.class);
+
+    // Bố cục mảng đếm: [user theo AccountStatus][post theo (MediaType, CaptionStatus)][report theo ReportStatus],
+    // mỗi nhóm thêm một ô cuối cho giá trị null
+    private static final int USER_SLOTS = User.AccountStatus.values().length + 1;
+    private static final int MEDIA_SLOTS = Post.MediaType.values().length + 1;
+    private static final int CAPTION_SLOTS = Post.CaptionStatus.values().length + 1;
+    private static final int REPORT_SLOTS = ModerationReport.ReportStatus.values().length + 1;
+    private static final int POST_BASE = USER_SLOTS;
+    private static final int REPORT_BASE = POST_BASE + MEDIA_SLOTS * CAPTION_SLOTS;
+    private static final int SIZE = REPORT_BASE + REPORT_SLOTS;
+
+    /**
+     * Bản chụp bất biến; computedAt là lúc đếm lại từ DB gần nhất (sau đó chỉ cộng delta).
+     */
+    public static final class Snapshot {
+        private final long[] counts;
+        private final LocalDateTime computedAt;
+
+        private Snapshot(long[] counts, LocalDateTime computedAt) {
+            this.counts = counts;
+            this.computedAt = computedAt;
+        }
+
+        public LocalDateTime getComputedAt() {
+            return computedAt;
+        }
+
+        public long users() {
+            return sum(0, USER_SLOTS);
+        }
+
+        public long users(User.AccountStatus status) {
+            return Math.max(0, counts[userSlot(status)]);
+        }
+
+        public long posts() {
+            return sum(POST_BASE, REPORT_BASE);
+        }
+
+        public long posts(Post.MediaType mediaType) {
+            long total = 0;
+            for (int c = 0; c < CAPTION_SLOTS; c++) {
+                total += counts[POST_BASE + mediaIndex(mediaType) * CAPTION_SLOTS + c];
+            }
+            return Math.max(0, total);
+        }
+
+        public long posts(Post.CaptionStatus status) {
+            long total = 0;
+            for (int m = 0; m < MEDIA_SLOTS; m++) {
+                total += counts[POST_BASE + m * CAPTION_SLOTS + captionIndex(status)];
+            }
+            return Math.max(0, total);
+        }
+
+        public long reports(ModerationReport.ReportStatus status) {
+            return Math.max(0, counts[reportSlot(status)]);
+        }
+
+        private long sum(int from, int to) {
+            long total = 0;
+            for (int i = from; i < to; i++) {
+                total += counts[i];
+            }
+            return Math.max(0, total);
+        }
+    }
+
+    private final UserRepository userRepository;
+    private final PostRepository postRepository;
+    private final ModerationReportRepository reportRepository;
+
+    @Value("${metrics.snapshot.max-staleness-ms:900000}")
+    private long maxStalenessMs;
+
+    private volatile Snapshot current;
+    private final Object refreshLock = new Object();
+    // Khác null trong lúc đang đếm lại: delta đến giữa chừng, cộng lên kết quả khi đếm xong. Guarded by this
+    private long[] pendingDeltas;
+
+    private final AtomicLong refreshes = new AtomicLong();
+    private final AtomicLong deltasApplied = new AtomicLong();
+    private volatile long lastRefreshMs;
+
+    public DashboardMetricsSnapshot(UserRepository userRepository, PostRepository postRepository,
+                                    ModerationReportRepository reportRepository) {
+        this.userRepository = userRepository;
+        this.postRepository = postRepository;
+        this.reportRepository = reportRepository;
+    }
+
+    public Snapshot get() {
+        Snapshot s = current;
+        if (s == null || isStale(s)) {
+            synchronized (refreshLock) {
+                s = current;
+                if (s == null || isStale(s)) {
+                    refresh();
+                    s = current;
+                }
+            }
+        }
+        return s;
+    }
+
+    @Scheduled(initialDelayString = "${metrics.snapshot.initial-delay-ms:0}",
+            fixedDelayString = "${metrics.snapshot.refresh-interval-ms:300000}")
+    public void onSchedule() {
+        try {
+            synchronized (refreshLock) {
+                refresh();
+            }
+        } catch (DataAccessException e) {
+            log.warn("Không đếm lại được số liệu dashboard, giữ bản cũ: {}", e.getMessage());
+        }
+    }
+
+    // Người gọi giữ refreshLock
+    private void refresh() {
+        long start = System.currentTimeMillis();
+        synchronized (this) {
+            pendingDeltas = new long[SIZE];
+        }
+        LocalDateTime computedAt = LocalDateTime.now();
+        long[] counts = new long[SIZE];
+        try {
+            for (Object[] row : userRepository.countGroupByAccountStatus()) {
+                counts[userSlot((User.AccountStatus) row[0])] += ((Number) row[1]).longValue();
+            }
+            for (Object[] row : postRepository.countGroupByMediaTypeAndCaptionStatus()) {
+                counts[postSlot((Post.MediaType) row[0], (Post.CaptionStatus) row[1])] += ((Number) row[2]).longValue();
+            }
+            for (Object[] row : reportRepository.countGroupByStatus()) {
+                counts[reportSlot((ModerationReport.ReportStatus) row[0])] += ((Number) row[1]).longValue();
+            }
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                pendingDeltas = null;
+            }
+            throw e;
+        }
+        synchronized (this) {
+            for (int i = 0; i < SIZE; i++) {
+                counts[i] += pendingDeltas[i];
+            }
+            pendingDeltas = null;
+            current = new Snapshot(counts, computedAt);
+        }
+        refreshes.incrementAndGet();
+        lastRefreshMs = System.currentTimeMillis() - start;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onMetricsDelta(MetricsDeltaEvent event) {
+        int fromSlot = event.getFrom() == null ? -1 : slot(event, event.getFrom());
+        int toSlot = event.getTo() == null ? -1 : slot(event, event.getTo());
+        if (fromSlot == toSlot) {
+            return;
+        }
+        if (pendingDeltas != null) {
+            apply(pendingDeltas, fromSlot, toSlot);
+        }
+        Snapshot s = current;
+        if (s != null) {
+            long[] counts = s.counts.clone();
+            apply(counts, fromSlot, toSlot);
+            current = new Snapshot(counts, s.computedAt);
+        }
+        deltasApplied.incrementAndGet();
+    }
+
+    public Map<String, Object> stats() {
+        Snapshot s = current;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("computedAt", s == null ? null : s.getComputedAt());
+        stats.put("ageMs", s == null ? null : Duration.between(s.getComputedAt(), LocalDateTime.now()).toMillis());
+        stats.put("maxStalenessMs", maxStalenessMs);
+        stats.put("refreshes", refreshes.get());
+        stats.put("lastRefreshMs", lastRefreshMs);
+        stats.put("deltasApplied", deltasApplied.get());
+        return stats;
+    }
+
+    private boolean isStale(Snapshot s) {
+        return s.getComputedAt().plus(Duration.ofMillis(maxStalenessMs)).isBefore(LocalDateTime.now());
+    }
+
+    private static void apply(long[] counts, int fromSlot, int toSlot) {
+        if (fromSlot >= 0) {
+            counts[fromSlot]--;
+        }
+        if (toSlot >= 0) {
+            counts[toSlot]++;
+        }
+    }
+
+    private static int slot(MetricsDeltaEvent event, Enum<?> state) {
+        switch (event.getKind()) {
+            case USER:
+                return userSlot((User.AccountStatus) state);
+            case POST:
+                return postSlot(event.getMediaType(), (Post.CaptionStatus) state);
+            default:
+                return reportSlot((ModerationReport.ReportStatus) state);
+        }
+    }
+
+    private static int userSlot(User.AccountStatus status) {
+        return status == null ? USER_SLOTS - 1 : status.ordinal();
+    }
+
+    private static int postSlot(Post.MediaType mediaType, Post.CaptionStatus status) {
+        return POST_BASE + mediaIndex(mediaType) * CAPTION_SLOTS + captionIndex(status);
+    }
+
+    private static int reportSlot(ModerationReport.ReportStatus status) {
+        return REPORT_BASE + (status == null ? REPORT_SLOTS - 1 : status.ordinal());
+    }
+
+    private static int mediaIndex(Post.MediaType mediaType) {
+        return mediaType == null ? MEDIA_SLOTS - 1 : mediaType.ordinal();
+    }
+
+    private static int captionIndex(Post.CaptionStatus status) {
+        return status == null ? CAPTION_SLOTS - 1 : status.ordinal();
+    }
+}
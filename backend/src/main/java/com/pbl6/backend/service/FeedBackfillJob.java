@@ -0,0 +1,50 @@
+package com.pbl6.backend.service;
+
+import com.pbl6.backend.model.Post;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+
+/**
+ * Dựng Feed_Entries cho các post có từ trước khi bật fan-out-on-write.
+ * Bật bằng {@code feed.backfill.enabled=true}; chạy nền sau khi ứng dụng khởi động, mỗi batch một transaction.
+ */
+@Component
+public class FeedBackfillJob {
+    private static final Logger log = LoggerFactory.getLogger(FeedBackfillJob.class);
+
+    private final FeedService feedService;
+
+    @Value("${feed.backfill.enabled:false}")
+    private boolean enabled;
+
+    @Value("${feed.backfill.batch-size:500}")
+    private int batchSize;
+
+    public FeedBackfillJob(FeedService feedService) {
+        this.feedService = feedService;
+    }
+
+    @Async("startupExecutor")
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (enabled) {
+            run();
+        }
+    }
+
+    public void run() {
+        log.info("Bắt đầu backfill Feed_Entries (batchSize={})", batchSize);
+        long batches = 0;
+        Post cursor = null;
+        do {
+            cursor = feedService.backfillBatch(cursor, batchSize);
+            batches++;
+        } while (cursor != null);
+        log.info("Hoàn tất backfill Feed_Entries sau {} batch", batches - 1);
+    }
+}
@@ -0,0 +1,219 @@
+package com.pbl6.backend.service;
+
+import com.pbl6.backend.event.PostChangedEvent;
+import com.pbl6.backend.response.PostResponse;
+import com.pbl6.backend.response.UserResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+
+/**
+ * Cache trong bộ nhớ cho trang feed đầu tiên của từng user (endpoint bị gọi nhiều nhất do pull-to-refresh).
+ * Giới hạn theo tổng số byte ước lượng (LRU), mỗi entry hết hạn sau TTL, và bị xóa ngay khi có
+ * {@link PostChangedEvent} liên quan tới user (sau khi transaction commit).
+ */
+@Component
+public class FeedPageCache {
+
+    // Số stripe cho version chống race: load trước invalidate nhưng put sau invalidate
+    private static final int VERSION_STRIPES = 1024;
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private final AtomicLongArray versions = new AtomicLongArray(VERSION_STRIPES);
+    private long currentBytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    @Value("${feed.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${feed.cache.max-bytes:67108864}")
+    private long maxBytes;
+
+    @Value("${feed.cache.ttl-seconds:30}")
+    private long ttlSeconds;
+
+    /**
+     * Trả về trang đầu đã cache nếu còn hạn và đủ số lượng, nếu không thì gọi loader và cache kết quả.
+     */
+    public List<PostResponse> getOrLoad(String userId, int pageSize, Supplier<List<PostResponse>> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+        List<PostResponse> cached = get(userId, pageSize);
+        if (cached != null) {
+            hits.incrementAndGet();
+            return cached;
+        }
+        misses.incrementAndGet();
+        long version = versions.get(stripe(userId));
+        List<PostResponse> page = loader.get();
+        put(userId, pageSize, page, version);
+        return page;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPostChanged(PostChangedEvent event) {
+        for (String userId : event.getAffectedUserIds()) {
+            invalidate(userId);
+        }
+    }
+
+    public void invalidate(String userId) {
+        versions.incrementAndGet(stripe(userId));
+        synchronized (this) {
+            Entry removed = entries.remove(userId);
+            if (removed != null) {
+                currentBytes -= removed.bytes;
+                invalidations.incrementAndGet();
+            }
+        }
+    }
+
+    public synchronized Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("entries", entries.size());
+        stats.put("bytes", currentBytes);
+        stats.put("maxBytes", maxBytes);
+        stats.put("ttlSeconds", ttlSeconds);
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        stats.put("evictions", evictions.get());
+        stats.put("expirations", expirations.get());
+        stats.put("invalidations", invalidations.get());
+        return stats;
+    }
+
+    private synchronized List<PostResponse> get(String userId, int pageSize) {
+        Entry e = entries.get(userId);
+        if (e == null) {
+            return null;
+        }
+        if (e.isExpired(System.nanoTime())) {
+            entries.remove(userId);
+            currentBytes -= e.bytes;
+            expirations.incrementAndGet();
+            return null;
+        }
+        // Trang cache ngắn hơn pageSize của nó nghĩa là đã chứa toàn bộ feed
+        if (pageSize <= e.pageSize || e.page.size() < e.pageSize) {
+            return e.page.subList(0, Math.min(pageSize, e.page.size()));
+        }
+        return null;
+    }
+
+    private void put(String userId, int pageSize, List<PostResponse> page, long version) {
+        long bytes = estimateBytes(userId, page);
+        if (bytes > maxBytes) {
+            return;
+        }
+        long now = System.nanoTime();
+        synchronized (this) {
+            // Có invalidate xảy ra trong lúc load → trang vừa load có thể đã cũ
+            if (versions.get(stripe(userId)) != version) {
+                return;
+            }
+            Entry old = entries.put(userId, new Entry(List.copyOf(page), pageSize, bytes, now + ttlSeconds * 1_000_000_000L));
+            if (old != null) {
+                currentBytes -= old.bytes;
+            }
+            currentBytes += bytes;
+            evictUntilWithinCap(now);
+        }
+    }
+
+    private void evictUntilWithinCap(long now) {
+        Iterator<Entry> it = entries.values().iterator();
+        while (it.hasNext() && currentBytes > maxBytes) {
+            Entry e = it.next();
+            it.remove();
+            currentBytes -= e.bytes;
+            if (e.isExpired(now)) {
+                expirations.incrementAndGet();
+            } else {
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    private static int stripe(String userId) {
+        return (userId.hashCode() & 0x7fffffff) % VERSION_STRIPES;
+    }
+
+    // Ước lượng kích thước trên heap: header object + String (2 byte/ký tự) + các field tham chiếu
+    static long estimateBytes(String userId, List<PostResponse> page) {
+        long bytes = 64 + stringBytes(userId) + 16L * page.size();
+        for (PostResponse p : page) {
+            bytes += 64
+                    + stringBytes(p.getPostId())
+                    + stringBytes(p.getCaption())
+                    + stringBytes(p.getMediaType())
+                    + stringBytes(p.getMediaUrl())
+                    + stringBytes(p.getCaptionStatus())
+                    + 24
+                    + userBytes(p.getUser());
+            if (p.getReactionCounts() != null) {
+                bytes += 48 + 64L * p.getReactionCounts().size();
+            }
+            if (p.getRecipients() != null) {
+                bytes += 16 + 8L * p.getRecipients().size();
+                for (UserResponse r : p.getRecipients()) {
+                    bytes += userBytes(r);
+                }
+            }
+        }
+        return bytes;
+    }
+
+    private static long userBytes(UserResponse u) {
+        if (u == null) {
+            return 0;
+        }
+        return 64
+                + stringBytes(u.getUserId())
+                + stringBytes(u.getUsername())
+                + stringBytes(u.getFullName())
+                + stringBytes(u.getPhoneNumber())
+                + stringBytes(u.getEmail())
+                + stringBytes(u.getBio())
+                + stringBytes(u.getProfilePictureUrl())
+                + stringBytes(u.getAccountStatus())
+                + stringBytes(u.getSubscriptionPlan())
+                + 24;
+    }
+
+    private static long stringBytes(String s) {
+        return s == null ? 0 : 40 + 2L * s.length();
+    }
+
+    private static final class Entry {
+        final List<PostResponse> page;
+        final int pageSize;
+        final long bytes;
+        final long expiresAtNanos;
+
+        Entry(List<PostResponse> page, int pageSize, long bytes, long expiresAtNanos) {
+            this.page = page;
+            this.pageSize = pageSize;
+            this.bytes = bytes;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+
+        boolean isExpired(long now) {
+            return now - expiresAtNanos >= 0;
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.pbl6.backend.service;
+
+import com.pbl6.backend.event.PostChangedEvent;
+import com.pbl6.backend.model.FeedEntry;
+import com.pbl6.backend.model.Post;
+import com.pbl6.backend.model.User;
+import com.pbl6.backend.repository.FeedEntryRepository;
+import com.pbl6.backend.repository.PostRecipientRepository;
+import com.pbl6.backend.repository.PostRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Feed materialized theo mô hình fan-out-on-write.
+ * Khi post được đăng, mỗi người nhận (và tác giả) có một dòng trong Feed_Entries, nên đọc feed chỉ là
+ * một range scan trên (user_id, created_at, post_id). Post có số recipients vượt ngưỡng
+ * {@code feed.fanout.max-recipients} không được fan-out mà đánh dấu fanoutOnRead và được gộp vào lúc đọc.
+ */
+@Service
+public class FeedService {
+    private static final Logger log = LoggerFactory.getLogger(FeedService.class);
+
+    // Thứ tự feed: mới → cũ, trùng createdAt thì theo postId giảm dần (khớp ORDER BY trong SQL)
+    static final Comparator<Post> FEED_ORDER = Comparator.comparing(Post::getCreatedAt)
+            .thenComparing(Post::getPostId)
+            .reversed();
+
+    private static final LocalDateTime BACKFILL_START = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private final FeedEntryRepository feedEntryRepository;
+    private final PostRepository postRepository;
+    private final PostRecipientRepository postRecipientRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${feed.fanout.max-recipients:500}")
+    private int maxFanoutRecipients;
+
+    public FeedService(FeedEntryRepository feedEntryRepository,
+            PostRepository postRepository,
+            PostRecipientRepository postRecipientRepository,
+            ApplicationEventPublisher eventPublisher) {
+        this.feedEntryRepository = feedEntryRepository;
+        this.postRepository = postRepository;
+        this.postRecipientRepository = postRecipientRepository;
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * Ghi post vào feed của tác giả và các recipients. Gọi lại nhiều lần là an toàn:
+     * các entry cũ của post bị thay thế (ví dụ khi finalize đặt lại danh sách recipients).
+     */
+    @Transactional
+    public void fanOut(Post post, Collection<User> recipients) {
+        feedEntryRepository.deleteByPostId(post.getPostId());
+        if (Boolean.TRUE.equals(post.getIsDeleted()) || post.getCaptionStatus() != Post.CaptionStatus.COMPLETED) {
+            return;
+        }
+
+        Set<String> userIds = new LinkedHashSet<>();
+        userIds.add(post.getUser().getUserId());
+        boolean fanoutOnRead = recipients.size() > maxFanoutRecipients;
+        if (!fanoutOnRead) {
+            for (User r : recipients) {
+                userIds.add(r.getUserId());
+            }
+        }
+        if (!Boolean.valueOf(fanoutOnRead).equals(post.getFanoutOnRead())) {
+            post.setFanoutOnRead(fanoutOnRead);
+            postRepository.save(post);
+        }
+
+        List<FeedEntry> entries = new ArrayList<>(userIds.size());
+        for (String uid : userIds) {
+            entries.add(new FeedEntry(uid, post.getPostId(), post.getCreatedAt()));
+        }
+        feedEntryRepository.saveAll(entries);
+        log.info("Fan-out post {} tới {} feed (fanoutOnRead={})", post.getPostId(), entries.size(), fanoutOnRead);
+    }
+
+    @Transactional
+    public void removePost(String postId) {
+        int removed = feedEntryRepository.deleteByPostId(postId);
+        log.info("Đã xóa {} feed entries của post {}", removed, postId);
+    }
+
+    /**
+     * Xóa feed của user và mọi entry trỏ tới post của user (trước khi xóa tài khoản).
+     * Post của user bị xóa theo cascade, nên phát PostChangedEvent cho từng post để audience được làm mới.
+     */
+    @Transactional
+    public void removeUser(String userId) {
+        Map<String, Set<String>> recipientsByPost = new LinkedHashMap<>();
+        for (Object[] row : postRecipientRepository.findRecipientIdsByAuthorId(userId)) {
+            recipientsByPost.computeIfAbsent((String) row[0], k -> new LinkedHashSet<>()).add((String) row[1]);
+        }
+        feedEntryRepository.deleteByUserOrAuthor(userId);
+        recipientsByPost.forEach((postId, recipientIds) -> eventPublisher.publishEvent(
+                new PostChangedEvent(postId, userId, recipientIds, PostChangedEvent.Type.DELETED)));
+    }
+
+    /**
+     * Đọc một trang feed: range scan trên Feed_Entries + gộp các post fan-out-on-read.
+     * Cursor (beforeTime, beforePostId) có thể null cho trang đầu.
+     */
+    @Transactional(readOnly = true)
+    public List<Post> readPage(User me, LocalDateTime beforeTime, String beforePostId, int pageSize) {
+        Pageable page = PageRequest.of(0, pageSize);
+        boolean hasCursor = beforeTime != null && beforePostId != null;
+
+        List<String> postIds = hasCursor
+                ? feedEntryRepository.findPostIdsForUserBefore(me.getUserId(), beforeTime, beforePostId, page)
+                : feedEntryRepository.findPostIdsForUser(me.getUserId(), page);
+        List<Post> fanoutOnRead = hasCursor
+                ? postRepository.findFanoutOnReadPostsForUserBefore(me, beforeTime, beforePostId, page)
+                : postRepository.findFanoutOnReadPostsForUser(me, page);
+
+        Map<String, Post> merged = new LinkedHashMap<>();
+        if (!postIds.isEmpty()) {
+            for (Post p : postRepository.findAllWithUserByPostIdIn(postIds)) {
+                if (!Boolean.TRUE.equals(p.getIsDeleted()) && p.getCaptionStatus() == Post.CaptionStatus.COMPLETED) {
+                    merged.put(p.getPostId(), p);
+                }
+            }
+        }
+        for (Post p : fanoutOnRead) {
+            merged.putIfAbsent(p.getPostId(), p);
+        }
+
+        return merged.values().stream()
+                .sorted(FEED_ORDER)
+                .limit(pageSize)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Backfill Feed_Entries cho các post đã đăng, theo keyset (createdAt, postId) tăng dần.
+     * Idempotent: chỉ chèn các cặp (user, post) còn thiếu.
+     * @return cursor của post cuối cùng đã xử lý, hoặc null khi đã hết
+     */
+    @Transactional
+    public Post backfillBatch(Post after, int batchSize) {
+        LocalDateTime afterTime = after != null ? after.getCreatedAt() : BACKFILL_START;
+        String afterPostId = after != null ? after.getPostId() : "";
+        List<Post> posts = postRepository.findPublishedPostsAfter(afterTime, afterPostId, PageRequest.of(0, batchSize));
+        if (posts.isEmpty()) {
+            return null;
+        }
+
+        Map<String, Post> byId = posts.stream().collect(Collectors.toMap(Post::getPostId, Function.identity()));
+        Map<String, List<String>> recipientIds = new HashMap<>();
+        for (Object[] row : postRecipientRepository.findRecipientIdsByPostIds(byId.keySet())) {
+            recipientIds.computeIfAbsent((String) row[0], k -> new ArrayList<>()).add((String) row[1]);
+        }
+        Set<String> existing = new HashSet<>();
+        for (FeedEntry fe : feedEntryRepository.findByPostIdIn(byId.keySet())) {
+            existing.add(fe.getUserId() + ":" + fe.getPostId());
+        }
+
+        List<FeedEntry> missing = new ArrayList<>();
+        for (Post p : posts) {
+            List<String> rids = recipientIds.getOrDefault(p.getPostId(), List.of());
+            boolean fanoutOnRead = rids.size() > maxFanoutRecipients;
+            if (!Boolean.valueOf(fanoutOnRead).equals(p.getFanoutOnRead())) {
+                p.setFanoutOnRead(fanoutOnRead);
+                postRepository.save(p);
+            }
+            Set<String> userIds = new LinkedHashSet<>();
+            userIds.add(p.getUser().getUserId());
+            if (!fanoutOnRead) {
+                userIds.addAll(rids);
+            }
+            for (String uid : userIds) {
+                if (!existing.contains(uid + ":" + p.getPostId())) {
+                    missing.add(new FeedEntry(uid, p.getPostId(), p.getCreatedAt()));
+                }
+            }
+        }
+        feedEntryRepository.saveAll(missing);
+        log.info("Backfill feed: {} posts, chèn {} entries", posts.size(), missing.size());
+        return posts.get(posts.size() - 1);
+    }
+}
@@ -0,0 +1,378 @@
+package com.pbl6.backend.service;
+
+import com.pbl6.backend.event.FriendshipChangedEvent;
+import com.pbl6.backend.repository.FriendshipRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Đồ thị bạn bè (chỉ cạnh ACCEPTED) trong bộ nhớ.
+ * userId được intern thành int; mỗi đỉnh giữ một mảng int[] hàng xóm đã sắp xếp, nên
+ * "là bạn" là binary search và bạn chung là merge hai mảng, không tạo object cho từng cạnh.
+ * Dựng lại từ DB khi khởi động (theo batch), sau đó cập nhật theo {@link FriendshipChangedEvent}.
+ * Trước khi dựng xong, {@link #isReady()} là false và người gọi tự đọc DB.
+ */
+@Component
+public class FriendGraph {
+    private static final Logger log = LoggerFactory.getLogger(FriendGraph.class);
+
+    private static final int[] EMPTY = new int[0];
+
+    private final FriendshipRepository friendshipRepository;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private Adjacency graph = new Adjacency();
+    private volatile boolean ready;
+    // Các thay đổi nhận được trong lúc đang rebuild, phát lại lên đồ thị mới trước khi đổi
+    private List<FriendshipChangedEvent> pendingDuringRebuild;
+    private volatile long lastRebuildMs;
+
+    @Value("${friends.graph.enabled:true}")
+    private boolean enabled;
+
+    @Value("${friends.graph.rebuild-batch-size:5000}")
+    private int batchSize;
+
+    public FriendGraph(FriendshipRepository friendshipRepository) {
+        this.friendshipRepository = friendshipRepository;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    @Async("startupExecutor")
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (enabled) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Đọc toàn bộ cạnh ACCEPTED theo keyset friendshipId và thay đồ thị hiện tại.
+     */
+    public synchronized void rebuild() {
+        long start = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try {
+            pendingDuringRebuild = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Adjacency fresh = new Adjacency();
+        try {
+            String after = "";
+            while (true) {
+                List<Object[]> rows = friendshipRepository.findAcceptedPairsAfter(after, PageRequest.of(0, batchSize));
+                for (Object[] row : rows) {
+                    fresh.add((String) row[1], (String) row[2]);
+                }
+                if (rows.size() < batchSize) {
+                    break;
+                }
+                after = (String) rows.get(rows.size() - 1)[0];
+            }
+        } catch (RuntimeException ex) {
+            lock.writeLock().lock();
+            try {
+                pendingDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw ex;
+        }
+
+        lock.writeLock().lock();
+        try {
+            for (FriendshipChangedEvent e : pendingDuringRebuild) {
+                fresh.apply(e);
+            }
+            pendingDuringRebuild = null;
+            graph = fresh;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        lastRebuildMs = System.currentTimeMillis() - start;
+        log.info("Dựng đồ thị bạn bè: {} người, {} cạnh trong {} ms", fresh.size(), fresh.edges, lastRebuildMs);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFriendshipChanged(FriendshipChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            graph.apply(event);
+            if (pendingDuringRebuild != null) {
+                pendingDuringRebuild.add(event);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<String> friendIds(String userId) {
+        lock.readLock().lock();
+        try {
+            Integer u = graph.index.get(userId);
+            if (u == null) {
+                return Collections.emptyList();
+            }
+            int[] n = graph.adj[u];
+            int d = graph.degree[u];
+            List<String> ids = new ArrayList<>(d);
+            for (int i = 0; i < d; i++) {
+                ids.add(graph.ids.get(n[i]));
+            }
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int friendCount(String userId) {
+        lock.readLock().lock();
+        try {
+            Integer u = graph.index.get(userId);
+            return u == null ? 0 : graph.degree[u];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean areFriends(String userId, String otherId) {
+        lock.readLock().lock();
+        try {
+            Integer u = graph.index.get(userId);
+            Integer v = graph.index.get(otherId);
+            return u != null && v != null && Arrays.binarySearch(graph.adj[u], 0, graph.degree[u], v) >= 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<String> mutualFriendIds(String userId, String otherId) {
+        lock.readLock().lock();
+        try {
+            Integer u = graph.index.get(userId);
+            Integer v = graph.index.get(otherId);
+            if (u == null || v == null) {
+                return Collections.emptyList();
+            }
+            int[] a = graph.adj[u];
+            int[] b = graph.adj[v];
+            int aLen = graph.degree[u];
+            int bLen = graph.degree[v];
+            List<String> res = new ArrayList<>();
+            int i = 0;
+            int j = 0;
+            while (i < aLen && j < bLen) {
+                if (a[i] < b[j]) {
+                    i++;
+                } else if (a[i] > b[j]) {
+                    j++;
+                } else {
+                    res.add(graph.ids.get(a[i]));
+                    i++;
+                    j++;
+                }
+            }
+            return res;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Bản sao bất biến dạng CSR (offsets + targets) của đồ thị hiện tại, dùng cho các job chạy lâu
+     * (gợi ý kết bạn) mà không giữ read lock suốt thời gian chạy.
+     */
+    public Snapshot snapshot() {
+        lock.readLock().lock();
+        try {
+            int n = graph.size();
+            int[] offsets = new int[n + 1];
+            for (int u = 0; u < n; u++) {
+                offsets[u + 1] = offsets[u] + graph.degree[u];
+            }
+            int[] targets = new int[offsets[n]];
+            for (int u = 0; u < n; u++) {
+                System.arraycopy(graph.adj[u], 0, targets, offsets[u], graph.degree[u]);
+            }
+            return new Snapshot(graph.ids.toArray(new String[0]), offsets, targets);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Map<String, Object> stats() {
+        lock.readLock().lock();
+        try {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("enabled", enabled);
+            stats.put("ready", ready);
+            stats.put("users", graph.size());
+            stats.put("edges", graph.edges);
+            stats.put("lastRebuildMs", lastRebuildMs);
+            return stats;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Đồ thị dạng CSR: hàng xóm của đỉnh u là {@code targets[offsets[u] .. offsets[u+1])}, đã sắp xếp tăng dần.
+     */
+    public static final class Snapshot {
+        private final String[] ids;
+        private final int[] offsets;
+        private final int[] targets;
+        private Map<String, Integer> index;
+
+        public Snapshot(String[] ids, int[] offsets, int[] targets) {
+            this.ids = ids;
+            this.offsets = offsets;
+            this.targets = targets;
+        }
+
+        public int size() {
+            return ids.length;
+        }
+
+        public String idOf(int u) {
+            return ids[u];
+        }
+
+        /**
+         * @return chỉ số int của userId, -1 nếu user chưa có cạnh nào
+         */
+        public synchronized int indexOf(String userId) {
+            if (index == null) {
+                index = new HashMap<>(ids.length * 2);
+                for (int i = 0; i < ids.length; i++) {
+                    index.put(ids[i], i);
+                }
+            }
+            Integer i = index.get(userId);
+            return i == null ? -1 : i;
+        }
+
+        int[] offsets() {
+            return offsets;
+        }
+
+        int[] targets() {
+            return targets;
+        }
+    }
+
+    /**
+     * Danh sách kề với id int; chỉ truy cập khi giữ lock của FriendGraph.
+     */
+    static final class Adjacency {
+        final Map<String, Integer> index = new HashMap<>();
+        final List<String> ids = new ArrayList<>();
+        int[][] adj = new int[1024][];
+        int[] degree = new int[1024];
+        long edges;
+
+        int size() {
+            return ids.size();
+        }
+
+        int intern(String userId) {
+            Integer i = index.get(userId);
+            if (i != null) {
+                return i;
+            }
+            int id = ids.size();
+            ids.add(userId);
+            index.put(userId, id);
+            if (id == adj.length) {
+                adj = Arrays.copyOf(adj, id * 2);
+                degree = Arrays.copyOf(degree, id * 2);
+            }
+            adj[id] = EMPTY;
+            return id;
+        }
+
+        void apply(FriendshipChangedEvent e) {
+            if (e.getType() == FriendshipChangedEvent.Type.ACCEPTED) {
+                add(e.getUserOneId(), e.getUserTwoId());
+            } else if (e.getType() != FriendshipChangedEvent.Type.UNBLOCKED) {
+                remove(e.getUserOneId(), e.getUserTwoId());
+            }
+        }
+
+        void add(String a, String b) {
+            if (a.equals(b)) {
+                return;
+            }
+            int u = intern(a);
+            int v = intern(b);
+            if (insert(u, v)) {
+                insert(v, u);
+                edges++;
+            }
+        }
+
+        void remove(String a, String b) {
+            Integer u = index.get(a);
+            Integer v = index.get(b);
+            if (u == null || v == null) {
+                return;
+            }
+            if (delete(u, v)) {
+                delete(v, u);
+                edges--;
+            }
+        }
+
+        private boolean insert(int u, int v) {
+            int[] list = adj[u];
+            int d = degree[u];
+            int pos = Arrays.binarySearch(list, 0, d, v);
+            if (pos >= 0) {
+                return false;
+            }
+            pos = -pos - 1;
+            if (d == list.length) {
+                list = Arrays.copyOf(list, Math.max(4, d * 2));
+                adj[u] = list;
+            }
+            System.arraycopy(list, pos, list, pos + 1, d - pos);
+            list[pos] = v;
+            degree[u] = d + 1;
+            return true;
+        }
+
+        private boolean delete(int u, int v) {
+            int[] list = adj[u];
+            int d = degree[u];
+            int pos = Arrays.binarySearch(list, 0, d, v);
+            if (pos < 0) {
+                return false;
+            }
+            System.arraycopy(list, pos + 1, list, pos, d - pos - 1);
+            degree[u] = d - 1;
+            return true;
+        }
+    }
+}
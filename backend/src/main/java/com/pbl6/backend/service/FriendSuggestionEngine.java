@@ -0,0 +1,443 @@
+package com.pbl6.backend.service;
+
+import com.pbl6.backend.repository.FriendshipRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Gợi ý kết bạn "bạn của bạn": với mỗi user, đếm số bạn chung với từng người cách 2 bước trên {@link FriendGraph}
+ * rồi giữ top-K theo số bạn chung. Chạy định kỳ như một batch trên snapshot của đồ thị, chia theo dải user
+ * cho ForkJoinPool; kết quả lưu gọn trong mảng int (CSR) và được thay nguyên khối khi batch xong.
+ * Loại trừ: chính mình, bạn hiện tại, các cặp đang PENDING hoặc BLOCKED.
+ */
+@Component
+public class FriendSuggestionEngine {
+    private static final Logger log = LoggerFactory.getLogger(FriendSuggestionEngine.class);
+
+    // Số user mỗi task lá
+    private static final int LEAF_USERS = 1024;
+
+    private final FriendGraph friendGraph;
+    private final FriendshipRepository friendshipRepository;
+
+    private volatile Suggestions current;
+    private volatile long lastRunMs;
+    private volatile LocalDateTime lastRunAt;
+
+    @Value("${friends.suggestions.enabled:true}")
+    private boolean enabled;
+
+    @Value("${friends.suggestions.top-k:20}")
+    private int topK;
+
+    // Bạn có nhiều bạn hơn ngưỡng này không được dùng làm cầu nối (tránh một hub làm nổ chi phí và gợi ý nhiễu)
+    @Value("${friends.suggestions.max-bridge-degree:5000}")
+    private int maxBridgeDegree;
+
+    // 0 = số CPU
+    @Value("${friends.suggestions.parallelism:0}")
+    private int parallelism;
+
+    @Value("${friends.graph.rebuild-batch-size:5000}")
+    private int batchSize;
+
+    public FriendSuggestionEngine(FriendGraph friendGraph, FriendshipRepository friendshipRepository) {
+        this.friendGraph = friendGraph;
+        this.friendshipRepository = friendshipRepository;
+    }
+
+    @Scheduled(initialDelayString = "${friends.suggestions.initial-delay-ms:300000}",
+            fixedDelayString = "${friends.suggestions.refresh-interval-ms:21600000}")
+    public void onSchedule() {
+        if (!enabled) {
+            return;
+        }
+        if (!friendGraph.isReady()) {
+            log.info("Bỏ qua batch gợi ý kết bạn: đồ thị bạn bè chưa dựng xong");
+            return;
+        }
+        run();
+    }
+
+    /**
+     * Tính lại gợi ý cho toàn bộ user và thay kết quả hiện tại.
+     */
+    public synchronized void run() {
+        long start = System.currentTimeMillis();
+        FriendGraph.Snapshot graph = friendGraph.snapshot();
+        int[][] excluded = loadExcludedPairs(graph);
+
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            current = compute(graph, excluded[0], excluded[1], topK, maxBridgeDegree, pool);
+        } finally {
+            pool.shutdown();
+        }
+        lastRunMs = System.currentTimeMillis() - start;
+        lastRunAt = LocalDateTime.now();
+        log.info("Tính gợi ý kết bạn cho {} user ({} có gợi ý) trong {} ms với {} luồng",
+                graph.size(), current.usersWithSuggestions(), lastRunMs, threads);
+    }
+
+    /**
+     * Gợi ý đã tính cho user theo thứ tự số bạn chung giảm dần; rỗng nếu batch chưa chạy.
+     * Có thể đã cũ so với các thay đổi sau lần chạy gần nhất, người gọi tự lọc lại.
+     */
+    public List<Suggestion> suggestionsFor(String userId) {
+        Suggestions s = current;
+        if (s == null) {
+            return Collections.emptyList();
+        }
+        int u = s.graph.indexOf(userId);
+        if (u < 0) {
+            return Collections.emptyList();
+        }
+        List<Suggestion> res = new ArrayList<>(s.offsets[u + 1] - s.offsets[u]);
+        for (int i = s.offsets[u]; i < s.offsets[u + 1]; i++) {
+            res.add(new Suggestion(s.graph.idOf(s.candidates[i]), s.mutualCounts[i]));
+        }
+        return res;
+    }
+
+    public Map<String, Object> stats() {
+        Suggestions s = current;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("ready", s != null);
+        stats.put("topK", topK);
+        stats.put("users", s == null ? 0 : s.graph.size());
+        stats.put("usersWithSuggestions", s == null ? 0 : s.usersWithSuggestions());
+        stats.put("storedSuggestions", s == null ? 0 : s.candidates.length);
+        stats.put("lastRunMs", lastRunMs);
+        stats.put("lastRunAt", lastRunAt);
+        return stats;
+    }
+
+    /**
+     * Các cặp PENDING/BLOCKED dưới dạng CSR theo chỉ số của snapshot: [offsets, targets].
+     * User chưa có bạn nào không nằm trong snapshot và cũng không thể là ứng viên nên được bỏ qua.
+     */
+    private int[][] loadExcludedPairs(FriendGraph.Snapshot graph) {
+        int n = graph.size();
+        IntList from = new IntList();
+        IntList to = new IntList();
+        String after = "";
+        while (true) {
+            List<Object[]> rows = friendshipRepository.findNonAcceptedPairsAfter(after, PageRequest.of(0, batchSize));
+            for (Object[] row : rows) {
+                int a = graph.indexOf((String) row[1]);
+                int b = graph.indexOf((String) row[2]);
+                if (a >= 0 && b >= 0) {
+                    from.add(a);
+                    to.add(b);
+                    from.add(b);
+                    to.add(a);
+                }
+            }
+            if (rows.size() < batchSize) {
+                break;
+            }
+            after = (String) rows.get(rows.size() - 1)[0];
+        }
+
+        int[] offsets = new int[n + 1];
+        for (int i = 0; i < from.size; i++) {
+            offsets[from.data[i] + 1]++;
+        }
+        for (int u = 0; u < n; u++) {
+            offsets[u + 1] += offsets[u];
+        }
+        int[] fill = Arrays.copyOf(offsets, n);
+        int[] targets = new int[from.size];
+        for (int i = 0; i < from.size; i++) {
+            targets[fill[from.data[i]]++] = to.data[i];
+        }
+        return new int[][]{offsets, targets};
+    }
+
+    /**
+     * Tính top-K bạn của bạn cho mọi đỉnh của snapshot.
+     * @param exOffsets / exTargets CSR các cặp bị loại trừ (PENDING/BLOCKED), cùng chỉ số với snapshot
+     */
+    static Suggestions compute(FriendGraph.Snapshot graph, int[] exOffsets, int[] exTargets,
+                               int k, int maxBridgeDegree, ForkJoinPool pool) {
+        int n = graph.size();
+        if (n == 0) {
+            return new Suggestions(graph, new int[1], new int[0], new int[0]);
+        }
+        Chunk[] chunks = new Chunk[(n + LEAF_USERS - 1) / LEAF_USERS];
+        // ThreadLocal riêng cho mỗi lần chạy: scratch O(n) cho mỗi luồng, bỏ đi cùng pool khi xong
+        ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(() -> new Scratch(n, k));
+        pool.invoke(new ChunkTask(graph, exOffsets, exTargets, k, maxBridgeDegree, scratch, chunks, 0, chunks.length));
+
+        int[] offsets = new int[n + 1];
+        int total = 0;
+        for (Chunk c : chunks) {
+            total += c.candidates.size;
+        }
+        int[] candidates = new int[total];
+        int[] mutualCounts = new int[total];
+        int pos = 0;
+        for (int ci = 0; ci < chunks.length; ci++) {
+            Chunk c = chunks[ci];
+            int base = ci * LEAF_USERS;
+            for (int i = 0; i < c.sizes.length; i++) {
+                offsets[base + i + 1] = offsets[base + i] + c.sizes[i];
+            }
+            System.arraycopy(c.candidates.data, 0, candidates, pos, c.candidates.size);
+            System.arraycopy(c.mutualCounts.data, 0, mutualCounts, pos, c.mutualCounts.size);
+            pos += c.candidates.size;
+        }
+        return new Suggestions(graph, offsets, candidates, mutualCounts);
+    }
+
+    private static final class ChunkTask extends RecursiveAction {
+        private final FriendGraph.Snapshot graph;
+        private final int[] exOffsets;
+        private final int[] exTargets;
+        private final int k;
+        private final int maxBridgeDegree;
+        private final ThreadLocal<Scratch> scratch;
+        private final Chunk[] chunks;
+        private final int lo;
+        private final int hi;
+
+        ChunkTask(FriendGraph.Snapshot graph, int[] exOffsets, int[] exTargets, int k, int maxBridgeDegree,
+                  ThreadLocal<Scratch> scratch, Chunk[] chunks, int lo, int hi) {
+            this.graph = graph;
+            this.exOffsets = exOffsets;
+            this.exTargets = exTargets;
+            this.k = k;
+            this.maxBridgeDegree = maxBridgeDegree;
+            this.scratch = scratch;
+            this.chunks = chunks;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo > 1) {
+                int mid = (lo + hi) >>> 1;
+                invokeAll(new ChunkTask(graph, exOffsets, exTargets, k, maxBridgeDegree, scratch, chunks, lo, mid),
+                        new ChunkTask(graph, exOffsets, exTargets, k, maxBridgeDegree, scratch, chunks, mid, hi));
+                return;
+            }
+            int from = lo * LEAF_USERS;
+            int to = Math.min(graph.size(), from + LEAF_USERS);
+            Chunk chunk = new Chunk(to - from);
+            Scratch s = scratch.get();
+            for (int u = from; u < to; u++) {
+                chunk.sizes[u - from] = suggestFor(u, s, chunk);
+            }
+            chunks[lo] = chunk;
+        }
+
+        private int suggestFor(int u, Scratch s, Chunk out) {
+            int[] off = graph.offsets();
+            int[] tgt = graph.targets();
+            int[] counts = s.counts;
+            int touched = 0;
+            for (int i = off[u]; i < off[u + 1]; i++) {
+                int f = tgt[i];
+                if (off[f + 1] - off[f] > maxBridgeDegree) {
+                    continue;
+                }
+                for (int j = off[f]; j < off[f + 1]; j++) {
+                    int w = tgt[j];
+                    if (counts[w]++ == 0) {
+                        s.touched[touched++] = w;
+                    }
+                }
+            }
+            // Loại chính mình, bạn hiện tại và cặp PENDING/BLOCKED (chỉ đặt về 0, vòng dưới vẫn reset toàn bộ)
+            counts[u] = 0;
+            for (int i = off[u]; i < off[u + 1]; i++) {
+                counts[tgt[i]] = 0;
+            }
+            for (int i = exOffsets[u]; i < exOffsets[u + 1]; i++) {
+                counts[exTargets[i]] = 0;
+            }
+
+            // Min-heap kích thước k: gốc là ứng viên yếu nhất (ít bạn chung nhất, hòa thì chỉ số lớn hơn)
+            int size = 0;
+            for (int t = 0; t < touched; t++) {
+                int w = s.touched[t];
+                int c = counts[w];
+                counts[w] = 0;
+                if (c == 0) {
+                    continue;
+                }
+                if (size < k) {
+                    s.heapCount[size] = c;
+                    s.heapUser[size] = w;
+                    siftUp(s, size++);
+                } else if (weaker(s.heapCount[0], s.heapUser[0], c, w)) {
+                    s.heapCount[0] = c;
+                    s.heapUser[0] = w;
+                    siftDown(s, size);
+                }
+            }
+
+            // Lấy dần phần tử yếu nhất ra cuối để được thứ tự giảm dần
+            int base = out.candidates.size;
+            out.candidates.grow(size);
+            out.mutualCounts.grow(size);
+            for (int remaining = size; remaining > 0; remaining--) {
+                out.candidates.data[base + remaining - 1] = s.heapUser[0];
+                out.mutualCounts.data[base + remaining - 1] = s.heapCount[0];
+                s.heapCount[0] = s.heapCount[remaining - 1];
+                s.heapUser[0] = s.heapUser[remaining - 1];
+                siftDown(s, remaining - 1);
+            }
+            return size;
+        }
+
+        private static boolean weaker(int countA, int userA, int countB, int userB) {
+            return countA < countB || (countA == countB && userA > userB);
+        }
+
+        private static void siftUp(Scratch s, int i) {
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (!weaker(s.heapCount[i], s.heapUser[i], s.heapCount[parent], s.heapUser[parent])) {
+                    break;
+                }
+                swap(s, i, parent);
+                i = parent;
+            }
+        }
+
+        private static void siftDown(Scratch s, int size) {
+            int i = 0;
+            while (true) {
+                int left = 2 * i + 1;
+                if (left >= size) {
+                    break;
+                }
+                int weakest = left;
+                int right = left + 1;
+                if (right < size && weaker(s.heapCount[right], s.heapUser[right], s.heapCount[left], s.heapUser[left])) {
+                    weakest = right;
+                }
+                if (!weaker(s.heapCount[weakest], s.heapUser[weakest], s.heapCount[i], s.heapUser[i])) {
+                    break;
+                }
+                swap(s, i, weakest);
+                i = weakest;
+            }
+        }
+
+        private static void swap(Scratch s, int a, int b) {
+            int c = s.heapCount[a];
+            s.heapCount[a] = s.heapCount[b];
+            s.heapCount[b] = c;
+            int u = s.heapUser[a];
+            s.heapUser[a] = s.heapUser[b];
+            s.heapUser[b] = u;
+        }
+    }
+
+    public static final class Suggestion {
+        private final String userId;
+        private final int mutualFriendCount;
+
+        public Suggestion(String userId, int mutualFriendCount) {
+            this.userId = userId;
+            this.mutualFriendCount = mutualFriendCount;
+        }
+
+        public String getUserId() {
+            return userId;
+        }
+
+        public int getMutualFriendCount() {
+            return mutualFriendCount;
+        }
+    }
+
+    /**
+     * Kết quả một lần chạy: gợi ý của đỉnh u là {@code candidates/mutualCounts[offsets[u] .. offsets[u+1])}.
+     */
+    static final class Suggestions {
+        final FriendGraph.Snapshot graph;
+        final int[] offsets;
+        final int[] candidates;
+        final int[] mutualCounts;
+
+        Suggestions(FriendGraph.Snapshot graph, int[] offsets, int[] candidates, int[] mutualCounts) {
+            this.graph = graph;
+            this.offsets = offsets;
+            this.candidates = candidates;
+            this.mutualCounts = mutualCounts;
+        }
+
+        int usersWithSuggestions() {
+            int users = 0;
+            for (int u = 0; u + 1 < offsets.length; u++) {
+                if (offsets[u + 1] > offsets[u]) {
+                    users++;
+                }
+            }
+            return users;
+        }
+    }
+
+    // Bộ đếm dùng lại giữa các user trên cùng một luồng; luôn được trả về 0 sau mỗi user
+    private static final class Scratch {
+        final int[] counts;
+        final int[] touched;
+        final int[] heapCount;
+        final int[] heapUser;
+
+        Scratch(int n, int k) {
+            counts = new int[n];
+            touched = new int[n];
+            heapCount = new int[k];
+            heapUser = new int[k];
+        }
+    }
+
+    private static final class Chunk {
+        final int[] sizes;
+        final IntList candidates = new IntList();
+        final IntList mutualCounts = new IntList();
+
+        Chunk(int users) {
+            sizes = new int[users];
+        }
+    }
+
+    private static final class IntList {
+        int[] data = new int[16];
+        int size;
+
+        void add(int v) {
+            grow(1);
+            data[size - 1] = v;
+        }
+
+        // Tăng size thêm n, mở rộng mảng nếu cần
+        void grow(int n) {
+            if (size + n > data.length) {
+                data = Arrays.copyOf(data, Math.max(size + n, data.length * 2));
+            }
+            size += n;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.pbl6.backend.service;
+
+import com.pbl6.backend.repository.FriendshipRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Chuyển Friendships cũ (userOne = người gửi) sang cặp chuẩn hóa (userOne = userId nhỏ hơn, requester = người gửi):
+ * điền requester_id, bỏ dòng trùng cặp, đổi chỗ các cặp ngược chiều, rồi tạo uk_friendship_pair nếu
+ * lúc khởi động Hibernate chưa tạo được (do dữ liệu trùng). Chạy lại không làm gì khi dữ liệu đã chuẩn.
+ */
+@Component
+public class FriendshipCanonicalMigrationJob {
+    private static final Logger log = LoggerFactory.getLogger(FriendshipCanonicalMigrationJob.class);
+
+    private final FriendshipRepository friendshipRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${friends.canonical-migration-on-startup:true}")
+    private boolean enabled;
+
+    public FriendshipCanonicalMigrationJob(FriendshipRepository friendshipRepository,
+                                           JdbcTemplate jdbcTemplate,
+                                           PlatformTransactionManager transactionManager) {
+        this.friendshipRepository = friendshipRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (enabled) {
+            run();
+        }
+    }
+
+    public void run() {
+        int[] counts = transactionTemplate.execute(status -> new int[]{
+                friendshipRepository.backfillRequesters(),
+                friendshipRepository.deleteDuplicatePairs(),
+                friendshipRepository.canonicalizePairs()
+        });
+        if (counts[0] + counts[1] + counts[2] > 0) {
+            log.info("Chuẩn hóa Friendships: điền requester {} dòng, xóa trùng {} dòng, đổi chiều {} dòng",
+                    counts[0], counts[1], counts[2]);
+        }
+
+        // DDL ngoài transaction (MySQL tự commit khi chạy DDL)
+        Integer indexes = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM information_schema.statistics WHERE table_schema = DATABASE() " +
+                "AND LOWER(table_name) = 'friendships' AND index_name = 'uk_friendship_pair'", Integer.class);
+        if (indexes != null && indexes == 0) {
+            jdbcTemplate.execute("CREATE UNIQUE INDEX uk_friendship_pair ON Friendships (user_one_id, user_two_id)");
+            log.info("Đã tạo uk_friendship_pair trên Friendships");
+        }
+    }
+}
@@ -1,20 +1,31 @@
 package com.pbl6.backend.service;
 
+import com.pbl6.backend.event.FriendshipChangedEvent;
 import com.pbl6.backend.model.Conversation;
 import com.pbl6.backend.model.Friendship;
 import com.pbl6.backend.model.User;
 import com.pbl6.backend.repository.ConversationRepository;
 import com.pbl6.backend.repository.FriendshipRepository;
 import com.pbl6.backend.repository.UserRepository;
+import com.pbl6.backend.request.ContactSyncRequest;
+import com.pbl6.backend.response.ContactMatchResponse;
+import com.pbl6.backend.response.FriendSuggestionResponse;
 import com.pbl6.backend.response.PublicUserResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -22,6 +33,9 @@ public class FriendshipService {
 
     private static final Logger log = LoggerFactory.getLogger(FriendshipService.class);
 
+    private static final int DEFAULT_SUGGESTION_LIMIT = 10;
+    private static final int MAX_SUGGESTION_LIMIT = 20;
+
     @Autowired
     private FriendshipRepository friendshipRepository;
 
@@ -34,6 +48,18 @@ public class FriendshipService {
     @Autowired
     private ConversationRepository conversationRepository;
 
+    @Autowired
+    private FriendGraph friendGraph;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private FriendSuggestionEngine friendSuggestionEngine;
+
+    @Autowired
+    private ContactHashIndex contactHashIndex;
+
     /**
      * Gửi lời mời kết bạn giữa hai người dùng
      * @param currentUserId UUID của người dùng hiện tại (người gửi lời mời)
@@ -71,11 +97,8 @@ public class FriendshipService {
             }
         }
 
-        // Tạo mối quan hệ bạn bè mới với trạng thái PENDING
-        Friendship friendship = new Friendship();
-        friendship.setUserOne(currentUser);  // Người gửi lời mời
-        friendship.setUserTwo(targetUser);   // Người nhận lời mời
-        friendship.setStatus(Friendship.FriendshipStatus.PENDING);
+        // Tạo mối quan hệ bạn bè mới với trạng thái PENDING (cặp được lưu theo thứ tự userId, requester là người gửi)
+        Friendship friendship = new Friendship(currentUser, targetUser, Friendship.FriendshipStatus.PENDING);
         friendship.setActionUser(currentUser); // người thực hiện hành động
 
         return friendshipRepository.save(friendship);
@@ -106,11 +129,16 @@ public class FriendshipService {
         if (friendship.getStatus() != Friendship.FriendshipStatus.PENDING) {
             throw new RuntimeException("Lời mời kết bạn không ở trạng thái chờ xử lý");
         }
+        if (friendship.isRequestedBy(currentUser)) {
+            throw new RuntimeException("Không thể tự chấp nhận lời mời do chính mình gửi");
+        }
 
         // Cập nhật trạng thái thành ACCEPTED
         friendship.setStatus(Friendship.FriendshipStatus.ACCEPTED);
         friendship.setActionUser(currentUser); // người thực hiện hành động
         Friendship saved = friendshipRepository.save(friendship);
+        eventPublisher.publishEvent(new FriendshipChangedEvent(senderUser.getUserId(), currentUser.getUserId(),
+                FriendshipChangedEvent.Type.ACCEPTED));
 
         // Tạo conversation giữa 2 người nếu chưa tồn tại
         Conversation conv = conversationRepository.findByUsers(senderUser, currentUser)
@@ -179,11 +207,11 @@ public class FriendshipService {
         Friendship friendship = friendshipRepository.findByUsers(currentUser, targetUser)
                 .orElseThrow(() -> new RuntimeException("Không tìm thấy lời mời kết bạn để hủy"));
 
-        // Chỉ cho phép hủy khi đang PENDING và currentUser là người gửi (userOne)
+        // Chỉ cho phép hủy khi đang PENDING và currentUser là người gửi (requester)
         if (friendship.getStatus() != Friendship.FriendshipStatus.PENDING) {
             throw new RuntimeException("Chỉ có thể hủy lời mời khi đang ở trạng thái chờ xử lý");
         }
-        if (!currentUser.getUserId().equals(friendship.getUserOne().getUserId())) {
+        if (!friendship.isRequestedBy(currentUser)) {
             throw new RuntimeException("Chỉ người gửi mới có quyền hủy lời mời này");
         }
 
@@ -213,7 +241,11 @@ public class FriendshipService {
 
         friendship.setStatus(Friendship.FriendshipStatus.BLOCKED);
         friendship.setActionUser(currentUser); // người thực hiện hành động
-        return friendshipRepository.save(friendship);
+        Friendship saved = friendshipRepository.save(friendship);
+        // BLOCKED cũng xóa cạnh bạn bè (nếu có) khỏi FriendGraph
+        eventPublisher.publishEvent(new FriendshipChangedEvent(currentUser.getUserId(), targetUser.getUserId(),
+                FriendshipChangedEvent.Type.BLOCKED));
+        return saved;
     }
 
     /**
@@ -234,6 +266,8 @@ public class FriendshipService {
         }
 
         friendshipRepository.delete(friendship);
+        eventPublisher.publishEvent(new FriendshipChangedEvent(currentUser.getUserId(), targetUser.getUserId(),
+                FriendshipChangedEvent.Type.UNBLOCKED));
     }
 
     /**
@@ -254,6 +288,8 @@ public class FriendshipService {
         }
 
         friendshipRepository.delete(friendship);
+        eventPublisher.publishEvent(new FriendshipChangedEvent(currentUser.getUserId(), targetUser.getUserId(),
+                FriendshipChangedEvent.Type.REMOVED));
     }
 
     /**
@@ -286,7 +322,10 @@ public class FriendshipService {
             
             System.out.println("DEBUG: Found current user: " + currentUser.getUsername());
             
-            List<User> friends = friendshipRepository.findFriendsByUser(currentUser);
+            // Đọc từ FriendGraph khi đã dựng xong, nếu chưa thì query DB như cũ
+            List<User> friends = friendGraph.isReady()
+                    ? userRepository.findAllById(friendGraph.friendIds(currentUserId))
+                    : friendshipRepository.findFriendsByUser(currentUser);
             System.out.println("DEBUG: Found " + friends.size() + " friends");
             
             List<PublicUserResponse> result = friends.stream()
@@ -305,4 +344,160 @@ public class FriendshipService {
             throw new RuntimeException("Lỗi khi lấy danh sách bạn bè: " + e.getMessage(), e);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Số bạn bè của user
+     */
+    @Transactional(readOnly = true)
+    public long getFriendCount(String userId) {
+        if (friendGraph.isReady()) {
+            return friendGraph.friendCount(userId);
+        }
+        User user = userRepository.findById(userId)
+            .orElseThrow(() -> new RuntimeException("Không tìm thấy người dùng hiện tại"));
+        return friendshipRepository.countFriendsByUser(user);
+    }
+
+    /**
+     * Hai user có đang là bạn bè (ACCEPTED) không
+     */
+    @Transactional(readOnly = true)
+    public boolean areFriends(String userId, String otherUserId) {
+        if (friendGraph.isReady()) {
+            return friendGraph.areFriends(userId, otherUserId);
+        }
+        return isAcceptedInDb(userId, otherUserId);
+    }
+
+    private boolean isAcceptedInDb(String userId, String otherUserId) {
+        User user = userRepository.findById(userId).orElse(null);
+        User other = userRepository.findById(otherUserId).orElse(null);
+        if (user == null || other == null) {
+            return false;
+        }
+        return friendshipRepository.findByUsers(user, other)
+            .map(f -> f.getStatus() == Friendship.FriendshipStatus.ACCEPTED)
+            .orElse(false);
+    }
+
+    /**
+     * Bạn chung giữa tôi và một user khác
+     */
+    @Transactional(readOnly = true)
+    public List<PublicUserResponse> getMutualFriends(String currentUserId, String targetUsername) {
+        User targetUser = userRepository.findByUsername(targetUsername)
+            .orElseThrow(() -> new RuntimeException("Không tìm thấy người dùng"));
+        List<String> mutualIds;
+        if (friendGraph.isReady()) {
+            mutualIds = friendGraph.mutualFriendIds(currentUserId, targetUser.getUserId());
+        } else {
+            User currentUser = userRepository.findById(currentUserId)
+                .orElseThrow(() -> new RuntimeException("Không tìm thấy người dùng hiện tại"));
+            Set<String> mine = friendshipRepository.findFriendsByUser(currentUser).stream()
+                    .map(User::getUserId).collect(Collectors.toSet());
+            mutualIds = friendshipRepository.findFriendsByUser(targetUser).stream()
+                    .map(User::getUserId).filter(mine::contains).collect(Collectors.toList());
+        }
+        return userRepository.findAllById(mutualIds).stream()
+                .map(userService::toPublicUserResponse)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Gợi ý kết bạn (bạn của bạn) từ batch gần nhất, lọc bỏ những người đã phát sinh quan hệ với tôi
+     * sau lần chạy đó và tài khoản không còn ACTIVE.
+     */
+    @Transactional(readOnly = true)
+    public List<FriendSuggestionResponse> getFriendSuggestions(String currentUserId, Integer limit) {
+        int size = limit == null ? DEFAULT_SUGGESTION_LIMIT : Math.max(1, Math.min(limit, MAX_SUGGESTION_LIMIT));
+        List<FriendSuggestionEngine.Suggestion> suggestions = friendSuggestionEngine.suggestionsFor(currentUserId);
+        if (suggestions.isEmpty()) {
+            return List.of();
+        }
+        List<String> candidateIds = suggestions.stream()
+                .map(FriendSuggestionEngine.Suggestion::getUserId)
+                .collect(Collectors.toList());
+        Set<String> related = new HashSet<>(friendshipRepository.findRelatedUserIds(currentUserId, candidateIds));
+        Map<String, User> users = userRepository.findAllById(candidateIds).stream()
+                .collect(Collectors.toMap(User::getUserId, Function.identity()));
+
+        List<FriendSuggestionResponse> result = new ArrayList<>(size);
+        for (FriendSuggestionEngine.Suggestion s : suggestions) {
+            User user = users.get(s.getUserId());
+            if (related.contains(s.getUserId()) || user == null || user.getAccountStatus() != User.AccountStatus.ACTIVE) {
+                continue;
+            }
+            result.add(new FriendSuggestionResponse(userService.toPublicUserResponse(user), s.getMutualFriendCount()));
+            if (result.size() == size) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Tìm bạn từ danh bạ đã băm: khớp qua ContactHashIndex (không query theo từng số), nạp các user khớp bằng một query,
+     * lấy quan hệ với tôi bằng một query. Bỏ qua chính tôi, tài khoản không ACTIVE và các cặp đang chặn nhau.
+     */
+    @Transactional(readOnly = true)
+    public List<ContactMatchResponse> matchContacts(String currentUserId, ContactSyncRequest req) {
+        if (!contactHashIndex.isReady()) {
+            throw new RuntimeException("Đồng bộ danh bạ đang khởi tạo, vui lòng thử lại sau");
+        }
+        List<String> phoneHashes = req.getPhoneHashes() == null ? List.of() : req.getPhoneHashes();
+        List<String> emailHashes = req.getEmailHashes() == null ? List.of() : req.getEmailHashes();
+        Map<String, String> phoneMatches = contactHashIndex.lookup(phoneHashes);
+        Map<String, String> emailMatches = contactHashIndex.lookup(emailHashes);
+        Set<String> userIds = new HashSet<>(phoneMatches.values());
+        userIds.addAll(emailMatches.values());
+        userIds.remove(currentUserId);
+        if (userIds.isEmpty()) {
+            return List.of();
+        }
+
+        Map<String, User> users = userRepository.findAllById(userIds).stream()
+                .collect(Collectors.toMap(User::getUserId, Function.identity()));
+        // [otherId, status, requesterId]
+        Map<String, Object[]> relations = new HashMap<>();
+        for (Object[] row : friendshipRepository.findRelationsWith(currentUserId, userIds)) {
+            relations.put((String) row[0], row);
+        }
+
+        List<ContactMatchResponse> result = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        for (Map.Entry<String, String> m : phoneMatches.entrySet()) {
+            User user = users.get(m.getValue());
+            // Khóa chỉ là 64 bit đầu của hash → xác nhận lại bằng hash đầy đủ
+            if (user != null && m.getKey().equals(contactHashIndex.phoneHash(user.getPhoneNumber()))) {
+                addContactMatch(result, seen, m.getKey(), user, relations.get(user.getUserId()), currentUserId);
+            }
+        }
+        for (Map.Entry<String, String> m : emailMatches.entrySet()) {
+            User user = users.get(m.getValue());
+            if (user != null && m.getKey().equals(contactHashIndex.emailHash(user.getEmail()))) {
+                addContactMatch(result, seen, m.getKey(), user, relations.get(user.getUserId()), currentUserId);
+            }
+        }
+        return result;
+    }
+
+    private void addContactMatch(List<ContactMatchResponse> result, Set<String> seen, String hash, User user,
+                                 Object[] relation, String currentUserId) {
+        if (user.getAccountStatus() != User.AccountStatus.ACTIVE || !seen.add(user.getUserId())) {
+            return;
+        }
+        String status = "NONE";
+        if (relation != null) {
+            Friendship.FriendshipStatus s = (Friendship.FriendshipStatus) relation[1];
+            if (s == Friendship.FriendshipStatus.BLOCKED) {
+                return;
+            }
+            if (s == Friendship.FriendshipStatus.ACCEPTED) {
+                status = "FRIENDS";
+            } else {
+                status = currentUserId.equals(relation[2]) ? "REQUEST_SENT" : "REQUEST_RECEIVED";
+            }
+        }
+        result.add(new ContactMatchResponse(hash, userService.toPublicUserResponse(user), status));
+    }
+}
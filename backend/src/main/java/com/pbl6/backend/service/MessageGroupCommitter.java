@@ -0,0 +1,353 @@
+package com.pbl6.backend.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Group commit cho tin nhắn (bật bằng {@code messages.group-commit.enabled=true}).
+ * Các lần gửi đồng thời được gom trong tối đa {@code messages.group-commit.window-ms} và ghi trong một transaction:
+ * một JDBC batch INSERT vào Messages, và mỗi hội thoại chỉ một UPDATE (tin cuối + cộng dồn bộ đếm chưa đọc).
+ * Người gọi chỉ nhận kết quả sau khi transaction đã commit. Hàng đợi có giới hạn ({@code queue-capacity}), đầy thì
+ * từ chối ngay; tin đã quá thời gian chờ bị hủy và không được ghi nữa (client gửi lại không tạo bản trùng);
+ * lô lỗi được ghi lại từng tin để một dòng hỏng không kéo theo cả lô.
+ */
+@Component
+public class MessageGroupCommitter {
+    private static final Logger log = LoggerFactory.getLogger(MessageGroupCommitter.class);
+
+    private static final String INSERT_MESSAGE =
+            "INSERT INTO Messages (message_id, conversation_id, sender_id, content, sent_at, is_read) VALUES (?, ?, ?, ?, ?, false)";
+    // MySQL gán SET từ trái sang phải: last_message_at phải gán cuối để các CASE phía trước còn thấy giá trị cũ.
+    // Điều kiện thời gian giữ tin cuối đúng khi một đường ghi khác (replyPost) đã ghi tin mới hơn.
+    private static final String UPDATE_CONVERSATION =
+            "UPDATE Conversations SET "
+                    + "last_message_id = CASE WHEN last_message_at IS NULL OR last_message_at <= ? THEN ? ELSE last_message_id END, "
+                    + "last_message_sender_id = CASE WHEN last_message_at IS NULL OR last_message_at <= ? THEN ? ELSE last_message_sender_id END, "
+                    + "last_message_preview = CASE WHEN last_message_at IS NULL OR last_message_at <= ? THEN ? ELSE last_message_preview END, "
+                    + "user_one_unread_count = user_one_unread_count + ?, "
+                    + "user_two_unread_count = user_two_unread_count + ?, "
+                    + "last_message_at = CASE WHEN last_message_at IS NULL OR last_message_at <= ? THEN ? ELSE last_message_at END "
+                    + "WHERE conversation_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private BlockingQueue<PendingMessage> queue;
+
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong messages = new AtomicLong();
+    private final AtomicLong conversationUpdates = new AtomicLong();
+    private final AtomicLong failedBatches = new AtomicLong();
+    private final AtomicLong failedMessages = new AtomicLong();
+    private final AtomicLong rejectedMessages = new AtomicLong();
+    private final AtomicLong cancelledMessages = new AtomicLong();
+    private volatile int lastBatchSize;
+    private volatile long lastBatchDurationMs;
+
+    private volatile boolean running;
+    private Thread writer;
+
+    @Value("${messages.group-commit.enabled:false}")
+    private boolean enabled;
+
+    @Value("${messages.group-commit.window-ms:5}")
+    private long windowMs;
+
+    @Value("${messages.group-commit.max-batch:256}")
+    private int maxBatch;
+
+    @Value("${messages.group-commit.timeout-ms:5000}")
+    private long timeoutMs;
+
+    @Value("${messages.group-commit.queue-capacity:10000}")
+    private int queueCapacity;
+
+    public MessageGroupCommitter(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        running = true;
+        writer = new Thread(this::runLoop, "message-group-commit");
+        writer.setDaemon(true);
+        writer.start();
+        log.info("Bật group commit cho tin nhắn (window={} ms, maxBatch={})", windowMs, maxBatch);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (writer == null) {
+            return;
+        }
+        running = false;
+        writer.interrupt();
+        writer.join(timeoutMs);
+        // Ghi nốt những tin đã nhận trước khi tắt
+        List<PendingMessage> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        for (int i = 0; i < rest.size(); i += maxBatch) {
+            commit(rest.subList(i, Math.min(rest.size(), i + maxBatch)));
+        }
+    }
+
+    /**
+     * Đưa tin vào lô kế tiếp và chờ tới khi lô đó commit xong.
+     */
+    public void submitAndWait(PendingMessage message) {
+        if (!running) {
+            throw new IllegalStateException("Group commit chưa được bật");
+        }
+        if (!queue.offer(message)) {
+            rejectedMessages.incrementAndGet();
+            throw new RuntimeException("Hệ thống đang bận, không thể lưu tin nhắn lúc này");
+        }
+        try {
+            try {
+                message.done.get(timeoutMs, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                if (message.cancel()) {
+                    // Chưa vào transaction nào → sẽ không bao giờ được ghi
+                    throw new RuntimeException("Quá thời gian chờ lưu tin nhắn", e);
+                }
+                // Writer đã nhận tin và đang ghi: chờ kết quả thật thay vì báo lỗi cho một tin có thể đã lưu
+                message.done.get(timeoutMs, TimeUnit.MILLISECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Bị gián đoạn khi chờ lưu tin nhắn", e);
+        } catch (TimeoutException e) {
+            throw new RuntimeException("Quá thời gian chờ lưu tin nhắn", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Không thể lưu tin nhắn", e.getCause());
+        }
+    }
+
+    private void runLoop() {
+        List<PendingMessage> batch = new ArrayList<>(maxBatch);
+        while (running) {
+            try {
+                PendingMessage first = queue.take();
+                batch.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(windowMs);
+                while (batch.size() < maxBatch) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    PendingMessage next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                commit(batch);
+            } catch (InterruptedException e) {
+                // Ghi nốt lô đang gom (queue có giới hạn, không trả lại được); stop() ghi phần còn lại trong queue
+                commit(batch);
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    void commit(List<PendingMessage> pending) {
+        // Bỏ các tin người gọi đã hủy vì quá thời gian chờ
+        List<PendingMessage> batch = new ArrayList<>(pending.size());
+        for (PendingMessage m : pending) {
+            if (m.claim()) {
+                batch.add(m);
+            } else {
+                cancelledMessages.incrementAndGet();
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        Map<String, ConversationDelta> deltas = collapse(batch);
+        try {
+            transactionTemplate.executeWithoutResult(status -> write(batch, deltas));
+        } catch (RuntimeException ex) {
+            failedBatches.incrementAndGet();
+            if (batch.size() == 1) {
+                fail(batch.get(0), ex);
+                return;
+            }
+            log.warn("Group commit {} tin nhắn thất bại, ghi lại từng tin", batch.size(), ex);
+            for (PendingMessage m : batch) {
+                commitOne(m);
+            }
+            return;
+        }
+        // Cập nhật số liệu trước khi trả kết quả để người gọi đọc stats() ngay sau đó thấy lô này
+        batches.incrementAndGet();
+        messages.addAndGet(batch.size());
+        conversationUpdates.addAndGet(deltas.size());
+        lastBatchSize = batch.size();
+        lastBatchDurationMs = System.currentTimeMillis() - start;
+        for (PendingMessage m : batch) {
+            m.done.complete(null);
+        }
+    }
+
+    private void commitOne(PendingMessage m) {
+        List<PendingMessage> single = List.of(m);
+        try {
+            transactionTemplate.executeWithoutResult(status -> write(single, collapse(single)));
+        } catch (RuntimeException ex) {
+            fail(m, ex);
+            return;
+        }
+        messages.incrementAndGet();
+        conversationUpdates.incrementAndGet();
+        m.done.complete(null);
+    }
+
+    private void fail(PendingMessage m, RuntimeException ex) {
+        failedMessages.incrementAndGet();
+        log.error("Không lưu được tin nhắn {} (hội thoại {})", m.messageId, m.conversationId, ex);
+        m.done.completeExceptionally(ex);
+    }
+
+    // Gộp theo hội thoại: tin mới nhất làm tin cuối, số tin của mỗi phía cộng vào bộ đếm phía còn lại
+    static Map<String, ConversationDelta> collapse(List<PendingMessage> batch) {
+        Map<String, ConversationDelta> deltas = new LinkedHashMap<>();
+        for (PendingMessage m : batch) {
+            ConversationDelta d = deltas.computeIfAbsent(m.conversationId, k -> new ConversationDelta());
+            if (d.last == null || !m.sentAt.isBefore(d.last.sentAt)) {
+                d.last = m;
+            }
+            if (!m.senderId.equals(m.userOneId)) {
+                d.userOneUnread++;
+            }
+            if (!m.senderId.equals(m.userTwoId)) {
+                d.userTwoUnread++;
+            }
+        }
+        return deltas;
+    }
+
+    private void write(List<PendingMessage> batch, Map<String, ConversationDelta> deltas) {
+        List<Object[]> inserts = new ArrayList<>(batch.size());
+        for (PendingMessage m : batch) {
+            inserts.add(new Object[]{m.messageId, m.conversationId, m.senderId, m.content, Timestamp.valueOf(m.sentAt)});
+        }
+        jdbcTemplate.batchUpdate(INSERT_MESSAGE, inserts);
+
+        List<Object[]> updates = new ArrayList<>(deltas.size());
+        for (Map.Entry<String, ConversationDelta> e : deltas.entrySet()) {
+            PendingMessage last = e.getValue().last;
+            Timestamp at = Timestamp.valueOf(last.sentAt);
+            updates.add(new Object[]{
+                    at, last.messageId,
+                    at, last.senderId,
+                    at, last.preview,
+                    e.getValue().userOneUnread,
+                    e.getValue().userTwoUnread,
+                    at, at,
+                    e.getKey()});
+        }
+        jdbcTemplate.batchUpdate(UPDATE_CONVERSATION, updates);
+    }
+
+    public Map<String, Object> stats() {
+        long b = batches.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("windowMs", windowMs);
+        stats.put("maxBatch", maxBatch);
+        stats.put("queueCapacity", queueCapacity);
+        stats.put("queued", queue != null ? queue.size() : 0);
+        stats.put("batches", b);
+        stats.put("messages", messages.get());
+        stats.put("conversationUpdates", conversationUpdates.get());
+        stats.put("avgBatchSize", b == 0 ? 0 : (double) messages.get() / b);
+        stats.put("lastBatchSize", lastBatchSize);
+        stats.put("lastBatchDurationMs", lastBatchDurationMs);
+        stats.put("failedBatches", failedBatches.get());
+        stats.put("failedMessages", failedMessages.get());
+        stats.put("rejectedMessages", rejectedMessages.get());
+        stats.put("cancelledMessages", cancelledMessages.get());
+        return stats;
+    }
+
+    /**
+     * Một tin chờ ghi; id và sentAt được gán trước khi vào lô.
+     */
+    public static final class PendingMessage {
+        private static final int QUEUED = 0;
+        private static final int CLAIMED = 1;
+        private static final int CANCELLED = 2;
+
+        final String messageId;
+        final String conversationId;
+        final String userOneId;
+        final String userTwoId;
+        final String senderId;
+        final String content;
+        final String preview;
+        final LocalDateTime sentAt;
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+        // QUEUED → CLAIMED (writer bắt đầu ghi) hoặc QUEUED → CANCELLED (người gọi hết thời gian chờ), chỉ một bên thắng
+        private final AtomicInteger state = new AtomicInteger(QUEUED);
+
+        public PendingMessage(String messageId, String conversationId, String userOneId, String userTwoId,
+                              String senderId, String content, String preview, LocalDateTime sentAt) {
+            this.messageId = messageId;
+            this.conversationId = conversationId;
+            this.userOneId = userOneId;
+            this.userTwoId = userTwoId;
+            this.senderId = senderId;
+            this.content = content;
+            this.preview = preview;
+            this.sentAt = sentAt;
+        }
+
+        boolean claim() {
+            return state.compareAndSet(QUEUED, CLAIMED);
+        }
+
+        boolean cancel() {
+            return state.compareAndSet(QUEUED, CANCELLED);
+        }
+    }
+
+    static final class ConversationDelta {
+        PendingMessage last;
+        int userOneUnread;
+        int userTwoUnread;
+    }
+}
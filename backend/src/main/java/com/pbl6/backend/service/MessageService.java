@@ -1,5 +1,6 @@
 package com.pbl6.backend.service;
 
+import com.pbl6.backend.event.MessageSentEvent;
 import com.pbl6.backend.model.Conversation;
 import com.pbl6.backend.model.Message;
 import com.pbl6.backend.model.Post;
@@ -10,48 +11,96 @@ import com.pbl6.backend.repository.PostRepository;
 import com.pbl6.backend.request.MessageSendRequest;
 import com.pbl6.backend.request.ReplyPostMessageRequest;
 import com.pbl6.backend.response.MessageResponse;
-import com.pbl6.backend.response.PostResponse;
+import com.pbl6.backend.response.PostSnippet;
 import com.pbl6.backend.response.UserResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.UUID;
 
 @Service
 public class MessageService {
     private static final Logger log = LoggerFactory.getLogger(MessageService.class);
+    // Khớp độ dài cột Conversations.last_message_preview
+    static final int PREVIEW_LENGTH = 100;
 
     private final ConversationRepository conversationRepository;
     private final MessageRepository messageRepository;
     private final PostRepository postRepository;
     private final AuthService authService;
-    private final PostService postService;
+    private final PostSnippetCache postSnippetCache;
+    private final ApplicationEventPublisher eventPublisher;
+    private final MessageGroupCommitter groupCommitter;
+    private final ConversationMembershipCache membershipCache;
+    private final BlockList blockList;
+    private final TransactionTemplate transactionTemplate;
 
     public MessageService(ConversationRepository conversationRepository,
                           MessageRepository messageRepository,
                           PostRepository postRepository,
                           AuthService authService,
-                          PostService postService) {
+                          PostSnippetCache postSnippetCache,
+                          ApplicationEventPublisher eventPublisher,
+                          MessageGroupCommitter groupCommitter,
+                          ConversationMembershipCache membershipCache,
+                          BlockList blockList,
+                          PlatformTransactionManager transactionManager) {
         this.conversationRepository = conversationRepository;
         this.messageRepository = messageRepository;
         this.postRepository = postRepository;
         this.authService = authService;
-        this.postService = postService;
+        this.postSnippetCache = postSnippetCache;
+        this.eventPublisher = eventPublisher;
+        this.groupCommitter = groupCommitter;
+        this.membershipCache = membershipCache;
+        this.blockList = blockList;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
-    @Transactional
+    /**
+     * Gửi tin trong hội thoại đã có. Khi bật group commit, tin được ghi chung lô với các lần gửi đồng thời
+     * (không giữ transaction/connection trong lúc chờ lô); ngược lại ghi trong transaction riêng như cũ.
+     */
     public MessageResponse sendMessage(User sender, MessageSendRequest req) {
-        Conversation conv = conversationRepository.findById(req.getConversationId())
-                .orElseThrow(() -> new IllegalArgumentException("Không tìm thấy hội thoại với id=" + req.getConversationId()));
-        ensureMember(conv, sender);
+        if (groupCommitter.isEnabled()) {
+            return sendGroupCommitted(sender, req);
+        }
+        return transactionTemplate.execute(status -> sendInTransaction(sender, req));
+    }
+
+    private MessageResponse sendGroupCommitted(User sender, MessageSendRequest req) {
+        ConversationMembershipCache.Members members = ensureMember(req.getConversationId(), sender);
+        ensureNotBlocked(sender.getUserId(), otherMember(members, sender));
+
+        MessageGroupCommitter.PendingMessage pending = new MessageGroupCommitter.PendingMessage(
+                UUID.randomUUID().toString(), req.getConversationId(), members.getUserOneId(), members.getUserTwoId(),
+                sender.getUserId(), req.getContent(), preview(req.getContent()), LocalDateTime.now());
+        groupCommitter.submitAndWait(pending);
+
+        MessageResponse res = new MessageResponse(pending.messageId, pending.conversationId,
+                authService.toUserResponse(sender), pending.content, null, pending.sentAt, false);
+        return publishSent(members, res);
+    }
+
+    private MessageResponse sendInTransaction(User sender, MessageSendRequest req) {
+        ConversationMembershipCache.Members members = ensureMember(req.getConversationId(), sender);
+        ensureNotBlocked(sender.getUserId(), otherMember(members, sender));
+        // Quyền đã kiểm qua cache → chỉ cần tham chiếu cho khóa ngoại, không SELECT Conversations
+        Conversation conv = conversationRepository.getReferenceById(req.getConversationId());
 
         Message msg = new Message(conv, sender, req.getContent());
         msg = messageRepository.save(msg);
-        updateConversationLastMessage(conv, msg.getSentAt());
+        updateConversationLastMessage(conv, msg);
 
-        return toResponse(msg);
+        return publishSent(members, toResponse(msg));
     }
 
     @Transactional
@@ -61,34 +110,67 @@ public class MessageService {
 
         // Tìm hội thoại giữa người reply (sender) và người đăng post; nếu chưa có thì tạo mới
         User postOwner = post.getUser();
+        ensureNotBlocked(sender.getUserId(), postOwner.getUserId());
         Conversation conv = conversationRepository.findByUsers(sender, postOwner)
                 .orElseGet(() -> conversationRepository.save(new Conversation(sender, postOwner)));
+        membershipCache.put(conv.getConversationId(), conv.getUserOne().getUserId(), conv.getUserTwo().getUserId());
 
         String content = (req.getContent() == null || req.getContent().isBlank()) ? "" : req.getContent();
         Message msg = new Message(conv, sender, content, post);
         msg = messageRepository.save(msg);
-        updateConversationLastMessage(conv, msg.getSentAt());
+        updateConversationLastMessage(conv, msg);
+
+        return publishSent(membershipCache.get(conv.getConversationId()), toResponse(msg));
+    }
+
+    // Đẩy tin tới cả hai thành viên qua WebSocket sau khi commit
+    private MessageResponse publishSent(ConversationMembershipCache.Members members, MessageResponse res) {
+        Set<String> memberIds = new LinkedHashSet<>();
+        memberIds.add(members.getUserOneId());
+        memberIds.add(members.getUserTwoId());
+        eventPublisher.publishEvent(new MessageSentEvent(memberIds, res));
+        return res;
+    }
 
-        return toResponse(msg);
+    private ConversationMembershipCache.Members ensureMember(String conversationId, User user) {
+        return membershipCache.requireMember(conversationId, user.getUserId(), "Bạn không thuộc hội thoại này");
     }
 
-    private void ensureMember(Conversation conv, User sender) {
-        if (!conv.getUserOne().getUserId().equals(sender.getUserId()) &&
-            !conv.getUserTwo().getUserId().equals(sender.getUserId())) {
-            throw new RuntimeException("Bạn không thuộc hội thoại này");
+    // Kiểm tra trong bộ nhớ (BlockList), không query DB trong trường hợp thường gặp
+    private void ensureNotBlocked(String senderId, String otherUserId) {
+        if (blockList.isBlocked(senderId, otherUserId)) {
+            throw new RuntimeException("Không thể gửi tin nhắn do một trong hai người đã chặn người kia");
         }
     }
 
-    private void updateConversationLastMessage(Conversation conv, LocalDateTime at) {
-        conv.setLastMessageAt(at != null ? at : LocalDateTime.now());
-        conversationRepository.save(conv);
+    private static String otherMember(ConversationMembershipCache.Members members, User user) {
+        return members.getUserOneId().equals(user.getUserId()) ? members.getUserTwoId() : members.getUserOneId();
+    }
+
+    // Một câu UPDATE: tin cuối + tăng bộ đếm chưa đọc của người nhận (không save cả entity để tránh ghi đè bộ đếm)
+    private void updateConversationLastMessage(Conversation conv, Message msg) {
+        LocalDateTime at = msg.getSentAt() != null ? msg.getSentAt() : LocalDateTime.now();
+        conversationRepository.recordNewMessage(conv.getConversationId(), msg.getMessageId(),
+                msg.getSender().getUserId(), preview(msg.getContent()), at);
+    }
+
+    // Cắt theo code point để không tách đôi emoji (VARCHAR của MySQL đếm theo ký tự)
+    static String preview(String content) {
+        if (content == null) {
+            return "";
+        }
+        int codePoints = content.codePointCount(0, content.length());
+        if (codePoints <= PREVIEW_LENGTH) {
+            return content;
+        }
+        return content.substring(0, content.offsetByCodePoints(0, PREVIEW_LENGTH));
     }
 
     private MessageResponse toResponse(Message m) {
         UserResponse sender = authService.toUserResponse(m.getSender());
-        PostResponse replied = null;
+        PostSnippet replied = null;
         if (m.getRepliedToPost() != null) {
-            replied = postService.toResponse(m.getRepliedToPost());
+            replied = postSnippetCache.get(m.getRepliedToPost().getPostId());
         }
         return new MessageResponse(
                 m.getMessageId(),
@@ -105,10 +187,30 @@ public class MessageService {
     public void markAsRead(User currentUser, String messageId) {
         Message msg = messageRepository.findById(messageId)
                 .orElseThrow(() -> new IllegalArgumentException("Không tìm thấy tin nhắn với id=" + messageId));
-        ensureMember(msg.getConversation(), currentUser);
-        if (!msg.isRead()) {
-            msg.setRead(true);
-            messageRepository.save(msg);
+        String conversationId = msg.getConversation().getConversationId();
+        ensureMember(conversationId, currentUser);
+        // UPDATE có điều kiện như markReadUpTo: lần gọi đồng thời hoặc markReadUpTo đã đổi dòng này trước thì không trừ nữa
+        if (messageRepository.markReadById(messageId, currentUser) == 1) {
+            conversationRepository.decrementUnread(conversationId, currentUser.getUserId(), 1);
+        }
+    }
+
+    /**
+     * Đánh dấu đã đọc mọi tin của người kia trong hội thoại tới tin upToMessageId (theo thứ tự sentAt, messageId)
+     * bằng một câu UPDATE, rồi trừ bộ đếm chưa đọc đúng số dòng vừa đổi.
+     * @return số tin vừa được đánh dấu đã đọc
+     */
+    @Transactional
+    public int markReadUpTo(User currentUser, String conversationId, String upToMessageId) {
+        ensureMember(conversationId, currentUser);
+        Conversation conv = conversationRepository.getReferenceById(conversationId);
+        LocalDateTime upToTime = messageRepository.findSentAtByMessageIdAndConversation(upToMessageId, conv)
+                .orElseThrow(() -> new IllegalArgumentException("Không tìm thấy tin nhắn với id=" + upToMessageId + " trong hội thoại"));
+
+        int marked = messageRepository.markReadUpTo(conv, currentUser, upToTime, upToMessageId);
+        if (marked > 0) {
+            conversationRepository.decrementUnread(conversationId, currentUser.getUserId(), marked);
         }
+        return marked;
     }
 }
\ No newline at end of file
@@ -1,79 +1,109 @@
 package com.pbl6.backend.service;
 
+import com.pbl6.backend.model.DailyMetrics;
+import com.pbl6.backend.model.ModerationReport;
 import com.pbl6.backend.model.Post;
 import com.pbl6.backend.model.User;
-import com.pbl6.backend.repository.ModerationReportRepository;
-import com.pbl6.backend.repository.PostRepository;
-import com.pbl6.backend.repository.UserRepository;
+import com.pbl6.backend.repository.DailyMetricsRepository;
 import com.pbl6.backend.response.MetricsOverviewResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.time.LocalDateTime;
-import java.util.HashMap;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 @Service
 public class MetricsService {
 
-    @Autowired
-    private UserRepository userRepository;
+    private static final int MAX_RANGE_DAYS = 3660;
 
     @Autowired
-    private PostRepository postRepository;
+    private DailyMetricsRepository dailyMetricsRepository;
 
     @Autowired
-    private ModerationReportRepository reportRepository;
+    private DashboardMetricsSnapshot dashboardMetricsSnapshot;
 
+    // Đọc từ DashboardMetricsSnapshot thay vì ~8 câu COUNT mỗi lần dashboard tự làm mới
     public MetricsOverviewResponse getOverview() {
+        DashboardMetricsSnapshot.Snapshot snapshot = dashboardMetricsSnapshot.get();
         MetricsOverviewResponse response = new MetricsOverviewResponse();
 
         // User metrics
-        response.setTotalUsers(userRepository.count());
-        response.setActiveUsers(userRepository.countByAccountStatus(User.AccountStatus.ACTIVE));
-        response.setSuspendedUsers(userRepository.countByAccountStatus(User.AccountStatus.SUSPENDED));
-        response.setBannedUsers(userRepository.countByAccountStatus(User.AccountStatus.BANNED));
+        response.setTotalUsers(snapshot.users());
+        response.setActiveUsers(snapshot.users(User.AccountStatus.ACTIVE));
+        response.setSuspendedUsers(snapshot.users(User.AccountStatus.SUSPENDED));
+        response.setBannedUsers(snapshot.users(User.AccountStatus.BANNED));
 
         // Post metrics
-        response.setTotalPosts(postRepository.count());
+        response.setTotalPosts(snapshot.posts());
 
         // Report metrics
-        response.setPendingReports(reportRepository.countByStatus(
-            com.pbl6.backend.model.ModerationReport.ReportStatus.PENDING));
+        response.setPendingReports(snapshot.reports(ModerationReport.ReportStatus.PENDING));
 
         // AI Performance
-        long totalPosts = postRepository.count();
-        long successPosts = postRepository.countByCaptionStatus(Post.CaptionStatus.COMPLETED);
-        long failedPosts = postRepository.countByCaptionStatus(Post.CaptionStatus.FAILED);
-        
-        response.setAiPerformance(new MetricsOverviewResponse.AIPerformanceMetrics(
-            totalPosts, successPosts, failedPosts));
+        response.setAiPerformance(new MetricsOverviewResponse.AIPerformanceMetrics(snapshot.posts(),
+                snapshot.posts(Post.CaptionStatus.COMPLETED), snapshot.posts(Post.CaptionStatus.FAILED)));
 
+        response.setComputedAt(snapshot.getComputedAt());
         return response;
     }
 
-    public List<Map<String, Object>> getUserMetrics(String period) {
-        LocalDateTime startDate = getStartDateByPeriod(period);
-        return userRepository.findUserCountByDateRange(startDate, LocalDateTime.now());
+    /**
+     * Số user mới theo ngày, đọc từ Daily_Metrics (chi phí theo số ngày, không theo số dòng bảng gốc).
+     * Có from thì lấy [from, to] (to mặc định hôm nay), không thì theo period "Nd" tính tới hôm nay.
+     */
+    public List<Map<String, Object>> getUserMetrics(String period, LocalDate from, LocalDate to) {
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (DailyMetrics m : getDailyMetrics(period, from, to)) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("date", m.getMetricDate());
+            row.put("count", m.getNewUsers());
+            result.add(row);
+        }
+        return result;
     }
 
-    public List<Map<String, Object>> getPostMetrics(String period) {
-        LocalDateTime startDate = getStartDateByPeriod(period);
-        return postRepository.findPostCountByDateRange(startDate, LocalDateTime.now());
+    public List<Map<String, Object>> getPostMetrics(String period, LocalDate from, LocalDate to) {
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (DailyMetrics m : getDailyMetrics(period, from, to)) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("date", m.getMetricDate());
+            row.put("count", m.getPosts());
+            row.put("photo", m.getPhotoPosts());
+            row.put("video", m.getVideoPosts());
+            row.put("captionsCompleted", m.getCaptionsCompleted());
+            row.put("captionsFailed", m.getCaptionsFailed());
+            result.add(row);
+        }
+        return result;
+    }
+
+    // Toàn bộ cột của Daily_Metrics (user, post, caption, tin nhắn, report) trong khoảng
+    public List<DailyMetrics> getDailyMetrics(String period, LocalDate from, LocalDate to) {
+        LocalDate today = LocalDate.now();
+        LocalDate end = to != null ? to : today;
+        LocalDate start = from != null ? from : end.minusDays(getDaysByPeriod(period));
+        if (start.isAfter(end)) {
+            throw new IllegalArgumentException("from phải trước hoặc bằng to");
+        }
+        if (ChronoUnit.DAYS.between(start, end) > MAX_RANGE_DAYS) {
+            throw new IllegalArgumentException("Khoảng thời gian tối đa " + MAX_RANGE_DAYS + " ngày");
+        }
+        return dailyMetricsRepository.findByMetricDateBetweenOrderByMetricDate(start, end);
     }
 
-    private LocalDateTime getStartDateByPeriod(String period) {
-        LocalDateTime now = LocalDateTime.now();
-        switch (period) {
-            case "7d":
-                return now.minusDays(7);
-            case "30d":
-                return now.minusDays(30);
-            case "90d":
-                return now.minusDays(90);
-            default:
-                return now.minusDays(7);
+    // "7d", "30d", "90d", "365d"...; giá trị lạ thì mặc định 7 ngày như trước
+    private static int getDaysByPeriod(String period) {
+        if (period != null && period.matches("[0-9]{1,4}d")) {
+            int days = Integer.parseInt(period.substring(0, period.length() - 1));
+            if (days > 0 && days <= MAX_RANGE_DAYS) {
+                return days;
+            }
         }
+        return 7;
     }
 }
@@ -1,14 +1,19 @@
 package com.pbl6.backend.service;
 
+import com.pbl6.backend.event.MetricsDeltaEvent;
+import com.pbl6.backend.event.PostChangedEvent;
 import com.pbl6.backend.model.Post;
 import com.pbl6.backend.model.User;
+import com.pbl6.backend.repository.PostRecipientRepository;
 import com.pbl6.backend.repository.PostRepository;
 import com.pbl6.backend.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.LinkedHashSet;
 import java.util.Optional;
 
 @Service
@@ -20,6 +25,15 @@ public class ModerationService {
     @Autowired
     private PostRepository postRepository;
 
+    @Autowired
+    private PostRecipientRepository postRecipientRepository;
+
+    @Autowired
+    private FeedService feedService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     @Transactional
     public User updateUserStatus(String userId, String statusString, String reason) {
         Optional<User> userOpt = userRepository.findById(userId);
@@ -37,9 +51,12 @@ public class ModerationService {
             throw new IllegalArgumentException("Invalid status. Must be ACTIVE, SUSPENDED, or BANNED");
         }
         
+        User.AccountStatus previous = user.getAccountStatus();
         user.setAccountStatus(status);
         
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        eventPublisher.publishEvent(MetricsDeltaEvent.user(previous, status));
+        return saved;
     }
 
     @Transactional
@@ -53,6 +70,10 @@ public class ModerationService {
         post.setIsDeleted(true);
         post.setDeletedAt(LocalDateTime.now());
         postRepository.save(post);
+        feedService.removePost(postId);
+        eventPublisher.publishEvent(new PostChangedEvent(postId, post.getUser().getUserId(),
+                new LinkedHashSet<>(postRecipientRepository.findRecipientIdsByPostId(postId)),
+                PostChangedEvent.Type.MODERATED));
     }
 
     public Optional<Post> getPostById(String postId) {
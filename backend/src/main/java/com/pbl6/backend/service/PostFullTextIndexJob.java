@@ -0,0 +1,67 @@
+package com.pbl6.backend.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+
+/**
+ * Tạo FULLTEXT index ft_post_caption trên Posts (final_caption, generated_caption) nếu chưa có, cho tìm caption ở
+ * danh sách admin. Dùng parser ngram: tiếng Việt nhiều âm tiết 1-2 chữ cái mà parser mặc định bỏ qua
+ * (innodb_ft_min_token_size = 3), và khớp được cả một phần từ như LIKE '%...%' trước đây.
+ * Chạy nền vì dựng index trên bảng lớn mất thời gian; trước khi index sẵn sàng ({@link #isReady()}) người gọi
+ * tìm caption bằng LIKE.
+ */
+@Component
+public class PostFullTextIndexJob {
+    private static final Logger log = LoggerFactory.getLogger(PostFullTextIndexJob.class);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${admin.posts.fulltext-index-on-startup:true}")
+    private boolean enabled;
+
+    private volatile boolean ready;
+
+    public PostFullTextIndexJob(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    @Async("startupExecutor")
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        try {
+            run();
+        } catch (DataAccessException e) {
+            log.warn("Không tạo được ft_post_caption, tìm caption ở danh sách admin sẽ dùng LIKE: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Index đã có thì chỉ đánh dấu sẵn sàng; chưa có thì tạo khi admin.posts.fulltext-index-on-startup bật.
+     */
+    public void run() {
+        Integer indexes = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM information_schema.statistics WHERE table_schema = DATABASE() " +
+                "AND LOWER(table_name) = 'posts' AND index_name = 'ft_post_caption'", Integer.class);
+        if (indexes != null && indexes == 0) {
+            if (!enabled) {
+                log.warn("Chưa có ft_post_caption trên Posts, tìm caption ở danh sách admin sẽ dùng LIKE");
+                return;
+            }
+            long start = System.currentTimeMillis();
+            jdbcTemplate.execute("CREATE FULLTEXT INDEX ft_post_caption ON Posts (final_caption, generated_caption) WITH PARSER ngram");
+            log.info("Đã tạo ft_post_caption trên Posts trong {} ms", System.currentTimeMillis() - start);
+        }
+        ready = true;
+    }
+}
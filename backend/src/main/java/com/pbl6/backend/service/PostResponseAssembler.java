@@ -0,0 +1,133 @@
+package com.pbl6.backend.service;
+
+import com.pbl6.backend.model.Post;
+import com.pbl6.backend.model.PostReactionCount;
+import com.pbl6.backend.model.User;
+import com.pbl6.backend.repository.PostReactionCountRepository;
+import com.pbl6.backend.repository.PostRecipientRepository;
+import com.pbl6.backend.repository.UserRepository;
+import com.pbl6.backend.response.PostReactionResponse;
+import com.pbl6.backend.response.PostResponse;
+import com.pbl6.backend.response.UserResponse;
+import org.hibernate.Hibernate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Chuyển nhiều Post sang PostResponse cùng lúc.
+ * Recipients, tác giả (nếu chưa được fetch) và bộ đếm reaction được nạp bằng các query IN (...) theo lô,
+ * nên số query cố định bất kể số lượng post (tránh N+1 khi build feed / danh sách tin nhắn).
+ */
+@Component
+public class PostResponseAssembler {
+
+    private final PostRecipientRepository postRecipientRepository;
+    private final PostReactionCountRepository postReactionCountRepository;
+    private final UserRepository userRepository;
+
+    public PostResponseAssembler(PostRecipientRepository postRecipientRepository,
+            PostReactionCountRepository postReactionCountRepository,
+            UserRepository userRepository) {
+        this.postRecipientRepository = postRecipientRepository;
+        this.postReactionCountRepository = postReactionCountRepository;
+        this.userRepository = userRepository;
+    }
+
+    public PostResponse toResponse(Post post) {
+        return toResponses(List.of(post)).get(0);
+    }
+
+    /**
+     * @return danh sách PostResponse theo đúng thứ tự của {@code posts}
+     */
+    public List<PostResponse> toResponses(Collection<Post> posts) {
+        if (posts.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Set<String> postIds = new LinkedHashSet<>();
+        for (Post p : posts) {
+            postIds.add(p.getPostId());
+        }
+
+        Map<String, User> authors = loadAuthors(posts);
+
+        Map<String, List<UserResponse>> recipientsByPost = new HashMap<>();
+        for (Object[] row : postRecipientRepository.findRecipientsByPostIds(postIds)) {
+            recipientsByPost.computeIfAbsent((String) row[0], k -> new ArrayList<>())
+                    .add(toUserResponse((User) row[1]));
+        }
+
+        // Bộ đếm đã denormalize: một query cho cả trang, không đọc Post_Reactions
+        Map<String, Map<String, Long>> reactionCounts = new HashMap<>();
+        for (PostReactionCount c : postReactionCountRepository.findByPostIdIn(postIds)) {
+            if (c.getReactionCount() > 0) {
+                reactionCounts.computeIfAbsent(c.getPostId(), k -> new LinkedHashMap<>())
+                        .put(c.getEmojiType(), c.getReactionCount());
+            }
+        }
+
+        List<PostResponse> res = new ArrayList<>(posts.size());
+        for (Post post : posts) {
+            User author = authors.getOrDefault(post.getUser().getUserId(), post.getUser());
+            Map<String, Long> counts = reactionCounts.getOrDefault(post.getPostId(), new LinkedHashMap<>());
+            PostResponse r = new PostResponse(
+                    post.getPostId(),
+                    toUserResponse(author),
+                    post.getFinalCaption(),
+                    post.getMediaType().name(),
+                    post.getMediaUrl(),
+                    post.getCaptionStatus().name(),
+                    post.getCreatedAt(),
+                    recipientsByPost.getOrDefault(post.getPostId(), new ArrayList<>()),
+                    Collections.<PostReactionResponse>emptyList(),
+                    counts.values().stream().mapToLong(Long::longValue).sum());
+            r.setReactionCounts(counts);
+            res.add(r);
+        }
+        return res;
+    }
+
+    // Tác giả đã được JOIN FETCH thì dùng luôn, còn proxy thì nạp một lần bằng findAllById
+    private Map<String, User> loadAuthors(Collection<Post> posts) {
+        Map<String, User> authors = new HashMap<>();
+        Set<String> missing = new LinkedHashSet<>();
+        for (Post p : posts) {
+            User u = p.getUser();
+            if (Hibernate.isInitialized(u)) {
+                authors.put(u.getUserId(), u);
+            } else {
+                missing.add(u.getUserId());
+            }
+        }
+        missing.removeAll(authors.keySet());
+        if (!missing.isEmpty()) {
+            for (User u : userRepository.findAllById(missing)) {
+                authors.put(u.getUserId(), u);
+            }
+        }
+        return authors;
+    }
+
+    private UserResponse toUserResponse(User u) {
+        return new UserResponse(
+                u.getUserId(),
+                u.getUsername(),
+                u.getFullName(),
+                u.getPhoneNumber(),
+                null,
+                null,
+                u.getProfilePictureUrl(),
+                u.getAccountStatus().name(),
+                u.getSubscriptionStatus().name(),
+                u.getCreatedAt());
+    }
+}
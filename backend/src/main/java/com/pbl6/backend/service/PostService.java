@@ -1,10 +1,13 @@
 package com.pbl6.backend.service;
 
+import com.pbl6.backend.event.MetricsDeltaEvent;
+import com.pbl6.backend.event.PostChangedEvent;
 import com.pbl6.backend.model.Post;
 import com.pbl6.backend.model.PostReaction;
 import com.pbl6.backend.model.User;
 import com.pbl6.backend.repository.PostRepository;
 import com.pbl6.backend.repository.PostRecipientRepository;
+import com.pbl6.backend.repository.PostReactionCountRepository;
 import com.pbl6.backend.repository.PostReactionRepository;
 import com.pbl6.backend.repository.UserRepository;
 import com.pbl6.backend.request.AiCaptionInitRequest;
@@ -12,26 +15,32 @@ import com.pbl6.backend.request.PostDirectCreateRequest;
 import com.pbl6.backend.request.PostFinalizeRequest;
 import com.pbl6.backend.response.AiCaptionInitResponse;
 import com.pbl6.backend.response.CaptionStatusResponse;
-import com.pbl6.backend.response.PostReactionResponse;
 import com.pbl6.backend.response.PostResponse;
 // removed unused stats response
 import com.pbl6.backend.response.PostOwnReactionsResponse;
 import com.pbl6.backend.response.PostReactionsDetailedResponse;
 import com.pbl6.backend.response.PostUserReactions;
 import com.pbl6.backend.request.PostReactionRequest;
-import com.pbl6.backend.response.UserResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.Collections;
+import java.time.LocalDateTime;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -42,21 +51,46 @@ public class PostService {
     private final UserRepository userRepository;
     private final PostRecipientRepository postRecipientRepository;
     private final PostReactionRepository postReactionRepository;
+    private final PostReactionCountRepository postReactionCountRepository;
     private final AzureQueueService azureQueueService;
+    private final FeedService feedService;
+    private final PostResponseAssembler postResponseAssembler;
+    private final FeedPageCache feedPageCache;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ReactionWriteBuffer reactionWriteBuffer;
+    private final BlockList blockList;
 
     @Value("${server.port:8080}")
     private String serverPort;
 
+    // Đọc feed từ Feed_Entries (bật sau khi đã chạy backfill)
+    @Value("${feed.inbox.read-enabled:false}")
+    private boolean feedInboxReadEnabled;
+
     public PostService(PostRepository postRepository,
             UserRepository userRepository,
             PostRecipientRepository postRecipientRepository,
             AzureQueueService azureQueueService,
-            PostReactionRepository postReactionRepository) {
+            PostReactionRepository postReactionRepository,
+            PostReactionCountRepository postReactionCountRepository,
+            FeedService feedService,
+            PostResponseAssembler postResponseAssembler,
+            FeedPageCache feedPageCache,
+            ApplicationEventPublisher eventPublisher,
+            ReactionWriteBuffer reactionWriteBuffer,
+            BlockList blockList) {
         this.postRepository = postRepository;
         this.userRepository = userRepository;
         this.postRecipientRepository = postRecipientRepository;
         this.azureQueueService = azureQueueService;
         this.postReactionRepository = postReactionRepository;
+        this.postReactionCountRepository = postReactionCountRepository;
+        this.feedService = feedService;
+        this.postResponseAssembler = postResponseAssembler;
+        this.feedPageCache = feedPageCache;
+        this.eventPublisher = eventPublisher;
+        this.reactionWriteBuffer = reactionWriteBuffer;
+        this.blockList = blockList;
     }
 
     @Transactional
@@ -69,6 +103,7 @@ public class PostService {
         post.setCaptionStatus(Post.CaptionStatus.PENDING);
         
         post = postRepository.save(post);
+        eventPublisher.publishEvent(MetricsDeltaEvent.post(mediaType, null, Post.CaptionStatus.PENDING));
         log.info("✅ Created Post for AI caption | PostID: {} | MediaType: {} | Status: {}",
                 post.getPostId(), mediaType, Post.CaptionStatus.PENDING);
 
@@ -106,6 +141,7 @@ public class PostService {
     public void updateCaptionResult(String postId, boolean success, String caption, String errorMessage) {
         Post post = postRepository.findById(postId)
                 .orElseThrow(() -> new IllegalArgumentException("Post not found: " + postId));
+        Post.CaptionStatus previous = post.getCaptionStatus();
 
         if (success && caption != null) {
             post.setGeneratedCaption(caption);
@@ -119,6 +155,10 @@ public class PostService {
         }
 
         postRepository.save(post);
+        eventPublisher.publishEvent(MetricsDeltaEvent.post(post.getMediaType(), previous, post.getCaptionStatus()));
+        // Chỉ tác giả thấy post chưa finalize
+        eventPublisher.publishEvent(new PostChangedEvent(postId, post.getUser().getUserId(), Set.of(),
+                PostChangedEvent.Type.CAPTIONED));
     }
 
     /**
@@ -146,12 +186,18 @@ public class PostService {
         Post post = postRepository.findById(req.getPostId())
                 .orElseThrow(() -> new IllegalArgumentException("Không tìm thấy post với id=" + req.getPostId()));
 
+        Post.CaptionStatus previous = post.getCaptionStatus();
         post.setFinalCaption(req.getFinalCaption());
         post.setCaptionStatus(Post.CaptionStatus.COMPLETED);
         Post saved = postRepository.save(post);
-
-        // Cập nhật recipients nếu có
-        setRecipients(saved, req.getRecipientIds());
+        eventPublisher.publishEvent(MetricsDeltaEvent.post(saved.getMediaType(), previous, Post.CaptionStatus.COMPLETED));
+
+        // Cập nhật recipients nếu có, rồi fan-out vào feed; recipients cũ bị bỏ ra cũng phải làm mới feed
+        Set<String> previousRecipientIds = new LinkedHashSet<>(
+                postRecipientRepository.findRecipientIdsByPostId(saved.getPostId()));
+        List<User> recipients = setRecipients(saved, req.getRecipientIds());
+        feedService.fanOut(saved, recipients);
+        publishChanged(saved, recipients, previousRecipientIds, PostChangedEvent.Type.FINALIZED);
         log.info("Finalize Post: id={}, status={}, finalCaptionLength={}", saved.getPostId(), saved.getCaptionStatus(),
                 Optional.ofNullable(saved.getFinalCaption()).map(String::length).orElse(0));
         return saved;
@@ -167,9 +213,12 @@ public class PostService {
         post.setCaptionStatus(Post.CaptionStatus.COMPLETED);
 
         post = postRepository.save(post);
+        eventPublisher.publishEvent(MetricsDeltaEvent.post(mediaType, null, Post.CaptionStatus.COMPLETED));
 
-        // Lưu recipients nếu có
-        setRecipients(post, req.getRecipientIds());
+        // Lưu recipients nếu có, rồi fan-out vào feed
+        List<User> recipients = setRecipients(post, req.getRecipientIds());
+        feedService.fanOut(post, recipients);
+        publishChanged(post, recipients, PostChangedEvent.Type.CREATED);
         log.info("Create Direct Post: id={}, status={}, hasCaption={}", post.getPostId(), post.getCaptionStatus(),
                 post.getFinalCaption() != null);
         return post;
@@ -177,94 +226,73 @@ public class PostService {
 
     @Transactional
     public void deletePost(String postId) {
-        if (!postRepository.existsById(postId)) {
-            throw new IllegalArgumentException("Không tìm thấy post với id=" + postId);
-        }
+        Post post = postRepository.findById(postId)
+                .orElseThrow(() -> new IllegalArgumentException("Không tìm thấy post với id=" + postId));
+        Set<String> recipientIds = new LinkedHashSet<>(postRecipientRepository.findRecipientIdsByPostId(postId));
+        feedService.removePost(postId);
+        postReactionCountRepository.deleteByPostIds(List.of(postId));
         postRepository.deleteById(postId);
+        eventPublisher.publishEvent(new PostChangedEvent(postId, post.getUser().getUserId(), recipientIds,
+                PostChangedEvent.Type.DELETED));
+        eventPublisher.publishEvent(MetricsDeltaEvent.post(post.getMediaType(), post.getCaptionStatus(), null));
         log.info("Đã xóa Post id={}", postId);
     }
 
-    public PostResponse toResponse(Post post) {
-        User u = post.getUser();
-        UserResponse ur = new UserResponse(
-                u.getUserId(),
-                u.getUsername(),
-                u.getFullName(),
-                u.getPhoneNumber(),
-                null,
-                null,
-                u.getProfilePictureUrl(),
-                u.getAccountStatus().name(),
-                u.getSubscriptionStatus().name(),
-                u.getCreatedAt());
-
-        List<UserResponse> recipientResponses = new ArrayList<>();
-        try {
-            List<User> recipients = postRecipientRepository.findRecipientsByPost(post);
-            for (User r : recipients) {
-                recipientResponses.add(new UserResponse(
-                        r.getUserId(),
-                        r.getUsername(),
-                        r.getFullName(),
-                        r.getPhoneNumber(),
-                        null,
-                        null,
-                        r.getProfilePictureUrl(),
-                        r.getAccountStatus().name(),
-                        r.getSubscriptionStatus().name(),
-                        r.getCreatedAt()));
-            }
-        } catch (Exception e) {
-            log.warn("Không thể lấy recipients cho post {}: {}", post.getPostId(), e.getMessage());
-        }
+    private void publishChanged(Post post, List<User> recipients, PostChangedEvent.Type type) {
+        publishChanged(post, recipients, Collections.emptySet(), type);
+    }
 
-        return new PostResponse(
-                post.getPostId(),
-                ur,
-                post.getFinalCaption(),
-                post.getMediaType().name(),
-                post.getMediaUrl(),
-                post.getCaptionStatus().name(),
-                post.getCreatedAt(),
-                recipientResponses,
-                Collections.<PostReactionResponse>emptyList(),
-                0);
+    // alsoAffected: các user khác cũng cần làm mới feed (ví dụ recipients cũ trước khi đặt lại danh sách)
+    private void publishChanged(Post post, List<User> recipients, Set<String> alsoAffected, PostChangedEvent.Type type) {
+        Set<String> recipientIds = recipients.stream().map(User::getUserId)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        recipientIds.addAll(alsoAffected);
+        eventPublisher.publishEvent(new PostChangedEvent(post.getPostId(), post.getUser().getUserId(), recipientIds, type));
+    }
+
+    public PostResponse toResponse(Post post) {
+        return postResponseAssembler.toResponse(post);
     }
 
     /**
      * Lấy feed với cursor-based pagination (Lazy Loading + Infinite Scrolling).
      * Feed bao gồm: bài đăng của bản thân + bài được chia sẻ cho mình.
+     * Cursor là cặp (createdAt, postId) của post cũ nhất trong list hiện tại, được đẩy xuống SQL
+     * cùng LIMIT nên chi phí mỗi trang chỉ phụ thuộc vào pageSize. postId dùng để phân xử các post trùng createdAt.
+     * Trang đầu (không có cursor) được phục vụ từ {@link FeedPageCache}.
      * @param me người dùng hiện tại
      * @param beforePostId ID của post cũ nhất trong list hiện tại (cursor)
+     * @param beforeCreatedAt createdAt của post cũ nhất (optional; nếu thiếu sẽ tra theo beforePostId)
      * @param limit số lượng posts (default 20, max 50)
      * @return danh sách posts (cả của mình và được share), sắp xếp giảm dần theo thời gian (mới → cũ)
      */
     @Transactional(readOnly = true)
-    public List<PostResponse> getFeedWithPagination(User me, String beforePostId, Integer limit) {
+    public List<PostResponse> getFeedWithPagination(User me, String beforePostId, LocalDateTime beforeCreatedAt,
+            Integer limit) {
         // Validate và set default limit
         int pageSize = (limit == null || limit <= 0) ? 20 : Math.min(limit, 50);
+        Pageable page = PageRequest.of(0, pageSize);
 
         List<Post> posts;
         if (beforePostId != null && !beforePostId.isBlank()) {
-            // Load posts cũ hơn (scroll xuống) - Cursor-based
-            Post beforePost = postRepository.findById(beforePostId)
-                    .orElseThrow(() -> new IllegalArgumentException("Không tìm thấy post với id=" + beforePostId));
-            posts = postRepository.findPostsForUserBeforeTime(me, beforePost.getCreatedAt())
-                    .stream()
-                    .limit(pageSize)
-                    .collect(Collectors.toList());
+            // Load posts cũ hơn (scroll xuống) - Keyset (createdAt, postId)
+            LocalDateTime cursorTime = beforeCreatedAt != null
+                    ? beforeCreatedAt
+                    : postRepository.findCreatedAtByPostId(beforePostId)
+                            .orElseThrow(() -> new IllegalArgumentException("Không tìm thấy post với id=" + beforePostId));
+            posts = feedInboxReadEnabled
+                    ? feedService.readPage(me, cursorTime, beforePostId, pageSize)
+                    : postRepository.findPostsForUserBefore(me, cursorTime, beforePostId, page);
         } else {
-            // Load posts mới nhất - Initial load
-            posts = postRepository.findTopNPostsForUser(me)
-                    .stream()
-                    .limit(pageSize)
-                    .collect(Collectors.toList());
+            // Load posts mới nhất - Initial load (qua cache, bị xóa khi có PostChangedEvent)
+            return feedPageCache.getOrLoad(me.getUserId(), pageSize, () -> postResponseAssembler.toResponses(
+                    feedInboxReadEnabled
+                            ? feedService.readPage(me, null, null, pageSize)
+                            : postRepository.findTopNPostsForUser(me, page)));
         }
 
-        // Convert to response
-        return posts.stream()
-                .map(this::toResponse)
-                .collect(Collectors.toList());
+        // Convert to response (recipients, tác giả, reactions nạp theo lô)
+        return postResponseAssembler.toResponses(posts);
     }
 
     /**
@@ -289,7 +317,7 @@ public class PostService {
                 .sorted(Comparator.comparing(Post::getCreatedAt).reversed())
                 .collect(Collectors.toList());
 
-        return dedupSorted.stream().map(this::toResponse).collect(Collectors.toList());
+        return postResponseAssembler.toResponses(dedupSorted);
     }
 
     /**
@@ -300,11 +328,10 @@ public class PostService {
         User fromUser = userRepository.findByUsername(fromUsername)
                 .orElseThrow(() -> new IllegalArgumentException("Không tìm thấy người dùng: " + fromUsername));
 
-        List<Post> posts = postRepository.findPostsForRecipientFromSender(me, fromUser);
-        return posts.stream()
+        List<Post> posts = postRepository.findPostsForRecipientFromSender(me, fromUser).stream()
                 .sorted(Comparator.comparing(Post::getCreatedAt).reversed())
-                .map(this::toResponse)
                 .collect(Collectors.toList());
+        return postResponseAssembler.toResponses(posts);
     }
 
     private Post.MediaType parseMediaType(String mediaType) {
@@ -322,70 +349,112 @@ public class PostService {
                 + (mediaUrl.length() > 50 ? mediaUrl.substring(0, 50) + "..." : mediaUrl);
     }
 
-    private void setRecipients(Post post, List<String> recipientIds) {
+    /**
+     * Đặt lại danh sách recipients của post.
+     * @return recipients hiện tại của post (giữ nguyên danh sách cũ nếu recipientIds rỗng)
+     */
+    private List<User> setRecipients(Post post, List<String> recipientIds) {
         if (recipientIds == null || recipientIds.isEmpty()) {
-            return;
+            return postRecipientRepository.findRecipientsByPost(post);
         }
-        // Xóa recipients cũ để đặt lại danh sách
-        postRecipientRepository.deleteByPost(post);
-        int added = 0;
+        // Loại trùng / rỗng và người đang chặn (hoặc bị chặn bởi) tác giả, giữ thứ tự client gửi lên
+        String authorId = post.getUser().getUserId();
+        Set<String> ids = new LinkedHashSet<>();
         for (String rid : recipientIds) {
-            if (rid == null || rid.isBlank())
+            if (rid == null || rid.isBlank()) {
                 continue;
-            Optional<User> ru = userRepository.findById(rid);
-            if (ru.isEmpty()) {
-                log.warn("Bỏ qua recipientId không tồn tại: {}", rid);
+            }
+            if (blockList.isBlocked(authorId, rid)) {
+                log.warn("Bỏ qua recipientId đang chặn/bị chặn bởi tác giả: {}", rid);
                 continue;
             }
-            User recipient = ru.get();
-            if (postRecipientRepository.existsByPostAndRecipient(post, recipient)) {
+            ids.add(rid);
+        }
+        Map<String, User> found = new HashMap<>();
+        for (User u : userRepository.findAllById(ids)) {
+            found.put(u.getUserId(), u);
+        }
+
+        // Xóa recipients cũ để đặt lại danh sách, rồi chèn theo JDBC batch (hibernate.jdbc.batch_size)
+        postRecipientRepository.deleteAllByPostId(post.getPostId());
+        List<User> added = new ArrayList<>(ids.size());
+        List<com.pbl6.backend.model.PostRecipient> rows = new ArrayList<>(ids.size());
+        for (String rid : ids) {
+            User recipient = found.get(rid);
+            if (recipient == null) {
+                log.warn("Bỏ qua recipientId không tồn tại: {}", rid);
                 continue;
             }
-            postRecipientRepository.save(new com.pbl6.backend.model.PostRecipient(post, recipient));
-            added++;
+            rows.add(new com.pbl6.backend.model.PostRecipient(post, recipient));
+            added.add(recipient);
         }
-        log.info("Đã set {} recipients cho post {}", added, post.getPostId());
+        postRecipientRepository.saveAll(rows);
+        log.info("Đã set {} recipients cho post {}", added.size(), post.getPostId());
+        return added;
     }
 
     // --- Reactions ---
 
+    /**
+     * React một post. Quyền (không phải tác giả, là recipient) được kiểm tra bằng một query,
+     * các reaction hiện có của người dùng được đọc kèm khóa ghi để giới hạn 3 reaction đúng cả khi bấm đồng thời.
+     * Kết quả được dựng từ danh sách đã khóa, không đọc lại.
+     */
     @Transactional
     public PostOwnReactionsResponse reactToPost(User reactor, String postId, String emojiType) {
         String normalized = normalizeEmojiType(emojiType);
 
-        Post post = postRepository.findById(postId)
+        // Write-behind: trả lời từ bộ nhớ, ghi DB theo lô (quyền chỉ kiểm tra khi (post, user) chưa có trong buffer)
+        if (reactionWriteBuffer.isEnabled()) {
+            List<String> types = reactionWriteBuffer.react(postId, reactor.getUserId(), normalized,
+                    () -> checkCanReact(reactor, postId));
+            return new PostOwnReactionsResponse(postId, types);
+        }
+
+        checkCanReact(reactor, postId);
+
+        // FOR UPDATE trên tập reaction rỗng chỉ lấy gap lock (không loại trừ nhau): hai lần bấm đầu tiên cùng INSERT
+        // thì deadlock hoặc đụng unique key. Khóa dòng Users của người react trước để các lần react của cùng user
+        // chạy lần lượt; các user khác react cùng post không bị chặn.
+        userRepository.lockById(reactor.getUserId());
+        List<PostReaction> myReactions = new ArrayList<>(
+                postReactionRepository.findByPostIdAndUserIdForUpdate(postId, reactor.getUserId()));
+
+        // Nếu đã có reaction trùng loại bởi user trên post này -> no-op
+        boolean exists = myReactions.stream().anyMatch(r -> normalized.equals(r.getEmojiType()));
+        if (!exists) {
+            // Giới hạn tối đa 3 reaction cho mỗi (post, user): xóa reaction cũ nhất
+            if (myReactions.size() >= 3) {
+                PostReaction oldest = myReactions.remove(0);
+                postReactionRepository.deleteById(oldest.getReactionId());
+                postReactionCountRepository.decrement(postId, oldest.getEmojiType());
+            }
+
+            // Thêm reaction mới (unique (post_id, user_id, emoji_type) chặn trùng ở tầng DB)
+            PostReaction pr = new PostReaction(postRepository.getReferenceById(postId), reactor, normalized);
+            myReactions.add(postReactionRepository.save(pr));
+            postReactionCountRepository.increment(postId, normalized);
+        }
+
+        List<String> types = myReactions.stream()
+                .map(PostReaction::getEmojiType)
+                .collect(Collectors.toList());
+        return new PostOwnReactionsResponse(postId, types);
+    }
+
+    private void checkCanReact(User reactor, String postId) {
+        Object[] access = postRepository.findAuthorAndRecipientFlag(postId, reactor.getUserId()).stream()
+                .findFirst()
                 .orElseThrow(() -> new IllegalArgumentException("Không tìm thấy post với id=" + postId));
 
         // Không cho react bài post của chính mình
-        if (reactor.getUserId().equals(post.getUser().getUserId())) {
+        if (reactor.getUserId().equals(access[0])) {
             throw new RuntimeException("Bạn không thể react bài đăng của chính mình");
         }
         // Chỉ cho phép người nhận
-        boolean allowed = postRecipientRepository.existsByPostAndRecipient(post, reactor);
-        if (!allowed) {
+        if (((Number) access[1]).longValue() == 0) {
             throw new RuntimeException("Bạn không có quyền react bài đăng này");
         }
-
-        // Nếu đã có reaction trùng loại bởi user trên post này -> no-op, trả về reactions của chính người dùng
-        if (postReactionRepository.existsByPostAndUserAndEmojiType(post, reactor, normalized)) {
-            return getOwnReactionsForPost(reactor, postId);
-        }
-
-        // Giới hạn tối đa 3 reaction cho mỗi (post, user)
-        List<PostReaction> myReactions = postReactionRepository.findAllByPostAndUser(post, reactor);
-        if (myReactions.size() >= 3) {
-            // Xóa reaction cũ nhất
-            myReactions.stream()
-                    .sorted(java.util.Comparator.comparing(PostReaction::getCreatedAt))
-                    .findFirst()
-                    .ifPresent(old -> postReactionRepository.deleteById(old.getReactionId()));
-        }
-
-        // Thêm reaction mới
-        PostReaction pr = new PostReaction(post, reactor, normalized);
-        postReactionRepository.save(pr);
-
-        return getOwnReactionsForPost(reactor, postId);
     }
 
     // Removed owner stats endpoints per new requirements (chỉ hiển thị reaction của bản thân)
@@ -416,6 +485,12 @@ public class PostService {
             throw new RuntimeException("Bạn không có quyền xem reactions của mình trên bài đăng này");
         }
 
+        // Reaction còn nằm trong write-behind buffer mới là trạng thái hiện tại
+        List<String> buffered = reactionWriteBuffer.peek(postId, viewer.getUserId());
+        if (buffered != null) {
+            return new PostOwnReactionsResponse(post.getPostId(), buffered);
+        }
+
         List<PostReaction> myReactions = postReactionRepository.findAllByPostAndUser(post, viewer);
         java.util.List<String> types = myReactions.stream()
                 .sorted(java.util.Comparator.comparing(PostReaction::getCreatedAt))
@@ -0,0 +1,170 @@
+package com.pbl6.backend.service;
+
+import com.pbl6.backend.event.PostChangedEvent;
+import com.pbl6.backend.model.Post;
+import com.pbl6.backend.model.User;
+import com.pbl6.backend.repository.PostRepository;
+import com.pbl6.backend.response.PostSnippet;
+import com.pbl6.backend.response.PublicUserResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Cache LRU (giới hạn số entry, có TTL) cho {@link PostSnippet} theo postId, dùng khi build tin nhắn reply post.
+ * Trong một cuộc chat thường là cùng một vài post lặp lại, nên phần lớn lần đọc không chạm DB.
+ * Entry bị xóa khi post bị xóa / kiểm duyệt ({@link PostChangedEvent}, sau khi commit).
+ */
+@Component
+public class PostSnippetCache {
+
+    // Số stripe cho version chống race: load trước invalidate nhưng put sau invalidate
+    private static final int VERSION_STRIPES = 256;
+
+    private final PostRepository postRepository;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private final AtomicLongArray versions = new AtomicLongArray(VERSION_STRIPES);
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    @Value("${messages.post-snippet-cache.max-entries:10000}")
+    private int maxEntries;
+
+    // Giới hạn độ cũ của thông tin tác giả (tên, avatar) vì đổi profile không phát event
+    @Value("${messages.post-snippet-cache.ttl-seconds:600}")
+    private long ttlSeconds;
+
+    public PostSnippetCache(PostRepository postRepository) {
+        this.postRepository = postRepository;
+    }
+
+    /**
+     * Snippet cho các postId; phần chưa có trong cache được nạp bằng một query (post JOIN FETCH tác giả).
+     * @return map postId → snippet (post không tồn tại thì không có trong map)
+     */
+    public Map<String, PostSnippet> getAll(Collection<String> postIds) {
+        Map<String, PostSnippet> res = new HashMap<>();
+        Set<String> missing = new LinkedHashSet<>();
+        long now = System.nanoTime();
+        synchronized (this) {
+            for (String id : postIds) {
+                Entry e = entries.get(id);
+                if (e != null && now - e.expiresAtNanos < 0) {
+                    res.put(id, e.snippet);
+                } else {
+                    if (e != null) {
+                        entries.remove(id);
+                    }
+                    missing.add(id);
+                }
+            }
+        }
+        hits.addAndGet(res.size());
+        if (missing.isEmpty()) {
+            return res;
+        }
+        misses.addAndGet(missing.size());
+
+        Map<String, Long> loadVersions = new HashMap<>();
+        for (String id : missing) {
+            loadVersions.put(id, versions.get(stripe(id)));
+        }
+        Map<String, PostSnippet> loaded = new HashMap<>();
+        for (Post p : postRepository.findAllWithUserByPostIdIn(missing)) {
+            loaded.put(p.getPostId(), toSnippet(p));
+        }
+        res.putAll(loaded);
+
+        long expiresAt = System.nanoTime() + ttlSeconds * 1_000_000_000L;
+        synchronized (this) {
+            for (Map.Entry<String, PostSnippet> s : loaded.entrySet()) {
+                // Có invalidate xảy ra trong lúc load → snippet vừa load có thể đã cũ
+                if (versions.get(stripe(s.getKey())) == loadVersions.get(s.getKey())) {
+                    entries.put(s.getKey(), new Entry(s.getValue(), expiresAt));
+                }
+            }
+            while (entries.size() > maxEntries) {
+                Iterator<String> it = entries.keySet().iterator();
+                it.next();
+                it.remove();
+                evictions.incrementAndGet();
+            }
+        }
+        return res;
+    }
+
+    public PostSnippet get(String postId) {
+        return getAll(Set.of(postId)).get(postId);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPostChanged(PostChangedEvent event) {
+        if (event.getType() == PostChangedEvent.Type.DELETED
+                || event.getType() == PostChangedEvent.Type.MODERATED
+                || event.getType() == PostChangedEvent.Type.CAPTIONED) {
+            invalidate(event.getPostId());
+        }
+    }
+
+    public void invalidate(String postId) {
+        versions.incrementAndGet(stripe(postId));
+        synchronized (this) {
+            if (entries.remove(postId) != null) {
+                invalidations.incrementAndGet();
+            }
+        }
+    }
+
+    public synchronized Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("entries", entries.size());
+        stats.put("maxEntries", maxEntries);
+        stats.put("ttlSeconds", ttlSeconds);
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        stats.put("evictions", evictions.get());
+        stats.put("invalidations", invalidations.get());
+        return stats;
+    }
+
+    static PostSnippet toSnippet(Post p) {
+        User u = p.getUser();
+        PublicUserResponse author = new PublicUserResponse();
+        author.setUserId(u.getUserId());
+        author.setUsername(u.getUsername());
+        author.setFullName(u.getFullName());
+        author.setProfilePictureUrl(u.getProfilePictureUrl());
+        author.setCreatedAt(u.getCreatedAt());
+        if (Boolean.TRUE.equals(p.getIsDeleted())) {
+            return new PostSnippet(p.getPostId(), null, null, null, author, true);
+        }
+        return new PostSnippet(p.getPostId(), p.getMediaType().name(), p.getMediaUrl(), p.getFinalCaption(), author, false);
+    }
+
+    private static int stripe(String postId) {
+        return (postId.hashCode() & 0x7fffffff) % VERSION_STRIPES;
+    }
+
+    private static final class Entry {
+        final PostSnippet snippet;
+        final long expiresAtNanos;
+
+        Entry(PostSnippet snippet, long expiresAtNanos) {
+            this.snippet = snippet;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+    }
+}
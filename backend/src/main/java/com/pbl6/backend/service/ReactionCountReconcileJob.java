@@ -0,0 +1,46 @@
+package com.pbl6.backend.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Dựng lại Post_Reaction_Counts từ Post_Reactions theo lịch, mỗi batch một transaction.
+ * Sửa các lệch do lỗi giữa chừng và khởi tạo bộ đếm cho reaction có từ trước.
+ */
+@Component
+public class ReactionCountReconcileJob {
+    private static final Logger log = LoggerFactory.getLogger(ReactionCountReconcileJob.class);
+
+    private final ReactionCountService reactionCountService;
+
+    @Value("${reactions.reconcile.enabled:true}")
+    private boolean enabled;
+
+    @Value("${reactions.reconcile.batch-size:500}")
+    private int batchSize;
+
+    public ReactionCountReconcileJob(ReactionCountService reactionCountService) {
+        this.reactionCountService = reactionCountService;
+    }
+
+    @Scheduled(cron = "${reactions.reconcile.cron:0 30 3 * * *}")
+    public void onSchedule() {
+        if (enabled) {
+            run();
+        }
+    }
+
+    public void run() {
+        log.info("Bắt đầu đối soát Post_Reaction_Counts (batchSize={})", batchSize);
+        long batches = 0;
+        String cursor = null;
+        do {
+            cursor = reactionCountService.reconcileBatch(cursor, batchSize);
+            batches++;
+        } while (cursor != null);
+        log.info("Hoàn tất đối soát Post_Reaction_Counts sau {} batch", batches - 1);
+    }
+}
@@ -0,0 +1,47 @@
+package com.pbl6.backend.service;
+
+import com.pbl6.backend.repository.PostReactionCountRepository;
+import com.pbl6.backend.repository.PostRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Đối soát Post_Reaction_Counts với Post_Reactions (nguồn dữ liệu gốc).
+ */
+@Service
+public class ReactionCountService {
+    private static final Logger log = LoggerFactory.getLogger(ReactionCountService.class);
+
+    private final PostRepository postRepository;
+    private final PostReactionCountRepository postReactionCountRepository;
+
+    public ReactionCountService(PostRepository postRepository,
+            PostReactionCountRepository postReactionCountRepository) {
+        this.postRepository = postRepository;
+        this.postReactionCountRepository = postReactionCountRepository;
+    }
+
+    /**
+     * Dựng lại bộ đếm cho một batch post (theo postId tăng dần, sau {@code afterPostId}) bằng upsert
+     * INSERT ... SELECT ... GROUP BY ngay trên DB, không đọc số đếm lên rồi ghi lại.
+     * @return postId cuối cùng của batch, hoặc null khi đã hết
+     */
+    @Transactional
+    public String reconcileBatch(String afterPostId, int batchSize) {
+        List<String> postIds = postRepository.findPostIdsAfter(afterPostId != null ? afterPostId : "",
+                PageRequest.of(0, batchSize));
+        if (postIds.isEmpty()) {
+            return null;
+        }
+
+        int upserted = postReactionCountRepository.recountByPostIds(postIds);
+        int removed = postReactionCountRepository.deleteOrphanedByPostIds(postIds);
+        log.debug("Đối soát reaction counts: {} posts, upsert {} dòng, xóa {} dòng", postIds.size(), upserted, removed);
+        return postIds.get(postIds.size() - 1);
+    }
+}
@@ -0,0 +1,47 @@
+package com.pbl6.backend.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Nới cột emoji_type của Post_Reactions và Post_Reaction_Counts lên {@link #EMOJI_TYPE_LENGTH} ký tự.
+ * ddl-auto=update không đổi độ dài cột đã có, nên DB tạo từ trước vẫn là VARCHAR(10) và từ chối
+ * emoji tên dài như "heart_broken" ở strict mode. Chạy lại không làm gì khi cột đã đủ rộng.
+ */
+@Component
+public class ReactionEmojiColumnMigrationJob {
+    private static final Logger log = LoggerFactory.getLogger(ReactionEmojiColumnMigrationJob.class);
+
+    static final int EMOJI_TYPE_LENGTH = 32;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ReactionEmojiColumnMigrationJob(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        try {
+            widen("Post_Reactions");
+            widen("Post_Reaction_Counts");
+        } catch (DataAccessException e) {
+            log.warn("Không nới được cột emoji_type: {}", e.getMessage());
+        }
+    }
+
+    private void widen(String table) {
+        Integer length = jdbcTemplate.queryForObject(
+                "SELECT MAX(character_maximum_length) FROM information_schema.columns WHERE table_schema = DATABASE() " +
+                "AND LOWER(table_name) = LOWER(?) AND column_name = 'emoji_type'", Integer.class, table);
+        if (length != null && length < EMOJI_TYPE_LENGTH) {
+            jdbcTemplate.execute("ALTER TABLE " + table + " MODIFY emoji_type VARCHAR(" + EMOJI_TYPE_LENGTH + ") NOT NULL");
+            log.info("Đã nới {}.emoji_type từ {} lên {} ký tự", table, length, EMOJI_TYPE_LENGTH);
+        }
+    }
+}
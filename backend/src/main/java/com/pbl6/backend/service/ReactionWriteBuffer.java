@@ -0,0 +1,399 @@
+package com.pbl6.backend.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.NonTransientDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Chế độ write-behind cho reactToPost (bật bằng {@code reactions.write-behind.enabled=true}).
+ * Trạng thái reaction của từng (post, user) được giữ trong bộ nhớ và trả lời ngay; định kỳ các thay đổi ròng
+ * (so với lần ghi trước) được ghi xuống Post_Reactions và Post_Reaction_Counts bằng JDBC batch trong một transaction.
+ * Bộ đếm của các (post, emoji) bị đụng tới được đếm lại từ Post_Reactions trong cùng transaction, nên ghi lại sau lỗi
+ * không cộng trùng. Nhiều lần bấm liên tiếp trên cùng một post chỉ tạo ra một lần ghi. Buffer được flush khi shutdown
+ * và khi vượt {@code reactions.write-behind.max-entries}.
+ */
+@Component
+public class ReactionWriteBuffer {
+    private static final Logger log = LoggerFactory.getLogger(ReactionWriteBuffer.class);
+
+    private static final int MAX_REACTIONS_PER_USER = 3;
+
+    private static final String SELECT_REACTIONS =
+            "SELECT emoji_type, created_at FROM Post_Reactions WHERE post_id = ? AND user_id = ? ORDER BY created_at";
+    // Không dùng INSERT IGNORE: lỗi FK / độ dài phải nổi lên để cô lập entry hỏng, trùng khóa chỉ cập nhật createdAt
+    private static final String INSERT_REACTION =
+            "INSERT INTO Post_Reactions (reaction_id, post_id, user_id, emoji_type, created_at) VALUES (?, ?, ?, ?, ?) "
+                    + "ON DUPLICATE KEY UPDATE created_at = VALUES(created_at)";
+    private static final String DELETE_REACTION =
+            "DELETE FROM Post_Reactions WHERE post_id = ? AND user_id = ? AND emoji_type = ?";
+    // Đếm lại từ các dòng thực sự có trong Post_Reactions (COUNT không GROUP BY luôn ra một dòng, kể cả 0)
+    private static final String RECOUNT =
+            "INSERT INTO Post_Reaction_Counts (post_id, emoji_type, reaction_count) "
+                    + "SELECT ?, ?, COUNT(*) FROM Post_Reactions WHERE post_id = ? AND emoji_type = ? "
+                    + "ON DUPLICATE KEY UPDATE reaction_count = VALUES(reaction_count)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Map<Key, State> states = new ConcurrentHashMap<>();
+
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong flushedInserts = new AtomicLong();
+    private final AtomicLong flushedDeletes = new AtomicLong();
+    private final AtomicLong coalescedTaps = new AtomicLong();
+    private final AtomicLong droppedEntries = new AtomicLong();
+    private volatile long lastFlushLagMs;
+    private volatile long lastFlushDurationMs;
+
+    @Value("${reactions.write-behind.enabled:false}")
+    private boolean enabled;
+
+    @Value("${reactions.write-behind.max-entries:100000}")
+    private int maxEntries;
+
+    public ReactionWriteBuffer(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // Flush do chạm giới hạn chạy trên luồng request (trong transaction của reactToPost): luôn tách transaction riêng
+        // để request rollback không kéo theo dữ liệu của user khác mà buffer đã coi là đã ghi
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Áp dụng một reaction vào trạng thái trong bộ nhớ (giới hạn 3, xóa cũ nhất) và trả về các emoji hiện tại.
+     * @param permissionCheck chỉ chạy lần đầu (post, user) được nạp vào buffer, trước mọi flush
+     */
+    public List<String> react(String postId, String userId, String emojiType, Runnable permissionCheck) {
+        Key key = new Key(postId, userId);
+        boolean checked = false;
+        if (!states.containsKey(key)) {
+            permissionCheck.run();
+            checked = true;
+        }
+        if (states.size() >= maxEntries) {
+            flush(true);
+        }
+        while (true) {
+            State state = states.get(key);
+            if (state == null) {
+                if (!checked) {
+                    permissionCheck.run();
+                    checked = true;
+                }
+                State loaded = load(key);
+                state = states.putIfAbsent(key, loaded);
+                if (state == null) {
+                    state = loaded;
+                }
+            }
+            synchronized (state) {
+                if (state.removed) {
+                    continue;
+                }
+                if (state.current.containsKey(emojiType)) {
+                    return new ArrayList<>(state.current.keySet());
+                }
+                if (state.current.size() >= MAX_REACTIONS_PER_USER) {
+                    String oldest = state.current.keySet().iterator().next();
+                    state.current.remove(oldest);
+                }
+                state.current.put(emojiType, LocalDateTime.now());
+                if (state.dirtySinceMs == 0) {
+                    state.dirtySinceMs = System.currentTimeMillis();
+                } else {
+                    coalescedTaps.incrementAndGet();
+                }
+                return new ArrayList<>(state.current.keySet());
+            }
+        }
+    }
+
+    /**
+     * Emoji hiện tại của user trên post nếu (post, user) đang nằm trong buffer, ngược lại null.
+     */
+    public List<String> peek(String postId, String userId) {
+        State state = states.get(new Key(postId, userId));
+        if (state == null) {
+            return null;
+        }
+        synchronized (state) {
+            return state.removed ? null : new ArrayList<>(state.current.keySet());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${reactions.write-behind.flush-interval-ms:500}")
+    public void scheduledFlush() {
+        if (enabled) {
+            flush(false);
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        if (!states.isEmpty()) {
+            log.info("Flush reaction buffer trước khi tắt ({} entries)", states.size());
+            flush(true);
+        }
+    }
+
+    /**
+     * Ghi các thay đổi ròng xuống DB. Entry đã sạch từ lần flush trước được bỏ khỏi buffer
+     * (giữ lại một chu kỳ để gộp các lần bấm tiếp theo).
+     * Lỗi tạm thời (mất kết nối, timeout...): cả batch được đánh dấu bẩn lại để lần sau thử lại.
+     * Lỗi dữ liệu (FK, quá độ dài...): ghi lại từng entry một để cô lập; entry vẫn lỗi bị bỏ khỏi buffer
+     * (lần bấm sau nạp lại từ DB) thay vì làm hỏng mọi lần flush về sau.
+     * @param evictFlushed bỏ luôn các entry vừa ghi xong (khi chạm giới hạn bộ nhớ hoặc shutdown)
+     */
+    public synchronized void flush(boolean evictFlushed) {
+        long start = System.currentTimeMillis();
+        long oldestDirty = Long.MAX_VALUE;
+        List<Snapshot> snapshots = new ArrayList<>();
+
+        for (Map.Entry<Key, State> e : states.entrySet()) {
+            Key key = e.getKey();
+            State state = e.getValue();
+            synchronized (state) {
+                if (state.dirtySinceMs == 0) {
+                    // Sạch từ lần flush trước → bỏ khỏi bộ nhớ
+                    state.removed = true;
+                    states.remove(key, state);
+                    continue;
+                }
+                oldestDirty = Math.min(oldestDirty, state.dirtySinceMs);
+                Snapshot snapshot = new Snapshot(state, state.persisted, state.dirtySinceMs);
+                // Emoji bị xóa rồi bấm lại có createdAt mới → ghi lại để giữ đúng thứ tự "cũ nhất" trong DB
+                for (Map.Entry<String, LocalDateTime> r : state.current.entrySet()) {
+                    if (!r.getValue().equals(state.persisted.get(r.getKey()))) {
+                        snapshot.inserts.add(new Object[]{UUID.randomUUID().toString(), key.postId, key.userId, r.getKey(),
+                                Timestamp.valueOf(r.getValue())});
+                        snapshot.touched.add(r.getKey());
+                    }
+                }
+                for (Map.Entry<String, LocalDateTime> p : state.persisted.entrySet()) {
+                    String emoji = p.getKey();
+                    if (!p.getValue().equals(state.current.get(emoji))) {
+                        snapshot.deletes.add(new Object[]{key.postId, key.userId, emoji});
+                        snapshot.touched.add(emoji);
+                    }
+                }
+                snapshots.add(snapshot);
+                state.persisted = new LinkedHashMap<>(state.current);
+                state.dirtySinceMs = 0;
+            }
+        }
+        if (snapshots.isEmpty()) {
+            return;
+        }
+
+        List<Snapshot> written = snapshots;
+        try {
+            writeInTransaction(snapshots);
+        } catch (NonTransientDataAccessException ex) {
+            log.warn("Flush reaction buffer lỗi dữ liệu, ghi lại từng entry ({} entries): {}", snapshots.size(), ex.getMessage());
+            written = new ArrayList<>();
+            for (Snapshot s : snapshots) {
+                try {
+                    writeInTransaction(List.of(s));
+                    written.add(s);
+                } catch (NonTransientDataAccessException entryEx) {
+                    log.error("Bỏ reaction không ghi được: post={}, user={}", s.state.key.postId, s.state.key.userId, entryEx);
+                    drop(s);
+                } catch (RuntimeException entryEx) {
+                    restore(s);
+                }
+            }
+        } catch (RuntimeException ex) {
+            log.error("Flush reaction buffer thất bại, sẽ thử lại ({} entries)", snapshots.size(), ex);
+            snapshots.forEach(ReactionWriteBuffer::restore);
+            return;
+        }
+
+        if (evictFlushed) {
+            for (Snapshot s : written) {
+                synchronized (s.state) {
+                    if (s.state.dirtySinceMs == 0) {
+                        s.state.removed = true;
+                        states.remove(s.state.key, s.state);
+                    }
+                }
+            }
+        }
+
+        long now = System.currentTimeMillis();
+        int inserts = 0;
+        int deletes = 0;
+        for (Snapshot s : written) {
+            inserts += s.inserts.size();
+            deletes += s.deletes.size();
+        }
+        flushes.incrementAndGet();
+        flushedInserts.addAndGet(inserts);
+        flushedDeletes.addAndGet(deletes);
+        lastFlushLagMs = now - oldestDirty;
+        lastFlushDurationMs = now - start;
+        log.debug("Flush reaction buffer: {} insert, {} delete, lag {} ms", inserts, deletes, lastFlushLagMs);
+    }
+
+    private void writeInTransaction(List<Snapshot> snapshots) {
+        transactionTemplate.executeWithoutResult(status -> write(snapshots));
+    }
+
+    private void write(List<Snapshot> snapshots) {
+        List<Object[]> inserts = new ArrayList<>();
+        List<Object[]> deletes = new ArrayList<>();
+        Set<List<String>> touched = new LinkedHashSet<>();
+        for (Snapshot s : snapshots) {
+            inserts.addAll(s.inserts);
+            deletes.addAll(s.deletes);
+            for (String emoji : s.touched) {
+                touched.add(List.of(s.state.key.postId, emoji));
+            }
+        }
+        if (!deletes.isEmpty()) {
+            jdbcTemplate.batchUpdate(DELETE_REACTION, deletes);
+        }
+        if (!inserts.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_REACTION, inserts);
+        }
+        List<Object[]> recounts = new ArrayList<>();
+        for (List<String> pair : touched) {
+            recounts.add(new Object[]{pair.get(0), pair.get(1), pair.get(0), pair.get(1)});
+        }
+        if (!recounts.isEmpty()) {
+            jdbcTemplate.batchUpdate(RECOUNT, recounts);
+        }
+    }
+
+    // Ghi lỗi tạm thời: khôi phục trạng thái đã ghi và đánh dấu bẩn lại để lần flush sau thử tiếp
+    private static void restore(Snapshot s) {
+        synchronized (s.state) {
+            s.state.persisted = s.persisted;
+            s.state.dirtySinceMs = s.state.dirtySinceMs == 0
+                    ? s.dirtySinceMs
+                    : Math.min(s.dirtySinceMs, s.state.dirtySinceMs);
+        }
+    }
+
+    private void drop(Snapshot s) {
+        synchronized (s.state) {
+            s.state.removed = true;
+            states.remove(s.state.key, s.state);
+        }
+        droppedEntries.incrementAndGet();
+    }
+
+    private State load(Key key) {
+        LinkedHashMap<String, LocalDateTime> persisted = new LinkedHashMap<>();
+        jdbcTemplate.query(SELECT_REACTIONS,
+                rs -> {
+                    persisted.put(rs.getString(1), rs.getTimestamp(2).toLocalDateTime());
+                },
+                key.postId, key.userId);
+        return new State(key, persisted);
+    }
+
+    public Map<String, Object> stats() {
+        long now = System.currentTimeMillis();
+        long oldestDirty = 0;
+        int dirty = 0;
+        for (State s : states.values()) {
+            long since = s.dirtySinceMs;
+            if (since != 0) {
+                dirty++;
+                oldestDirty = oldestDirty == 0 ? since : Math.min(oldestDirty, since);
+            }
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("entries", states.size());
+        stats.put("dirtyEntries", dirty);
+        stats.put("maxEntries", maxEntries);
+        stats.put("flushLagMs", oldestDirty == 0 ? 0 : now - oldestDirty);
+        stats.put("lastFlushLagMs", lastFlushLagMs);
+        stats.put("lastFlushDurationMs", lastFlushDurationMs);
+        stats.put("flushes", flushes.get());
+        stats.put("flushedInserts", flushedInserts.get());
+        stats.put("flushedDeletes", flushedDeletes.get());
+        stats.put("coalescedTaps", coalescedTaps.get());
+        stats.put("droppedEntries", droppedEntries.get());
+        return stats;
+    }
+
+    private static final class Key {
+        final String postId;
+        final String userId;
+
+        Key(String postId, String userId) {
+            this.postId = postId;
+            this.userId = userId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key k = (Key) o;
+            return postId.equals(k.postId) && userId.equals(k.userId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(postId, userId);
+        }
+    }
+
+    // Trạng thái của một (post, user): emoji hiện tại và emoji đã có trong DB, theo thứ tự createdAt
+    private static final class State {
+        final Key key;
+        LinkedHashMap<String, LocalDateTime> current;
+        LinkedHashMap<String, LocalDateTime> persisted;
+        volatile long dirtySinceMs;
+        boolean removed;
+
+        State(Key key, LinkedHashMap<String, LocalDateTime> persisted) {
+            this.key = key;
+            this.persisted = persisted;
+            this.current = new LinkedHashMap<>(persisted);
+        }
+    }
+
+    // Trạng thái trước lần flush (để khôi phục khi lỗi) và các câu lệnh của entry này
+    private static final class Snapshot {
+        final State state;
+        final LinkedHashMap<String, LocalDateTime> persisted;
+        final long dirtySinceMs;
+        final List<Object[]> inserts = new ArrayList<>();
+        final List<Object[]> deletes = new ArrayList<>();
+        final Set<String> touched = new LinkedHashSet<>();
+
+        Snapshot(State state, LinkedHashMap<String, LocalDateTime> persisted, long dirtySinceMs) {
+            this.state = state;
+            this.persisted = persisted;
+            this.dirtySinceMs = dirtySinceMs;
+        }
+    }
+}
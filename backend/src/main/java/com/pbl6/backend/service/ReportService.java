@@ -1,5 +1,6 @@
 package com.pbl6.backend.service;
 
+import com.pbl6.backend.event.MetricsDeltaEvent;
 import com.pbl6.backend.model.ModerationReport;
 import com.pbl6.backend.model.Post;
 import com.pbl6.backend.model.User;
@@ -8,6 +9,7 @@ import com.pbl6.backend.repository.PostRepository;
 import com.pbl6.backend.repository.UserRepository;
 import com.pbl6.backend.response.ReportResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -27,6 +29,9 @@ public class ReportService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     @Transactional
     public ReportResponse createReport(User reporter, String reportedPostId, String reportedUserId, String reason) {
         if (reportedPostId == null && reportedUserId == null) {
@@ -61,6 +66,7 @@ public class ReportService {
         }
 
         report = reportRepository.save(report);
+        eventPublisher.publishEvent(MetricsDeltaEvent.report(null, report.getStatus()));
         return new ReportResponse(report);
     }
 
@@ -92,6 +98,7 @@ public class ReportService {
         }
 
         ModerationReport report = reportOpt.get();
+        ModerationReport.ReportStatus previous = report.getStatus();
         
         if ("RESOLVED".equalsIgnoreCase(action)) {
             report.setStatus(ModerationReport.ReportStatus.RESOLVED);
@@ -105,6 +112,7 @@ public class ReportService {
         report.setResolvedAt(java.time.LocalDateTime.now());
 
         report = reportRepository.save(report);
+        eventPublisher.publishEvent(MetricsDeltaEvent.report(previous, report.getStatus()));
         return new ReportResponse(report);
     }
 
@@ -0,0 +1,689 @@
+package com.pbl6.backend.service;
+
+import com.pbl6.backend.event.UserChangedEvent;
+import com.pbl6.backend.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Chỉ mục tìm kiếm user (họ tên + username) trong bộ nhớ, thay cho {@code LIKE '%q%'} quét cả bảng Users.
+ * Văn bản được chuẩn hóa: bỏ dấu tiếng Việt (NFD, bỏ dấu kết hợp, đ → d), chữ thường, tách từ theo ký tự
+ * không phải chữ/số. Mỗi từ được đánh trigram trên {@code ^từ$} cộng một khóa chữ cái đầu {@code ^x},
+ * posting list là mảng int docId đã sắp xếp.
+ * <ul>
+ *     <li>Từ khóa ≥ 3 ký tự: khớp chuỗi con của một từ (giao các trigram của từ khóa).</li>
+ *     <li>Từ khóa 2 ký tự: khớp đầu từ (trigram {@code ^xy}), phục vụ gõ tới đâu gợi ý tới đó.</li>
+ *     <li>Từ khóa 1 ký tự: khớp đầu từ qua khóa {@code ^x}, chỉ dùng để lọc thêm, không tự đứng một mình.</li>
+ * </ul>
+ * Ứng viên được xác nhận lại trên văn bản đã chuẩn hóa rồi xếp hạng (trùng từ > đầu từ > chuỗi con,
+ * cộng điểm khi trùng username), giữ top-K bằng heap. Với từ khóa quá phổ biến (ví dụ "nguyen") chỉ chấm
+ * điểm tối đa {@code users.search-index.max-candidates} ứng viên đầu tiên và đánh dấu kết quả là truncated.
+ * Dựng từ Users khi khởi động, sau đó cập nhật theo {@link UserChangedEvent}. Trước khi dựng xong người gọi tự đọc DB.
+ */
+@Component
+public class UserSearchIndex {
+    private static final Logger log = LoggerFactory.getLogger(UserSearchIndex.class);
+
+    private static final char BEGIN = '\u0001';
+    private static final char END = '\u0002';
+    private static final int MAX_QUERY_TOKENS = 8;
+    private static final int MAX_TEXT_LENGTH = 1023;
+
+    private final UserRepository userRepository;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // docId → userId / văn bản đã chuẩn hóa (các từ cách nhau một dấu cách) / username bỏ dấu phân cách; null nếu đã xóa
+    private String[] userIds = new String[1024];
+    private String[] texts = new String[1024];
+    private String[] usernameKeys = new String[1024];
+    private int docCount;
+    private final Map<String, Integer> docByUser = new HashMap<>();
+    private final Map<Long, Postings> postings = new HashMap<>();
+    private long postingEntries;
+
+    private volatile boolean ready;
+    private List<UserChangedEvent> pendingDuringBuild;
+
+    private final AtomicLong queries = new AtomicLong();
+    private final AtomicLong truncatedQueries = new AtomicLong();
+    private final AtomicLong queryNanos = new AtomicLong();
+
+    @Value("${users.search-index.max-candidates:5000}")
+    private int maxCandidates;
+
+    @Value("${users.search-index.build-batch-size:5000}")
+    private int batchSize;
+
+    public UserSearchIndex(UserRepository userRepository) {
+        this.userRepository = userRepository;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    @Async("startupExecutor")
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        build();
+    }
+
+    /**
+     * Đọc (userId, username, fullName) của toàn bộ Users theo keyset userId; sự kiện nhận được trong lúc dựng được phát lại sau cùng.
+     */
+    public void build() {
+        long start = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try {
+            pendingDuringBuild = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        try {
+            String after = "";
+            while (true) {
+                List<Object[]> rows = userRepository.findSearchRowsAfter(after, PageRequest.of(0, batchSize));
+                lock.writeLock().lock();
+                try {
+                    for (Object[] row : rows) {
+                        put((String) row[0], (String) row[1], (String) row[2]);
+                    }
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                if (rows.size() < batchSize) {
+                    break;
+                }
+                after = (String) rows.get(rows.size() - 1)[0];
+            }
+        } finally {
+            lock.writeLock().lock();
+            try {
+                if (pendingDuringBuild != null) {
+                    for (UserChangedEvent e : pendingDuringBuild) {
+                        apply(e);
+                    }
+                }
+                pendingDuringBuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        ready = true;
+        log.info("Dựng chỉ mục tìm kiếm user: {} user, {} trigram trong {} ms",
+                docByUser.size(), postings.size(), System.currentTimeMillis() - start);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            apply(event);
+            if (pendingDuringBuild != null) {
+                pendingDuringBuild.add(event);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Gọi khi giữ write lock
+    private void apply(UserChangedEvent event) {
+        if (event.getType() == UserChangedEvent.Type.DELETED) {
+            remove(event.getUserId());
+        } else {
+            put(event.getUserId(), event.getUsername(), event.getFullName());
+        }
+    }
+
+    private void put(String userId, String username, String fullName) {
+        String text = joinWords(fullName, username);
+        Integer existing = docByUser.get(userId);
+        int doc;
+        if (existing != null) {
+            doc = existing;
+            if (text.equals(texts[doc])) {
+                usernameKeys[doc] = usernameKey(username);
+                return;
+            }
+            unindex(doc);
+        } else {
+            doc = docCount++;
+            if (doc == userIds.length) {
+                int capacity = userIds.length * 2;
+                userIds = Arrays.copyOf(userIds, capacity);
+                texts = Arrays.copyOf(texts, capacity);
+                usernameKeys = Arrays.copyOf(usernameKeys, capacity);
+            }
+            userIds[doc] = userId;
+            docByUser.put(userId, doc);
+        }
+        texts[doc] = text;
+        usernameKeys[doc] = usernameKey(username);
+        for (long gram : documentGrams(text)) {
+            Postings p = postings.computeIfAbsent(gram, g -> new Postings());
+            p.add(doc);
+            p.densifyIfNeeded(docCount);
+            postingEntries++;
+        }
+    }
+
+    private void remove(String userId) {
+        Integer doc = docByUser.remove(userId);
+        if (doc == null) {
+            return;
+        }
+        unindex(doc);
+        userIds[doc] = null;
+        texts[doc] = null;
+        usernameKeys[doc] = null;
+    }
+
+    private void unindex(int doc) {
+        for (long gram : documentGrams(texts[doc])) {
+            Postings p = postings.get(gram);
+            if (p != null && p.remove(doc)) {
+                postingEntries--;
+                if (p.size == 0) {
+                    postings.remove(gram);
+                }
+            }
+        }
+    }
+
+    /**
+     * Tìm user theo họ tên / username, đã xếp hạng.
+     * @param offset số kết quả bỏ qua (phân trang)
+     * @param limit số kết quả tối đa trả về
+     */
+    public Result search(String query, int offset, int limit) {
+        long start = System.nanoTime();
+        String[] tokens = tokens(query);
+        long[] grams = queryGrams(tokens);
+        if (!hasSearchableToken(tokens) || limit <= 0 || offset < 0) {
+            return Result.EMPTY;
+        }
+        String compactQuery = String.join("", tokens);
+        int k = (int) Math.min((long) offset + limit, maxCandidates);
+        if (k <= offset) {
+            return Result.EMPTY;
+        }
+
+        lock.readLock().lock();
+        try {
+            Postings[] lists = new Postings[grams.length];
+            for (int i = 0; i < grams.length; i++) {
+                lists[i] = postings.get(grams[i]);
+                if (lists[i] == null) {
+                    return Result.EMPTY;
+                }
+            }
+            Arrays.sort(lists, (a, b) -> Integer.compare(a.size, b.size));
+            TopK top = new TopK(k, maxCandidates);
+            if (allDense(lists)) {
+                // AND từng word 64 bit của các bitmap, duyệt bit còn lại theo docId tăng dần
+                int words = Integer.MAX_VALUE;
+                for (Postings l : lists) {
+                    words = Math.min(words, l.bits.length);
+                }
+                scan:
+                for (int w = 0; w < words; w++) {
+                    long x = lists[0].bits[w];
+                    for (int j = 1; j < lists.length && x != 0; j++) {
+                        x &= lists[j].bits[w];
+                    }
+                    while (x != 0) {
+                        int doc = (w << 6) + Long.numberOfTrailingZeros(x);
+                        x &= x - 1;
+                        if (!offer(top, doc, tokens, compactQuery)) {
+                            break scan;
+                        }
+                    }
+                }
+            } else {
+                // Duyệt list ngắn nhất; list dày thì thử bit, list thưa thì nhảy con trỏ
+                int[] cursors = new int[lists.length];
+                Postings shortest = lists[0];
+                candidates:
+                for (int i = 0; i < shortest.size; i++) {
+                    int doc = shortest.ids[i];
+                    for (int j = 1; j < lists.length; j++) {
+                        Postings l = lists[j];
+                        if (l.bits != null) {
+                            if (!l.contains(doc)) {
+                                continue candidates;
+                            }
+                            continue;
+                        }
+                        int pos = l.lowerBound(doc, cursors[j]);
+                        cursors[j] = pos;
+                        if (pos == l.size) {
+                            break candidates;
+                        }
+                        if (l.ids[pos] != doc) {
+                            continue candidates;
+                        }
+                    }
+                    if (!offer(top, doc, tokens, compactQuery)) {
+                        break;
+                    }
+                }
+            }
+
+            long[] ranked = Arrays.copyOf(top.heap, top.size);
+            Arrays.sort(ranked);
+            List<String> page = new ArrayList<>(Math.max(0, Math.min(limit, top.size - offset)));
+            for (int i = top.size - 1 - offset; i >= 0 && page.size() < limit; i--) {
+                page.add(userIds[docOf(ranked[i])]);
+            }
+            if (top.truncated) {
+                truncatedQueries.incrementAndGet();
+            }
+            return new Result(page, top.matched, top.truncated);
+        } finally {
+            lock.readLock().unlock();
+            queries.incrementAndGet();
+            queryNanos.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+    // Xác nhận và chấm điểm một ứng viên; false khi đã đủ max-candidates (dừng duyệt)
+    private boolean offer(TopK top, int doc, String[] tokens, String compactQuery) {
+        int score = score(texts[doc], usernameKeys[doc], tokens, compactQuery);
+        if (score < 0) {
+            return true;
+        }
+        if (top.matched == top.maxCandidates) {
+            top.truncated = true;
+            return false;
+        }
+        top.matched++;
+        top.offer(rankKey(score, texts[doc].length(), doc));
+        return true;
+    }
+
+    // Cần ít nhất một từ khóa ≥ 2 ký tự; chỉ gõ một chữ cái thì chưa tìm
+    private static boolean hasSearchableToken(String[] tokens) {
+        for (String t : tokens) {
+            if (t.length() >= 2) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean allDense(Postings[] lists) {
+        for (Postings l : lists) {
+            if (l.bits == null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        lock.readLock().lock();
+        try {
+            stats.put("ready", ready);
+            stats.put("users", docByUser.size());
+            stats.put("docSlots", docCount);
+            stats.put("trigrams", postings.size());
+            stats.put("denseTrigrams", postings.values().stream().filter(p -> p.bits != null).count());
+            stats.put("postingEntries", postingEntries);
+        } finally {
+            lock.readLock().unlock();
+        }
+        long q = queries.get();
+        stats.put("queries", q);
+        stats.put("truncatedQueries", truncatedQueries.get());
+        stats.put("avgQueryMicros", q == 0 ? 0 : queryNanos.get() / q / 1000);
+        return stats;
+    }
+
+    /**
+     * Bỏ dấu tiếng Việt, chữ thường; ký tự không phải chữ/số thành dấu cách.
+     */
+    static String fold(String value) {
+        if (value == null) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(value, Normalizer.Form.NFD);
+        StringBuilder sb = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                continue;
+            }
+            if (c == 'đ' || c == 'Đ') {
+                c = 'd';
+            }
+            sb.append(Character.isLetterOrDigit(c) ? Character.toLowerCase(c) : ' ');
+        }
+        return sb.toString();
+    }
+
+    static String[] tokens(String value) {
+        String folded = fold(value).trim();
+        if (folded.isEmpty()) {
+            return new String[0];
+        }
+        String[] words = folded.split(" +");
+        return words.length > MAX_QUERY_TOKENS ? Arrays.copyOf(words, MAX_QUERY_TOKENS) : words;
+    }
+
+    private static String joinWords(String fullName, String username) {
+        String text = (fold(fullName) + " " + fold(username)).trim().replaceAll(" +", " ");
+        return text.length() > MAX_TEXT_LENGTH ? text.substring(0, MAX_TEXT_LENGTH) : text;
+    }
+
+    private static String usernameKey(String username) {
+        return fold(username).replace(" ", "");
+    }
+
+    // Trigram của từng từ trong ^từ$, đã sắp xếp và bỏ trùng
+    private static long[] documentGrams(String text) {
+        long[] grams = new long[text.length() + 8];
+        int n = 0;
+        int s = 0;
+        while (s < text.length()) {
+            int e = text.indexOf(' ', s);
+            if (e < 0) {
+                e = text.length();
+            }
+            String padded = BEGIN + text.substring(s, e) + END;
+            if (n + padded.length() >= grams.length) {
+                grams = Arrays.copyOf(grams, (n + padded.length()) * 2);
+            }
+            grams[n++] = initialGram(padded.charAt(1));
+            for (int i = 0; i + 3 <= padded.length(); i++) {
+                grams[n++] = gram(padded, i);
+            }
+            s = e + 1;
+        }
+        return distinct(grams, n);
+    }
+
+    private static long[] queryGrams(String[] tokens) {
+        long[] grams = new long[64];
+        int n = 0;
+        for (String t : tokens) {
+            if (n + t.length() + 1 >= grams.length) {
+                grams = Arrays.copyOf(grams, (n + t.length() + 1) * 2);
+            }
+            if (t.length() == 1) {
+                grams[n++] = initialGram(t.charAt(0));
+                continue;
+            }
+            String source = t.length() == 2 ? BEGIN + t : t;
+            for (int i = 0; i + 3 <= source.length(); i++) {
+                grams[n++] = gram(source, i);
+            }
+        }
+        return distinct(grams, n);
+    }
+
+    // Khóa "từ bắt đầu bằng c": ký tự thứ ba là 0, không trùng với trigram nào
+    private static long initialGram(char c) {
+        return ((long) BEGIN << 32) | ((long) c << 16);
+    }
+
+    private static long gram(String s, int i) {
+        return ((long) s.charAt(i) << 32) | ((long) s.charAt(i + 1) << 16) | s.charAt(i + 2);
+    }
+
+    private static long[] distinct(long[] values, int n) {
+        Arrays.sort(values, 0, n);
+        int m = 0;
+        for (int i = 0; i < n; i++) {
+            if (m == 0 || values[m - 1] != values[i]) {
+                values[m++] = values[i];
+            }
+        }
+        return Arrays.copyOf(values, m);
+    }
+
+    /**
+     * Điểm của một ứng viên, -1 nếu có từ khóa không khớp từ nào: mỗi từ khóa 3 (trùng cả từ), 2 (đầu từ),
+     * 1 (chuỗi con, chỉ với từ khóa ≥ 3 ký tự); cộng 10 nếu trùng username, 4 nếu username bắt đầu bằng từ khóa.
+     */
+    static int score(String text, String usernameKey, String[] tokens, String compactQuery) {
+        int score = 0;
+        for (String t : tokens) {
+            int best = matchToken(text, t);
+            if (best == 0) {
+                return -1;
+            }
+            score += best;
+        }
+        if (usernameKey.equals(compactQuery)) {
+            score += 10;
+        } else if (usernameKey.startsWith(compactQuery)) {
+            score += 4;
+        }
+        return score;
+    }
+
+    // Từ khóa không chứa dấu cách nên mỗi lần xuất hiện nằm gọn trong một từ; indexOf trên cả chuỗi loại nhanh ứng viên sai
+    private static int matchToken(String text, String token) {
+        int best = 0;
+        int at = text.indexOf(token);
+        while (at >= 0) {
+            int end = at + token.length();
+            if (at == 0 || text.charAt(at - 1) == ' ') {
+                if (end == text.length() || text.charAt(end) == ' ') {
+                    return 3;
+                }
+                best = 2;
+            } else if (best == 0 && token.length() >= 3) {
+                best = 1;
+            }
+            at = text.indexOf(token, at + 1);
+        }
+        return best;
+    }
+
+    // Khóa xếp hạng tăng dần theo độ tốt: điểm, rồi văn bản ngắn hơn, rồi docId nhỏ hơn (user cũ hơn trong chỉ mục)
+    private static long rankKey(int score, int textLength, int doc) {
+        return ((long) score << 41) | ((long) (MAX_TEXT_LENGTH - Math.min(textLength, MAX_TEXT_LENGTH)) << 31)
+                | (Integer.MAX_VALUE - doc);
+    }
+
+    private static int docOf(long rankKey) {
+        return Integer.MAX_VALUE - (int) (rankKey & Integer.MAX_VALUE);
+    }
+
+    public static final class Result {
+        static final Result EMPTY = new Result(Collections.emptyList(), 0, false);
+
+        private final List<String> userIds;
+        private final int total;
+        private final boolean truncated;
+
+        Result(List<String> userIds, int total, boolean truncated) {
+            this.userIds = userIds;
+            this.total = total;
+            this.truncated = truncated;
+        }
+
+        // userId theo thứ tự xếp hạng, đã cắt theo offset/limit
+        public List<String> getUserIds() {
+            return userIds;
+        }
+
+        // Số user khớp đã chấm điểm; khi truncated thì là cận dưới
+        public int getTotal() {
+            return total;
+        }
+
+        public boolean isTruncated() {
+            return truncated;
+        }
+    }
+
+    // Min-heap giữ k khóa xếp hạng tốt nhất trong số ứng viên đã khớp
+    private static final class TopK {
+        final long[] heap;
+        final int maxCandidates;
+        int size;
+        int matched;
+        boolean truncated;
+
+        TopK(int k, int maxCandidates) {
+            this.heap = new long[k];
+            this.maxCandidates = maxCandidates;
+        }
+
+        void offer(long key) {
+            if (size < heap.length) {
+                heap[size++] = key;
+                siftUp(size - 1);
+            } else if (key > heap[0]) {
+                heap[0] = key;
+                siftDown();
+            }
+        }
+
+        private void siftUp(int i) {
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (heap[parent] <= heap[i]) {
+                    return;
+                }
+                long t = heap[parent];
+                heap[parent] = heap[i];
+                heap[i] = t;
+                i = parent;
+            }
+        }
+
+        private void siftDown() {
+            int i = 0;
+            while (true) {
+                int left = 2 * i + 1;
+                if (left >= size) {
+                    return;
+                }
+                int smallest = left + 1 < size && heap[left + 1] < heap[left] ? left + 1 : left;
+                if (heap[i] <= heap[smallest]) {
+                    return;
+                }
+                long t = heap[smallest];
+                heap[smallest] = heap[i];
+                heap[i] = t;
+                i = smallest;
+            }
+        }
+    }
+
+    // docId tăng dần; user mới luôn có docId lớn nhất nên thêm thường là append.
+    // List dày (≥ 1/64 số doc) có thêm bitmap: không tốn hơn 2 lần mảng int, cho phép AND theo word và thử bit O(1)
+    private static final class Postings {
+        private static final int MIN_DENSE_SIZE = 1024;
+
+        int[] ids = new int[4];
+        int size;
+        long[] bits;
+
+        void add(int doc) {
+            if (size == 0 || ids[size - 1] < doc) {
+                if (size == ids.length) {
+                    ids = Arrays.copyOf(ids, size * 2);
+                }
+                ids[size++] = doc;
+                if (bits != null) {
+                    setBit(doc);
+                }
+                return;
+            }
+            int pos = Arrays.binarySearch(ids, 0, size, doc);
+            if (pos >= 0) {
+                return;
+            }
+            pos = -pos - 1;
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            System.arraycopy(ids, pos, ids, pos + 1, size - pos);
+            ids[pos] = doc;
+            size++;
+            if (bits != null) {
+                setBit(doc);
+            }
+        }
+
+        boolean remove(int doc) {
+            int pos = Arrays.binarySearch(ids, 0, size, doc);
+            if (pos < 0) {
+                return false;
+            }
+            System.arraycopy(ids, pos + 1, ids, pos, size - pos - 1);
+            size--;
+            if (bits != null) {
+                bits[doc >>> 6] &= ~(1L << doc);
+            }
+            return true;
+        }
+
+        void densifyIfNeeded(int docCount) {
+            if (bits != null || size < MIN_DENSE_SIZE || (long) size * 64 < docCount) {
+                return;
+            }
+            bits = new long[(docCount + 63) >>> 6];
+            for (int i = 0; i < size; i++) {
+                setBit(ids[i]);
+            }
+        }
+
+        boolean contains(int doc) {
+            int w = doc >>> 6;
+            return w < bits.length && (bits[w] & (1L << doc)) != 0;
+        }
+
+        private void setBit(int doc) {
+            int w = doc >>> 6;
+            if (w >= bits.length) {
+                bits = Arrays.copyOf(bits, Math.max(w + 1, bits.length * 2));
+            }
+            bits[w] |= 1L << doc;
+        }
+
+        // Vị trí đầu tiên từ from có ids[pos] >= doc: vài bước tuần tự (list dày), sau đó galloping rồi binary search
+        int lowerBound(int doc, int from) {
+            int limit = Math.min(from + 8, size);
+            while (from < limit && ids[from] < doc) {
+                from++;
+            }
+            if (from < limit || from == size) {
+                return from;
+            }
+            int step = 1;
+            int hi = from;
+            while (hi < size && ids[hi] < doc) {
+                from = hi + 1;
+                hi += step;
+                step <<= 1;
+            }
+            int pos = Arrays.binarySearch(ids, from, Math.min(hi + 1, size), doc);
+            return pos >= 0 ? pos : -pos - 1;
+        }
+    }
+}
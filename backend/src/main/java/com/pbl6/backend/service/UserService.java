@@ -1,13 +1,19 @@
 package com.pbl6.backend.service;
 
+import com.pbl6.backend.event.FriendshipChangedEvent;
+import com.pbl6.backend.event.MetricsDeltaEvent;
+import com.pbl6.backend.event.UserChangedEvent;
 import com.pbl6.backend.model.User;
+import com.pbl6.backend.repository.FriendshipRepository;
 import com.pbl6.backend.repository.UserRepository;
 import com.pbl6.backend.request.UpdateUserProfileRequest;
 import com.pbl6.backend.response.AvatarUploadResponse;
 import com.pbl6.backend.response.PublicUserResponse;
 import com.pbl6.backend.response.UserResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
 import java.util.*;
@@ -25,6 +31,23 @@ public class UserService {
     @Autowired
     private OtpService otpService;
 
+    @Autowired
+    private FeedService feedService;
+
+    @Autowired
+    private FriendshipRepository friendshipRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private UserSearchIndex userSearchIndex;
+
+    private static final int DEFAULT_SEARCH_SIZE = 20;
+    private static final int MAX_SEARCH_SIZE = 50;
+
+    private static final Pattern PHONE_QUERY_PATTERN = Pattern.compile("^\\+?[0-9][0-9 .()-]{2,}$");
+
     private static final Pattern EMAIL_PATTERN = Pattern.compile(
             "^[A-Za-z0-9+_.-]+@[A-Za-z0-9.-]+\\.[A-Za-z]{2,}$"
     );
@@ -78,7 +101,10 @@ public class UserService {
             currentUser.setProfilePictureUrl(req.getProfilePictureUrl());
         }
 
-        return userRepository.save(currentUser);
+        User saved = userRepository.save(currentUser);
+        eventPublisher.publishEvent(new UserChangedEvent(saved.getUserId(), saved.getUsername(), saved.getFullName(),
+                saved.getPhoneNumber(), saved.getEmail(), UserChangedEvent.Type.SAVED));
+        return saved;
     }
 
     public AvatarUploadResponse generateAvatarUploadUrl(User currentUser, String fileName, String contentType) {
@@ -100,6 +126,8 @@ public class UserService {
         return resp;
     }
 
+    // Một transaction: các event (FriendGraph, FeedPageCache...) chỉ được xử lý sau khi xóa xong hẳn
+    @Transactional
     public void deleteAccountWithOtp(User currentUser, String code) {
         String email = currentUser.getEmail();
         if (email == null || email.isBlank()) {
@@ -109,14 +137,50 @@ public class UserService {
         if (!ok) {
             throw new RuntimeException("Mã OTP không hợp lệ hoặc đã hết hạn");
         }
+        // Friendships bị xóa theo cascade không phát event: báo từng cạnh để FriendGraph gỡ (đếm bạn, bạn chung)
+        List<String> friendIds = friendshipRepository.findAcceptedFriendIds(currentUser.getUserId());
+        feedService.removeUser(currentUser.getUserId());
         userRepository.delete(currentUser);
+        for (String friendId : friendIds) {
+            eventPublisher.publishEvent(new FriendshipChangedEvent(currentUser.getUserId(), friendId,
+                    FriendshipChangedEvent.Type.REMOVED));
+        }
+        eventPublisher.publishEvent(new UserChangedEvent(currentUser.getUserId(), null, null, null, null,
+                UserChangedEvent.Type.DELETED));
+        // Post / report bị xóa theo cascade không có delta, lần đếm lại kế tiếp sẽ khớp
+        eventPublisher.publishEvent(MetricsDeltaEvent.user(currentUser.getAccountStatus(), null));
     }
 
     public List<PublicUserResponse> search(String q) {
+        return search(q, 0, DEFAULT_SEARCH_SIZE);
+    }
+
+    /**
+     * Tìm user ACTIVE theo họ tên / username (không phân biệt dấu), đã xếp hạng và phân trang.
+     * Dùng UserSearchIndex khi đã dựng xong; trước đó, và với từ khóa trông như email / số điện thoại
+     * (chỉ mục không chứa hai trường này), quay về LIKE trên DB.
+     * Lọc trạng thái trước khi cắt trang để trang không bị thiếu.
+     */
+    public List<PublicUserResponse> search(String q, Integer page, Integer size) {
         if (q == null || q.isBlank()) {
             return Collections.emptyList();
         }
-        List<User> users = userRepository.searchByKeyword(q);
+        int p = page == null || page < 0 ? 0 : page;
+        int s = size == null || size <= 0 ? DEFAULT_SEARCH_SIZE : Math.min(size, MAX_SEARCH_SIZE);
+
+        List<User> users;
+        if (userSearchIndex.isReady() && !looksLikeContact(q)) {
+            users = findAllInOrder(searchActiveUserIds(q, p * s, s));
+        } else {
+            List<User> matched = new ArrayList<>();
+            for (User u : userRepository.searchByKeyword(q)) {
+                if (u.getAccountStatus() == User.AccountStatus.ACTIVE) {
+                    matched.add(u);
+                }
+            }
+            int from = Math.min(p * s, matched.size());
+            users = matched.subList(from, Math.min(from + s, matched.size()));
+        }
         List<PublicUserResponse> res = new ArrayList<>();
         for (User u : users) {
             if (u.getAccountStatus() == User.AccountStatus.ACTIVE) {
@@ -125,4 +189,53 @@ public class UserService {
         }
         return res;
     }
-}
\ No newline at end of file
+
+    // Đọc kết quả đã xếp hạng của chỉ mục theo từng đoạn, giữ id ACTIVE cho tới khi đủ offset + limit
+    private List<String> searchActiveUserIds(String q, int offset, int limit) {
+        List<String> active = new ArrayList<>();
+        int scanned = 0;
+        int chunk = offset + limit;
+        while (active.size() < offset + limit) {
+            List<String> ids = userSearchIndex.search(q, scanned, chunk).getUserIds();
+            if (ids.isEmpty()) {
+                break;
+            }
+            Set<String> ok = new HashSet<>(userRepository.findActiveUserIdsIn(ids));
+            for (String id : ids) {
+                if (ok.contains(id)) {
+                    active.add(id);
+                }
+            }
+            if (ids.size() < chunk) {
+                break;
+            }
+            scanned += ids.size();
+        }
+        int from = Math.min(offset, active.size());
+        return active.subList(from, Math.min(offset + limit, active.size()));
+    }
+
+    // Có '@' hoặc chủ yếu là chữ số: tìm theo email / số điện thoại
+    private static boolean looksLikeContact(String q) {
+        return q.indexOf('@') >= 0 || PHONE_QUERY_PATTERN.matcher(q.trim()).matches();
+    }
+
+    // Nạp user theo danh sách id, giữ nguyên thứ tự của danh sách (bỏ id không còn tồn tại)
+    public List<User> findAllInOrder(List<String> userIds) {
+        if (userIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Map<String, User> byId = new HashMap<>();
+        for (User u : userRepository.findAllById(userIds)) {
+            byId.put(u.getUserId(), u);
+        }
+        List<User> ordered = new ArrayList<>(userIds.size());
+        for (String id : userIds) {
+            User u = byId.get(id);
+            if (u != null) {
+                ordered.add(u);
+            }
+        }
+        return ordered;
+    }
+}
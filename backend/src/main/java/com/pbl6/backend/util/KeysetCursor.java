@@ -0,0 +1,34 @@
+package com.pbl6.backend.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Cursor cho phân trang keyset: (giá trị cột sắp xếp, id) của dòng cuối trang, mã hóa Base64 URL-safe để client gửi lại nguyên văn.
+ */
+public final class KeysetCursor {
+
+    private KeysetCursor() {}
+
+    public static String encode(String sortValue, String id) {
+        String raw = sortValue + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return [giá trị cột sắp xếp, id]; id (UUID) không chứa '|' nên tách ở dấu cuối cùng
+     */
+    public static String[] decode(String cursor) {
+        String raw;
+        try {
+            raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Cursor không hợp lệ");
+        }
+        int sep = raw.lastIndexOf('|');
+        if (sep <= 0 || sep == raw.length() - 1) {
+            throw new IllegalArgumentException("Cursor không hợp lệ");
+        }
+        return new String[]{raw.substring(0, sep), raw.substring(sep + 1)};
+    }
+}
@@ -0,0 +1,82 @@
+package com.pbl6.backend.websocket;
+
+import com.pbl6.backend.repository.UserRepository;
+import com.pbl6.backend.security.JwtUtil;
+import com.pbl6.backend.security.TokenBlacklistService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.server.HandshakeInterceptor;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.util.Map;
+
+/**
+ * Xác thực handshake WebSocket bằng JWT của user (giống JwtAuthenticationFilter).
+ * Token lấy từ header "Authorization: Bearer ..." hoặc query param {@code ?token=} (trình duyệt không gửi được header).
+ */
+@Component
+public class JwtHandshakeInterceptor implements HandshakeInterceptor {
+    private static final Logger log = LoggerFactory.getLogger(JwtHandshakeInterceptor.class);
+
+    public static final String USER_ID_ATTRIBUTE = "userId";
+
+    private final JwtUtil jwtUtil;
+    private final TokenBlacklistService tokenBlacklistService;
+    private final UserRepository userRepository;
+
+    public JwtHandshakeInterceptor(JwtUtil jwtUtil,
+                                   TokenBlacklistService tokenBlacklistService,
+                                   UserRepository userRepository) {
+        this.jwtUtil = jwtUtil;
+        this.tokenBlacklistService = tokenBlacklistService;
+        this.userRepository = userRepository;
+    }
+
+    @Override
+    public boolean beforeHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                                   WebSocketHandler wsHandler, Map<String, Object> attributes) {
+        String token = resolveToken(request);
+        if (token == null || tokenBlacklistService.isBlacklisted(token)) {
+            response.setStatusCode(HttpStatus.UNAUTHORIZED);
+            return false;
+        }
+        try {
+            String username = jwtUtil.extractUsername(token);
+            if ("ADMIN".equals(jwtUtil.extractRole(token)) || !jwtUtil.validateToken(token, username)) {
+                response.setStatusCode(HttpStatus.UNAUTHORIZED);
+                return false;
+            }
+            return userRepository.findByUsername(username)
+                    .map(u -> {
+                        attributes.put(USER_ID_ATTRIBUTE, u.getUserId());
+                        return true;
+                    })
+                    .orElseGet(() -> {
+                        response.setStatusCode(HttpStatus.UNAUTHORIZED);
+                        return false;
+                    });
+        } catch (Exception e) {
+            log.debug("Từ chối handshake WebSocket: token không hợp lệ", e);
+            response.setStatusCode(HttpStatus.UNAUTHORIZED);
+            return false;
+        }
+    }
+
+    @Override
+    public void afterHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                               WebSocketHandler wsHandler, Exception exception) {
+    }
+
+    private static String resolveToken(ServerHttpRequest request) {
+        String header = request.getHeaders().getFirst("Authorization");
+        if (header != null && header.startsWith("Bearer ")) {
+            return header.substring(7);
+        }
+        return UriComponentsBuilder.fromUri(request.getURI()).build().getQueryParams().getFirst("token");
+    }
+}
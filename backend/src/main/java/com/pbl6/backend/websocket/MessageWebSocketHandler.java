@@ -0,0 +1,49 @@
+package com.pbl6.backend.websocket;
+
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+
+import java.io.IOException;
+
+/**
+ * Kênh đẩy tin nhắn real-time (/ws/messages). Server chỉ gửi; client có thể gửi "ping" để giữ kết nối.
+ * userId được {@link JwtHandshakeInterceptor} gắn vào attributes lúc handshake.
+ */
+@Component
+public class MessageWebSocketHandler extends TextWebSocketHandler {
+
+    private final WebSocketSessionRegistry registry;
+
+    public MessageWebSocketHandler(WebSocketSessionRegistry registry) {
+        this.registry = registry;
+    }
+
+    private static final String DECORATED_SESSION_ATTRIBUTE = "decoratedSession";
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) {
+        WebSocketSession decorated = registry.register(userId(session), session);
+        session.getAttributes().put(DECORATED_SESSION_ATTRIBUTE, decorated);
+    }
+
+    @Override
+    protected void handleTextMessage(WebSocketSession session, TextMessage message) throws IOException {
+        if ("ping".equals(message.getPayload())) {
+            // Gửi qua decorator để không tranh chấp với luồng đang đẩy tin nhắn
+            WebSocketSession out = (WebSocketSession) session.getAttributes().get(DECORATED_SESSION_ATTRIBUTE);
+            (out != null ? out : session).sendMessage(new TextMessage("pong"));
+        }
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        registry.unregister(userId(session), session);
+    }
+
+    private static String userId(WebSocketSession session) {
+        return (String) session.getAttributes().get(JwtHandshakeInterceptor.USER_ID_ATTRIBUTE);
+    }
+}
@@ -0,0 +1,136 @@
+package com.pbl6.backend.websocket;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pbl6.backend.event.MessageSentEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+import org.springframework.web.socket.handler.SessionLimitExceededException;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Các kết nối WebSocket đang mở, theo userId (một user có thể mở nhiều thiết bị).
+ * Mỗi session được bọc bởi {@link ConcurrentWebSocketSessionDecorator}: gửi không chặn nhau giữa các client,
+ * buffer gửi bị giới hạn theo byte và thời gian; client đọc chậm vượt giới hạn sẽ bị ngắt kết nối.
+ */
+@Component
+public class WebSocketSessionRegistry {
+    private static final Logger log = LoggerFactory.getLogger(WebSocketSessionRegistry.class);
+
+    private final ObjectMapper objectMapper;
+    private final Map<String, Set<WebSocketSession>> sessionsByUser = new ConcurrentHashMap<>();
+
+    private final AtomicLong connections = new AtomicLong();
+    private final AtomicLong totalConnections = new AtomicLong();
+    private final AtomicLong messagesPushed = new AtomicLong();
+    private final AtomicLong slowConsumerEvictions = new AtomicLong();
+
+    @Value("${ws.send-buffer-bytes:524288}")
+    private int sendBufferBytes;
+
+    @Value("${ws.send-time-limit-ms:10000}")
+    private int sendTimeLimitMs;
+
+    public WebSocketSessionRegistry(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    public WebSocketSession register(String userId, WebSocketSession session) {
+        WebSocketSession decorated = new ConcurrentWebSocketSessionDecorator(session, sendTimeLimitMs, sendBufferBytes);
+        sessionsByUser.computeIfAbsent(userId, k -> ConcurrentHashMap.newKeySet()).add(decorated);
+        connections.incrementAndGet();
+        totalConnections.incrementAndGet();
+        return decorated;
+    }
+
+    public void unregister(String userId, WebSocketSession session) {
+        sessionsByUser.computeIfPresent(userId, (k, set) -> {
+            if (set.removeIf(s -> s.getId().equals(session.getId()))) {
+                connections.decrementAndGet();
+            }
+            return set.isEmpty() ? null : set;
+        });
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMessageSent(MessageSentEvent event) {
+        sendToUsers(event.getMemberIds(), "MESSAGE", event.getMessage());
+    }
+
+    /**
+     * Gửi payload (serialize một lần) tới mọi kết nối của các user.
+     */
+    public void sendToUsers(Collection<String> userIds, String type, Object data) {
+        TextMessage message;
+        try {
+            Map<String, Object> envelope = new LinkedHashMap<>();
+            envelope.put("type", type);
+            envelope.put("data", data);
+            message = new TextMessage(objectMapper.writeValueAsString(envelope));
+        } catch (JsonProcessingException e) {
+            log.error("Không serialize được payload WebSocket type={}", type, e);
+            return;
+        }
+        for (String userId : userIds) {
+            Set<WebSocketSession> sessions = sessionsByUser.get(userId);
+            if (sessions == null) {
+                continue;
+            }
+            for (WebSocketSession s : sessions) {
+                send(userId, s, message);
+            }
+        }
+    }
+
+    private void send(String userId, WebSocketSession session, TextMessage message) {
+        try {
+            session.sendMessage(message);
+            messagesPushed.incrementAndGet();
+        } catch (SessionLimitExceededException e) {
+            // Client đọc không kịp: bỏ kết nối thay vì để buffer phình ra
+            slowConsumerEvictions.incrementAndGet();
+            log.warn("Ngắt WebSocket chậm | userId={} | session={} | {}", userId, session.getId(), e.getMessage());
+            close(userId, session, CloseStatus.SESSION_NOT_RELIABLE);
+        } catch (IOException | IllegalStateException e) {
+            log.debug("Gửi WebSocket thất bại | userId={} | session={}", userId, session.getId(), e);
+            close(userId, session, CloseStatus.SERVER_ERROR);
+        }
+    }
+
+    private void close(String userId, WebSocketSession session, CloseStatus status) {
+        unregister(userId, session);
+        try {
+            if (session.isOpen()) {
+                session.close(status);
+            }
+        } catch (IOException ignored) {
+            // Kết nối đã hỏng
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("connections", connections.get());
+        stats.put("connectedUsers", sessionsByUser.size());
+        stats.put("totalConnections", totalConnections.get());
+        stats.put("messagesPushed", messagesPushed.get());
+        stats.put("slowConsumerEvictions", slowConsumerEvictions.get());
+        stats.put("sendBufferBytes", sendBufferBytes);
+        stats.put("sendTimeLimitMs", sendTimeLimitMs);
+        return stats;
+    }
+}
@@ -0,0 +1,148 @@
+package com.pbl6.backend.benchmark;
+
+import com.pbl6.backend.repository.ConversationRepository;
+import com.pbl6.backend.service.ConversationMembershipCache;
+import org.h2.tools.Server;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * So sánh kiểm tra "user có thuộc hội thoại" trên mỗi lần gửi/đọc tin:
+ * đường cũ (SELECT hội thoại theo id qua DB rồi so hai userId) với ConversationMembershipCache.
+ * DB là H2 chạy ở chế độ TCP để mỗi lần đọc có một round-trip qua socket như MySQL thật;
+ * cache dùng đúng lớp production, phần nạp khi miss đi qua cùng kết nối đó.
+ *
+ * Chạy: mvn -q test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ *       java -cp target/test-classes:target/classes:$(cat target/cp.txt) com.pbl6.backend.benchmark.ConversationMembershipBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ConversationMembershipBenchmark {
+
+    private static final String SELECT_CONVERSATION =
+            "SELECT conversation_id, user_one_id, user_two_id, last_message_at, created_at FROM Conversations WHERE conversation_id = ?";
+    private static final String SELECT_MEMBERS =
+            "SELECT user_one_id, user_two_id FROM Conversations WHERE conversation_id = ?";
+
+    @Param({"1000", "100000"})
+    private int conversations;
+
+    private Server server;
+    private Connection embedded;
+    private Connection conn;
+    private List<String[]> rows;
+    private ConversationMembershipCache cache;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        // Tạo DB in-memory trong JVM trước, client kết nối lại qua TCP
+        String db = "mem:membership" + conversations;
+        embedded = DriverManager.getConnection("jdbc:h2:" + db, "sa", "");
+        server = Server.createTcpServer("-tcpPort", "0").start();
+        conn = DriverManager.getConnection("jdbc:h2:tcp://localhost:" + server.getPort() + "/" + db, "sa", "");
+        try (Statement st = conn.createStatement()) {
+            st.execute("CREATE TABLE Conversations (conversation_id VARCHAR(36) PRIMARY KEY, "
+                    + "user_one_id VARCHAR(36) NOT NULL, user_two_id VARCHAR(36) NOT NULL, "
+                    + "last_message_at TIMESTAMP, created_at TIMESTAMP NOT NULL)");
+        }
+        rows = new ArrayList<>(conversations);
+        try (PreparedStatement ps = conn.prepareStatement(
+                "INSERT INTO Conversations VALUES (?, ?, ?, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)")) {
+            for (int i = 0; i < conversations; i++) {
+                String[] row = {UUID.randomUUID().toString(), UUID.randomUUID().toString(), UUID.randomUUID().toString()};
+                rows.add(row);
+                ps.setString(1, row[0]);
+                ps.setString(2, row[1]);
+                ps.setString(3, row[2]);
+                ps.addBatch();
+                if (i % 1000 == 999) {
+                    ps.executeBatch();
+                }
+            }
+            ps.executeBatch();
+        }
+
+        cache = new ConversationMembershipCache(repositoryOver(conn));
+        // Mặc định production: 50k entry, nên với 100k hội thoại có một phần lần đọc bị miss
+        ReflectionTestUtils.setField(cache, "maxEntries", 50000);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        conn.close();
+        server.stop();
+        embedded.close();
+    }
+
+    @Benchmark
+    public boolean loadConversationPerCheck() throws SQLException {
+        String[] row = pick();
+        try (PreparedStatement ps = conn.prepareStatement(SELECT_CONVERSATION)) {
+            ps.setString(1, row[0]);
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                return rs.getString(2).equals(row[2]) || rs.getString(3).equals(row[2]);
+            }
+        }
+    }
+
+    @Benchmark
+    public boolean membershipCache() {
+        String[] row = pick();
+        return cache.get(row[0]).contains(row[2]);
+    }
+
+    private String[] pick() {
+        return rows.get(ThreadLocalRandom.current().nextInt(rows.size()));
+    }
+
+    // Chỉ findMemberIds được cache gọi tới; chạy thẳng SQL trên kết nối TCP
+    private static ConversationRepository repositoryOver(Connection conn) {
+        return (ConversationRepository) Proxy.newProxyInstance(
+                ConversationRepository.class.getClassLoader(),
+                new Class<?>[]{ConversationRepository.class},
+                (proxy, method, args) -> {
+                    if (!method.getName().equals("findMemberIds")) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    try (PreparedStatement ps = conn.prepareStatement(SELECT_MEMBERS)) {
+                        ps.setString(1, (String) args[0]);
+                        List<Object[]> res = new ArrayList<>(1);
+                        try (ResultSet rs = ps.executeQuery()) {
+                            while (rs.next()) {
+                                res.add(new Object[]{rs.getString(1), rs.getString(2)});
+                            }
+                        }
+                        return res;
+                    }
+                });
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(ConversationMembershipBenchmark.class.getSimpleName())
+                .build();
+        new Runner(opt).run();
+    }
+}
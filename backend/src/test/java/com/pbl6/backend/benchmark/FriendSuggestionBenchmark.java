@@ -0,0 +1,154 @@
+package com.pbl6.backend.benchmark;
+
+import com.pbl6.backend.event.FriendshipChangedEvent;
+import com.pbl6.backend.repository.FriendshipRepository;
+import com.pbl6.backend.service.FriendGraph;
+import com.pbl6.backend.service.FriendSuggestionEngine;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Batch gợi ý kết bạn trên đồ thị tổng hợp 1 triệu user: cộng đồng 1000 người, mỗi user tạo 8 cạnh trong
+ * cộng đồng và 2 cạnh ngẫu nhiên toàn cục (bậc trung bình ~20), 1% số cặp là PENDING/BLOCKED.
+ * So sánh chi phí mỗi user giữa FriendSuggestionEngine (mảng int, fork-join) và cách làm thẳng
+ * với HashMap theo userId trên cùng đồ thị (chỉ chạy trên mẫu đầu tiên vì quá chậm cho cả đồ thị).
+ *
+ * Chạy: mvn -q test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ *       java -cp target/test-classes:target/classes:$(cat target/cp.txt) com.pbl6.backend.benchmark.FriendSuggestionBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+public class FriendSuggestionBenchmark {
+
+    private static final int USERS = 1_000_000;
+    private static final int COMMUNITY = 1000;
+    private static final int NAIVE_SAMPLE = 10_000;
+    private static final int TOP_K = 20;
+
+    @Param({"1", "4"})
+    private int parallelism;
+
+    private FriendGraph graph;
+    private FriendSuggestionEngine engine;
+    private List<Object[]> excludedPairs;
+    private Map<String, List<String>> friendsById;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random rnd = new Random(42);
+        excludedPairs = new ArrayList<>();
+        FriendshipRepository repository = repository();
+        graph = new FriendGraph(repository);
+        for (int u = 0; u < USERS; u++) {
+            int base = u / COMMUNITY * COMMUNITY;
+            for (int e = 0; e < 10; e++) {
+                int v = e < 8 ? base + rnd.nextInt(COMMUNITY) : rnd.nextInt(USERS);
+                if (rnd.nextInt(100) == 0) {
+                    excludedPairs.add(new Object[]{String.format("p%08d", excludedPairs.size()), id(u), id(v)});
+                } else {
+                    graph.onFriendshipChanged(new FriendshipChangedEvent(id(u), id(v), FriendshipChangedEvent.Type.ACCEPTED));
+                }
+            }
+        }
+
+        engine = new FriendSuggestionEngine(graph, repository);
+        ReflectionTestUtils.setField(engine, "topK", TOP_K);
+        ReflectionTestUtils.setField(engine, "maxBridgeDegree", 5000);
+        ReflectionTestUtils.setField(engine, "batchSize", 5000);
+        ReflectionTestUtils.setField(engine, "parallelism", parallelism);
+
+        friendsById = new HashMap<>();
+        for (int u = 0; u < NAIVE_SAMPLE; u++) {
+            addFriendsOf(id(u));
+            for (String f : graph.friendIds(id(u))) {
+                addFriendsOf(f);
+            }
+        }
+    }
+
+    private void addFriendsOf(String userId) {
+        friendsById.computeIfAbsent(userId, graph::friendIds);
+    }
+
+    private static String id(int u) {
+        return String.format("u%07d", u);
+    }
+
+    // Repository giả: chỉ trả các cặp PENDING/BLOCKED theo keyset như query thật
+    private FriendshipRepository repository() {
+        return (FriendshipRepository) Proxy.newProxyInstance(
+                FriendshipRepository.class.getClassLoader(),
+                new Class<?>[]{FriendshipRepository.class},
+                (proxy, method, args) -> {
+                    if (!method.getName().equals("findNonAcceptedPairsAfter")) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    String after = (String) args[0];
+                    int size = ((Pageable) args[1]).getPageSize();
+                    int from = 0;
+                    while (from < excludedPairs.size() && ((String) excludedPairs.get(from)[0]).compareTo(after) <= 0) {
+                        from++;
+                    }
+                    return new ArrayList<>(excludedPairs.subList(from, Math.min(excludedPairs.size(), from + size)));
+                });
+    }
+
+    /**
+     * Toàn bộ batch (snapshot đồ thị, nạp cặp loại trừ, tính top-K cho 1M user), quy ra mỗi user.
+     */
+    @Benchmark
+    @OperationsPerInvocation(USERS)
+    public void engineBatch(Blackhole bh) {
+        engine.run();
+        bh.consume(engine.suggestionsFor(id(0)));
+    }
+
+    /**
+     * Đếm bạn chung bằng HashMap&lt;String, Integer&gt; rồi sắp xếp, trên NAIVE_SAMPLE user đầu, quy ra mỗi user.
+     */
+    @Benchmark
+    @OperationsPerInvocation(NAIVE_SAMPLE)
+    public void naiveHashMap(Blackhole bh) {
+        for (int u = 0; u < NAIVE_SAMPLE; u++) {
+            String userId = id(u);
+            List<String> friends = friendsById.get(userId);
+            Map<String, Integer> counts = new HashMap<>();
+            for (String f : friends) {
+                for (String w : friendsById.get(f)) {
+                    counts.merge(w, 1, Integer::sum);
+                }
+            }
+            counts.remove(userId);
+            friends.forEach(counts::remove);
+            List<Map.Entry<String, Integer>> ranked = new ArrayList<>(counts.entrySet());
+            ranked.sort(Collections.reverseOrder(Map.Entry.comparingByValue()));
+            bh.consume(ranked.subList(0, Math.min(TOP_K, ranked.size())));
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(FriendSuggestionBenchmark.class.getSimpleName())
+                .build();
+        new Runner(opt).run();
+    }
+}
@@ -0,0 +1,166 @@
+package com.pbl6.backend.benchmark;
+
+import org.h2.tools.Server;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * So sánh chi phí đặt recipients cho một post: vòng lặp cũ (findById + existsByPostAndRecipient + save cho từng người)
+ * với đường bulk (một SELECT ... IN + JDBC batch insert).
+ * DB là H2 chạy ở chế độ TCP để mỗi câu lệnh đều có một round-trip qua socket như MySQL thật.
+ *
+ * Chạy: mvn -q test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ *       java -cp target/test-classes:target/classes:$(cat target/cp.txt) com.pbl6.backend.benchmark.PostRecipientInsertBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class PostRecipientInsertBenchmark {
+
+    private static final String POST_ID = "post-bench";
+
+    @Param({"10", "100", "1000"})
+    private int recipients;
+
+    private Server server;
+    private Connection embedded;
+    private Connection conn;
+    private List<String> recipientIds;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        // Tạo DB in-memory trong JVM trước, client kết nối lại qua TCP
+        String db = "mem:recipients" + recipients;
+        embedded = DriverManager.getConnection("jdbc:h2:" + db, "sa", "");
+        server = Server.createTcpServer("-tcpPort", "0").start();
+        conn = DriverManager.getConnection("jdbc:h2:tcp://localhost:" + server.getPort() + "/" + db, "sa", "");
+        try (Statement st = conn.createStatement()) {
+            st.execute("CREATE TABLE Users (user_id VARCHAR(36) PRIMARY KEY, username VARCHAR(50))");
+            st.execute("CREATE TABLE Post_Recipients (post_recipient_id VARCHAR(36) PRIMARY KEY, "
+                    + "post_id VARCHAR(36) NOT NULL, recipient_id VARCHAR(36) NOT NULL)");
+            st.execute("CREATE INDEX idx_post_recipient_post_recipient ON Post_Recipients (post_id, recipient_id)");
+        }
+        recipientIds = new ArrayList<>(recipients);
+        try (PreparedStatement ps = conn.prepareStatement("INSERT INTO Users VALUES (?, ?)")) {
+            for (int i = 0; i < recipients; i++) {
+                String id = UUID.randomUUID().toString();
+                recipientIds.add(id);
+                ps.setString(1, id);
+                ps.setString(2, "user" + i);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+        conn.setAutoCommit(false);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        conn.close();
+        server.stop();
+        embedded.close();
+    }
+
+    @Benchmark
+    public int perRecipientLoop() throws SQLException {
+        deleteRecipients();
+        int added = 0;
+        try (PreparedStatement findUser = conn.prepareStatement("SELECT user_id, username FROM Users WHERE user_id = ?");
+             PreparedStatement exists = conn.prepareStatement(
+                     "SELECT COUNT(*) FROM Post_Recipients WHERE post_id = ? AND recipient_id = ?");
+             PreparedStatement insert = conn.prepareStatement("INSERT INTO Post_Recipients VALUES (?, ?, ?)")) {
+            for (String rid : recipientIds) {
+                findUser.setString(1, rid);
+                try (ResultSet rs = findUser.executeQuery()) {
+                    if (!rs.next()) {
+                        continue;
+                    }
+                }
+                exists.setString(1, POST_ID);
+                exists.setString(2, rid);
+                try (ResultSet rs = exists.executeQuery()) {
+                    rs.next();
+                    if (rs.getLong(1) > 0) {
+                        continue;
+                    }
+                }
+                insert.setString(1, UUID.randomUUID().toString());
+                insert.setString(2, POST_ID);
+                insert.setString(3, rid);
+                insert.executeUpdate();
+                added++;
+            }
+        }
+        conn.commit();
+        return added;
+    }
+
+    @Benchmark
+    public int bulkBatched() throws SQLException {
+        deleteRecipients();
+        List<String> found = new ArrayList<>(recipientIds.size());
+        String in = String.join(",", Collections.nCopies(recipientIds.size(), "?"));
+        try (PreparedStatement findUsers = conn.prepareStatement(
+                "SELECT user_id, username FROM Users WHERE user_id IN (" + in + ")")) {
+            for (int i = 0; i < recipientIds.size(); i++) {
+                findUsers.setString(i + 1, recipientIds.get(i));
+            }
+            try (ResultSet rs = findUsers.executeQuery()) {
+                while (rs.next()) {
+                    found.add(rs.getString(1));
+                }
+            }
+        }
+        // Khớp hibernate.jdbc.batch_size=50
+        try (PreparedStatement insert = conn.prepareStatement("INSERT INTO Post_Recipients VALUES (?, ?, ?)")) {
+            int pending = 0;
+            for (String rid : found) {
+                insert.setString(1, UUID.randomUUID().toString());
+                insert.setString(2, POST_ID);
+                insert.setString(3, rid);
+                insert.addBatch();
+                if (++pending == 50) {
+                    insert.executeBatch();
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                insert.executeBatch();
+            }
+        }
+        conn.commit();
+        return found.size();
+    }
+
+    private void deleteRecipients() throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("DELETE FROM Post_Recipients WHERE post_id = ?")) {
+            ps.setString(1, POST_ID);
+            ps.executeUpdate();
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(PostRecipientInsertBenchmark.class.getSimpleName())
+                .build();
+        new Runner(opt).run();
+    }
+}
@@ -0,0 +1,145 @@
+package com.pbl6.backend.benchmark;
+
+import com.pbl6.backend.repository.UserRepository;
+import com.pbl6.backend.service.UserSearchIndex;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Proxy;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tìm kiếm user trên 1 triệu user tổng hợp với họ tên tiếng Việt (phân bố họ lệch như thực tế: ~38% Nguyễn),
+ * username = tên + họ không dấu + số. So sánh UserSearchIndex (trang đầu 20 kết quả) với quét tuần tự
+ * kiểu {@code LIKE '%q%'} trên chuỗi đã bỏ dấu sẵn trong bộ nhớ (cận dưới của chi phí quét bảng trên DB).
+ *
+ * Chạy: mvn -q test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ *       java -cp target/test-classes:target/classes:$(cat target/cp.txt) com.pbl6.backend.benchmark.UserSearchBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+public class UserSearchBenchmark {
+
+    private static final int USERS = 1_000_000;
+    private static final int PAGE_SIZE = 20;
+
+    private static final String[] SURNAMES = {"Nguyễn", "Trần", "Lê", "Phạm", "Hoàng", "Huỳnh", "Phan", "Vũ", "Võ",
+            "Đặng", "Bùi", "Đỗ", "Hồ", "Ngô", "Dương", "Lý"};
+    private static final int[] SURNAME_WEIGHTS = {38, 11, 9, 7, 5, 5, 4, 4, 4, 2, 2, 2, 2, 2, 1, 1};
+    private static final String[] MIDDLE_NAMES = {"Văn", "Thị", "Minh", "Hữu", "Đức", "Ngọc", "Thanh", "Quang",
+            "Hoàng", "Xuân", "Thu", "Anh", "Gia", "Bảo", "Công", "Kim"};
+    private static final String[] GIVEN_NAMES = {"An", "Anh", "Bình", "Châu", "Chi", "Cường", "Dũng", "Duy", "Duyên",
+            "Giang", "Hà", "Hải", "Hạnh", "Hiếu", "Hòa", "Hùng", "Hương", "Huy", "Khánh", "Khoa", "Lan", "Linh",
+            "Long", "Mai", "Minh", "My", "Nam", "Nga", "Ngân", "Ngọc", "Nhung", "Phong", "Phúc", "Phương", "Quân",
+            "Quyên", "Sơn", "Tâm", "Thảo", "Thắng", "Thủy", "Tiến", "Trang", "Trung", "Tuấn", "Tùng", "Uyên", "Vân",
+            "Việt", "Vy", "Yến"};
+
+    /**
+     * Họ rất phổ biến, gõ dở 2 ký tự, họ + đệm + chữ đầu tên, tên + tên đệm có dấu, username gần như duy nhất.
+     */
+    @Param({"nguyen", "ng", "tran van h", "Ngọc Trang", "tuanpham1234"})
+    private String query;
+
+    private UserSearchIndex index;
+    private List<Object[]> rows;
+    private String[] foldedTexts;
+    private String foldedQuery;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random rnd = new Random(42);
+        rows = new ArrayList<>(USERS);
+        foldedTexts = new String[USERS];
+        int weightSum = 0;
+        for (int w : SURNAME_WEIGHTS) {
+            weightSum += w;
+        }
+        for (int u = 0; u < USERS; u++) {
+            int pick = rnd.nextInt(weightSum);
+            int s = 0;
+            while (pick >= SURNAME_WEIGHTS[s]) {
+                pick -= SURNAME_WEIGHTS[s++];
+            }
+            String surname = SURNAMES[s];
+            String middle = MIDDLE_NAMES[rnd.nextInt(MIDDLE_NAMES.length)];
+            String given = GIVEN_NAMES[rnd.nextInt(GIVEN_NAMES.length)];
+            String fullName = surname + " " + middle + " " + given;
+            String username = strip(given + surname) + rnd.nextInt(10_000);
+            rows.add(new Object[]{String.format("u%07d", u), username, fullName});
+            foldedTexts[u] = strip(fullName) + " " + username;
+        }
+
+        index = new UserSearchIndex(repository());
+        ReflectionTestUtils.setField(index, "maxCandidates", 5000);
+        ReflectionTestUtils.setField(index, "batchSize", 5000);
+        index.build();
+        foldedQuery = strip(query);
+    }
+
+    private static String strip(String value) {
+        String decomposed = Normalizer.normalize(value, Normalizer.Form.NFD).replaceAll("\\p{M}", "");
+        return decomposed.replace('đ', 'd').replace('Đ', 'd').toLowerCase(Locale.ROOT);
+    }
+
+    // Repository giả: trả (userId, username, fullName) theo keyset như query thật
+    private UserRepository repository() {
+        return (UserRepository) Proxy.newProxyInstance(
+                UserRepository.class.getClassLoader(),
+                new Class<?>[]{UserRepository.class},
+                (proxy, method, args) -> {
+                    if (!method.getName().equals("findSearchRowsAfter")) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    String after = (String) args[0];
+                    int size = ((Pageable) args[1]).getPageSize();
+                    int from = after.isEmpty() ? 0 : Integer.parseInt(after.substring(1)) + 1;
+                    return new ArrayList<>(rows.subList(Math.min(from, rows.size()), Math.min(rows.size(), from + size)));
+                });
+    }
+
+    @Benchmark
+    public void index(Blackhole bh) {
+        bh.consume(index.search(query, 0, PAGE_SIZE));
+    }
+
+    /**
+     * Quét tuần tự toàn bộ chuỗi đã bỏ dấu với contains, lấy PAGE_SIZE kết quả đầu, nhưng vẫn đếm tổng như admin list.
+     */
+    @Benchmark
+    public void linearScan(Blackhole bh) {
+        List<Integer> page = new ArrayList<>(PAGE_SIZE);
+        int total = 0;
+        for (int u = 0; u < foldedTexts.length; u++) {
+            if (foldedTexts[u].contains(foldedQuery)) {
+                if (page.size() < PAGE_SIZE) {
+                    page.add(u);
+                }
+                total++;
+            }
+        }
+        bh.consume(page);
+        bh.consume(total);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(UserSearchBenchmark.class.getSimpleName())
+                .build();
+        new Runner(opt).run();
+    }
+}
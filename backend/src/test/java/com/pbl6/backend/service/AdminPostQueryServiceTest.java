@@ -0,0 +1,98 @@
+package com.pbl6.backend.service;
+
+import com.pbl6.backend.model.Post;
+import com.pbl6.backend.model.User;
+import com.pbl6.backend.repository.PostRepository;
+import com.pbl6.backend.repository.UserRepository;
+import com.pbl6.backend.request.AdminPostFilterRequest;
+import com.pbl6.backend.response.CursorPageResponse;
+import com.pbl6.backend.util.KeysetCursor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit Test cho AdminPostQueryService
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Admin Post Query Service Tests")
+class AdminPostQueryServiceTest {
+
+    @Mock
+    private PostRepository postRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private PostFullTextIndexJob fullTextIndex;
+
+    private AdminPostQueryService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new AdminPostQueryService(postRepository, userRepository, fullTextIndex);
+        ReflectionTestUtils.setField(service, "countEstimateThreshold", 100_000L);
+    }
+
+    private static Post post(String id, LocalDateTime createdAt) {
+        Post p = new Post();
+        p.setPostId(id);
+        p.setCreatedAt(createdAt);
+        return p;
+    }
+
+    @Test
+    @DisplayName("Từ khóa caption - Mỗi từ thành +\"từ\", bỏ toán tử boolean mode và từ 1 ký tự")
+    void whenBuildingBooleanQuery_thenEveryWordRequired() {
+        assertThat(AdminPostQueryService.toBooleanQuery("Hoàng hôn  trên biển")).isEqualTo("+\"hoàng\" +\"hôn\" +\"trên\" +\"biển\"");
+        assertThat(AdminPostQueryService.toBooleanQuery("a* -b \"cà phê\" (sáng)")).isEqualTo("+\"cà\" +\"phê\" +\"sáng\"");
+        assertThat(AdminPostQueryService.toBooleanQuery("a + b")).isNull();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    @DisplayName("Keyset - '@username' lọc theo tác giả, lấy size + 1 dòng, cursor mã hóa (createdAt, postId)")
+    void whenListAfterByAuthor_thenTrimsExtraRowAndEncodesCursor() {
+        User author = new User();
+        author.setUserId("user-1");
+        when(userRepository.findByUsername("minh")).thenReturn(Optional.of(author));
+        LocalDateTime t = LocalDateTime.of(2024, 5, 1, 10, 0);
+        when(postRepository.findBy(any(Specification.class), any()))
+                .thenReturn(List.of(post("p3", t.plusHours(2)), post("p2", t.plusHours(1)), post("p1", t)));
+
+        AdminPostFilterRequest filter = new AdminPostFilterRequest();
+        filter.setSearch("@minh");
+        filter.setMediaType("ALL");
+        CursorPageResponse<Post> res = service.listAfter(filter, true, null, 2, false);
+
+        assertThat(res.getContent()).extracting(Post::getPostId).containsExactly("p3", "p2");
+        assertThat(res.isHasNext()).isTrue();
+        assertThat(KeysetCursor.decode(res.getNextCursor())).containsExactly(t.plusHours(1).toString(), "p2");
+        assertThat(res.getTotalElements()).isNull();
+        verify(fullTextIndex, never()).isReady();
+
+        // Từ khóa chỉ gồm từ quá ngắn: trả rỗng, không chạy query
+        when(fullTextIndex.isReady()).thenReturn(true);
+        AdminPostFilterRequest shortWords = new AdminPostFilterRequest();
+        shortWords.setSearch("a b");
+        Page<Post> empty = service.listPage(shortWords, true, 0, 10);
+        assertThat(empty.getTotalElements()).isZero();
+        verify(postRepository, never()).findAll(any(Specification.class), any(Pageable.class));
+    }
+}
@@ -0,0 +1,91 @@
+package com.pbl6.backend.service;
+
+import com.pbl6.backend.model.User;
+import com.pbl6.backend.repository.UserRepository;
+import com.pbl6.backend.response.CursorPageResponse;
+import com.pbl6.backend.util.KeysetCursor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit Test cho AdminUserQueryService
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Admin User Query Service Tests")
+class AdminUserQueryServiceTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    private AdminUserQueryService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new AdminUserQueryService(userRepository);
+        ReflectionTestUtils.setField(service, "countEstimateThreshold", 100_000L);
+    }
+
+    private static User user(String id, LocalDateTime createdAt) {
+        User u = new User();
+        u.setUserId(id);
+        u.setUsername("user_" + id);
+        u.setCreatedAt(createdAt);
+        return u;
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    @DisplayName("Keyset - Lấy size + 1 dòng để biết còn trang sau, cursor mã hóa (createdAt, userId) của dòng cuối")
+    void whenListAfter_thenTrimsExtraRowAndEncodesCursor() {
+        LocalDateTime t = LocalDateTime.of(2024, 5, 1, 10, 0);
+        when(userRepository.findBy(any(Specification.class), any()))
+                .thenReturn(List.of(user("u3", t.plusHours(2)), user("u2", t.plusHours(1)), user("u1", t)));
+        when(userRepository.count(any(Specification.class))).thenReturn(42L);
+
+        CursorPageResponse<User> res = service.listAfter(User.AccountStatus.ACTIVE, null, null,
+                AdminUserQueryService.SortField.CREATED_AT, true, "", 2, true);
+
+        assertThat(res.getContent()).extracting(User::getUserId).containsExactly("u3", "u2");
+        assertThat(res.isHasNext()).isTrue();
+        assertThat(KeysetCursor.decode(res.getNextCursor()))
+                .containsExactly(t.plusHours(1).toString(), "u2");
+        assertThat(res.getTotalElements()).isEqualTo(42L);
+        assertThat(res.isTotalEstimated()).isFalse();
+        verify(userRepository, never()).estimateRowCount();
+
+        assertThatThrownBy(() -> service.listAfter(null, null, null, AdminUserQueryService.SortField.CREATED_AT,
+                true, "not a cursor", 2, false)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    @DisplayName("Trang không lọc trên bảng lớn - Không COUNT(*), tổng lấy từ ước lượng")
+    void whenUnfilteredLargeTable_thenUsesEstimatedTotal() {
+        when(userRepository.estimateRowCount()).thenReturn(2_000_000L);
+        when(userRepository.findAllBy(any(Pageable.class)))
+                .thenAnswer(inv -> new SliceImpl<>(List.of(user("u1", LocalDateTime.now())), inv.getArgument(0), true));
+
+        Page<User> page = service.listPage(null, null, null, AdminUserQueryService.SortField.CREATED_AT, true, 3, 1);
+
+        assertThat(page.getTotalElements()).isEqualTo(2_000_000L);
+        assertThat(page.getContent()).hasSize(1);
+        verify(userRepository, never()).findAll(any(Specification.class), any(Pageable.class));
+    }
+}
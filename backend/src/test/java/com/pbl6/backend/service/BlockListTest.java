@@ -0,0 +1,82 @@
+package com.pbl6.backend.service;
+
+import com.pbl6.backend.event.FriendshipChangedEvent;
+import com.pbl6.backend.model.Friendship;
+import com.pbl6.backend.model.User;
+import com.pbl6.backend.repository.FriendshipRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit Test cho BlockList
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Block List Tests")
+class BlockListTest {
+
+    @Mock
+    private FriendshipRepository friendshipRepository;
+
+    private BlockList blockList;
+
+    @BeforeEach
+    void setUp() {
+        blockList = new BlockList(friendshipRepository);
+        ReflectionTestUtils.setField(blockList, "expectedEntries", 4);
+        ReflectionTestUtils.setField(blockList, "falsePositiveRate", 0.01);
+        ReflectionTestUtils.setField(blockList, "batchSize", 100);
+    }
+
+    @Test
+    @DisplayName("Chưa nạp xong - Hỏi DB theo cặp chuẩn hóa")
+    void whenNotLoaded_thenFallsBackToDb() {
+        User a = new User();
+        a.setUserId("a");
+        User b = new User();
+        b.setUserId("b");
+        when(friendshipRepository.findByPair("a", "b"))
+                .thenReturn(Optional.of(new Friendship(b, a, Friendship.FriendshipStatus.BLOCKED)));
+
+        assertThat(blockList.isBlocked("b", "a")).isTrue();
+        assertThat(blockList.stats()).containsEntry("dbFallbacks", 1L);
+    }
+
+    @Test
+    @DisplayName("Đã nạp - Không chạm DB, cập nhật theo block/unblock kể cả khi vượt sức chứa filter")
+    void whenLoaded_thenAnswersInMemoryAndTracksEvents() {
+        when(friendshipRepository.findBlockedPairsAfter(eq(""), any(Pageable.class)))
+                .thenReturn(List.<Object[]>of(new Object[]{"f1", "u1", "u2"}));
+        blockList.load();
+
+        assertThat(blockList.isBlocked("u2", "u1")).isTrue();
+        assertThat(blockList.isBlocked("u1", "u3")).isFalse();
+
+        for (int i = 0; i < 20; i++) {
+            blockList.onFriendshipChanged(new FriendshipChangedEvent("x" + i, "y" + i, FriendshipChangedEvent.Type.BLOCKED));
+        }
+        blockList.onFriendshipChanged(new FriendshipChangedEvent("u2", "u1", FriendshipChangedEvent.Type.UNBLOCKED));
+        // Sự kiện bạn bè thường không ảnh hưởng danh sách chặn
+        blockList.onFriendshipChanged(new FriendshipChangedEvent("u1", "u3", FriendshipChangedEvent.Type.ACCEPTED));
+
+        for (int i = 0; i < 20; i++) {
+            assertThat(blockList.isBlocked("y" + i, "x" + i)).isTrue();
+        }
+        assertThat(blockList.isBlocked("u1", "u2")).isFalse();
+        assertThat(blockList.isBlocked("u1", "u3")).isFalse();
+        assertThat(blockList.stats()).containsEntry("blockedPairs", 20);
+        verify(friendshipRepository, never()).findByPair(anyString(), anyString());
+    }
+}
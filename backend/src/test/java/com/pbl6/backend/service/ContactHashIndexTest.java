@@ -0,0 +1,68 @@
+package com.pbl6.backend.service;
+
+import com.pbl6.backend.event.UserChangedEvent;
+import com.pbl6.backend.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit Test cho ContactHashIndex
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Contact Hash Index Tests")
+class ContactHashIndexTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    private ContactHashIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new ContactHashIndex(userRepository);
+        ReflectionTestUtils.setField(index, "defaultCountryCode", "84");
+        ReflectionTestUtils.setField(index, "batchSize", 100);
+    }
+
+    @Test
+    @DisplayName("Chuẩn hóa - Số nội địa và quốc tế cho cùng hash, email không phân biệt hoa thường")
+    void whenNormalized_thenEquivalentFormsShareHash() {
+        assertThat(index.phoneHash("0912 345 678")).isEqualTo(index.phoneHash("+84912345678"));
+        assertThat(index.emailHash("  An.Nguyen@Example.com ")).isEqualTo(index.emailHash("an.nguyen@example.com"));
+        assertThat(index.phoneHash(null)).isNull();
+    }
+
+    @Test
+    @DisplayName("Build + sự kiện - Khớp hash, đổi số thì gỡ hash cũ, xóa user thì gỡ hết")
+    void whenBuiltAndUpdated_thenLookupFollowsChanges() {
+        when(userRepository.findContactRowsAfter(eq(""), any(Pageable.class)))
+                .thenReturn(List.<Object[]>of(new Object[]{"u1", "0912345678", "an@example.com"}));
+        index.build();
+
+        String oldPhone = index.phoneHash("+84912345678");
+        String email = index.emailHash("AN@example.com");
+        assertThat(index.isReady()).isTrue();
+        assertThat(index.lookup(List.of(oldPhone.toUpperCase(), email, "not-a-hash")))
+                .containsEntry(oldPhone, "u1").containsEntry(email, "u1").hasSize(2);
+
+        index.onUserChanged(new UserChangedEvent("u1", "an", "An", "0987654321", "an@example.com", UserChangedEvent.Type.SAVED));
+        assertThat(index.lookup(List.of(oldPhone))).isEmpty();
+        assertThat(index.lookup(List.of(index.phoneHash("0987654321")))).containsValue("u1");
+
+        index.onUserChanged(new UserChangedEvent("u1", null, null, null, null, UserChangedEvent.Type.DELETED));
+        assertThat(index.lookup(List.of(email))).isEmpty();
+        assertThat(index.stats()).containsEntry("keys", 0);
+    }
+}
@@ -0,0 +1,87 @@
+package com.pbl6.backend.service;
+
+import com.pbl6.backend.event.UserChangedEvent;
+import com.pbl6.backend.repository.ConversationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit Test cho ConversationMembershipCache
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Conversation Membership Cache Tests")
+class ConversationMembershipCacheTest {
+
+    @Mock
+    private ConversationRepository conversationRepository;
+
+    private ConversationMembershipCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new ConversationMembershipCache(conversationRepository);
+        ReflectionTestUtils.setField(cache, "maxEntries", 10);
+    }
+
+    @Test
+    @DisplayName("Kiểm tra quyền - Chỉ nạp hai id một lần, người ngoài bị từ chối")
+    void whenCheckedRepeatedly_thenLoadedOnceAndOutsiderRejected() {
+        when(conversationRepository.findMemberIds("conv-1")).thenReturn(List.<Object[]>of(new Object[]{"alice", "bob"}));
+
+        cache.requireMember("conv-1", "alice", "denied");
+        cache.requireMember("conv-1", "bob", "denied");
+        assertThatThrownBy(() -> cache.requireMember("conv-1", "mallory", "denied")).hasMessage("denied");
+
+        verify(conversationRepository, times(1)).findMemberIds("conv-1");
+        assertThat(cache.stats()).containsEntry("hits", 2L).containsEntry("misses", 1L);
+    }
+
+    @Test
+    @DisplayName("Vượt giới hạn - Bỏ bớt entry, giữ dưới max-entries")
+    void whenOverCapacity_thenEvicted() {
+        when(conversationRepository.findMemberIds(anyString())).thenReturn(List.<Object[]>of(new Object[]{"a", "b"}));
+
+        for (int i = 0; i < 25; i++) {
+            cache.get("conv-" + i);
+        }
+
+        assertThat((Integer) cache.stats().get("entries")).isLessThanOrEqualTo(10);
+        assertThat((Long) cache.stats().get("evictions")).isPositive();
+    }
+
+    @Test
+    @DisplayName("Hội thoại không tồn tại - Không cache, báo lỗi")
+    void whenConversationMissing_thenThrows() {
+        when(conversationRepository.findMemberIds("nope")).thenReturn(List.of());
+
+        assertThatThrownBy(() -> cache.get("nope")).isInstanceOf(IllegalArgumentException.class);
+        assertThat(cache.stats()).containsEntry("entries", 0);
+    }
+
+    @Test
+    @DisplayName("Xóa tài khoản - Bỏ các hội thoại của user, lần kiểm tra sau báo không tìm thấy")
+    void whenMemberDeleted_thenConversationsDropped() {
+        cache.put("conv-1", "alice", "bob");
+        cache.put("conv-2", "carol", "dave");
+        when(conversationRepository.findMemberIds("conv-1")).thenReturn(List.of());
+
+        cache.onUserChanged(new UserChangedEvent("bob", null, null, null, null, UserChangedEvent.Type.DELETED));
+
+        assertThatThrownBy(() -> cache.requireMember("conv-1", "alice", "Không phải thành viên"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(cache.requireMember("conv-2", "carol", "Không phải thành viên").getUserTwoId()).isEqualTo("dave");
+        verify(conversationRepository, never()).findMemberIds("conv-2");
+    }
+}
@@ -0,0 +1,120 @@
+package com.pbl6.backend.service;
+
+import com.pbl6.backend.model.DailyMetrics;
+import com.pbl6.backend.model.Post;
+import com.pbl6.backend.repository.DailyMetricsRepository;
+import com.pbl6.backend.repository.MessageRepository;
+import com.pbl6.backend.repository.ModerationReportRepository;
+import com.pbl6.backend.repository.PostRepository;
+import com.pbl6.backend.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit Test cho DailyMetricsRollupService
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Daily Metrics Rollup Service Tests")
+class DailyMetricsRollupServiceTest {
+
+    @Mock
+    private DailyMetricsRepository dailyMetricsRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private PostRepository postRepository;
+
+    @Mock
+    private MessageRepository messageRepository;
+
+    @Mock
+    private ModerationReportRepository reportRepository;
+
+    private DailyMetricsRollupService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new DailyMetricsRollupService(dailyMetricsRepository, userRepository, postRepository,
+                messageRepository, reportRepository);
+        ReflectionTestUtils.setField(service, "closeAfterMs", 3_600_000L);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    @DisplayName("Tổng hợp - Mỗi ngày một dòng (kể cả ngày trống), hôm qua chỉ đóng sau close-after")
+    void whenRollup_thenOneRowPerDayAndClosedAfterGrace() {
+        LocalDate yesterday = LocalDate.of(2024, 5, 1);
+        LocalDate today = yesterday.plusDays(1);
+        LocalDateTime start = yesterday.atStartOfDay();
+        LocalDateTime end = today.plusDays(1).atStartOfDay();
+        when(userRepository.countCreatedPerDay(start, end)).thenReturn(List.<Object[]>of(
+                new Object[]{java.sql.Date.valueOf(yesterday), 3L}));
+        when(postRepository.countCreatedPerDayByMediaTypeAndCaptionStatus(start, end)).thenReturn(List.<Object[]>of(
+                new Object[]{yesterday, Post.MediaType.PHOTO, Post.CaptionStatus.COMPLETED, 5L},
+                new Object[]{yesterday, Post.MediaType.PHOTO, Post.CaptionStatus.FAILED, 1L},
+                new Object[]{yesterday, Post.MediaType.VIDEO, Post.CaptionStatus.PENDING, 2L}));
+        when(messageRepository.countSentPerDay(start, end)).thenReturn(List.<Object[]>of(
+                new Object[]{yesterday, 40L}, new Object[]{today, 7L}));
+        when(reportRepository.countCreatedPerDay(start, end)).thenReturn(List.of());
+
+        // 00:30 hôm nay: hôm qua mới hết 30 phút, chưa đóng
+        assertThat(service.rollup(yesterday, today.plusDays(1), today.atTime(0, 30))).isEqualTo(2);
+        ArgumentCaptor<Iterable<DailyMetrics>> saved = ArgumentCaptor.forClass(Iterable.class);
+        verify(dailyMetricsRepository).saveAll(saved.capture());
+        List<DailyMetrics> rows = new ArrayList<>();
+        saved.getValue().forEach(rows::add);
+
+        DailyMetrics y = rows.get(0);
+        assertThat(y.getMetricDate()).isEqualTo(yesterday);
+        assertThat(y.getNewUsers()).isEqualTo(3);
+        assertThat(y.getPosts()).isEqualTo(8);
+        assertThat(y.getPhotoPosts()).isEqualTo(6);
+        assertThat(y.getCaptionsCompleted()).isEqualTo(5);
+        assertThat(y.getCaptionsFailed()).isEqualTo(1);
+        assertThat(y.getMessages()).isEqualTo(40);
+        assertThat(y.isClosed()).isFalse();
+        assertThat(rows.get(1).getMessages()).isEqualTo(7);
+        assertThat(rows.get(1).getNewUsers()).isZero();
+
+        clearInvocations(dailyMetricsRepository);
+        service.rollup(yesterday, today, today.atTime(1, 0));
+        verify(dailyMetricsRepository).saveAll(saved.capture());
+        assertThat(saved.getValue().iterator().next().isClosed()).isTrue();
+    }
+
+    @Test
+    @DisplayName("Điểm bắt đầu - Ngày mở sớm nhất, hết ngày mở thì sau ngày đóng cuối, bảng rỗng thì từ user đầu tiên")
+    void whenFindingFirstOpenDay_thenOnlyOpenDaysReprocessed() {
+        LocalDate today = LocalDate.of(2024, 5, 2);
+        DailyMetrics open = new DailyMetrics(today.minusDays(1));
+        when(dailyMetricsRepository.findFirstByClosedFalseOrderByMetricDateAsc()).thenReturn(Optional.of(open));
+        assertThat(service.firstOpenDay(today)).isEqualTo(today.minusDays(1));
+
+        DailyMetrics closed = new DailyMetrics(today.minusDays(1));
+        closed.setClosed(true);
+        when(dailyMetricsRepository.findFirstByClosedFalseOrderByMetricDateAsc()).thenReturn(Optional.empty());
+        when(dailyMetricsRepository.findFirstByOrderByMetricDateDesc()).thenReturn(Optional.of(closed));
+        assertThat(service.firstOpenDay(today)).isEqualTo(today);
+
+        when(dailyMetricsRepository.findFirstByOrderByMetricDateDesc()).thenReturn(Optional.empty());
+        when(userRepository.findEarliestCreatedAt()).thenReturn(LocalDateTime.of(2023, 1, 15, 8, 0));
+        assertThat(service.firstOpenDay(today)).isEqualTo(LocalDate.of(2023, 1, 15));
+    }
+}
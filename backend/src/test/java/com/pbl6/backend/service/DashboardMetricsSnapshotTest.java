@@ -0,0 +1,100 @@
+package com.pbl6.backend.service;
+
+import com.pbl6.backend.event.MetricsDeltaEvent;
+import com.pbl6.backend.model.ModerationReport;
+import com.pbl6.backend.model.Post;
+import com.pbl6.backend.model.User;
+import com.pbl6.backend.repository.ModerationReportRepository;
+import com.pbl6.backend.repository.PostRepository;
+import com.pbl6.backend.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit Test cho DashboardMetricsSnapshot
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Dashboard Metrics Snapshot Tests")
+class DashboardMetricsSnapshotTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private PostRepository postRepository;
+
+    @Mock
+    private ModerationReportRepository reportRepository;
+
+    private DashboardMetricsSnapshot snapshot;
+
+    @BeforeEach
+    void setUp() {
+        snapshot = new DashboardMetricsSnapshot(userRepository, postRepository, reportRepository);
+        ReflectionTestUtils.setField(snapshot, "maxStalenessMs", 900_000L);
+        when(userRepository.countGroupByAccountStatus()).thenReturn(List.<Object[]>of(
+                new Object[]{User.AccountStatus.ACTIVE, 90L},
+                new Object[]{User.AccountStatus.BANNED, 10L}));
+        when(postRepository.countGroupByMediaTypeAndCaptionStatus()).thenReturn(List.<Object[]>of(
+                new Object[]{Post.MediaType.PHOTO, Post.CaptionStatus.COMPLETED, 30L},
+                new Object[]{Post.MediaType.PHOTO, Post.CaptionStatus.PENDING, 5L},
+                new Object[]{Post.MediaType.VIDEO, Post.CaptionStatus.FAILED, 2L}));
+        when(reportRepository.countGroupByStatus()).thenReturn(List.<Object[]>of(
+                new Object[]{ModerationReport.ReportStatus.PENDING, 4L}));
+    }
+
+    @Test
+    @DisplayName("Đọc - Đếm lại một lần rồi phục vụ từ bộ nhớ, delta cộng / trừ đúng ô")
+    void whenDeltasApplied_thenCountsFollowWithoutRequery() {
+        DashboardMetricsSnapshot.Snapshot first = snapshot.get();
+        assertThat(first.users()).isEqualTo(100);
+        assertThat(first.posts()).isEqualTo(37);
+        assertThat(first.posts(Post.MediaType.PHOTO)).isEqualTo(35);
+        assertThat(first.posts(Post.CaptionStatus.FAILED)).isEqualTo(2);
+        assertThat(first.reports(ModerationReport.ReportStatus.PENDING)).isEqualTo(4);
+
+        snapshot.onMetricsDelta(MetricsDeltaEvent.user(null, User.AccountStatus.ACTIVE));
+        snapshot.onMetricsDelta(MetricsDeltaEvent.user(User.AccountStatus.ACTIVE, User.AccountStatus.SUSPENDED));
+        snapshot.onMetricsDelta(MetricsDeltaEvent.post(Post.MediaType.PHOTO, Post.CaptionStatus.PENDING, Post.CaptionStatus.COMPLETED));
+        snapshot.onMetricsDelta(MetricsDeltaEvent.post(Post.MediaType.VIDEO, Post.CaptionStatus.FAILED, null));
+        snapshot.onMetricsDelta(MetricsDeltaEvent.report(ModerationReport.ReportStatus.PENDING, ModerationReport.ReportStatus.RESOLVED));
+
+        DashboardMetricsSnapshot.Snapshot now = snapshot.get();
+        assertThat(now.users()).isEqualTo(101);
+        assertThat(now.users(User.AccountStatus.ACTIVE)).isEqualTo(90);
+        assertThat(now.users(User.AccountStatus.SUSPENDED)).isEqualTo(1);
+        assertThat(now.posts()).isEqualTo(36);
+        assertThat(now.posts(Post.CaptionStatus.COMPLETED)).isEqualTo(31);
+        assertThat(now.posts(Post.MediaType.VIDEO)).isEqualTo(1);
+        assertThat(now.reports(ModerationReport.ReportStatus.PENDING)).isEqualTo(3);
+        assertThat(now.getComputedAt()).isEqualTo(first.getComputedAt());
+        verify(userRepository, times(1)).countGroupByAccountStatus();
+    }
+
+    @Test
+    @DisplayName("Đếm lại - Delta đến giữa chừng được cộng lên kết quả, quá hạn staleness thì đọc đếm lại")
+    void whenDeltaArrivesDuringRefresh_thenReplayedAndStaleSnapshotRecomputed() {
+        when(reportRepository.countGroupByStatus()).thenAnswer(inv -> {
+            snapshot.onMetricsDelta(MetricsDeltaEvent.report(null, ModerationReport.ReportStatus.PENDING));
+            return List.<Object[]>of(new Object[]{ModerationReport.ReportStatus.PENDING, 4L});
+        });
+
+        snapshot.onSchedule();
+        assertThat(snapshot.get().reports(ModerationReport.ReportStatus.PENDING)).isEqualTo(5);
+
+        ReflectionTestUtils.setField(snapshot, "maxStalenessMs", -1L);
+        assertThat(snapshot.get().reports(ModerationReport.ReportStatus.PENDING)).isEqualTo(5);
+        verify(userRepository, times(2)).countGroupByAccountStatus();
+        assertThat(snapshot.stats()).containsEntry("refreshes", 2L);
+    }
+}
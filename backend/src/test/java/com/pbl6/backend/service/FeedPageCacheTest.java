@@ -0,0 +1,77 @@
+package com.pbl6.backend.service;
+
+import com.pbl6.backend.event.PostChangedEvent;
+import com.pbl6.backend.response.PostResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit Test cho FeedPageCache
+ */
+@DisplayName("Feed Page Cache Tests")
+class FeedPageCacheTest {
+
+    private FeedPageCache cache;
+    private AtomicInteger loads;
+
+    @BeforeEach
+    void setUp() {
+        cache = new FeedPageCache();
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "maxBytes", 64L * 1024 * 1024);
+        ReflectionTestUtils.setField(cache, "ttlSeconds", 30L);
+        loads = new AtomicInteger();
+    }
+
+    @Test
+    @DisplayName("Trang đầu - Lần hai lấy từ cache, bị xóa khi có PostChangedEvent")
+    void whenPostChanged_thenAffectedUsersAreInvalidated() {
+        cache.getOrLoad("u1", 20, () -> load(20));
+        cache.getOrLoad("u1", 10, () -> load(20));
+        assertThat(loads.get()).isEqualTo(1);
+
+        cache.onPostChanged(new PostChangedEvent("p1", "author", Set.of("u1"), PostChangedEvent.Type.CREATED));
+        cache.getOrLoad("u1", 20, () -> load(20));
+
+        assertThat(loads.get()).isEqualTo(2);
+        assertThat(cache.stats()).containsEntry("hits", 1L).containsEntry("invalidations", 1L);
+    }
+
+    @Test
+    @DisplayName("Vượt giới hạn byte - Entry ít dùng nhất bị loại")
+    void whenOverByteCap_thenEvictLeastRecentlyUsed() {
+        long onePage = FeedPageCache.estimateBytes("u1", load(20));
+        ReflectionTestUtils.setField(cache, "maxBytes", onePage * 2);
+        loads.set(0);
+
+        cache.getOrLoad("u1", 20, () -> load(20));
+        cache.getOrLoad("u2", 20, () -> load(20));
+        cache.getOrLoad("u1", 20, () -> load(20)); // u1 mới dùng lại → u2 là LRU
+        cache.getOrLoad("u3", 20, () -> load(20));
+
+        assertThat(cache.stats()).containsEntry("evictions", 1L).containsEntry("entries", 2);
+        cache.getOrLoad("u1", 20, () -> load(20));
+        assertThat(loads.get()).isEqualTo(3);
+    }
+
+    private List<PostResponse> load(int n) {
+        loads.incrementAndGet();
+        List<PostResponse> page = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            PostResponse p = new PostResponse();
+            p.setPostId("post-" + i);
+            p.setMediaUrl("https://example.com/" + i + ".jpg");
+            page.add(p);
+        }
+        return page;
+    }
+}
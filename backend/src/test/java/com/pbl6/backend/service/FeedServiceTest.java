@@ -0,0 +1,136 @@
+package com.pbl6.backend.service;
+
+import com.pbl6.backend.event.PostChangedEvent;
+import com.pbl6.backend.model.FeedEntry;
+import com.pbl6.backend.model.Post;
+import com.pbl6.backend.model.User;
+import com.pbl6.backend.repository.FeedEntryRepository;
+import com.pbl6.backend.repository.PostRecipientRepository;
+import com.pbl6.backend.repository.PostRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit Test cho FeedService
+ * Test fan-out-on-write và gộp feed lúc đọc
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Feed Service Tests")
+class FeedServiceTest {
+
+    @Mock
+    private FeedEntryRepository feedEntryRepository;
+
+    @Mock
+    private PostRepository postRepository;
+
+    @Mock
+    private PostRecipientRepository postRecipientRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @InjectMocks
+    private FeedService feedService;
+
+    private User author;
+
+    @BeforeEach
+    void setUp() {
+        author = user("author");
+        ReflectionTestUtils.setField(feedService, "maxFanoutRecipients", 2);
+    }
+
+    @Test
+    @DisplayName("Fan-out - Ghi feed cho tác giả và từng recipient")
+    @SuppressWarnings("unchecked")
+    void whenFanOutSmallPost_thenWriteEntryPerRecipient() {
+        Post post = post("post-1", LocalDateTime.now());
+
+        feedService.fanOut(post, List.of(user("r1"), user("r2")));
+
+        ArgumentCaptor<List<FeedEntry>> captor = ArgumentCaptor.forClass(List.class);
+        verify(feedEntryRepository).saveAll(captor.capture());
+        assertThat(captor.getValue()).extracting(FeedEntry::getUserId).containsExactly("author", "r1", "r2");
+        verify(postRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("Fan-out - Post quá nhiều recipients chuyển sang fan-out-on-read")
+    @SuppressWarnings("unchecked")
+    void whenFanOutLargePost_thenMarkFanoutOnRead() {
+        Post post = post("post-1", LocalDateTime.now());
+
+        feedService.fanOut(post, List.of(user("r1"), user("r2"), user("r3")));
+
+        ArgumentCaptor<List<FeedEntry>> captor = ArgumentCaptor.forClass(List.class);
+        verify(feedEntryRepository).saveAll(captor.capture());
+        assertThat(captor.getValue()).extracting(FeedEntry::getUserId).containsExactly("author");
+        assertThat(post.getFanoutOnRead()).isTrue();
+        verify(postRepository).save(post);
+    }
+
+    @Test
+    @DisplayName("Read - Gộp inbox và fan-out-on-read theo (createdAt, postId)")
+    void whenReadPage_thenMergeInboxAndFanoutOnRead() {
+        LocalDateTime t = LocalDateTime.of(2024, 5, 1, 10, 0);
+        Post a = post("a", t);
+        Post b = post("b", t);
+        Post big = post("c", t.plusMinutes(1));
+        User me = user("me");
+
+        when(feedEntryRepository.findPostIdsForUser(eq("me"), any(Pageable.class))).thenReturn(List.of("b", "a"));
+        when(postRepository.findFanoutOnReadPostsForUser(eq(me), any(Pageable.class))).thenReturn(List.of(big));
+        when(postRepository.findAllWithUserByPostIdIn(List.of("b", "a"))).thenReturn(List.of(a, b));
+
+        List<Post> page = feedService.readPage(me, null, null, 2);
+
+        assertThat(page).extracting(Post::getPostId).containsExactly("c", "b");
+    }
+
+    @Test
+    @DisplayName("Xóa tài khoản - Báo từng post của tác giả cho audience của nó")
+    void whenRemoveUser_thenPublishDeletedPerAuthoredPost() {
+        when(postRecipientRepository.findRecipientIdsByAuthorId("author")).thenReturn(List.<Object[]>of(
+                new Object[]{"p1", "r1"}, new Object[]{"p1", "r2"}, new Object[]{"p2", "r3"}));
+
+        feedService.removeUser("author");
+
+        verify(feedEntryRepository).deleteByUserOrAuthor("author");
+        ArgumentCaptor<PostChangedEvent> events = ArgumentCaptor.forClass(PostChangedEvent.class);
+        verify(eventPublisher, times(2)).publishEvent(events.capture());
+        assertThat(events.getAllValues().get(0).getAffectedUserIds()).containsExactly("author", "r1", "r2");
+        assertThat(events.getAllValues().get(1).getPostId()).isEqualTo("p2");
+        assertThat(events.getAllValues()).extracting(PostChangedEvent::getType).containsOnly(PostChangedEvent.Type.DELETED);
+    }
+
+    private User user(String id) {
+        User u = new User();
+        u.setUserId(id);
+        return u;
+    }
+
+    private Post post(String id, LocalDateTime createdAt) {
+        Post p = new Post(author, Post.MediaType.PHOTO, "https://example.com/" + id + ".jpg");
+        p.setPostId(id);
+        p.setCaptionStatus(Post.CaptionStatus.COMPLETED);
+        p.setCreatedAt(createdAt);
+        return p;
+    }
+}
@@ -0,0 +1,71 @@
+package com.pbl6.backend.service;
+
+import com.pbl6.backend.event.FriendshipChangedEvent;
+import com.pbl6.backend.repository.FriendshipRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit Test cho FriendGraph
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Friend Graph Tests")
+class FriendGraphTest {
+
+    @Mock
+    private FriendshipRepository friendshipRepository;
+
+    private FriendGraph graph;
+
+    @BeforeEach
+    void setUp() {
+        graph = new FriendGraph(friendshipRepository);
+        ReflectionTestUtils.setField(graph, "batchSize", 2);
+    }
+
+    @Test
+    @DisplayName("Rebuild - Đọc theo batch, trả lời bạn bè / số bạn / bạn chung")
+    void whenRebuilt_thenAnswersFromAdjacency() {
+        when(friendshipRepository.findAcceptedPairsAfter(eq(""), any(Pageable.class))).thenReturn(List.of(
+                new Object[]{"f1", "alice", "bob"},
+                new Object[]{"f2", "alice", "carol"}));
+        when(friendshipRepository.findAcceptedPairsAfter(eq("f2"), any(Pageable.class))).thenReturn(List.<Object[]>of(
+                new Object[]{"f3", "bob", "carol"}));
+
+        graph.rebuild();
+
+        assertThat(graph.isReady()).isTrue();
+        assertThat(graph.friendIds("alice")).containsExactlyInAnyOrder("bob", "carol");
+        assertThat(graph.friendCount("carol")).isEqualTo(2);
+        assertThat(graph.areFriends("bob", "carol")).isTrue();
+        assertThat(graph.areFriends("bob", "dave")).isFalse();
+        assertThat(graph.mutualFriendIds("alice", "bob")).containsExactly("carol");
+    }
+
+    @Test
+    @DisplayName("Sự kiện - Accept thêm cạnh, unfriend/block xóa cạnh ở cả hai phía")
+    void whenFriendshipChanged_thenEdgesUpdatedBothWays() {
+        graph.onFriendshipChanged(new FriendshipChangedEvent("alice", "bob", FriendshipChangedEvent.Type.ACCEPTED));
+        graph.onFriendshipChanged(new FriendshipChangedEvent("bob", "alice", FriendshipChangedEvent.Type.ACCEPTED));
+        assertThat(graph.friendCount("alice")).isEqualTo(1);
+        assertThat(graph.areFriends("bob", "alice")).isTrue();
+
+        graph.onFriendshipChanged(new FriendshipChangedEvent("bob", "alice", FriendshipChangedEvent.Type.REMOVED));
+
+        assertThat(graph.areFriends("alice", "bob")).isFalse();
+        assertThat(graph.friendIds("bob")).isEmpty();
+        assertThat(graph.stats()).containsEntry("edges", 0L);
+    }
+}
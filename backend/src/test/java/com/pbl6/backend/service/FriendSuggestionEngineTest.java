@@ -0,0 +1,94 @@
+package com.pbl6.backend.service;
+
+import com.pbl6.backend.event.FriendshipChangedEvent;
+import com.pbl6.backend.repository.FriendshipRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit Test cho FriendSuggestionEngine
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Friend Suggestion Engine Tests")
+class FriendSuggestionEngineTest {
+
+    @Mock
+    private FriendshipRepository friendshipRepository;
+
+    private FriendGraph graph;
+    private FriendSuggestionEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        graph = new FriendGraph(friendshipRepository);
+        engine = new FriendSuggestionEngine(graph, friendshipRepository);
+        ReflectionTestUtils.setField(engine, "topK", 2);
+        ReflectionTestUtils.setField(engine, "maxBridgeDegree", 5000);
+        ReflectionTestUtils.setField(engine, "parallelism", 2);
+        ReflectionTestUtils.setField(engine, "batchSize", 100);
+
+        accept("alice", "bob");
+        accept("alice", "carol");
+        accept("bob", "dave");
+        accept("carol", "dave");
+        accept("bob", "erin");
+        accept("carol", "frank");
+        accept("dave", "gina");
+    }
+
+    private void accept(String a, String b) {
+        graph.onFriendshipChanged(new FriendshipChangedEvent(a, b, FriendshipChangedEvent.Type.ACCEPTED));
+    }
+
+    @Test
+    @DisplayName("Run - Xếp theo số bạn chung, bỏ bạn hiện tại và cặp PENDING/BLOCKED")
+    void whenRun_thenTopKByMutualCountExcludingFriendsAndPendingPairs() {
+        // alice ↔ frank đang PENDING
+        when(friendshipRepository.findNonAcceptedPairsAfter(eq(""), any(Pageable.class)))
+                .thenReturn(List.<Object[]>of(new Object[]{"f1", "alice", "frank"}));
+
+        engine.run();
+
+        List<FriendSuggestionEngine.Suggestion> forAlice = engine.suggestionsFor("alice");
+        assertThat(forAlice).extracting(FriendSuggestionEngine.Suggestion::getUserId).containsExactly("dave", "erin");
+        assertThat(forAlice).extracting(FriendSuggestionEngine.Suggestion::getMutualFriendCount).containsExactly(2, 1);
+
+        // dave có 3 ứng viên (alice 2, erin 1, frank 1) nhưng chỉ giữ top-2
+        List<FriendSuggestionEngine.Suggestion> forDave = engine.suggestionsFor("dave");
+        assertThat(forDave).hasSize(2);
+        assertThat(forDave.get(0).getUserId()).isEqualTo("alice");
+        assertThat(forDave.get(0).getMutualFriendCount()).isEqualTo(2);
+
+        assertThat(engine.suggestionsFor("frank")).extracting(FriendSuggestionEngine.Suggestion::getUserId)
+                .doesNotContain("alice", "carol");
+        assertThat(engine.suggestionsFor("nobody")).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Run - Bạn có quá nhiều bạn không được dùng làm cầu nối")
+    void whenBridgeDegreeExceeded_thenBridgeSkipped() {
+        when(friendshipRepository.findNonAcceptedPairsAfter(eq(""), any(Pageable.class))).thenReturn(List.of());
+        // dave có 3 bạn (bob, carol, gina) → vượt ngưỡng 2; alice có 2 bạn → vẫn là cầu nối
+        ReflectionTestUtils.setField(engine, "maxBridgeDegree", 2);
+
+        engine.run();
+
+        // Không giới hạn thì bob được gợi ý carol (qua alice và dave) và gina (qua dave)
+        assertThat(engine.suggestionsFor("bob")).extracting(FriendSuggestionEngine.Suggestion::getUserId)
+                .containsExactly("carol");
+        assertThat(engine.suggestionsFor("bob")).extracting(FriendSuggestionEngine.Suggestion::getMutualFriendCount)
+                .containsExactly(1);
+    }
+}
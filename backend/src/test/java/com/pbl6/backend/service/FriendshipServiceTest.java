@@ -6,6 +6,9 @@ import com.pbl6.backend.model.User;
 import com.pbl6.backend.repository.ConversationRepository;
 import com.pbl6.backend.repository.FriendshipRepository;
 import com.pbl6.backend.repository.UserRepository;
+import com.pbl6.backend.request.ContactSyncRequest;
+import com.pbl6.backend.response.ContactMatchResponse;
+import com.pbl6.backend.response.FriendSuggestionResponse;
 import com.pbl6.backend.response.PublicUserResponse;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -14,11 +17,13 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.*;
@@ -45,6 +50,18 @@ class FriendshipServiceTest {
     @Mock
     private ConversationRepository conversationRepository;
 
+    @Mock
+    private FriendGraph friendGraph;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private FriendSuggestionEngine friendSuggestionEngine;
+
+    @Mock
+    private ContactHashIndex contactHashIndex;
+
     @InjectMocks
     private FriendshipService friendshipService;
 
@@ -282,4 +299,112 @@ class FriendshipServiceTest {
 
         verify(friendshipRepository, times(1)).findFriendsByUser(user1);
     }
+
+    @Test
+    @DisplayName("Get Friends - Đọc từ FriendGraph khi đã dựng xong")
+    void whenFriendGraphReady_thenFriendsReadFromGraph() {
+        when(userRepository.findById(user1.getUserId())).thenReturn(Optional.of(user1));
+        when(friendGraph.isReady()).thenReturn(true);
+        when(friendGraph.friendIds(user1.getUserId())).thenReturn(List.of(user2.getUserId()));
+        when(userRepository.findAllById(List.of(user2.getUserId()))).thenReturn(List.of(user2));
+        PublicUserResponse response2 = new PublicUserResponse();
+        response2.setUsername(user2.getUsername());
+        when(userService.toPublicUserResponse(user2)).thenReturn(response2);
+
+        List<PublicUserResponse> result = friendshipService.getFriends(user1.getUserId());
+
+        assertThat(result).extracting(PublicUserResponse::getUsername).containsExactly(user2.getUsername());
+        verify(friendshipRepository, never()).findFriendsByUser(any());
+    }
+
+    @Test
+    @DisplayName("Friend Suggestions - Bỏ người đã có quan hệ và tài khoản không ACTIVE")
+    void whenGetFriendSuggestions_thenRelatedAndInactiveUsersFiltered() {
+        User banned = new User();
+        banned.setUserId("user-4-id");
+        banned.setUsername("banned");
+        banned.setAccountStatus(User.AccountStatus.BANNED);
+        when(friendSuggestionEngine.suggestionsFor(user1.getUserId())).thenReturn(List.of(
+                new FriendSuggestionEngine.Suggestion(user2.getUserId(), 5),
+                new FriendSuggestionEngine.Suggestion(banned.getUserId(), 4),
+                new FriendSuggestionEngine.Suggestion(user3.getUserId(), 2)));
+        // user2 đã được gửi lời mời sau lần chạy batch
+        when(friendshipRepository.findRelatedUserIds(eq(user1.getUserId()), anyCollection()))
+                .thenReturn(List.of(user2.getUserId()));
+        when(userRepository.findAllById(anyIterable())).thenReturn(List.of(user2, banned, user3));
+        PublicUserResponse response3 = new PublicUserResponse();
+        response3.setUsername(user3.getUsername());
+        when(userService.toPublicUserResponse(user3)).thenReturn(response3);
+
+        List<FriendSuggestionResponse> result = friendshipService.getFriendSuggestions(user1.getUserId(), null);
+
+        assertThat(result).hasSize(1);
+        assertThat(result.get(0).getUser().getUsername()).isEqualTo(user3.getUsername());
+        assertThat(result.get(0).getMutualFriendCount()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Send Friend Request - Lưu theo cặp chuẩn hóa, requester là người gửi")
+    void whenSendFriendRequest_thenPairStoredCanonicallyWithRequester() {
+        when(userRepository.findById(user2.getUserId())).thenReturn(Optional.of(user2));
+        when(userRepository.findByUsername(user1.getUsername())).thenReturn(Optional.of(user1));
+        when(friendshipRepository.findByUsers(user2, user1)).thenReturn(Optional.empty());
+        when(friendshipRepository.save(any(Friendship.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        Friendship result = friendshipService.sendFriendRequest(user2.getUserId(), user1.getUsername());
+
+        // user-1-id < user-2-id nên user1 luôn nằm ở userOne
+        assertThat(result.getUserOne()).isEqualTo(user1);
+        assertThat(result.getUserTwo()).isEqualTo(user2);
+        assertThat(result.getRequester()).isEqualTo(user2);
+        assertThat(result.getAddressee()).isEqualTo(user1);
+    }
+
+    @Test
+    @DisplayName("Accept Friend Request - Người gửi không tự chấp nhận được")
+    void whenRequesterAcceptsOwnRequest_thenThrowException() {
+        Friendship pending = new Friendship(user1, user2, Friendship.FriendshipStatus.PENDING);
+        when(userRepository.findById(user1.getUserId())).thenReturn(Optional.of(user1));
+        when(userRepository.findByUsername(user2.getUsername())).thenReturn(Optional.of(user2));
+        when(friendshipRepository.findByUsers(user2, user1)).thenReturn(Optional.of(pending));
+
+        assertThatThrownBy(() -> friendshipService.acceptFriendRequest(user1.getUserId(), user2.getUsername()))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessageContaining("Không thể tự chấp nhận");
+
+        verify(friendshipRepository, never()).save(any());
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    @DisplayName("Contact Sync - Khớp hash, kèm trạng thái quan hệ, bỏ cặp đang chặn")
+    void whenMatchContacts_thenMatchesCarryFriendshipStatus() {
+        User blocked = new User();
+        blocked.setUserId("user-4-id");
+        blocked.setPhoneNumber("0900000004");
+        blocked.setAccountStatus(User.AccountStatus.ACTIVE);
+        user2.setPhoneNumber("0900000002");
+        user3.setEmail("hieu@example.com");
+        when(contactHashIndex.isReady()).thenReturn(true);
+        when(contactHashIndex.lookup(List.of("h2", "h4"))).thenReturn(Map.of("h2", user2.getUserId(), "h4", blocked.getUserId()));
+        when(contactHashIndex.lookup(List.of("h3"))).thenReturn(Map.of("h3", user3.getUserId()));
+        when(contactHashIndex.phoneHash("0900000002")).thenReturn("h2");
+        when(contactHashIndex.phoneHash("0900000004")).thenReturn("h4");
+        when(contactHashIndex.emailHash("hieu@example.com")).thenReturn("h3");
+        when(userRepository.findAllById(anyIterable())).thenReturn(List.of(user2, user3, blocked));
+        when(friendshipRepository.findRelationsWith(eq(user1.getUserId()), anyCollection())).thenReturn(List.of(
+                new Object[]{user2.getUserId(), Friendship.FriendshipStatus.PENDING, user2.getUserId()},
+                new Object[]{blocked.getUserId(), Friendship.FriendshipStatus.BLOCKED, user1.getUserId()}));
+        when(userService.toPublicUserResponse(any(User.class))).thenAnswer(inv -> {
+            PublicUserResponse r = new PublicUserResponse();
+            r.setUserId(inv.<User>getArgument(0).getUserId());
+            return r;
+        });
+
+        List<ContactMatchResponse> result = friendshipService.matchContacts(user1.getUserId(),
+                new ContactSyncRequest(List.of("h2", "h4"), List.of("h3")));
+
+        assertThat(result).extracting(r -> r.getUser().getUserId() + "=" + r.getFriendshipStatus())
+                .containsExactlyInAnyOrder(user2.getUserId() + "=REQUEST_RECEIVED", user3.getUserId() + "=NONE");
+    }
 }
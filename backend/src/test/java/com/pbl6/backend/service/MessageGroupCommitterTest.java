@@ -0,0 +1,150 @@
+package com.pbl6.backend.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit Test cho MessageGroupCommitter
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Message Group Committer Tests")
+class MessageGroupCommitterTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private MessageGroupCommitter committer;
+
+    @BeforeEach
+    void setUp() {
+        committer = new MessageGroupCommitter(jdbcTemplate, transactionManager);
+        ReflectionTestUtils.setField(committer, "enabled", true);
+        ReflectionTestUtils.setField(committer, "windowMs", 200L);
+        ReflectionTestUtils.setField(committer, "maxBatch", 8);
+        ReflectionTestUtils.setField(committer, "timeoutMs", 5000L);
+        ReflectionTestUtils.setField(committer, "queueCapacity", 100);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        committer.stop();
+    }
+
+    @Test
+    @DisplayName("Gửi đồng thời - Một batch insert và một UPDATE cho mỗi hội thoại")
+    @SuppressWarnings("unchecked")
+    void whenConcurrentSends_thenOneBatchAndCollapsedConversationUpdate() throws Exception {
+        committer.start();
+        LocalDateTime base = LocalDateTime.now();
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                // alice gửi 3 tin, bob gửi 1 tin (mới nhất) trong conv-1
+                String sender = i < 3 ? "alice" : "bob";
+                MessageGroupCommitter.PendingMessage m = new MessageGroupCommitter.PendingMessage(
+                        "msg-" + i, "conv-1", "alice", "bob", sender, "hi " + i, "hi " + i, base.plusNanos(i * 1000L));
+                futures.add(pool.submit(() -> committer.submitAndWait(m)));
+            }
+            for (Future<?> f : futures) {
+                f.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        ArgumentCaptor<List<Object[]>> inserts = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(startsWith("INSERT INTO Messages"), inserts.capture());
+        assertThat(inserts.getValue()).hasSize(4);
+
+        ArgumentCaptor<List<Object[]>> updates = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(startsWith("UPDATE Conversations"), updates.capture());
+        assertThat(updates.getValue()).hasSize(1);
+        Object[] row = updates.getValue().get(0);
+        assertThat(row[1]).isEqualTo("msg-3");
+        assertThat(row[6]).isEqualTo(1);
+        assertThat(row[7]).isEqualTo(3);
+        assertThat(committer.stats()).containsEntry("messages", 4L);
+    }
+
+    @Test
+    @DisplayName("Ghi lỗi - Người gọi nhận lỗi thay vì kết quả")
+    void whenWriteFails_thenCallerSeesFailure() {
+        committer.start();
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenThrow(new RuntimeException("db down"));
+        MessageGroupCommitter.PendingMessage m = new MessageGroupCommitter.PendingMessage(
+                "msg-1", "conv-1", "alice", "bob", "alice", "hi", "hi", LocalDateTime.now());
+
+        assertThatThrownBy(() -> committer.submitAndWait(m)).hasMessageContaining("Không thể lưu tin nhắn");
+        Map<String, Object> stats = committer.stats();
+        assertThat(stats).containsEntry("failedBatches", 1L);
+    }
+
+    @Test
+    @DisplayName("Lô lỗi - Ghi lại từng tin, chỉ tin hỏng nhận lỗi")
+    void whenOneMessageFails_thenOthersStillCommitted() {
+        when(jdbcTemplate.batchUpdate(startsWith("INSERT INTO Messages"), anyList())).thenAnswer(inv -> {
+            List<Object[]> rows = inv.getArgument(1);
+            if (rows.stream().anyMatch(row -> "msg-bad".equals(row[0]))) {
+                throw new RuntimeException("Data too long for column 'content'");
+            }
+            return new int[rows.size()];
+        });
+        LocalDateTime now = LocalDateTime.now();
+        MessageGroupCommitter.PendingMessage good = new MessageGroupCommitter.PendingMessage(
+                "msg-ok", "conv-1", "alice", "bob", "alice", "hi", "hi", now);
+        MessageGroupCommitter.PendingMessage bad = new MessageGroupCommitter.PendingMessage(
+                "msg-bad", "conv-2", "alice", "carol", "alice", "x", "x", now);
+
+        committer.commit(List.of(good, bad));
+
+        assertThat(good.done).isCompleted().isNotCompletedExceptionally();
+        assertThat(bad.done).isCompletedExceptionally();
+        assertThat(committer.stats())
+                .containsEntry("messages", 1L)
+                .containsEntry("failedBatches", 1L)
+                .containsEntry("failedMessages", 1L);
+    }
+
+    @Test
+    @DisplayName("Quá thời gian chờ - Tin bị hủy và không được ghi sau đó")
+    void whenCallerTimesOut_thenMessageNeverCommitted() throws InterruptedException {
+        // Writer còn đang gom lô (window 500 ms) khi người gọi hết thời gian chờ (50 ms)
+        ReflectionTestUtils.setField(committer, "windowMs", 500L);
+        ReflectionTestUtils.setField(committer, "timeoutMs", 50L);
+        committer.start();
+        MessageGroupCommitter.PendingMessage m = new MessageGroupCommitter.PendingMessage(
+                "msg-1", "conv-1", "alice", "bob", "alice", "hi", "hi", LocalDateTime.now());
+
+        assertThatThrownBy(() -> committer.submitAndWait(m)).hasMessageContaining("Quá thời gian");
+        committer.stop();
+
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+        assertThat(committer.stats()).containsEntry("cancelledMessages", 1L);
+    }
+}
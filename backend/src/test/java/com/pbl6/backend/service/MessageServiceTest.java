@@ -0,0 +1,172 @@
+package com.pbl6.backend.service;
+
+import com.pbl6.backend.model.Conversation;
+import com.pbl6.backend.model.Message;
+import com.pbl6.backend.model.User;
+import com.pbl6.backend.request.MessageSendRequest;
+import com.pbl6.backend.repository.ConversationRepository;
+import com.pbl6.backend.repository.MessageRepository;
+import com.pbl6.backend.repository.PostRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit Test cho MessageService
+ * Test đánh dấu đã đọc hàng loạt và bộ đếm chưa đọc
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Message Service Tests")
+class MessageServiceTest {
+
+    @Mock
+    private ConversationRepository conversationRepository;
+
+    @Mock
+    private MessageRepository messageRepository;
+
+    @Mock
+    private PostRepository postRepository;
+
+    @Mock
+    private AuthService authService;
+
+    @Mock
+    private PostSnippetCache postSnippetCache;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private MessageGroupCommitter groupCommitter;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private ConversationMembershipCache membershipCache;
+
+    @Mock
+    private BlockList blockList;
+
+    @InjectMocks
+    private MessageService messageService;
+
+    private User alice;
+    private User bob;
+    private Conversation conv;
+
+    @BeforeEach
+    void setUp() {
+        alice = user("alice");
+        bob = user("bob");
+        conv = new Conversation(alice, bob);
+        conv.setConversationId("conv-1");
+    }
+
+    @Test
+    @DisplayName("Mark read up to - Một câu UPDATE và trừ bộ đếm đúng số dòng")
+    void whenMarkReadUpTo_thenSingleUpdateAndDecrementByRows() {
+        LocalDateTime sentAt = LocalDateTime.now();
+        when(conversationRepository.getReferenceById("conv-1")).thenReturn(conv);
+        when(messageRepository.findSentAtByMessageIdAndConversation("msg-9", conv)).thenReturn(Optional.of(sentAt));
+        when(messageRepository.markReadUpTo(conv, bob, sentAt, "msg-9")).thenReturn(7);
+
+        int marked = messageService.markReadUpTo(bob, "conv-1", "msg-9");
+
+        assertThat(marked).isEqualTo(7);
+        verify(conversationRepository).decrementUnread("conv-1", "bob", 7);
+        verify(messageRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("Mark read up to - Không có tin mới thì không đụng bộ đếm")
+    void whenNothingToMark_thenCounterUntouched() {
+        LocalDateTime sentAt = LocalDateTime.now();
+        when(conversationRepository.getReferenceById("conv-1")).thenReturn(conv);
+        when(messageRepository.findSentAtByMessageIdAndConversation("msg-9", conv)).thenReturn(Optional.of(sentAt));
+        when(messageRepository.markReadUpTo(conv, alice, sentAt, "msg-9")).thenReturn(0);
+
+        assertThat(messageService.markReadUpTo(alice, "conv-1", "msg-9")).isZero();
+        verify(conversationRepository, never()).decrementUnread(anyString(), anyString(), anyInt());
+    }
+
+    @Test
+    @DisplayName("Mark as read - Người gửi tự đánh dấu tin của mình không trừ bộ đếm")
+    void whenSenderMarksOwnMessage_thenCounterUntouched() {
+        Message msg = new Message(conv, alice, "hi");
+        msg.setMessageId("msg-1");
+        when(messageRepository.findById("msg-1")).thenReturn(Optional.of(msg));
+        when(messageRepository.markReadById("msg-1", alice)).thenReturn(0);
+
+        messageService.markAsRead(alice, "msg-1");
+
+        verify(conversationRepository, never()).decrementUnread(anyString(), anyString(), anyInt());
+    }
+
+    @Test
+    @DisplayName("Mark as read - Chỉ lần gọi thực sự đổi dòng mới trừ bộ đếm")
+    void whenMarkAsReadTwice_thenCounterDecrementedOnce() {
+        Message msg = new Message(conv, bob, "hi");
+        msg.setMessageId("msg-1");
+        when(messageRepository.findById("msg-1")).thenReturn(Optional.of(msg));
+        // Lần thứ hai (hoặc sau khi markReadUpTo đã đổi dòng) UPDATE có điều kiện không khớp dòng nào
+        when(messageRepository.markReadById("msg-1", alice)).thenReturn(1, 0);
+
+        messageService.markAsRead(alice, "msg-1");
+        messageService.markAsRead(alice, "msg-1");
+
+        verify(conversationRepository, times(1)).decrementUnread("conv-1", "alice", 1);
+    }
+
+    @Test
+    @DisplayName("Send message - Bị chặn thì từ chối trước khi ghi")
+    void whenMembersBlocked_thenSendRejected() {
+        MessageSendRequest req = new MessageSendRequest();
+        req.setConversationId("conv-1");
+        req.setContent("hi");
+        when(groupCommitter.isEnabled()).thenReturn(true);
+        when(membershipCache.requireMember(eq("conv-1"), eq("alice"), anyString()))
+                .thenReturn(new ConversationMembershipCache.Members("alice", "bob"));
+        when(blockList.isBlocked("alice", "bob")).thenReturn(true);
+
+        assertThatThrownBy(() -> messageService.sendMessage(alice, req))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessageContaining("chặn");
+        verify(groupCommitter, never()).submitAndWait(any());
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    @DisplayName("Preview - Cắt theo code point, không tách đôi emoji")
+    void whenContentLong_thenPreviewTruncatedByCodePoint() {
+        String emoji = "\uD83D\uDE00";
+        String content = "a".repeat(MessageService.PREVIEW_LENGTH - 1) + emoji + "tail";
+
+        String preview = MessageService.preview(content);
+
+        assertThat(preview.codePointCount(0, preview.length())).isEqualTo(MessageService.PREVIEW_LENGTH);
+        assertThat(preview).endsWith(emoji);
+        assertThat(MessageService.preview("ngắn")).isEqualTo("ngắn");
+    }
+
+    private User user(String id) {
+        User u = new User();
+        u.setUserId(id);
+        return u;
+    }
+}
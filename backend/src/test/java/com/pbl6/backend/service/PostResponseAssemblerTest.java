@@ -0,0 +1,82 @@
+package com.pbl6.backend.service;
+
+import com.pbl6.backend.model.Post;
+import com.pbl6.backend.model.PostReactionCount;
+import com.pbl6.backend.model.User;
+import com.pbl6.backend.repository.PostReactionCountRepository;
+import com.pbl6.backend.repository.PostRecipientRepository;
+import com.pbl6.backend.repository.UserRepository;
+import com.pbl6.backend.response.PostResponse;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit Test cho PostResponseAssembler
+ * Số query phải cố định, không phụ thuộc số lượng post
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Post Response Assembler Tests")
+class PostResponseAssemblerTest {
+
+    @Mock
+    private PostRecipientRepository postRecipientRepository;
+
+    @Mock
+    private PostReactionCountRepository postReactionCountRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @InjectMocks
+    private PostResponseAssembler assembler;
+
+    @Test
+    @DisplayName("Build 50 posts - Recipients và reactions nạp bằng 1 query mỗi loại")
+    void whenAssembleManyPosts_thenUseFixedNumberOfQueries() {
+        User author = user("author");
+        User recipient = user("recipient");
+        List<Post> posts = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            Post p = new Post(author, Post.MediaType.PHOTO, "https://example.com/" + i + ".jpg");
+            p.setPostId("post-" + i);
+            p.setCaptionStatus(Post.CaptionStatus.COMPLETED);
+            p.setCreatedAt(LocalDateTime.now());
+            posts.add(p);
+        }
+        when(postRecipientRepository.findRecipientsByPostIds(anyCollection()))
+                .thenReturn(List.<Object[]>of(new Object[]{"post-3", recipient}));
+        when(postReactionCountRepository.findByPostIdIn(anyCollection()))
+                .thenReturn(List.of(new PostReactionCount("post-3", "love", 5), new PostReactionCount("post-3", "fire", 2)));
+
+        List<PostResponse> res = assembler.toResponses(posts);
+
+        assertThat(res).hasSize(50);
+        assertThat(res.get(3).getRecipients()).extracting("userId").containsExactly("recipient");
+        assertThat(res.get(3).getTotalReactions()).isEqualTo(7L);
+        assertThat(res.get(3).getReactionCounts()).containsEntry("love", 5L).containsEntry("fire", 2L);
+        assertThat(res.get(4).getRecipients()).isEmpty();
+        verify(postRecipientRepository, times(1)).findRecipientsByPostIds(anyCollection());
+        verify(postReactionCountRepository, times(1)).findByPostIdIn(anyCollection());
+        verifyNoInteractions(userRepository);
+    }
+
+    private User user(String id) {
+        User u = new User();
+        u.setUserId(id);
+        u.setUsername(id);
+        u.setAccountStatus(User.AccountStatus.ACTIVE);
+        return u;
+    }
+}
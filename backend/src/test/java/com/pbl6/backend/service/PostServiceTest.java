@@ -2,13 +2,17 @@ package com.pbl6.backend.service;
 
 import com.pbl6.backend.model.Post;
 import com.pbl6.backend.model.PostReaction;
+import com.pbl6.backend.model.PostRecipient;
 import com.pbl6.backend.model.User;
+import com.pbl6.backend.repository.PostReactionCountRepository;
 import com.pbl6.backend.repository.PostReactionRepository;
 import com.pbl6.backend.repository.PostRecipientRepository;
 import com.pbl6.backend.repository.PostRepository;
 import com.pbl6.backend.repository.UserRepository;
 import com.pbl6.backend.request.AiCaptionInitRequest;
+import com.pbl6.backend.request.PostDirectCreateRequest;
 import com.pbl6.backend.response.AiCaptionInitResponse;
+import com.pbl6.backend.response.PostResponse;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -16,10 +20,15 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.test.util.ReflectionTestUtils;
 
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
+import java.util.function.Supplier;
 
 import static org.assertj.core.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -45,9 +54,30 @@ class PostServiceTest {
     @Mock
     private PostReactionRepository postReactionRepository;
 
+    @Mock
+    private PostReactionCountRepository postReactionCountRepository;
+
     @Mock
     private AzureQueueService azureQueueService;
 
+    @Mock
+    private FeedService feedService;
+
+    @Mock
+    private PostResponseAssembler postResponseAssembler;
+
+    @Mock
+    private FeedPageCache feedPageCache;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private ReactionWriteBuffer reactionWriteBuffer;
+
+    @Mock
+    private BlockList blockList;
+
     @InjectMocks
     private PostService postService;
 
@@ -318,4 +348,125 @@ class PostServiceTest {
 
         verify(postRepository, times(1)).save(any(Post.class));
     }
+
+    @Test
+    @DisplayName("Feed - Keyset cursor không cần tra lại post")
+    void whenGetFeedWithCursor_thenUseKeysetWithoutLookup() {
+        // Arrange
+        LocalDateTime cursorTime = LocalDateTime.of(2024, 5, 1, 10, 0);
+        Post older = new Post(testUser, Post.MediaType.PHOTO, "https://example.com/older.jpg");
+        older.setPostId("post-001");
+        older.setCaptionStatus(Post.CaptionStatus.COMPLETED);
+        older.setCreatedAt(cursorTime);
+
+        PostResponse olderResponse = new PostResponse();
+        olderResponse.setPostId("post-001");
+        when(postRepository.findPostsForUserBefore(eq(testUser), eq(cursorTime), eq("post-002"), any(Pageable.class)))
+                .thenReturn(List.of(older));
+        when(postResponseAssembler.toResponses(List.of(older))).thenReturn(List.of(olderResponse));
+
+        // Act
+        List<PostResponse> feed = postService.getFeedWithPagination(testUser, "post-002", cursorTime, 20);
+
+        // Assert
+        assertThat(feed).extracting(PostResponse::getPostId).containsExactly("post-001");
+        verify(postRepository, never()).findById(anyString());
+        verify(postRepository, never()).findCreatedAtByPostId(anyString());
+    }
+
+    @Test
+    @DisplayName("Feed - Limit được đẩy xuống query")
+    void whenGetFeedWithLargeLimit_thenClampPageSize() {
+        // Arrange
+        when(postRepository.findTopNPostsForUser(eq(testUser), any(Pageable.class))).thenReturn(List.of());
+        when(feedPageCache.getOrLoad(eq("user-123"), eq(50), any()))
+                .thenAnswer(inv -> inv.<Supplier<List<PostResponse>>>getArgument(2).get());
+
+        // Act
+        postService.getFeedWithPagination(testUser, null, null, 500);
+
+        // Assert
+        verify(postRepository).findTopNPostsForUser(testUser, PageRequest.of(0, 50));
+    }
+
+    @Test
+    @DisplayName("React - Đủ 3 reaction thì xóa cũ nhất, cập nhật bộ đếm và không đọc lại")
+    void whenReactWithThreeExisting_thenEvictOldestAndAdjustCounters() {
+        // Arrange
+        User author = new User();
+        author.setUserId("author-1");
+        Post post = new Post(author, Post.MediaType.PHOTO, "https://example.com/p.jpg");
+        post.setPostId("post-1");
+        List<PostReaction> mine = new java.util.ArrayList<>();
+        String[] emojis = {"sad", "love", "wow"};
+        for (int i = 0; i < 3; i++) {
+            PostReaction r = new PostReaction(post, testUser, emojis[i]);
+            r.setReactionId("r-" + i);
+            r.setCreatedAt(LocalDateTime.now().minusMinutes(10 - i));
+            mine.add(r);
+        }
+        when(postRepository.findAuthorAndRecipientFlag("post-1", "user-123"))
+                .thenReturn(List.<Object[]>of(new Object[]{"author-1", 1L}));
+        when(postReactionRepository.findByPostIdAndUserIdForUpdate("post-1", "user-123")).thenReturn(mine);
+        when(postRepository.getReferenceById("post-1")).thenReturn(post);
+        when(postReactionRepository.save(any(PostReaction.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        // Act
+        var res = postService.reactToPost(testUser, "post-1", "FIRE");
+
+        // Assert
+        assertThat(res.getReaction()).containsExactly("love", "wow", "fire");
+        var order = inOrder(userRepository, postReactionRepository);
+        order.verify(userRepository).lockById("user-123");
+        order.verify(postReactionRepository).findByPostIdAndUserIdForUpdate("post-1", "user-123");
+        verify(postReactionRepository).deleteById("r-0");
+        verify(postReactionCountRepository).decrement("post-1", "sad");
+        verify(postReactionCountRepository).increment("post-1", "fire");
+        verify(postRepository, never()).findById(anyString());
+    }
+
+    @Test
+    @DisplayName("React - Không phải recipient thì bị từ chối")
+    void whenReactWithoutBeingRecipient_thenThrow() {
+        when(postRepository.findAuthorAndRecipientFlag("post-1", "user-123"))
+                .thenReturn(List.<Object[]>of(new Object[]{"author-1", 0L}));
+
+        assertThatThrownBy(() -> postService.reactToPost(testUser, "post-1", "like"))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessageContaining("không có quyền");
+        verifyNoInteractions(postReactionCountRepository);
+    }
+
+    @Test
+    @DisplayName("Create Direct - Recipients nạp bằng một findAllById và chèn theo lô")
+    void whenCreateDirectWithRecipients_thenLoadAndInsertInBulk() {
+        // Arrange
+        User friendA = new User();
+        friendA.setUserId("friend-a");
+        User friendB = new User();
+        friendB.setUserId("friend-b");
+        PostDirectCreateRequest req = new PostDirectCreateRequest();
+        req.setMediaType("PHOTO");
+        req.setMediaUrl("https://example.com/p.jpg");
+        req.setRecipientIds(java.util.Arrays.asList("friend-b", "friend-a", "friend-b", " ", "missing"));
+        when(postRepository.save(any(Post.class))).thenAnswer(inv -> {
+            Post p = inv.getArgument(0);
+            p.setPostId("post-new");
+            return p;
+        });
+        when(userRepository.findAllById(any())).thenReturn(List.of(friendA, friendB));
+
+        // Act
+        postService.createDirect(testUser, req);
+
+        // Assert
+        verify(userRepository).findAllById(java.util.Set.of("friend-b", "friend-a", "missing"));
+        verify(userRepository, never()).findById(anyString());
+        verify(postRecipientRepository).deleteAllByPostId("post-new");
+        @SuppressWarnings("unchecked")
+        org.mockito.ArgumentCaptor<List<PostRecipient>> rows = org.mockito.ArgumentCaptor.forClass(List.class);
+        verify(postRecipientRepository).saveAll(rows.capture());
+        assertThat(rows.getValue()).extracting(r -> r.getRecipient().getUserId()).containsExactly("friend-b", "friend-a");
+        verify(postRecipientRepository, never()).existsByPostAndRecipient(any(), any());
+    }
 }
@@ -0,0 +1,89 @@
+package com.pbl6.backend.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pbl6.backend.event.PostChangedEvent;
+import com.pbl6.backend.model.Post;
+import com.pbl6.backend.model.User;
+import com.pbl6.backend.repository.PostRepository;
+import com.pbl6.backend.response.PostSnippet;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit Test cho PostSnippetCache
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Post Snippet Cache Tests")
+class PostSnippetCacheTest {
+
+    @Mock
+    private PostRepository postRepository;
+
+    private PostSnippetCache cache;
+    private Post post;
+
+    @BeforeEach
+    void setUp() {
+        cache = new PostSnippetCache(postRepository);
+        ReflectionTestUtils.setField(cache, "maxEntries", 100);
+        ReflectionTestUtils.setField(cache, "ttlSeconds", 600L);
+        User author = new User();
+        author.setUserId("author");
+        author.setUsername("author");
+        post = new Post(author, Post.MediaType.PHOTO, "https://example.com/p1.jpg");
+        post.setPostId("p1");
+    }
+
+    @Test
+    @DisplayName("Cùng post trong chat - Chỉ nạp một lần, các lần sau lấy từ cache")
+    void whenSamePostRequestedTwice_thenLoadedOnce() {
+        when(postRepository.findAllWithUserByPostIdIn(anyCollection())).thenReturn(List.of(post));
+
+        Map<String, PostSnippet> first = cache.getAll(Set.of("p1"));
+        PostSnippet second = cache.get("p1");
+
+        assertThat(first.get("p1").getMediaUrl()).isEqualTo("https://example.com/p1.jpg");
+        assertThat(second).isSameAs(first.get("p1"));
+        verify(postRepository, times(1)).findAllWithUserByPostIdIn(anyCollection());
+    }
+
+    @Test
+    @DisplayName("JSON - Tác giả vẫn nằm ở khóa \"user\" như PostResponse cũ")
+    void whenSerialized_thenAuthorKeptUnderUserKey() throws Exception {
+        when(postRepository.findAllWithUserByPostIdIn(anyCollection())).thenReturn(List.of(post));
+
+        JsonNode json = new ObjectMapper().valueToTree(cache.get("p1"));
+
+        assertThat(json.path("user").path("username").asText()).isEqualTo("author");
+        assertThat(json.has("author")).isFalse();
+    }
+
+    @Test
+    @DisplayName("Post bị kiểm duyệt - Entry bị xóa, snippet mới không còn media")
+    void whenPostModerated_thenSnippetReloadedWithoutMedia() {
+        when(postRepository.findAllWithUserByPostIdIn(anyCollection())).thenReturn(List.of(post));
+        cache.get("p1");
+
+        post.setIsDeleted(true);
+        cache.onPostChanged(new PostChangedEvent("p1", "author", Set.of(), PostChangedEvent.Type.MODERATED));
+        PostSnippet reloaded = cache.get("p1");
+
+        assertThat(reloaded.isDeleted()).isTrue();
+        assertThat(reloaded.getMediaUrl()).isNull();
+        verify(postRepository, times(2)).findAllWithUserByPostIdIn(anyCollection());
+    }
+}
@@ -0,0 +1,131 @@
+package com.pbl6.backend.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit Test cho ReactionWriteBuffer
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Reaction Write Buffer Tests")
+class ReactionWriteBufferTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private ReactionWriteBuffer buffer;
+
+    @BeforeEach
+    void setUp() {
+        buffer = new ReactionWriteBuffer(jdbcTemplate, transactionManager);
+        ReflectionTestUtils.setField(buffer, "enabled", true);
+        ReflectionTestUtils.setField(buffer, "maxEntries", 1000);
+    }
+
+    @Test
+    @DisplayName("Nhiều lần bấm - Chỉ ghi thay đổi ròng trong một lần flush")
+    void whenManyTaps_thenFlushNetChangesOnce() {
+        AtomicInteger permissionChecks = new AtomicInteger();
+
+        buffer.react("post-1", "user-1", "like", permissionChecks::incrementAndGet);
+        buffer.react("post-1", "user-1", "love", permissionChecks::incrementAndGet);
+        buffer.react("post-1", "user-1", "wow", permissionChecks::incrementAndGet);
+        List<String> current = buffer.react("post-1", "user-1", "fire", permissionChecks::incrementAndGet);
+
+        assertThat(current).containsExactly("love", "wow", "fire");
+        assertThat(permissionChecks.get()).isEqualTo(1);
+        verify(jdbcTemplate, times(1)).query(anyString(), any(RowCallbackHandler.class), eq("post-1"), eq("user-1"));
+
+        buffer.flush(false);
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Object[]>> inserts = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(startsWith("INSERT INTO Post_Reactions"), inserts.capture());
+        assertThat(inserts.getValue()).extracting(row -> row[3]).containsExactly("love", "wow", "fire");
+        verify(jdbcTemplate, never()).batchUpdate(startsWith("DELETE"), anyList());
+        // Bộ đếm được đếm lại cho đúng 3 emoji bị đụng tới, trong cùng một transaction
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Object[]>> recounts = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(startsWith("INSERT INTO Post_Reaction_Counts"), recounts.capture());
+        assertThat(recounts.getValue()).extracting(row -> row[1]).containsExactly("love", "wow", "fire");
+        verify(transactionManager, times(1)).commit(any());
+        verify(transactionManager).getTransaction(argThat(def ->
+                def.getPropagationBehavior() == TransactionDefinition.PROPAGATION_REQUIRES_NEW));
+
+        // Không có thay đổi mới → flush tiếp theo không ghi gì
+        buffer.flush(false);
+        verify(jdbcTemplate, times(2)).batchUpdate(anyString(), anyList());
+        assertThat(buffer.stats()).containsEntry("flushes", 1L).containsEntry("flushedInserts", 3L);
+    }
+
+    @Test
+    @DisplayName("Buffer đầy - Kiểm tra quyền chạy trước flush, bị từ chối thì không flush gì")
+    void whenPermissionCheckFailsAtCapacity_thenNothingFlushed() {
+        ReflectionTestUtils.setField(buffer, "maxEntries", 1);
+        buffer.react("post-1", "user-ok", "like", () -> { });
+
+        assertThatThrownBy(() -> buffer.react("post-1", "user-denied", "like", () -> {
+            throw new RuntimeException("Bạn không có quyền react bài đăng này");
+        })).hasMessageContaining("không có quyền");
+
+        // Reaction của user khác vẫn còn trong buffer, chưa bị ghi trong transaction của request bị từ chối
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+        assertThat(buffer.stats()).containsEntry("dirtyEntries", 1).containsEntry("flushes", 0L);
+
+        // Lần bấm hợp lệ tiếp theo mới flush (transaction riêng) rồi mới nạp entry mới
+        buffer.react("post-2", "user-ok", "love", () -> { });
+        verify(jdbcTemplate).batchUpdate(startsWith("INSERT INTO Post_Reactions"), anyList());
+        assertThat(buffer.stats()).containsEntry("flushes", 1L);
+    }
+
+    @Test
+    @DisplayName("Một dòng lỗi dữ liệu - Chỉ bỏ entry đó, các entry khác vẫn được ghi")
+    void whenOneEntryUnwritable_thenIsolatedAndDropped() {
+        when(jdbcTemplate.batchUpdate(startsWith("INSERT INTO Post_Reactions"), anyList())).thenAnswer(inv -> {
+            List<Object[]> rows = inv.getArgument(1);
+            if (rows.stream().anyMatch(row -> "user-bad".equals(row[2]))) {
+                throw new DataIntegrityViolationException("Data too long for column 'emoji_type'");
+            }
+            return new int[rows.size()];
+        });
+
+        buffer.react("post-1", "user-ok", "like", () -> { });
+        buffer.react("post-1", "user-bad", "heart_broken", () -> { });
+        buffer.flush(false);
+
+        // Batch chung lỗi → ghi lại từng entry: entry tốt commit, entry hỏng bị bỏ khỏi buffer
+        verify(transactionManager, times(1)).commit(any());
+        assertThat(buffer.stats())
+                .containsEntry("flushes", 1L)
+                .containsEntry("flushedInserts", 1L)
+                .containsEntry("droppedEntries", 1L)
+                .containsEntry("dirtyEntries", 0);
+
+        // Không còn gì bẩn → không thử lại mãi
+        clearInvocations(jdbcTemplate);
+        buffer.flush(false);
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+    }
+}
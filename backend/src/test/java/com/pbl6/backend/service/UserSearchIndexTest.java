@@ -0,0 +1,100 @@
+package com.pbl6.backend.service;
+
+import com.pbl6.backend.event.UserChangedEvent;
+import com.pbl6.backend.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit Test cho UserSearchIndex
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("User Search Index Tests")
+class UserSearchIndexTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    private UserSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new UserSearchIndex(userRepository);
+        ReflectionTestUtils.setField(index, "maxCandidates", 1000);
+        ReflectionTestUtils.setField(index, "batchSize", 100);
+        when(userRepository.findSearchRowsAfter(eq(""), any(Pageable.class))).thenReturn(List.<Object[]>of(
+                new Object[]{"u1", "tranducduy", "Trần Đức Duy"},
+                new Object[]{"u2", "duy_nguyen", "Nguyễn Duy"},
+                new Object[]{"u3", "hoangan", "Hoàng Thị Ân"},
+                new Object[]{"u4", "minhduyen", "Lê Minh Duyên"}));
+        index.build();
+    }
+
+    @Test
+    @DisplayName("Tìm kiếm - Không phân biệt dấu, trùng từ xếp trên chuỗi con, phân trang theo offset/limit")
+    void whenSearching_thenFoldedRankedAndPaged() {
+        assertThat(UserSearchIndex.fold("Đặng Thị Ánh")).isEqualTo("dang thi anh");
+
+        // "duy" trùng cả từ ở u1, u2 (u2 có username bắt đầu bằng "duy"), chỉ là đầu từ "duyen" ở u4
+        assertThat(index.search("DUY", 0, 10).getUserIds()).containsExactly("u2", "u1", "u4");
+        assertThat(index.search("duy", 1, 1).getUserIds()).containsExactly("u1");
+        assertThat(index.search("duy", 0, 10).getTotal()).isEqualTo(3);
+
+        // Nhiều từ khóa phải cùng khớp; từ khóa 1-2 ký tự chỉ khớp đầu từ
+        assertThat(index.search("tran d", 0, 10).getUserIds()).containsExactly("u1");
+        assertThat(index.search("ng", 0, 10).getUserIds()).containsExactly("u2");
+        assertThat(index.search("uyen", 0, 10).getUserIds()).containsExactly("u2", "u4");
+        assertThat(index.search("a", 0, 10).getUserIds()).isEmpty();
+        assertThat(index.search("xyz", 0, 10).getUserIds()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Sự kiện - Đổi tên thì gỡ từ cũ, user mới tìm được ngay, xóa user thì không còn kết quả")
+    void whenUserChanged_thenIndexFollows() {
+        index.onUserChanged(new UserChangedEvent("u3", "hoangan", "Hoàng Bảo Ngọc", null, null, UserChangedEvent.Type.SAVED));
+        index.onUserChanged(new UserChangedEvent("u5", "ngocanh", "Phạm Ngọc Ánh", null, null, UserChangedEvent.Type.SAVED));
+
+        assertThat(index.search("an", 0, 10).getUserIds()).containsExactly("u5");
+        assertThat(index.search("ngoc", 0, 10).getUserIds()).containsExactly("u5", "u3");
+
+        index.onUserChanged(new UserChangedEvent("u3", null, null, null, null, UserChangedEvent.Type.DELETED));
+        assertThat(index.search("ngoc", 0, 10).getUserIds()).containsExactly("u5");
+        assertThat(index.stats()).containsEntry("users", 4);
+    }
+
+    @Test
+    @DisplayName("List dày - Giao bằng bitmap cho cùng kết quả, từ khóa quá phổ biến thì dừng ở max-candidates")
+    void whenPostingsDense_thenBitmapPathAndTruncation() {
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            String fullName = i % 3 == 0 ? "Trần Văn Hùng" : "Nguyễn Thị Lan";
+            rows.add(new Object[]{String.format("d%05d", i), "user" + i, fullName});
+        }
+        UserSearchIndex dense = new UserSearchIndex(userRepository);
+        ReflectionTestUtils.setField(dense, "maxCandidates", 500);
+        ReflectionTestUtils.setField(dense, "batchSize", 5000);
+        when(userRepository.findSearchRowsAfter(eq(""), any(Pageable.class))).thenReturn(rows);
+        dense.build();
+        dense.onUserChanged(new UserChangedEvent("d00000", "user0", "Nguyễn Văn Hùng", null, null, UserChangedEvent.Type.SAVED));
+
+        UserSearchIndex.Result hung = dense.search("tran van hung", 0, 5);
+        assertThat(hung.getUserIds()).containsExactly("d00003", "d00006", "d00009", "d00012", "d00015");
+        assertThat(hung.isTruncated()).isTrue();
+        assertThat(hung.getTotal()).isEqualTo(500);
+        assertThat(dense.search("nguyen van", 0, 5).getUserIds()).containsExactly("d00000");
+        assertThat((long) dense.stats().get("denseTrigrams")).isPositive();
+    }
+}
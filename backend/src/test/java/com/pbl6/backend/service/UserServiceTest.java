@@ -1,6 +1,8 @@
 package com.pbl6.backend.service;
 
+import com.pbl6.backend.event.FriendshipChangedEvent;
 import com.pbl6.backend.model.User;
+import com.pbl6.backend.repository.FriendshipRepository;
 import com.pbl6.backend.repository.UserRepository;
 import com.pbl6.backend.request.UpdateUserProfileRequest;
 import com.pbl6.backend.response.PublicUserResponse;
@@ -12,6 +14,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 
 import java.time.LocalDateTime;
 import java.util.Arrays;
@@ -41,6 +44,18 @@ class UserServiceTest {
     @Mock
     private OtpService otpService;
 
+    @Mock
+    private FeedService feedService;
+
+    @Mock
+    private FriendshipRepository friendshipRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private UserSearchIndex userSearchIndex;
+
     @InjectMocks
     private UserService userService;
 
@@ -307,13 +322,19 @@ class UserServiceTest {
         // ARRANGE
         String otp = "123456";
         when(otpService.verifyOtp(testUser.getEmail(), otp)).thenReturn(true);
+        when(friendshipRepository.findAcceptedFriendIds(testUser.getUserId())).thenReturn(List.of("friend-1"));
 
         // ACT
         userService.deleteAccountWithOtp(testUser, otp);
 
         // ASSERT
         verify(otpService, times(1)).verifyOtp(testUser.getEmail(), otp);
+        verify(feedService, times(1)).removeUser(testUser.getUserId());
         verify(userRepository, times(1)).delete(testUser);
+        // Cạnh bạn bè bị xóa theo cascade được báo cho FriendGraph
+        verify(eventPublisher).publishEvent(argThat((Object e) -> e instanceof FriendshipChangedEvent
+                && ((FriendshipChangedEvent) e).getUserTwoId().equals("friend-1")
+                && ((FriendshipChangedEvent) e).getType() == FriendshipChangedEvent.Type.REMOVED));
     }
 
     @Test
@@ -328,7 +349,7 @@ class UserServiceTest {
                 .isInstanceOf(RuntimeException.class)
                 .hasMessageContaining("Mã OTP không hợp lệ hoặc đã hết hạn");
 
-        verify(userRepository, never()).delete(any());
+        verify(userRepository, never()).delete(any(User.class));
     }
 
     @Test
@@ -344,7 +365,7 @@ class UserServiceTest {
                 .hasMessageContaining("Tài khoản không có email");
 
         verify(otpService, never()).verifyOtp(anyString(), anyString());
-        verify(userRepository, never()).delete(any());
+        verify(userRepository, never()).delete(any(User.class));
     }
 
     // ==================== Test 9: search ====================
@@ -427,6 +448,36 @@ class UserServiceTest {
         assertThat(results.get(0).getUsername()).isEqualTo("tranducduy");
     }
 
+    @Test
+    @DisplayName("Test 9e: Chỉ mục sẵn sàng - lọc ACTIVE trước khi cắt trang, email / số điện thoại tìm trên DB")
+    void whenSearchWithIndex_thenFilterStatusBeforePaging() {
+        // ARRANGE - chỉ mục trả 2 kết quả đầu, trong đó u2 đã bị khóa → đọc tiếp đoạn sau để đủ trang
+        User u1 = new User();
+        u1.setUserId("u1");
+        u1.setUsername("duy1");
+        u1.setAccountStatus(User.AccountStatus.ACTIVE);
+        User u3 = new User();
+        u3.setUserId("u3");
+        u3.setUsername("duy3");
+        u3.setAccountStatus(User.AccountStatus.ACTIVE);
+        when(userSearchIndex.isReady()).thenReturn(true);
+        when(userSearchIndex.search("duy", 0, 2)).thenReturn(new UserSearchIndex.Result(List.of("u1", "u2"), 3, false));
+        when(userSearchIndex.search("duy", 2, 2)).thenReturn(new UserSearchIndex.Result(List.of("u3"), 3, false));
+        when(userRepository.findActiveUserIdsIn(List.of("u1", "u2"))).thenReturn(List.of("u1"));
+        when(userRepository.findActiveUserIdsIn(List.of("u3"))).thenReturn(List.of("u3"));
+        when(userRepository.findAllById(List.of("u1", "u3"))).thenReturn(List.of(u3, u1));
+
+        // ACT
+        List<PublicUserResponse> results = userService.search("duy", 0, 2);
+
+        // ASSERT
+        assertThat(results).extracting(PublicUserResponse::getUsername).containsExactly("duy1", "duy3");
+
+        when(userRepository.searchByKeyword("0905 227")).thenReturn(List.of(u1));
+        assertThat(userService.search("0905 227", 0, 2)).hasSize(1);
+        verify(userSearchIndex, never()).search(eq("0905 227"), anyInt(), anyInt());
+    }
+
     // ==================== Test 10: Integration Test - Multiple Updates
     // ====================
     @Test
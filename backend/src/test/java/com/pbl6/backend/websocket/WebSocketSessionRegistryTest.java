@@ -0,0 +1,95 @@
+package com.pbl6.backend.websocket;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.pbl6.backend.event.MessageSentEvent;
+import com.pbl6.backend.response.MessageResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit Test cho WebSocketSessionRegistry (chạy hoàn toàn trong process, session là mock)
+ */
+@DisplayName("WebSocket Session Registry Tests")
+class WebSocketSessionRegistryTest {
+
+    private WebSocketSessionRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        registry = new WebSocketSessionRegistry(new ObjectMapper().registerModule(new JavaTimeModule()));
+        ReflectionTestUtils.setField(registry, "sendBufferBytes", 1024);
+        ReflectionTestUtils.setField(registry, "sendTimeLimitMs", 60_000);
+    }
+
+    @Test
+    @DisplayName("Tin nhắn mới - Đẩy tới cả hai thành viên hội thoại")
+    void whenMessageSent_thenPushToBothMembers() throws Exception {
+        WebSocketSession alice = session("s-alice");
+        WebSocketSession bob = session("s-bob");
+        registry.register("alice", alice);
+        registry.register("bob", bob);
+
+        MessageResponse msg = new MessageResponse("m-1", "c-1", null, "xin chào", null, LocalDateTime.now(), false);
+        registry.onMessageSent(new MessageSentEvent(Set.of("alice", "bob"), msg));
+
+        verify(alice).sendMessage(any(TextMessage.class));
+        verify(bob).sendMessage(any(TextMessage.class));
+        assertThat(registry.stats()).containsEntry("connections", 2L).containsEntry("messagesPushed", 2L);
+    }
+
+    @Test
+    @DisplayName("Client chậm - Vượt buffer gửi thì bị ngắt kết nối")
+    void whenConsumerTooSlow_thenEvict() throws Exception {
+        WebSocketSession slow = session("s-slow");
+        CountDownLatch sending = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(inv -> {
+            sending.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+        }).when(slow).sendMessage(any());
+        registry.register("slow", slow);
+
+        // Luồng 1 bị kẹt ở socket, các tin sau dồn vào buffer của decorator
+        Thread blocked = new Thread(() -> registry.sendToUsers(List.of("slow"), "MESSAGE", "first"));
+        blocked.start();
+        assertThat(sending.await(5, TimeUnit.SECONDS)).isTrue();
+
+        String big = "x".repeat(600);
+        registry.sendToUsers(List.of("slow"), "MESSAGE", big);
+        registry.sendToUsers(List.of("slow"), "MESSAGE", big);
+
+        release.countDown();
+        blocked.join(5_000);
+
+        verify(slow).close(CloseStatus.SESSION_NOT_RELIABLE);
+        assertThat(registry.stats())
+                .containsEntry("slowConsumerEvictions", 1L)
+                .containsEntry("connections", 0L);
+    }
+
+    private static WebSocketSession session(String id) {
+        WebSocketSession s = mock(WebSocketSession.class);
+        when(s.getId()).thenReturn(id);
+        when(s.isOpen()).thenReturn(true);
+        when(s.getAttributes()).thenReturn(new HashMap<>());
+        return s;
+    }
+}